@@ -17,6 +17,87 @@
 SET NAMES utf8mb4;
 SET FOREIGN_KEY_CHECKS = 0;
 
+-- ----------------------------
+-- Table structure for daily_rollup
+-- ----------------------------
+DROP TABLE IF EXISTS `daily_rollup`;
+CREATE TABLE `daily_rollup`  (
+  `kind` varchar(16) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '汇总类型(SALE销售 STOCK_IN入库 STOCK_OUT出库)',
+  `day` date NOT NULL COMMENT '日期',
+  `product_id` bigint(20) NOT NULL COMMENT '产品ID',
+  `qty` int(11) NOT NULL DEFAULT 0 COMMENT '数量合计',
+  `amount` decimal(14, 2) NOT NULL DEFAULT 0.00 COMMENT '金额合计',
+  `cnt` int(11) NOT NULL DEFAULT 0 COMMENT '记录条数',
+  PRIMARY KEY (`kind`, `day`, `product_id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '日汇总表' ROW_FORMAT = Dynamic;
+
+-- ----------------------------
+-- Records of daily_rollup
+-- ----------------------------
+INSERT INTO `daily_rollup` VALUES ('SALE', '2025-12-22', 1, 2, 9998.00, 1);
+INSERT INTO `daily_rollup` VALUES ('SALE', '2025-12-22', 2, 3, 11997.00, 1);
+INSERT INTO `daily_rollup` VALUES ('SALE', '2025-12-22', 4, 1, 3599.00, 1);
+INSERT INTO `daily_rollup` VALUES ('SALE', '2025-12-22', 5, 1, 6999.00, 1);
+INSERT INTO `daily_rollup` VALUES ('STOCK_IN', '2025-12-22', 1, 20, 0.00, 1);
+INSERT INTO `daily_rollup` VALUES ('STOCK_IN', '2025-12-22', 2, 30, 0.00, 1);
+INSERT INTO `daily_rollup` VALUES ('STOCK_IN', '2025-12-22', 3, 15, 0.00, 1);
+INSERT INTO `daily_rollup` VALUES ('STOCK_IN', '2025-12-22', 4, 10, 0.00, 1);
+INSERT INTO `daily_rollup` VALUES ('STOCK_IN', '2025-12-22', 5, 20, 0.00, 1);
+INSERT INTO `daily_rollup` VALUES ('STOCK_OUT', '2025-12-22', 1, 5, 0.00, 1);
+INSERT INTO `daily_rollup` VALUES ('STOCK_OUT', '2025-12-22', 2, 10, 0.00, 1);
+INSERT INTO `daily_rollup` VALUES ('STOCK_OUT', '2025-12-22', 3, 8, 0.00, 1);
+
+-- ----------------------------
+-- Table structure for inventory_flush_batch
+-- ----------------------------
+DROP TABLE IF EXISTS `inventory_flush_batch`;
+CREATE TABLE `inventory_flush_batch`  (
+  `batch_id` varchar(36) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '回写批次ID',
+  `flush_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '回写时间',
+  PRIMARY KEY (`batch_id`) USING BTREE,
+  INDEX `idx_flush_batch_time`(`flush_time` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = 'Redis库存增量已回写批次(防止重复回写)' ROW_FORMAT = Dynamic;
+
+-- ----------------------------
+-- Table structure for inventory_movement
+-- ----------------------------
+DROP TABLE IF EXISTS `inventory_movement`;
+CREATE TABLE `inventory_movement`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `product_id` bigint(20) NOT NULL COMMENT '产品ID',
+  `change_qty` int(11) NOT NULL COMMENT '库存变化量(正数增加 负数减少)',
+  `movement_type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '变动类型',
+  `ref_id` bigint(20) NULL DEFAULT NULL COMMENT '关联单据ID',
+  `operator_id` bigint(20) NULL DEFAULT NULL COMMENT '操作人ID',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '发生时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_movement_product_time`(`product_id` ASC, `create_time` ASC) USING BTREE,
+  INDEX `idx_movement_time`(`create_time` ASC) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 6 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '库存流水表(只追加)' ROW_FORMAT = Dynamic;
+
+-- ----------------------------
+-- Records of inventory_movement
+-- ----------------------------
+INSERT INTO `inventory_movement` VALUES (1, 1, 50, 'INIT', NULL, NULL, '2025-12-22 08:41:26');
+INSERT INTO `inventory_movement` VALUES (2, 2, 80, 'INIT', NULL, NULL, '2025-12-22 08:41:26');
+INSERT INTO `inventory_movement` VALUES (3, 3, 60, 'INIT', NULL, NULL, '2025-12-22 08:41:26');
+INSERT INTO `inventory_movement` VALUES (4, 4, 40, 'INIT', NULL, NULL, '2025-12-22 08:41:26');
+INSERT INTO `inventory_movement` VALUES (5, 5, 30, 'INIT', NULL, NULL, '2025-12-22 08:41:26');
+
+-- ----------------------------
+-- Table structure for inventory_snapshot
+-- ----------------------------
+DROP TABLE IF EXISTS `inventory_snapshot`;
+CREATE TABLE `inventory_snapshot`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `product_id` bigint(20) NOT NULL COMMENT '产品ID',
+  `stock` int(11) NOT NULL COMMENT '快照库存',
+  `snapshot_time` datetime NOT NULL COMMENT '快照截止时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE INDEX `uk_snapshot_product_time`(`product_id` ASC, `snapshot_time` ASC) USING BTREE,
+  INDEX `idx_snapshot_time`(`snapshot_time` ASC) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '库存快照表' ROW_FORMAT = Dynamic;
+
 -- ----------------------------
 -- Table structure for product
 -- ----------------------------
@@ -29,19 +110,24 @@ CREATE TABLE `product`  (
   `stock` int(11) NULL DEFAULT 0 COMMENT '库存数量',
   `status` tinyint(4) NULL DEFAULT 1 COMMENT '状态(1上架 0下架)',
   `create_time` datetime NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `version` int(11) NOT NULL DEFAULT 0 COMMENT '版本号(乐观锁)',
+  `warning_threshold` int(11) NULL DEFAULT NULL COMMENT '库存预警阈值(为空时使用类型阈值)',
+  `reserved` int(11) NOT NULL DEFAULT 0 COMMENT '已预留数量(可用库存=库存-已预留)',
   PRIMARY KEY (`id`) USING BTREE,
   INDEX `fk_product_type`(`type_id` ASC) USING BTREE,
+  INDEX `idx_product_status_stock`(`status` ASC, `stock` ASC) USING BTREE,
+  INDEX `idx_product_warning_threshold`(`warning_threshold` ASC) USING BTREE,
   CONSTRAINT `fk_product_type` FOREIGN KEY (`type_id`) REFERENCES `product_type` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT
 ) ENGINE = InnoDB AUTO_INCREMENT = 6 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '家电产品表' ROW_FORMAT = Dynamic;
 
 -- ----------------------------
 -- Records of product
 -- ----------------------------
-INSERT INTO `product` VALUES (1, '海尔双开门冰箱', 1, 4999.00, 50, 1, '2025-12-22 08:41:26');
-INSERT INTO `product` VALUES (2, '美的变频空调', 2, 3999.00, 80, 1, '2025-12-22 08:41:26');
-INSERT INTO `product` VALUES (3, '小天鹅滚筒洗衣机', 3, 2999.00, 60, 1, '2025-12-22 08:41:26');
-INSERT INTO `product` VALUES (4, '海信4K电视', 4, 3599.00, 40, 1, '2025-12-22 08:41:26');
-INSERT INTO `product` VALUES (5, '格力立式空调', 2, 6999.00, 30, 1, '2025-12-22 08:41:26');
+INSERT INTO `product` VALUES (1, '海尔双开门冰箱', 1, 4999.00, 50, 1, '2025-12-22 08:41:26', 0, NULL, 0);
+INSERT INTO `product` VALUES (2, '美的变频空调', 2, 3999.00, 80, 1, '2025-12-22 08:41:26', 0, NULL, 0);
+INSERT INTO `product` VALUES (3, '小天鹅滚筒洗衣机', 3, 2999.00, 60, 1, '2025-12-22 08:41:26', 0, NULL, 0);
+INSERT INTO `product` VALUES (4, '海信4K电视', 4, 3599.00, 40, 1, '2025-12-22 08:41:26', 0, NULL, 0);
+INSERT INTO `product` VALUES (5, '格力立式空调', 2, 6999.00, 30, 1, '2025-12-22 08:41:26', 0, NULL, 0);
 
 -- ----------------------------
 -- Table structure for product_type
@@ -51,16 +137,17 @@ CREATE TABLE `product_type`  (
   `id` bigint(20) NOT NULL AUTO_INCREMENT,
   `type_name` varchar(100) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '类型名称',
   `remark` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL,
+  `warning_threshold` int(11) NULL DEFAULT NULL COMMENT '库存预警阈值(为空时使用系统默认值)',
   PRIMARY KEY (`id`) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 5 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '家电类型表' ROW_FORMAT = Dynamic;
 
 -- ----------------------------
 -- Records of product_type
 -- ----------------------------
-INSERT INTO `product_type` VALUES (1, '冰箱', '制冷类家电');
-INSERT INTO `product_type` VALUES (2, '空调', '制冷制热设备');
-INSERT INTO `product_type` VALUES (3, '洗衣机', '洗涤设备');
-INSERT INTO `product_type` VALUES (4, '电视', '影音娱乐设备');
+INSERT INTO `product_type` VALUES (1, '冰箱', '制冷类家电', NULL);
+INSERT INTO `product_type` VALUES (2, '空调', '制冷制热设备', NULL);
+INSERT INTO `product_type` VALUES (3, '洗衣机', '洗涤设备', NULL);
+INSERT INTO `product_type` VALUES (4, '电视', '影音娱乐设备', NULL);
 
 -- ----------------------------
 -- Table structure for sale
@@ -72,10 +159,13 @@ CREATE TABLE `sale`  (
   `quantity` int(11) NOT NULL COMMENT '销售数量',
   `total_price` decimal(10, 2) NOT NULL COMMENT '销售总额',
   `salesman_id` bigint(20) NOT NULL COMMENT '销售人员ID',
-  `sale_time` datetime NULL DEFAULT CURRENT_TIMESTAMP COMMENT '销售时间',
+  `sale_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '销售时间',
+  `order_no` varchar(32) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '订单号',
   PRIMARY KEY (`id`) USING BTREE,
-  INDEX `fk_sale_product`(`product_id` ASC) USING BTREE,
-  INDEX `fk_sale_user`(`salesman_id` ASC) USING BTREE,
+  INDEX `idx_sale_order_no`(`order_no` ASC) USING BTREE,
+  INDEX `idx_sale_time_id`(`sale_time` ASC, `id` ASC) USING BTREE,
+  INDEX `fk_sale_product`(`product_id` ASC, `sale_time` ASC, `id` ASC) USING BTREE,
+  INDEX `fk_sale_user`(`salesman_id` ASC, `sale_time` ASC, `id` ASC) USING BTREE,
   CONSTRAINT `fk_sale_product` FOREIGN KEY (`product_id`) REFERENCES `product` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT,
   CONSTRAINT `fk_sale_user` FOREIGN KEY (`salesman_id`) REFERENCES `sys_user` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT
 ) ENGINE = InnoDB AUTO_INCREMENT = 5 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '销售记录表' ROW_FORMAT = Dynamic;
@@ -83,10 +173,38 @@ CREATE TABLE `sale`  (
 -- ----------------------------
 -- Records of sale
 -- ----------------------------
-INSERT INTO `sale` VALUES (1, 1, 2, 9998.00, 4, '2025-12-22 08:41:36');
-INSERT INTO `sale` VALUES (2, 2, 3, 11997.00, 5, '2025-12-22 08:41:36');
-INSERT INTO `sale` VALUES (3, 4, 1, 3599.00, 4, '2025-12-22 08:41:36');
-INSERT INTO `sale` VALUES (4, 5, 1, 6999.00, 5, '2025-12-22 08:41:36');
+INSERT INTO `sale` VALUES (1, 1, 2, 9998.00, 4, '2025-12-22 08:41:36', NULL);
+INSERT INTO `sale` VALUES (2, 2, 3, 11997.00, 5, '2025-12-22 08:41:36', NULL);
+INSERT INTO `sale` VALUES (3, 4, 1, 3599.00, 4, '2025-12-22 08:41:36', NULL);
+INSERT INTO `sale` VALUES (4, 5, 1, 6999.00, 5, '2025-12-22 08:41:36', NULL);
+
+-- ----------------------------
+-- Table structure for stock_change_pending
+-- ----------------------------
+DROP TABLE IF EXISTS `stock_change_pending`;
+CREATE TABLE `stock_change_pending`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `product_id` bigint(20) NOT NULL COMMENT '产品ID',
+  `delta` bigint(20) NOT NULL COMMENT '已提交的库存变化量(正数增加 负数减少)',
+  `create_time` datetime NOT NULL COMMENT '提交时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_pending_time`(`create_time` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '合并提交引擎待确认的库存变更' ROW_FORMAT = Dynamic;
+
+-- ----------------------------
+-- Table structure for stock_hold
+-- ----------------------------
+DROP TABLE IF EXISTS `stock_hold`;
+CREATE TABLE `stock_hold`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `product_id` bigint(20) NOT NULL COMMENT '产品ID',
+  `quantity` int(11) NOT NULL COMMENT '预留数量',
+  `salesman_id` bigint(20) NOT NULL COMMENT '销售员ID',
+  `expire_time` datetime NOT NULL COMMENT '到期时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_hold_expire_time`(`expire_time` ASC) USING BTREE,
+  INDEX `idx_hold_product`(`product_id` ASC) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '库存预留表(到期未确认自动释放)' ROW_FORMAT = Dynamic;
 
 -- ----------------------------
 -- Table structure for stock_in
@@ -97,10 +215,11 @@ CREATE TABLE `stock_in`  (
   `product_id` bigint(20) NOT NULL COMMENT '产品ID',
   `quantity` int(11) NOT NULL COMMENT '入库数量',
   `operator_id` bigint(20) NOT NULL COMMENT '操作人ID',
-  `in_time` datetime NULL DEFAULT CURRENT_TIMESTAMP COMMENT '入库时间',
+  `in_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '入库时间',
   PRIMARY KEY (`id`) USING BTREE,
-  INDEX `fk_stockin_product`(`product_id` ASC) USING BTREE,
-  INDEX `fk_stockin_user`(`operator_id` ASC) USING BTREE,
+  INDEX `idx_stockin_time_id`(`in_time` ASC, `id` ASC) USING BTREE,
+  INDEX `fk_stockin_product`(`product_id` ASC, `in_time` ASC, `id` ASC) USING BTREE,
+  INDEX `fk_stockin_user`(`operator_id` ASC, `in_time` ASC, `id` ASC) USING BTREE,
   CONSTRAINT `fk_stockin_product` FOREIGN KEY (`product_id`) REFERENCES `product` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT,
   CONSTRAINT `fk_stockin_user` FOREIGN KEY (`operator_id`) REFERENCES `sys_user` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT
 ) ENGINE = InnoDB AUTO_INCREMENT = 6 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '入库记录表' ROW_FORMAT = Dynamic;
@@ -123,10 +242,11 @@ CREATE TABLE `stock_out`  (
   `product_id` bigint(20) NOT NULL COMMENT '产品ID',
   `quantity` int(11) NOT NULL COMMENT '出库数量',
   `operator_id` bigint(20) NOT NULL COMMENT '操作人ID',
-  `out_time` datetime NULL DEFAULT CURRENT_TIMESTAMP COMMENT '出库时间',
+  `out_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '出库时间',
   PRIMARY KEY (`id`) USING BTREE,
-  INDEX `fk_stockout_product`(`product_id` ASC) USING BTREE,
-  INDEX `fk_stockout_user`(`operator_id` ASC) USING BTREE,
+  INDEX `idx_stockout_time_id`(`out_time` ASC, `id` ASC) USING BTREE,
+  INDEX `fk_stockout_product`(`product_id` ASC, `out_time` ASC, `id` ASC) USING BTREE,
+  INDEX `fk_stockout_user`(`operator_id` ASC, `out_time` ASC, `id` ASC) USING BTREE,
   CONSTRAINT `fk_stockout_product` FOREIGN KEY (`product_id`) REFERENCES `product` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT,
   CONSTRAINT `fk_stockout_user` FOREIGN KEY (`operator_id`) REFERENCES `sys_user` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT
 ) ENGINE = InnoDB AUTO_INCREMENT = 4 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '出库记录表' ROW_FORMAT = Dynamic;
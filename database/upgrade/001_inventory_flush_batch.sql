@@ -0,0 +1,7 @@
+-- Redis库存引擎回写批次表：同一批增量只回写一次
+CREATE TABLE IF NOT EXISTS `inventory_flush_batch`  (
+  `batch_id` varchar(36) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '回写批次ID',
+  `flush_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '回写时间',
+  PRIMARY KEY (`batch_id`) USING BTREE,
+  INDEX `idx_flush_batch_time`(`flush_time` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = 'Redis库存增量已回写批次(防止重复回写)' ROW_FORMAT = Dynamic;
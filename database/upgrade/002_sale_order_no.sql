@@ -0,0 +1,4 @@
+-- 多明细销售订单：同一订单的各条销售记录共用订单号，原有的单件销售记录订单号为空
+ALTER TABLE `sale`
+  ADD COLUMN `order_no` varchar(32) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '订单号' AFTER `sale_time`,
+  ADD INDEX `idx_sale_order_no`(`order_no` ASC) USING BTREE;
@@ -0,0 +1,9 @@
+-- 合并提交库存引擎待确认变更表：调用方事务回滚或进程崩溃时据此补偿库存
+CREATE TABLE IF NOT EXISTS `stock_change_pending`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `product_id` bigint(20) NOT NULL COMMENT '产品ID',
+  `delta` bigint(20) NOT NULL COMMENT '已提交的库存变化量(正数增加 负数减少)',
+  `create_time` datetime NOT NULL COMMENT '提交时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_pending_time`(`create_time` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '合并提交引擎待确认的库存变更' ROW_FORMAT = Dynamic;
@@ -0,0 +1,13 @@
+-- 库存预留持久化：预留数量记在产品表上，扣减库存时按 库存-已预留 校验
+ALTER TABLE `product` ADD COLUMN `reserved` int(11) NOT NULL DEFAULT 0 COMMENT '已预留数量(可用库存=库存-已预留)' AFTER `create_time`;
+
+CREATE TABLE IF NOT EXISTS `stock_hold`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `product_id` bigint(20) NOT NULL COMMENT '产品ID',
+  `quantity` int(11) NOT NULL COMMENT '预留数量',
+  `salesman_id` bigint(20) NOT NULL COMMENT '销售员ID',
+  `expire_time` datetime NOT NULL COMMENT '到期时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_hold_expire_time`(`expire_time` ASC) USING BTREE,
+  INDEX `idx_hold_product`(`product_id` ASC) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '库存预留表(到期未确认自动释放)' ROW_FORMAT = Dynamic;
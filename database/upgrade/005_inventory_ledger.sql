@@ -0,0 +1,23 @@
+-- 库存流水（只追加）与定期库存快照：查询某一时刻的库存时从最近的快照向后累加流水
+CREATE TABLE IF NOT EXISTS `inventory_movement`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `product_id` bigint(20) NOT NULL COMMENT '产品ID',
+  `change_qty` int(11) NOT NULL COMMENT '库存变化量(正数增加 负数减少)',
+  `movement_type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '变动类型',
+  `ref_id` bigint(20) NULL DEFAULT NULL COMMENT '关联单据ID',
+  `operator_id` bigint(20) NULL DEFAULT NULL COMMENT '操作人ID',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '发生时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_movement_product_time`(`product_id` ASC, `create_time` ASC) USING BTREE,
+  INDEX `idx_movement_time`(`create_time` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '库存流水表(只追加)' ROW_FORMAT = Dynamic;
+
+CREATE TABLE IF NOT EXISTS `inventory_snapshot`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `product_id` bigint(20) NOT NULL COMMENT '产品ID',
+  `stock` int(11) NOT NULL COMMENT '快照库存',
+  `snapshot_time` datetime NOT NULL COMMENT '快照截止时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_snapshot_product_time`(`product_id` ASC, `snapshot_time` ASC) USING BTREE,
+  INDEX `idx_snapshot_time`(`snapshot_time` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '库存快照表' ROW_FORMAT = Dynamic;
@@ -0,0 +1,22 @@
+-- 1. 期初库存流水（只需执行一次）：库存流水功能上线前已有的库存没有对应的流水，
+--    按产品补一条INIT流水，使流水合计等于当前库存；时间取产品创建时间与该产品最早流水时间中较早的一个，
+--    保证补录的期初余额排在所有已有流水之前。
+--    使用redis库存引擎时数据库库存可能尚未回写，请在停止应用、完成回写后执行。
+INSERT INTO `inventory_movement` (`product_id`, `change_qty`, `movement_type`, `ref_id`, `operator_id`, `create_time`)
+SELECT p.id, IFNULL(p.stock, 0) - IFNULL(m.total, 0), 'INIT', NULL, NULL,
+       COALESCE(LEAST(p.create_time, m.first_time), m.first_time, p.create_time, NOW())
+FROM `product` p
+LEFT JOIN (
+    SELECT product_id, SUM(change_qty) AS total, MIN(create_time) AS first_time
+    FROM `inventory_movement`
+    GROUP BY product_id
+) m ON m.product_id = p.id
+WHERE IFNULL(p.stock, 0) <> IFNULL(m.total, 0);
+
+-- 2. 已有快照不包含补录的期初余额，且可能存在多实例生成的重复快照；快照可由流水重新计算，全部清空后由定时任务重新生成
+DELETE FROM `inventory_snapshot`;
+
+-- 3. 库存快照按(产品, 截止时间)唯一，多实例同时生成快照时不再产生重复行
+ALTER TABLE `inventory_snapshot`
+  DROP INDEX `idx_snapshot_product_time`,
+  ADD UNIQUE INDEX `uk_snapshot_product_time`(`product_id` ASC, `snapshot_time` ASC) USING BTREE;
@@ -0,0 +1,2 @@
+-- 产品乐观锁版本号：修改库存时须回传查询到的版本号，期间产品被修改过则更新失败
+ALTER TABLE `product` ADD COLUMN `version` int(11) NOT NULL DEFAULT 0 COMMENT '版本号(乐观锁)' AFTER `create_time`;
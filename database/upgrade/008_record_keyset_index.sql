@@ -0,0 +1,22 @@
+-- 记录分页按（时间，ID）游标定位：增加（时间，ID）索引，外键索引扩展为（外键，时间，ID），
+-- 按产品或人员筛选时同样按索引顺序读取；外键索引在同一条语句中删除并重建，外键始终有可用的索引
+ALTER TABLE `sale`
+  ADD INDEX `idx_sale_time_id`(`sale_time` ASC, `id` ASC) USING BTREE,
+  DROP INDEX `fk_sale_product`,
+  ADD INDEX `fk_sale_product`(`product_id` ASC, `sale_time` ASC, `id` ASC) USING BTREE,
+  DROP INDEX `fk_sale_user`,
+  ADD INDEX `fk_sale_user`(`salesman_id` ASC, `sale_time` ASC, `id` ASC) USING BTREE;
+
+ALTER TABLE `stock_in`
+  ADD INDEX `idx_stockin_time_id`(`in_time` ASC, `id` ASC) USING BTREE,
+  DROP INDEX `fk_stockin_product`,
+  ADD INDEX `fk_stockin_product`(`product_id` ASC, `in_time` ASC, `id` ASC) USING BTREE,
+  DROP INDEX `fk_stockin_user`,
+  ADD INDEX `fk_stockin_user`(`operator_id` ASC, `in_time` ASC, `id` ASC) USING BTREE;
+
+ALTER TABLE `stock_out`
+  ADD INDEX `idx_stockout_time_id`(`out_time` ASC, `id` ASC) USING BTREE,
+  DROP INDEX `fk_stockout_product`,
+  ADD INDEX `fk_stockout_product`(`product_id` ASC, `out_time` ASC, `id` ASC) USING BTREE,
+  DROP INDEX `fk_stockout_user`,
+  ADD INDEX `fk_stockout_user`(`operator_id` ASC, `out_time` ASC, `id` ASC) USING BTREE;
@@ -0,0 +1,18 @@
+-- 销售、入库、出库记录的时间改为非空：记录分页游标按（时间，ID）定位，时间为空的记录无法通过游标访问
+-- 1. 优先用对应库存流水的发生时间补齐
+UPDATE `sale` s JOIN `inventory_movement` m ON m.ref_id = s.id AND m.movement_type = 'SALE'
+SET s.sale_time = m.create_time WHERE s.sale_time IS NULL;
+UPDATE `stock_in` r JOIN `inventory_movement` m ON m.ref_id = r.id AND m.movement_type = 'STOCK_IN'
+SET r.in_time = m.create_time WHERE r.in_time IS NULL;
+UPDATE `stock_out` r JOIN `inventory_movement` m ON m.ref_id = r.id AND m.movement_type = 'STOCK_OUT'
+SET r.out_time = m.create_time WHERE r.out_time IS NULL;
+
+-- 2. 没有流水可参考的记录时间未知，统一补为固定的早期时间，排在所有记录之后
+UPDATE `sale` SET sale_time = '2000-01-01 00:00:00' WHERE sale_time IS NULL;
+UPDATE `stock_in` SET in_time = '2000-01-01 00:00:00' WHERE in_time IS NULL;
+UPDATE `stock_out` SET out_time = '2000-01-01 00:00:00' WHERE out_time IS NULL;
+
+-- 3. 修改为非空
+ALTER TABLE `sale` MODIFY COLUMN `sale_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '销售时间';
+ALTER TABLE `stock_in` MODIFY COLUMN `in_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '入库时间';
+ALTER TABLE `stock_out` MODIFY COLUMN `out_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '出库时间';
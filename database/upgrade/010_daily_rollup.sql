@@ -0,0 +1,23 @@
+-- 销售、入库、出库按（类型，日期，产品）的日汇总，统计查询按天读取汇总代替扫描明细
+CREATE TABLE IF NOT EXISTS `daily_rollup`  (
+  `kind` varchar(16) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '汇总类型(SALE销售 STOCK_IN入库 STOCK_OUT出库)',
+  `day` date NOT NULL COMMENT '日期',
+  `product_id` bigint(20) NOT NULL COMMENT '产品ID',
+  `qty` int(11) NOT NULL DEFAULT 0 COMMENT '数量合计',
+  `amount` decimal(14, 2) NOT NULL DEFAULT 0.00 COMMENT '金额合计',
+  `cnt` int(11) NOT NULL DEFAULT 0 COMMENT '记录条数',
+  PRIMARY KEY (`kind`, `day`, `product_id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '日汇总表' ROW_FORMAT = Dynamic;
+
+-- 按已有明细生成汇总（与 DailyRollupMapper 的 rebuild 语句相同），重复执行时先清空；
+-- 请在停止应用后执行，否则执行期间新增的明细会被重复计入
+DELETE FROM `daily_rollup`;
+INSERT INTO `daily_rollup` (`kind`, `day`, `product_id`, `qty`, `amount`, `cnt`)
+SELECT 'SALE', DATE(sale_time), product_id, SUM(quantity), SUM(total_price), COUNT(*) FROM `sale`
+GROUP BY DATE(sale_time), product_id;
+INSERT INTO `daily_rollup` (`kind`, `day`, `product_id`, `qty`, `amount`, `cnt`)
+SELECT 'STOCK_IN', DATE(in_time), product_id, SUM(quantity), 0, COUNT(*) FROM `stock_in`
+GROUP BY DATE(in_time), product_id;
+INSERT INTO `daily_rollup` (`kind`, `day`, `product_id`, `qty`, `amount`, `cnt`)
+SELECT 'STOCK_OUT', DATE(out_time), product_id, SUM(quantity), 0, COUNT(*) FROM `stock_out`
+GROUP BY DATE(out_time), product_id;
@@ -0,0 +1,9 @@
+-- 库存预警阈值：可按产品或产品类型设置，都为空时使用系统默认值
+-- 预警查询按（状态，库存）索引范围扫描，最大阈值通过阈值索引读取
+ALTER TABLE `product`
+  ADD COLUMN `warning_threshold` int(11) NULL DEFAULT NULL COMMENT '库存预警阈值(为空时使用类型阈值)' AFTER `version`,
+  ADD INDEX `idx_product_status_stock`(`status` ASC, `stock` ASC) USING BTREE,
+  ADD INDEX `idx_product_warning_threshold`(`warning_threshold` ASC) USING BTREE;
+
+ALTER TABLE `product_type`
+  ADD COLUMN `warning_threshold` int(11) NULL DEFAULT NULL COMMENT '库存预警阈值(为空时使用系统默认值)' AFTER `remark`;
@@ -0,0 +1,87 @@
+package cn.pcs.appliancesystem.benchmark;
+
+import cn.pcs.appliancesystem.service.InventoryEngine;
+import cn.pcs.appliancesystem.service.impl.CoalescingInventoryEngine;
+import cn.pcs.appliancesystem.service.impl.DatabaseInventoryEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热点产品的出库吞吐量：数据库引擎与合并提交引擎对比（user-005）
+ * 每次操作是一个调用方事务：扣减库存后再执行 callerStatements 条业务语句（出库记录、库存流水）。
+ * 数据库引擎从UPDATE到调用方提交一直持有行锁；合并提交引擎的行锁只在批次事务中持有，
+ * 调用方事务只删除待确认记录
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class CoalescingEngineBenchmark {
+
+    private static final Long PRODUCT_ID = 1L;
+
+    @Param({"database", "coalescing"})
+    public String engine;
+
+    @Param({"100"})
+    public long statementMicros;
+
+    @Param({"500"})
+    public long commitMicros;
+
+    @Param({"2"})
+    public int callerStatements;
+
+    private StatementLatency latency;
+    private InventoryEngine inventoryEngine;
+    private TransactionTemplate callerTransaction;
+
+    @Setup
+    public void setUp() {
+        latency = new StatementLatency(statementMicros);
+        HotRowDatabase database = new HotRowDatabase(latency, commitMicros);
+        PlatformTransactionManager transactionManager = database.transactionManager();
+        callerTransaction = new TransactionTemplate(transactionManager);
+        if ("coalescing".equals(engine)) {
+            inventoryEngine = new CoalescingInventoryEngine(database.productMapper(), database.pendingMapper(),
+                    new TransactionTemplate(transactionManager), 2, 64, 16, 5000, 600_000);
+        } else {
+            inventoryEngine = new DatabaseInventoryEngine(database.productMapper());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (inventoryEngine instanceof CoalescingInventoryEngine coalescing) {
+            coalescing.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void stockOut() {
+        callerTransaction.executeWithoutResult(status -> {
+            inventoryEngine.decrease(PRODUCT_ID, 1);
+            for (int i = 0; i < callerStatements; i++) {
+                latency.roundTrip();
+            }
+        });
+    }
+}
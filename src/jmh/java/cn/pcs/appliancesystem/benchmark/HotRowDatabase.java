@@ -0,0 +1,115 @@
+package cn.pcs.appliancesystem.benchmark;
+
+import cn.pcs.appliancesystem.entity.StockChangePending;
+import cn.pcs.appliancesystem.mapper.ProductMapper;
+import cn.pcs.appliancesystem.mapper.StockChangePendingMapper;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 只有一个热点产品行的模拟数据库
+ * 库存UPDATE获取行锁并持有到事务提交，提交按 commitMicros 停顿（模拟刷盘），
+ * 与InnoDB中热点行的提交串行化一致；库存视为无限，UPDATE总是成功
+ */
+public final class HotRowDatabase {
+
+    private final StatementLatency latency;
+    private final long commitNanos;
+    private final ReentrantLock rowLock = new ReentrantLock();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong nextPendingId = new AtomicLong();
+
+    public HotRowDatabase(StatementLatency latency, long commitMicros) {
+        this.latency = latency;
+        this.commitNanos = TimeUnit.MICROSECONDS.toNanos(commitMicros);
+    }
+
+    public long commits() {
+        return commits.get();
+    }
+
+    /**
+     * 库存增减方法获取行锁并返回1，其他方法只计一条语句
+     */
+    public ProductMapper productMapper() {
+        return (ProductMapper) Proxy.newProxyInstance(ProductMapper.class.getClassLoader(),
+                new Class<?>[]{ProductMapper.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.getName().equals("equals") ? proxy == args[0] : System.identityHashCode(proxy);
+                    }
+                    latency.roundTrip();
+                    String name = method.getName();
+                    if (name.startsWith("applyStockDelta") || name.equals("increaseStock") || name.equals("decreaseStock")) {
+                        if (!rowLock.isHeldByCurrentThread()) {
+                            rowLock.lock();
+                        }
+                        return 1;
+                    }
+                    return StatementLatency.defaultValue(method.getReturnType());
+                });
+    }
+
+    /**
+     * 待确认记录：插入时回填ID，删除总是成功
+     */
+    @SuppressWarnings("unchecked")
+    public StockChangePendingMapper pendingMapper() {
+        return (StockChangePendingMapper) Proxy.newProxyInstance(StockChangePendingMapper.class.getClassLoader(),
+                new Class<?>[]{StockChangePendingMapper.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.getName().equals("equals") ? proxy == args[0] : System.identityHashCode(proxy);
+                    }
+                    latency.roundTrip();
+                    if (method.getName().equals("insertBatch")) {
+                        List<StockChangePending> rows = (List<StockChangePending>) args[0];
+                        rows.forEach(row -> row.setId(nextPendingId.incrementAndGet()));
+                        return rows.size();
+                    }
+                    if (method.getName().equals("deleteById")) {
+                        return 1;
+                    }
+                    return StatementLatency.defaultValue(method.getReturnType());
+                });
+    }
+
+    public AbstractPlatformTransactionManager transactionManager() {
+        return new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+                if (commitNanos > 0) {
+                    LockSupport.parkNanos(commitNanos);
+                }
+                commits.incrementAndGet();
+                releaseRow();
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+                releaseRow();
+            }
+        };
+    }
+
+    private void releaseRow() {
+        if (rowLock.isHeldByCurrentThread()) {
+            rowLock.unlock();
+        }
+    }
+}
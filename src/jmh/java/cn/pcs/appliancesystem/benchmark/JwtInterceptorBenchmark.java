@@ -0,0 +1,100 @@
+package cn.pcs.appliancesystem.benchmark;
+
+import cn.pcs.appliancesystem.config.JwtInterceptor;
+import cn.pcs.appliancesystem.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个请求的JWT拦截器开销（user-024）
+ * before 按原拦截器的做法：过期检查、有效性检查、取用户ID、取角色各解析验签一次，每次新建解析器；
+ * verifyOnce 为缓存未命中（首个请求或缓存已满）时解析一次；cached 为同一令牌的后续请求
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtInterceptorBenchmark {
+
+    private static final String SECRET = "AppliancesSystemSecretKey2025ForJWTTokenGeneration";
+
+    private JwtInterceptor cachingInterceptor;
+    private JwtInterceptor uncachedInterceptor;
+    private SecretKey key;
+    private String token;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private final Object handler = new Object();
+
+    @Setup
+    public void setUp() {
+        JwtUtil cachingJwtUtil = jwtUtil(10_000);
+        cachingInterceptor = new JwtInterceptor(cachingJwtUtil);
+        // 缓存容量为0，每个请求都解析
+        uncachedInterceptor = new JwtInterceptor(jwtUtil(0));
+        key = Keys.hmacShaKeyFor(Arrays.copyOf(SECRET.getBytes(StandardCharsets.UTF_8), 32));
+        token = cachingJwtUtil.generateToken(7L, "alice", "ADMIN");
+        request = new MockHttpServletRequest("GET", "/api/products");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public boolean cached() {
+        return cachingInterceptor.preHandle(request, response, handler);
+    }
+
+    @Benchmark
+    public boolean verifyOnce() {
+        return uncachedInterceptor.preHandle(request, response, handler);
+    }
+
+    @Benchmark
+    public boolean before() {
+        String header = request.getHeader("Authorization");
+        String t = header.substring(7);
+        if (parse(t).getExpiration().before(new Date())) {
+            return false;
+        }
+        parse(t);
+        request.setAttribute("userId", parse(t).get("userId", Long.class));
+        request.setAttribute("role", parse(t).get("role", String.class));
+        return true;
+    }
+
+    private Claims parse(String t) {
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(t).getBody();
+    }
+
+    private static JwtUtil jwtUtil(int cacheMaxEntries) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", 3_600_000L);
+        ReflectionTestUtils.setField(jwtUtil, "streamExpirationTime", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxEntries", cacheMaxEntries);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+}
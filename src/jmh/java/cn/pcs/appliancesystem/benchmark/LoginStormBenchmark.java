@@ -0,0 +1,150 @@
+package cn.pcs.appliancesystem.benchmark;
+
+import cn.pcs.appliancesystem.entity.LoginRequest;
+import cn.pcs.appliancesystem.entity.UserWithRole;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.SysUserMapper;
+import cn.pcs.appliancesystem.service.impl.AuthServiceImpl;
+import cn.pcs.appliancesystem.support.H2Services;
+import cn.pcs.appliancesystem.util.JwtUtil;
+import cn.pcs.appliancesystem.util.PasswordUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 登录高峰期间销售接口的延迟分布（user-025）
+ * sell 在H2上按生产环境的依赖执行一次销售（与 /api/sale/sell 的服务层相同），同时 stormClients 个客户端不停登录：
+ * none 没有登录请求；inline 按原做法在请求线程上直接计算BCrypt；offloaded 经AuthServiceImpl在有界线程池中计算，
+ * 队列满时得到503，客户端等待1ms（一次往返）后重试。限流桶容量放大，只比较线程池的效果。
+ * 看 p0.99：offloaded 下BCrypt最多占用 hashThreads 个CPU，CPU数大于 hashThreads 时应与 none 接近
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(1)
+@Fork(1)
+public class LoginStormBenchmark {
+
+    private static final String PASSWORD = "secret123";
+    private static final long PRODUCT_ID = 1L;
+    private static final long SALESMAN_ID = 4L;
+
+    @Param({"none", "inline", "offloaded"})
+    public String storm;
+
+    @Param({"16"})
+    public int stormClients;
+
+    @Param({"2"})
+    public int hashThreads;
+
+    private H2Services services;
+    private TransactionTemplate transaction;
+    private AuthServiceImpl authService;
+    private ExecutorService clients;
+    private volatile boolean stopped;
+    private final AtomicLong logins = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        services = new H2Services();
+        services.insertProduct(PRODUCT_ID, "冰箱", Integer.MAX_VALUE / 2);
+        transaction = services.transactionTemplate();
+
+        PasswordUtil passwordUtil = new PasswordUtil();
+        String stored = passwordUtil.encode(PASSWORD);
+        SysUserMapper sysUserMapper = mock(SysUserMapper.class);
+        when(sysUserMapper.selectByUsernameWithRole(anyString())).thenAnswer(invocation -> {
+            UserWithRole user = new UserWithRole();
+            user.setId(7L);
+            user.setUsername(invocation.getArgument(0));
+            user.setPassword(stored);
+            user.setRoleId(3L);
+            user.setRoleCode("SALES");
+            user.setRoleName("销售人员");
+            user.setStatus(1);
+            return user;
+        });
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secretKey", "AppliancesSystemSecretKey2025ForJWTTokenGeneration");
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", 300_000L);
+        ReflectionTestUtils.setField(jwtUtil, "streamExpirationTime", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxEntries", 100);
+        jwtUtil.init();
+        authService = new AuthServiceImpl(sysUserMapper, jwtUtil, passwordUtil, services.dictionaryCache,
+                hashThreads, 32, 3000, 1_000_000, 1_000_000, 1_000_000, 1_000_000, 100_000);
+
+        clients = Executors.newFixedThreadPool(stormClients);
+        if ("none".equals(storm)) {
+            return;
+        }
+        for (int i = 0; i < stormClients; i++) {
+            String username = "user" + i;
+            String ip = "10.0.0." + i;
+            clients.execute(() -> {
+                LoginRequest request = new LoginRequest();
+                request.setUsername(username);
+                request.setPassword(PASSWORD);
+                while (!stopped) {
+                    if ("inline".equals(storm)) {
+                        passwordUtil.matches(PASSWORD, stored);
+                        logins.incrementAndGet();
+                        continue;
+                    }
+                    try {
+                        authService.login(request, ip);
+                        logins.incrementAndGet();
+                    } catch (BusinessException e) {
+                        rejected.incrementAndGet();
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException interrupted) {
+                            return;
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        stopped = true;
+        clients.shutdownNow();
+        clients.awaitTermination(10, TimeUnit.SECONDS);
+        authService.shutdown();
+        services.shutdown();
+        System.out.printf("%n登录成功 %d 次，被拒绝 %d 次%n", logins.get(), rejected.get());
+    }
+
+    @Benchmark
+    public void sell() {
+        transaction.executeWithoutResult(status -> services.saleService.sell(PRODUCT_ID, 1, SALESMAN_ID));
+    }
+}
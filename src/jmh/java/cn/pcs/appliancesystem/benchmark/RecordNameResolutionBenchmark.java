@@ -0,0 +1,123 @@
+package cn.pcs.appliancesystem.benchmark;
+
+import cn.pcs.appliancesystem.entity.Product;
+import cn.pcs.appliancesystem.entity.StockIn;
+import cn.pcs.appliancesystem.entity.StockInRecordVO;
+import cn.pcs.appliancesystem.entity.SysUser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 记录列表的名称解析：原实现与关联查询对比（user-012）
+ * before 按原 toStockInRecordVOs 的逻辑：取全部产品后用 List.contains 过滤涉及的产品ID（O(产品数×ID数)），
+ * 再逐条组装视图对象；after 的产品名和人员名已由SQL关联查出，只剩把每行映射为视图对象。
+ * 两边都不包含数据库往返，原实现额外的 listAll 查询和人员查询的耗时不计在内
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RecordNameResolutionBenchmark {
+
+    @Param({"10000"})
+    public int products;
+
+    @Param({"500000"})
+    public int records;
+
+    @Param({"50"})
+    public int operators;
+
+    private List<Product> allProducts;
+    private List<SysUser> allUsers;
+    private List<StockIn> stockIns;
+    // 关联查询返回的行：入库记录的列加上产品名称和人员名称
+    private List<Object[]> joinedRows;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        allProducts = new ArrayList<>(products);
+        for (long id = 1; id <= products; id++) {
+            allProducts.add(Product.builder().id(id).productName("产品" + id).build());
+        }
+        allUsers = new ArrayList<>(operators);
+        for (long id = 1; id <= operators; id++) {
+            allUsers.add(SysUser.builder().id(id).username("user" + id).build());
+        }
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 0, 0);
+        stockIns = new ArrayList<>(records);
+        joinedRows = new ArrayList<>(records);
+        for (long id = 1; id <= records; id++) {
+            long productId = 1 + random.nextInt(products);
+            long operatorId = 1 + random.nextInt(operators);
+            int quantity = 1 + random.nextInt(20);
+            LocalDateTime inTime = time.plusSeconds(id);
+            stockIns.add(StockIn.builder()
+                    .id(id).productId(productId).operatorId(operatorId).quantity(quantity).inTime(inTime)
+                    .build());
+            joinedRows.add(new Object[]{id, "产品" + productId, quantity, "user" + operatorId, inTime});
+        }
+    }
+
+    @Benchmark
+    public List<StockInRecordVO> before() {
+        List<Long> productIds = stockIns.stream()
+                .map(StockIn::getProductId)
+                .distinct()
+                .collect(Collectors.toList());
+        List<Long> operatorIds = stockIns.stream()
+                .map(StockIn::getOperatorId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, String> productNamesMap = allProducts.stream()
+                .filter(p -> productIds.contains(p.getId()))
+                .collect(Collectors.toMap(Product::getId, Product::getProductName));
+        Map<Long, String> operatorNamesMap = allUsers.stream()
+                .filter(u -> operatorIds.contains(u.getId()))
+                .collect(Collectors.toMap(SysUser::getId, SysUser::getUsername));
+        return stockIns.stream()
+                .map(stockIn -> StockInRecordVO.builder()
+                        .id(stockIn.getId())
+                        .productName(productNamesMap.getOrDefault(stockIn.getProductId(), "未知产品"))
+                        .quantity(stockIn.getQuantity())
+                        .operator(operatorNamesMap.getOrDefault(stockIn.getOperatorId(), "未知操作员"))
+                        .inTime(stockIn.getInTime())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<StockInRecordVO> after() {
+        List<StockInRecordVO> result = new ArrayList<>(joinedRows.size());
+        for (Object[] row : joinedRows) {
+            result.add(StockInRecordVO.builder()
+                    .id((Long) row[0])
+                    .productName((String) row[1])
+                    .quantity((Integer) row[2])
+                    .operator((String) row[3])
+                    .inTime((LocalDateTime) row[4])
+                    .build());
+        }
+        return result;
+    }
+}
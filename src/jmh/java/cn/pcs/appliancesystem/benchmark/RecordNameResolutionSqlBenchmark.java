@@ -0,0 +1,211 @@
+package cn.pcs.appliancesystem.benchmark;
+
+import cn.pcs.appliancesystem.entity.StockInRecordVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录分页的名称解析在数据库上的耗时：关联查询与逐行查名称（N+1）对比（user-012），
+ * RecordNameResolutionBenchmark 只比较内存中的组装，这里包含数据库往返。
+ * joined 执行与 StockInMapper.selectRecordVOs 相同的关联查询和游标条件；
+ * nPlusOne 先查一页入库记录，再对每一行分别按ID查产品名称和人员名称。
+ * 每次调用从随机位置取一页，rows 为入库记录表的总行数。
+ * 默认使用H2内存库，指定 -p jdbcUrl=jdbc:mysql://... 时在该MySQL库中运行；
+ * 数据写入独立的 bench_stock_in、bench_product、bench_user 表，结束时删除
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RecordNameResolutionSqlBenchmark {
+
+    private static final int INSERT_BATCH = 10_000;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final String JOINED = "SELECT r.id, COALESCE(p.product_name, '未知产品') AS product_name, r.quantity,"
+            + " COALESCE(u.username, '未知操作员') AS operator, r.in_time FROM bench_stock_in r"
+            + " LEFT JOIN bench_product p ON p.id = r.product_id"
+            + " LEFT JOIN bench_user u ON u.id = r.operator_id"
+            + " WHERE (r.in_time < ? OR (r.in_time = ? AND r.id < ?))"
+            + " ORDER BY r.in_time DESC, r.id DESC LIMIT ?";
+    private static final String PAGE = "SELECT id, product_id, quantity, operator_id, in_time FROM bench_stock_in"
+            + " WHERE (in_time < ? OR (in_time = ? AND id < ?))"
+            + " ORDER BY in_time DESC, id DESC LIMIT ?";
+
+    @Param({"jdbc:h2:mem:record_names;MODE=MySQL;DB_CLOSE_DELAY=-1"})
+    public String jdbcUrl;
+
+    @Param({"root"})
+    public String user;
+
+    @Param({""})
+    public String password;
+
+    @Param({"10000", "500000"})
+    public int rows;
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    @Param({"10000"})
+    public int products;
+
+    @Param({"50"})
+    public int operators;
+
+    private Connection connection;
+    private PreparedStatement joined;
+    private PreparedStatement page;
+    private PreparedStatement productName;
+    private PreparedStatement username;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(jdbcUrl, user, password);
+        try (Statement statement = connection.createStatement()) {
+            dropTables(statement);
+            statement.execute("CREATE TABLE bench_product (id BIGINT PRIMARY KEY, product_name VARCHAR(100) NOT NULL)");
+            statement.execute("CREATE TABLE bench_user (id BIGINT PRIMARY KEY, username VARCHAR(50) NOT NULL)");
+            statement.execute("CREATE TABLE bench_stock_in (id BIGINT PRIMARY KEY, product_id BIGINT NOT NULL,"
+                    + " quantity INT NOT NULL, operator_id BIGINT NOT NULL, in_time DATETIME NOT NULL)");
+            statement.execute("CREATE INDEX idx_bench_stockin_time_id ON bench_stock_in (in_time, id)");
+        }
+        connection.setAutoCommit(false);
+        insertNames("INSERT INTO bench_product (id, product_name) VALUES (?, ?)", products, "产品");
+        insertNames("INSERT INTO bench_user (id, username) VALUES (?, ?)", operators, "user");
+        Random random = new Random(42);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO bench_stock_in (id, product_id, quantity, operator_id, in_time) VALUES (?, ?, ?, ?, ?)")) {
+            for (long id = 1; id <= rows; id++) {
+                ps.setLong(1, id);
+                ps.setLong(2, 1 + random.nextInt(products));
+                ps.setInt(3, 1 + random.nextInt(20));
+                ps.setLong(4, 1 + random.nextInt(operators));
+                ps.setTimestamp(5, Timestamp.valueOf(inTime(id)));
+                ps.addBatch();
+                if (id % INSERT_BATCH == 0) {
+                    ps.executeBatch();
+                    connection.commit();
+                }
+            }
+            ps.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        joined = connection.prepareStatement(JOINED);
+        page = connection.prepareStatement(PAGE);
+        productName = connection.prepareStatement("SELECT product_name FROM bench_product WHERE id = ?");
+        username = connection.prepareStatement("SELECT username FROM bench_user WHERE id = ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            dropTables(statement);
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public List<StockInRecordVO> joined() throws SQLException {
+        bindCursor(joined);
+        List<StockInRecordVO> result = new ArrayList<>(pageSize);
+        try (ResultSet rs = joined.executeQuery()) {
+            while (rs.next()) {
+                result.add(StockInRecordVO.builder()
+                        .id(rs.getLong(1))
+                        .productName(rs.getString(2))
+                        .quantity(rs.getInt(3))
+                        .operator(rs.getString(4))
+                        .inTime(rs.getTimestamp(5).toLocalDateTime())
+                        .build());
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<StockInRecordVO> nPlusOne() throws SQLException {
+        bindCursor(page);
+        List<StockInRecordVO> result = new ArrayList<>(pageSize);
+        try (ResultSet rs = page.executeQuery()) {
+            while (rs.next()) {
+                result.add(StockInRecordVO.builder()
+                        .id(rs.getLong(1))
+                        .productName(lookup(productName, rs.getLong(2), "未知产品"))
+                        .quantity(rs.getInt(3))
+                        .operator(lookup(username, rs.getLong(4), "未知操作员"))
+                        .inTime(rs.getTimestamp(5).toLocalDateTime())
+                        .build());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 游标取随机的一条记录，保证其后至少还有一整页
+     */
+    private void bindCursor(PreparedStatement ps) throws SQLException {
+        long cursorId = pageSize + 1 + ThreadLocalRandom.current().nextLong(Math.max(rows - pageSize, 1));
+        Timestamp cursorTime = Timestamp.valueOf(inTime(cursorId));
+        ps.setTimestamp(1, cursorTime);
+        ps.setTimestamp(2, cursorTime);
+        ps.setLong(3, cursorId);
+        ps.setInt(4, pageSize);
+    }
+
+    private static String lookup(PreparedStatement ps, long id, String missing) throws SQLException {
+        ps.setLong(1, id);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getString(1) : missing;
+        }
+    }
+
+    private void insertNames(String sql, int count, String prefix) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (long id = 1; id <= count; id++) {
+                ps.setLong(1, id);
+                ps.setString(2, prefix + id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        connection.commit();
+    }
+
+    private static void dropTables(Statement statement) throws SQLException {
+        statement.execute("DROP TABLE IF EXISTS bench_stock_in");
+        statement.execute("DROP TABLE IF EXISTS bench_product");
+        statement.execute("DROP TABLE IF EXISTS bench_user");
+    }
+
+    private static LocalDateTime inTime(long id) {
+        return START.plusSeconds(id);
+    }
+}
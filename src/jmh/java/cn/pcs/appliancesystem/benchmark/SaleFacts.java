@@ -0,0 +1,35 @@
+package cn.pcs.appliancesystem.benchmark;
+
+import cn.pcs.appliancesystem.entity.Sale;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * 生成可重复的销售明细，列式存储与SQL两个基准使用相同的数据分布
+ */
+final class SaleFacts {
+
+    static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    private SaleFacts() {
+    }
+
+    /**
+     * 逐条生成，不在内存中保留全部明细
+     */
+    static void generate(int rows, int products, int days, Consumer<Sale> consumer) {
+        SplittableRandom random = new SplittableRandom(2024);
+        for (int i = 0; i < rows; i++) {
+            int quantity = 1 + random.nextInt(5);
+            consumer.accept(Sale.builder()
+                    .productId((long) (1 + random.nextInt(products)))
+                    .quantity(quantity)
+                    .totalPrice(BigDecimal.valueOf((long) quantity * (100 + random.nextInt(500_000)), 2))
+                    .saleTime(FIRST_DAY.plusDays(random.nextInt(days)).atTime(random.nextInt(24), random.nextInt(60)))
+                    .build());
+        }
+    }
+}
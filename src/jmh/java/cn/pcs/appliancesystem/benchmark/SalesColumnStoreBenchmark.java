@@ -0,0 +1,86 @@
+package cn.pcs.appliancesystem.benchmark;
+
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.Sale;
+import cn.pcs.appliancesystem.mapper.SaleMapper;
+import cn.pcs.appliancesystem.service.impl.SalesColumnStore;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 列式销售数据的看板聚合耗时（user-017），与 SalesSqlDbBenchmark 的SQL路径使用相同的数据分布对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SalesColumnStoreBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    @Param({"10000"})
+    public int products;
+
+    @Param({"365"})
+    public int days;
+
+    private SalesColumnStore store;
+    private LocalDate monthStart;
+    private LocalDate lastDay;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        SaleMapper saleMapper = (SaleMapper) Proxy.newProxyInstance(SaleMapper.class.getClassLoader(),
+                new Class<?>[]{SaleMapper.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("streamSaleFacts")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    ResultHandler<Sale> handler = (ResultHandler<Sale>) args[0];
+                    DefaultResultContext<Sale> context = new DefaultResultContext<>();
+                    SaleFacts.generate(rows, products, days, sale -> {
+                        context.nextResultObject(sale);
+                        handler.handleResult(context);
+                    });
+                    return null;
+                });
+        store = new SalesColumnStore(saleMapper, true);
+        store.load();
+        lastDay = SaleFacts.FIRST_DAY.plusDays(days - 1);
+        monthStart = lastDay.minusDays(29);
+    }
+
+    @Benchmark
+    public List<DailyRollup> sumByProductLast30Days() {
+        return store.sumByProduct(monthStart, lastDay);
+    }
+
+    @Benchmark
+    public List<DailyRollup> sumByProductAll() {
+        return store.sumByProduct(null, null);
+    }
+
+    @Benchmark
+    public List<DailyRollup> sumByDayYear() {
+        return store.sumByDay(SaleFacts.FIRST_DAY, lastDay);
+    }
+}
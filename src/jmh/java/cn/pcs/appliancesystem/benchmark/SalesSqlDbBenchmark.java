@@ -0,0 +1,168 @@
+package cn.pcs.appliancesystem.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 看板销售聚合的SQL路径（user-017），与 SalesColumnStoreBenchmark 对比
+ * 需要MySQL，默认不运行：
+ * mvn -Pjmh test -Djmh.args="SalesSqlDbBenchmark -p jdbcUrl=jdbc:mysql://localhost:3306/bench -p user=root -p password=..."
+ * 数据写入独立的 bench_sale 表（结构与sale表的相关列和索引一致），行数不符时重新生成，不读写业务表；
+ * 按产品汇总的SQL与 SaleMapper.sumByProduct 相同，只是不关联product表取名称
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class SalesSqlDbBenchmark {
+
+    private static final int INSERT_BATCH = 10_000;
+    private static final String SUM_BY_PRODUCT = "SELECT product_id, SUM(quantity), SUM(total_price), COUNT(*)"
+            + " FROM bench_sale WHERE sale_time >= ? AND sale_time < ? GROUP BY product_id";
+    private static final String SUM_BY_DAY = "SELECT DATE(sale_time) AS day, SUM(quantity), SUM(total_price), COUNT(*)"
+            + " FROM bench_sale WHERE sale_time >= ? AND sale_time < ? GROUP BY day ORDER BY day";
+
+    @Param({""})
+    public String jdbcUrl;
+
+    @Param({"root"})
+    public String user;
+
+    @Param({""})
+    public String password;
+
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    @Param({"10000"})
+    public int products;
+
+    @Param({"365"})
+    public int days;
+
+    private Connection connection;
+    private LocalDate monthStart;
+    private LocalDate lastDay;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        if (jdbcUrl.isBlank()) {
+            throw new IllegalStateException("需要通过 -p jdbcUrl=... 指定用于基准测试的MySQL库");
+        }
+        connection = DriverManager.getConnection(jdbcUrl + (jdbcUrl.contains("?") ? "&" : "?")
+                + "rewriteBatchedStatements=true", user, password);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS bench_sale ("
+                    + "id BIGINT PRIMARY KEY AUTO_INCREMENT, product_id BIGINT NOT NULL, quantity INT NOT NULL,"
+                    + " total_price DECIMAL(10, 2) NOT NULL, sale_time DATETIME NOT NULL, KEY idx_sale_time (sale_time))");
+            long existing;
+            try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM bench_sale")) {
+                rs.next();
+                existing = rs.getLong(1);
+            }
+            if (existing != rows) {
+                statement.execute("TRUNCATE TABLE bench_sale");
+                populate();
+            }
+        }
+        lastDay = SaleFacts.FIRST_DAY.plusDays(days - 1);
+        monthStart = lastDay.minusDays(29);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public void sumByProductLast30Days(Blackhole blackhole) throws SQLException {
+        query(SUM_BY_PRODUCT, monthStart, lastDay, blackhole);
+    }
+
+    @Benchmark
+    public void sumByProductAll(Blackhole blackhole) throws SQLException {
+        query(SUM_BY_PRODUCT, SaleFacts.FIRST_DAY, lastDay, blackhole);
+    }
+
+    @Benchmark
+    public void sumByDayYear(Blackhole blackhole) throws SQLException {
+        query(SUM_BY_DAY, SaleFacts.FIRST_DAY, lastDay, blackhole);
+    }
+
+    private void query(String sql, LocalDate startDate, LocalDate endDate, Blackhole blackhole) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setDate(1, Date.valueOf(startDate));
+            ps.setDate(2, Date.valueOf(endDate.plusDays(1)));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    blackhole.consume(rs.getObject(1));
+                    blackhole.consume(rs.getLong(2));
+                    blackhole.consume(rs.getBigDecimal(3));
+                    blackhole.consume(rs.getLong(4));
+                }
+            }
+        }
+    }
+
+    private void populate() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO bench_sale (product_id, quantity, total_price, sale_time) VALUES (?, ?, ?, ?)")) {
+            int[] pending = {0};
+            SQLException[] error = {null};
+            SaleFacts.generate(rows, products, days, sale -> {
+                if (error[0] != null) {
+                    return;
+                }
+                try {
+                    ps.setLong(1, sale.getProductId());
+                    ps.setInt(2, sale.getQuantity());
+                    ps.setBigDecimal(3, sale.getTotalPrice());
+                    ps.setTimestamp(4, Timestamp.valueOf(sale.getSaleTime()));
+                    ps.addBatch();
+                    if (++pending[0] == INSERT_BATCH) {
+                        ps.executeBatch();
+                        connection.commit();
+                        pending[0] = 0;
+                    }
+                } catch (SQLException e) {
+                    error[0] = e;
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+            ps.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package cn.pcs.appliancesystem.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 模拟数据库往返的假实现：接口的每次调用视为一条SQL语句，停顿固定时间后返回默认值
+ * 基准测试不使用Mockito，Mockito会记录每次调用，长时间运行时内存持续增长
+ */
+public final class StatementLatency {
+
+    private final long latencyNanos;
+    private final AtomicLong statements = new AtomicLong();
+
+    public StatementLatency(long latencyMicros) {
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+    }
+
+    /**
+     * 每条语句的停顿
+     */
+    public void roundTrip() {
+        statements.incrementAndGet();
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+    }
+
+    public long statements() {
+        return statements.get();
+    }
+
+    /**
+     * 所有方法都按一条语句计时的接口实现，返回值为类型默认值（对象为null，数值为0，布尔为false）
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fake(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + "$Fake";
+                };
+            }
+            roundTrip();
+            return defaultValue(method.getReturnType());
+        });
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,76 @@
+package cn.pcs.appliancesystem.benchmark;
+
+import cn.pcs.appliancesystem.entity.StockBatchItem;
+import cn.pcs.appliancesystem.mapper.StockInMapper;
+import cn.pcs.appliancesystem.mapper.StockOutMapper;
+import cn.pcs.appliancesystem.service.DailyRollupService;
+import cn.pcs.appliancesystem.service.InventoryLedgerService;
+import cn.pcs.appliancesystem.service.ProductService;
+import cn.pcs.appliancesystem.service.impl.StockServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量入库与逐条入库对比（user-003）
+ * 每次调用mapper和服务视为一条SQL语句，按 statementMicros 模拟一次数据库往返；
+ * 逐条入库每行4条语句，批量入库每500行一条多行插入、每个产品一次库存更新，加上流水和日汇总各一条
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockBatchBenchmark {
+
+    private static final Long OPERATOR_ID = 1L;
+
+    @Param({"10", "100", "1000"})
+    public int lines;
+
+    @Param({"20"})
+    public int products;
+
+    @Param({"200"})
+    public long statementMicros;
+
+    private StockServiceImpl stockService;
+    private List<StockBatchItem> items;
+
+    @Setup
+    public void setUp() {
+        StatementLatency latency = new StatementLatency(statementMicros);
+        stockService = new StockServiceImpl(latency.fake(StockInMapper.class), latency.fake(StockOutMapper.class),
+                latency.fake(ProductService.class), latency.fake(InventoryLedgerService.class),
+                latency.fake(DailyRollupService.class));
+        items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(new StockBatchItem((long) (i % products) + 1, 1 + i % 5));
+        }
+    }
+
+    @Benchmark
+    public void perLine() {
+        for (StockBatchItem item : items) {
+            stockService.stockIn(item.getProductId(), item.getQuantity(), OPERATOR_ID);
+        }
+    }
+
+    @Benchmark
+    public void batch() {
+        stockService.stockInBatch(items, OPERATOR_ID);
+    }
+}
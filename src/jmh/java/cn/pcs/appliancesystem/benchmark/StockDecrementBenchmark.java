@@ -0,0 +1,183 @@
+package cn.pcs.appliancesystem.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 扣减库存的吞吐量：原来的先查后改与条件UPDATE对比（user-001）
+ * selectThenUpdate 按原 ProductServiceImpl.decreaseStock 的做法，在事务中 selectById 读出整行、
+ * 在Java中校验并计算新库存后 updateById 写回整行；conditionalUpdate 执行与 ProductMapper.decreaseStock
+ * 相同的单条UPDATE。products 为1时所有线程争用同一行。
+ * 默认使用H2内存库，指定 -p jdbcUrl=jdbc:mysql://... 时在该MySQL库中运行；数据写入独立的 bench_product 表。
+ * 先查后改在并发下会丢失更新，结束时打印丢失的扣减次数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class StockDecrementBenchmark {
+
+    // 足够整个测试期间扣减，不会出现库存不足
+    private static final int INITIAL_STOCK = 1_000_000_000;
+
+    @Param({"jdbc:h2:mem:stock_decrement;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000"})
+    public String jdbcUrl;
+
+    @Param({"root"})
+    public String user;
+
+    @Param({""})
+    public String password;
+
+    @Param({"1", "1000"})
+    public int products;
+
+    private final AtomicLong decrements = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_product");
+            statement.execute("CREATE TABLE bench_product (id BIGINT PRIMARY KEY, product_name VARCHAR(100) NOT NULL,"
+                    + " type_id BIGINT NOT NULL, price DECIMAL(10, 2) NOT NULL, stock INT NULL DEFAULT 0,"
+                    + " status TINYINT NULL DEFAULT 1, version INT NOT NULL DEFAULT 0, reserved INT NOT NULL DEFAULT 0)");
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO bench_product (id, product_name, type_id, price, stock) VALUES (?, ?, 1, 100.00, ?)")) {
+                for (int id = 1; id <= products; id++) {
+                    ps.setLong(1, id);
+                    ps.setString(2, "产品" + id);
+                    ps.setInt(3, INITIAL_STOCK);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            connection.commit();
+        }
+        decrements.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT SUM(stock) FROM bench_product")) {
+            rs.next();
+            long actual = (long) INITIAL_STOCK * products - rs.getLong(1);
+            System.out.println("成功扣减 " + decrements.get() + " 次，库存实际减少 " + actual
+                    + "，丢失 " + (decrements.get() - actual) + " 次");
+            statement.execute("DROP TABLE bench_product");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        Connection connection;
+        PreparedStatement select;
+        PreparedStatement updateRow;
+        PreparedStatement conditional;
+
+        @Setup(Level.Trial)
+        public void open(StockDecrementBenchmark benchmark) throws SQLException {
+            connection = benchmark.connect();
+            select = connection.prepareStatement(
+                    "SELECT id, product_name, type_id, price, stock, status FROM bench_product WHERE id = ?");
+            updateRow = connection.prepareStatement("UPDATE bench_product SET product_name = ?, type_id = ?,"
+                    + " price = ?, stock = ?, status = ? WHERE id = ?");
+            conditional = connection.prepareStatement("UPDATE bench_product SET stock = stock - ?, version = version + 1"
+                    + " WHERE id = ? AND stock - reserved >= ?");
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public boolean selectThenUpdate(Session session) throws SQLException {
+        long productId = nextProduct();
+        Connection connection = session.connection;
+        connection.setAutoCommit(false);
+        try {
+            session.select.setLong(1, productId);
+            String name;
+            long typeId;
+            BigDecimal price;
+            int stock;
+            int status;
+            try (ResultSet rs = session.select.executeQuery()) {
+                if (!rs.next()) {
+                    connection.rollback();
+                    return false;
+                }
+                name = rs.getString(2);
+                typeId = rs.getLong(3);
+                price = rs.getBigDecimal(4);
+                stock = rs.getInt(5);
+                status = rs.getInt(6);
+            }
+            if (stock < 1) {
+                connection.rollback();
+                return false;
+            }
+            session.updateRow.setString(1, name);
+            session.updateRow.setLong(2, typeId);
+            session.updateRow.setBigDecimal(3, price);
+            session.updateRow.setInt(4, stock - 1);
+            session.updateRow.setInt(5, status);
+            session.updateRow.setLong(6, productId);
+            session.updateRow.executeUpdate();
+            connection.commit();
+            decrements.incrementAndGet();
+            return true;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    @Benchmark
+    public boolean conditionalUpdate(Session session) throws SQLException {
+        session.conditional.setInt(1, 1);
+        session.conditional.setLong(2, nextProduct());
+        session.conditional.setInt(3, 1);
+        boolean decreased = session.conditional.executeUpdate() == 1;
+        if (decreased) {
+            decrements.incrementAndGet();
+        }
+        return decreased;
+    }
+
+    private long nextProduct() {
+        return products == 1 ? 1 : ThreadLocalRandom.current().nextInt(1, products + 1);
+    }
+
+    Connection connect() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, user, password);
+    }
+}
@@ -2,8 +2,10 @@ package cn.pcs.appliancesystem.config;
 
 import cn.pcs.appliancesystem.exception.BusinessException;
 import cn.pcs.appliancesystem.exception.TokenExpiredException;
+import cn.pcs.appliancesystem.util.JwtPrincipal;
 import cn.pcs.appliancesystem.util.JwtUtil;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -17,6 +19,8 @@ import java.util.List;
 /**
  * JWT拦截器
  * 用于验证Token和权限控制
+ * SSE订阅接口（路径以/stream结尾）还接受access_token查询参数，浏览器EventSource无法设置请求头；
+ * 查询参数只接受/api/auth/stream-token签发的短期订阅令牌，订阅令牌也不能用于其他接口
  */
 @Slf4j
 @Component
@@ -33,6 +37,12 @@ public class JwtInterceptor implements HandlerInterceptor {
             "/v3/api-docs",
             "/swagger-resources"
     );
+
+    // SSE订阅接口路径后缀
+    private static final String STREAM_SUFFIX = "/stream";
+
+    // 订阅令牌查询参数
+    private static final String TOKEN_PARAM = "access_token";
     
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
@@ -44,36 +54,40 @@ public class JwtInterceptor implements HandlerInterceptor {
         }
         
         // 获取Token
+        boolean streamPath = path.endsWith(STREAM_SUFFIX);
         String token = getTokenFromRequest(request);
+        boolean fromParam = false;
+        if (token == null && streamPath) {
+            token = request.getParameter(TOKEN_PARAM);
+            fromParam = token != null;
+        }
         if (token == null) {
             throw new BusinessException(401, "未登录，请先登录");
         }
         
-        // 验证Token
+        // 验证Token，验签和过期检查只做一次，结果缓存到Token过期为止
+        JwtPrincipal principal;
         try {
-            // 先检查Token是否过期
-            if (jwtUtil.isTokenExpiredSafe(token)) {
-                throw new TokenExpiredException("Token已过期，请重新登录");
-            }
-            
-            // 验证Token有效性
-            if (!jwtUtil.validateToken(token)) {
-                throw new BusinessException(401, "Token无效，请重新登录");
-            }
-            
-            // 将用户信息存入request，供后续使用
-            Long userId = jwtUtil.getUserIdFromToken(token);
-            String role = jwtUtil.getRoleFromToken(token);
-            request.setAttribute("userId", userId);
-            request.setAttribute("role", role);
-            
+            principal = jwtUtil.verify(token);
         } catch (ExpiredJwtException e) {
             log.warn("Token已过期: {}", e.getMessage());
             throw new TokenExpiredException("Token已过期，请重新登录");
-        } catch (Exception e) {
+        } catch (JwtException | IllegalArgumentException e) {
             log.error("Token验证失败: {}", e.getMessage());
             throw new BusinessException(401, "Token验证失败，请重新登录");
         }
+        // 查询参数可能出现在访问日志中，只接受短期订阅令牌；订阅令牌只能用于订阅接口
+        if (fromParam && !principal.isStreamOnly()) {
+            throw new BusinessException(401, "订阅接口的access_token参数只接受订阅令牌");
+        }
+        if (principal.isStreamOnly() && !streamPath) {
+            throw new BusinessException(401, "订阅令牌只能用于订阅推送接口");
+        }
+        
+        // 将用户信息存入request，供后续使用
+        request.setAttribute("userId", principal.getUserId());
+        request.setAttribute("role", principal.getRole());
+        request.setAttribute("username", principal.getUsername());
         
         return true;
     }
@@ -0,0 +1,31 @@
+package cn.pcs.appliancesystem.config;
+
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.OptimisticLockerInnerInterceptor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * MyBatis-Plus插件配置
+ */
+@Configuration
+public class MybatisPlusConfig {
+
+    /**
+     * 乐观锁插件：updateById时自动追加 version 条件并将版本号加1
+     */
+    @Bean
+    public MybatisPlusInterceptor mybatisPlusInterceptor() {
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        interceptor.addInnerInterceptor(new OptimisticLockerInnerInterceptor());
+        return interceptor;
+    }
+
+    /**
+     * 查询超时插件：按当前线程的截止时间（如看板计算）设置JDBC查询超时
+     */
+    @Bean
+    public QueryDeadlineInterceptor queryDeadlineInterceptor() {
+        return new QueryDeadlineInterceptor();
+    }
+}
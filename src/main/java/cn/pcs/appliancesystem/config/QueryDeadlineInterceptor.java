@@ -0,0 +1,32 @@
+package cn.pcs.appliancesystem.config;
+
+import cn.pcs.appliancesystem.util.QueryDeadline;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * 按当前线程的截止时间设置查询超时
+ * 在MyBatis按配置设置超时之后执行，只收紧不放宽：已有更短的超时时保留原值
+ */
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+public class QueryDeadlineInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Statement statement = (Statement) invocation.proceed();
+        Integer remaining = QueryDeadline.remainingSeconds();
+        if (remaining != null) {
+            int current = statement.getQueryTimeout();
+            if (current == 0 || remaining < current) {
+                statement.setQueryTimeout(remaining);
+            }
+        }
+        return statement;
+    }
+}
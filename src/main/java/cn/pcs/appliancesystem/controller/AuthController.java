@@ -6,7 +6,9 @@ import cn.pcs.appliancesystem.entity.RegisterRequest;
 import cn.pcs.appliancesystem.entity.Result;
 import cn.pcs.appliancesystem.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,10 +20,11 @@ public class AuthController {
     
     private final AuthService authService;
     
-    @Operation(summary = "用户登录", description = "用户登录获取Token")
+    @Operation(summary = "用户登录", description = "用户登录获取Token，同一IP或用户名尝试过于频繁时返回429，服务繁忙时返回503")
     @PostMapping("/login")
-    public Result<LoginResponse> login(@RequestBody LoginRequest request) {
-        LoginResponse response = authService.login(request);
+    public Result<LoginResponse> login(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        // 使用连接的对端地址，不信任可被客户端伪造的X-Forwarded-For
+        LoginResponse response = authService.login(request, httpRequest.getRemoteAddr());
         return Result.success(response);
     }
     
@@ -31,5 +34,17 @@ public class AuthController {
         authService.register(request);
         return Result.success("注册成功");
     }
+
+    @Operation(summary = "获取订阅令牌",
+            description = "签发有效期很短、只能用于SSE订阅接口的令牌。浏览器EventSource无法设置Authorization请求头，"
+                    + "订阅时通过access_token查询参数传递，例如 /api/product/stream?access_token=xxx；"
+                    + "令牌只在建立连接时校验，连接断开后应重新获取令牌再建立连接")
+    @GetMapping("/stream-token")
+    public Result<String> streamToken(
+            @Parameter(hidden = true) @RequestAttribute(value = "userId", required = false) Long userId,
+            @Parameter(hidden = true) @RequestAttribute(value = "username", required = false) String username,
+            @Parameter(hidden = true) @RequestAttribute(value = "role", required = false) String role) {
+        return Result.success(authService.createStreamToken(userId, username, role));
+    }
 }
 
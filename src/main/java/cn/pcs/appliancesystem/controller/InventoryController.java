@@ -0,0 +1,37 @@
+package cn.pcs.appliancesystem.controller;
+
+import cn.pcs.appliancesystem.entity.Result;
+import cn.pcs.appliancesystem.service.InventoryLedgerService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@Tag(name = "库存流水", description = "库存流水与历史库存查询接口")
+@RestController
+@RequestMapping("/api/inventory")
+@RequiredArgsConstructor
+public class InventoryController {
+
+    private final InventoryLedgerService inventoryLedgerService;
+
+    @Operation(summary = "查询历史库存", description = "根据最近一次库存快照和之后的库存流水，计算产品在指定时间点的库存")
+    @GetMapping("/stock-at")
+    public Result<Integer> getStockAt(
+            @Parameter(description = "产品ID", required = true, example = "1")
+            @RequestParam Long productId,
+            @Parameter(description = "时间点", required = true, example = "2025-12-31T23:59:59")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime time) {
+        return Result.success(inventoryLedgerService.getStockAt(productId, time));
+    }
+
+    @Operation(summary = "生成库存快照", description = "立即生成一次库存快照（默认每天凌晨自动生成）")
+    @PostMapping("/snapshot")
+    public Result<Integer> createSnapshots() {
+        return Result.success(inventoryLedgerService.createSnapshots());
+    }
+}
@@ -0,0 +1,50 @@
+package cn.pcs.appliancesystem.controller;
+
+import cn.pcs.appliancesystem.entity.DictionaryCacheStats;
+import cn.pcs.appliancesystem.entity.ProductLockStats;
+import cn.pcs.appliancesystem.entity.Result;
+import cn.pcs.appliancesystem.entity.StatisticsCacheStats;
+import cn.pcs.appliancesystem.service.impl.DictionaryCache;
+import cn.pcs.appliancesystem.service.impl.ProductLockMetrics;
+import cn.pcs.appliancesystem.service.impl.StatisticsDayCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Tag(name = "运行指标", description = "系统运行指标查询接口")
+@RestController
+@RequestMapping("/api/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final ProductLockMetrics productLockMetrics;
+    private final DictionaryCache dictionaryCache;
+    private final StatisticsDayCache statisticsDayCache;
+
+    @Operation(summary = "产品乐观锁指标", description = "第一项为全部产品汇总（productId为空），其后为各产品统计，按冲突次数降序")
+    @GetMapping("/product-lock")
+    public Result<List<ProductLockStats>> getProductLockMetrics() {
+        List<ProductLockStats> stats = new ArrayList<>();
+        stats.add(productLockMetrics.getTotal());
+        stats.addAll(productLockMetrics.getByProduct());
+        return Result.success(stats);
+    }
+
+    @Operation(summary = "名称字典缓存指标", description = "产品名称、类型名称、用户名缓存的条目数和命中率")
+    @GetMapping("/dictionary-cache")
+    public Result<DictionaryCacheStats> getDictionaryCacheMetrics() {
+        return Result.success(dictionaryCache.getStats());
+    }
+
+    @Operation(summary = "统计日缓存指标", description = "历史日期汇总缓存的条目数、命中率、失效次数和当天实时查询次数")
+    @GetMapping("/statistics-cache")
+    public Result<StatisticsCacheStats> getStatisticsCacheMetrics() {
+        return Result.success(statisticsDayCache.getStats());
+    }
+}
@@ -3,6 +3,7 @@ package cn.pcs.appliancesystem.controller;
 import cn.pcs.appliancesystem.entity.Product;
 import cn.pcs.appliancesystem.entity.Result;
 import cn.pcs.appliancesystem.service.ProductService;
+import cn.pcs.appliancesystem.service.impl.ProductChangeFeed;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,7 +12,9 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -22,6 +25,7 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductChangeFeed productChangeFeed;
 
     /**
      * 查询所有产品
@@ -82,7 +86,7 @@ public class ProductController {
         return Result.success(productService.search(productName, typeId));
     }
 
-    @Operation(summary = "更新产品", description = "根据产品ID更新产品信息")
+    @Operation(summary = "更新产品", description = "根据产品ID更新产品信息，修改库存时需回传查询到的version，版本冲突返回409")
     @PutMapping("/{id}")
     public Result<String> update(
             @Parameter(description = "产品ID", required = true, example = "1")
@@ -140,4 +144,24 @@ public class ProductController {
     public Result<List<Product>> all() {
         return Result.success(productService.getAllProducts());
     }
+
+    /**
+     * 订阅库存变更
+     */
+    @Operation(
+            summary = "订阅产品库存变更（SSE）",
+            description = "推送change事件（productId、stock、version、status），事件id为变更序号；"
+                    + "重连时通过lastSeq参数或Last-Event-ID请求头回传最后收到的序号以补发期间的变更，"
+                    + "无法补发或首次连接时推送reset事件，客户端应重新拉取产品列表。"
+                    + "浏览器EventSource无法设置Authorization请求头，可先调用/api/auth/stream-token获取订阅令牌，"
+                    + "再通过access_token查询参数传递"
+    )
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @Parameter(description = "最后收到的变更序号", example = "1735689600000001")
+            @RequestParam(required = false) Long lastSeq,
+            @Parameter(description = "浏览器EventSource自动重连时携带的最后事件ID，lastSeq为空时使用")
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return productChangeFeed.subscribe(lastSeq != null ? lastSeq : lastEventId);
+    }
 }
@@ -0,0 +1,118 @@
+package cn.pcs.appliancesystem.controller;
+
+import cn.pcs.appliancesystem.entity.Result;
+import cn.pcs.appliancesystem.entity.StockHold;
+import cn.pcs.appliancesystem.service.IdempotencyService;
+import cn.pcs.appliancesystem.service.ReservationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(name = "库存预留", description = "收银时临时预留库存，确认后转为销售记录")
+@RestController
+@RequestMapping("/api/reservation")
+@RequiredArgsConstructor
+public class ReservationController {
+
+    private final ReservationService reservationService;
+    private final IdempotencyService idempotencyService;
+
+    /**
+     * 预留库存
+     */
+    @Operation(
+            summary = "预留库存",
+            description = "顾客付款期间临时占用库存，到期未确认自动释放"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "预留成功",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "预留失败（产品不存在、可用库存不足、参数错误等）",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            )
+    })
+    @PostMapping("/hold")
+    public Result<StockHold> hold(
+            @Parameter(description = "产品ID", required = true, example = "1")
+            @RequestParam Long productId,
+            @Parameter(description = "预留数量", required = true, example = "1")
+            @RequestParam Integer quantity,
+            @Parameter(description = "销售员ID", required = true, example = "4")
+            @RequestParam Long salesmanId,
+            @Parameter(description = "预留有效期（秒），默认300", example = "300")
+            @RequestParam(required = false) Integer ttlSeconds) {
+        return Result.success(reservationService.hold(productId, quantity, salesmanId, ttlSeconds));
+    }
+
+    /**
+     * 确认预留
+     */
+    @Operation(
+            summary = "确认预留",
+            description = "顾客付款完成后确认预留，扣减库存并生成销售记录"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "确认成功",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "确认失败（预留不存在或已过期、库存不足等）",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            )
+    })
+    @PostMapping("/{holdId}/confirm")
+    public Result<?> confirm(
+            @Parameter(description = "预留ID", required = true, example = "1")
+            @PathVariable Long holdId,
+            @Parameter(description = "幂等键，超时重试时携带相同的值，重复请求直接返回首次结果")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Parameter(hidden = true) @RequestAttribute(value = "userId", required = false) Long userId) {
+        return idempotencyService.execute("reservation-confirm", idempotencyKey, userId, holdId, () -> {
+            reservationService.confirm(holdId);
+            return Result.success();
+        });
+    }
+
+    /**
+     * 取消预留
+     */
+    @Operation(
+            summary = "取消预留",
+            description = "顾客放弃购买时取消预留，立即归还可用库存"
+    )
+    @DeleteMapping("/{holdId}")
+    public Result<?> release(
+            @Parameter(description = "预留ID", required = true, example = "1")
+            @PathVariable Long holdId) {
+        reservationService.release(holdId);
+        return Result.success();
+    }
+
+    /**
+     * 查询可用库存
+     */
+    @Operation(
+            summary = "查询可用库存",
+            description = "返回扣除已预留数量后的可用库存"
+    )
+    @GetMapping("/available/{productId}")
+    public Result<Integer> getAvailableStock(
+            @Parameter(description = "产品ID", required = true, example = "1")
+            @PathVariable Long productId) {
+        return Result.success(reservationService.getAvailableStock(productId));
+    }
+}
@@ -1,7 +1,12 @@
 package cn.pcs.appliancesystem.controller;
 
+import cn.pcs.appliancesystem.entity.CursorPage;
+import cn.pcs.appliancesystem.entity.RecordPageQuery;
 import cn.pcs.appliancesystem.entity.Result;
+import cn.pcs.appliancesystem.entity.SaleOrderRequest;
 import cn.pcs.appliancesystem.entity.SaleRecordVO;
+import cn.pcs.appliancesystem.service.IdempotencyService;
+import cn.pcs.appliancesystem.service.RecordExportService;
 import cn.pcs.appliancesystem.service.SaleService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,9 +15,14 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 
 @Tag(name = "销售管理", description = "产品销售记录和管理接口")
@@ -22,6 +32,8 @@ import java.util.List;
 public class SaleController {
 
     private final SaleService saleService;
+    private final IdempotencyService idempotencyService;
+    private final RecordExportService recordExportService;
 
     /**
      * 销售产品
@@ -49,9 +61,45 @@ public class SaleController {
             @Parameter(description = "销售数量", required = true, example = "5")
             @RequestParam Integer quantity,
             @Parameter(description = "销售员ID", required = true, example = "1")
-            @RequestParam Long salesmanId) {
-        saleService.sell(productId, quantity, salesmanId);
-        return Result.success();
+            @RequestParam Long salesmanId,
+            @Parameter(description = "幂等键，超时重试时携带相同的值，重复请求直接返回首次结果")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Parameter(hidden = true) @RequestAttribute(value = "userId", required = false) Long userId) {
+        return idempotencyService.execute("sale-sell", idempotencyKey, userId, Arrays.asList(productId, quantity, salesmanId), () -> {
+            saleService.sell(productId, quantity, salesmanId);
+            return Result.success();
+        });
+    }
+
+    /**
+     * 多产品订单销售
+     */
+    @Operation(
+            summary = "多产品订单销售",
+            description = "一次销售多个产品（如洗衣机+烘干机+底座），在同一事务内扣减库存并写入共用订单号的销售记录，返回订单号"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "销售成功",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "销售失败（产品不存在、库存不足、参数错误等），整单回滚",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            )
+    })
+    @PostMapping("/order")
+    public Result<String> sellOrder(
+            @RequestBody SaleOrderRequest request,
+            @Parameter(description = "幂等键，超时重试时携带相同的值，重复请求直接返回首次结果")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Parameter(hidden = true) @RequestAttribute(value = "userId", required = false) Long userId) {
+        return idempotencyService.execute("sale-order", idempotencyKey, userId, request, () -> {
+            String orderNo = saleService.sellOrder(request.getItems(), request.getSalesmanId());
+            return Result.success(orderNo);
+        });
     }
 
     /**
@@ -74,6 +122,79 @@ public class SaleController {
         return Result.success(records);
     }
 
+    /**
+     * 分页查询销售记录
+     */
+    @Operation(
+            summary = "分页查询销售记录",
+            description = "按销售时间倒序的游标分页查询，支持按产品、销售员、时间范围过滤；翻页时传入上一页返回的nextCursor"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "查询成功",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "分页游标无效",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            )
+    })
+    @GetMapping("/records/page")
+    public Result<CursorPage<SaleRecordVO>> getSaleRecordPage(
+            @Parameter(description = "产品ID", example = "1")
+            @RequestParam(required = false) Long productId,
+            @Parameter(description = "销售员ID", example = "4")
+            @RequestParam(required = false) Long salesmanId,
+            @Parameter(description = "开始时间（包含）", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "结束时间（不包含）", example = "2026-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @Parameter(description = "分页游标，第一页不传")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页条数，默认20，最大200", example = "20")
+            @RequestParam(required = false) Integer size) {
+        RecordPageQuery query = RecordPageQuery.builder()
+                .productId(productId)
+                .userId(salesmanId)
+                .startTime(startTime)
+                .endTime(endTime)
+                .cursor(cursor)
+                .size(size)
+                .build();
+        return Result.success(saleService.getSaleRecordPage(query));
+    }
+
+    /**
+     * 导出销售记录
+     */
+    @Operation(
+            summary = "导出销售记录",
+            description = "按销售时间倒序流式导出销售记录，支持csv和ndjson格式，过滤条件与分页查询相同"
+    )
+    @GetMapping("/records/export")
+    public void exportSaleRecords(
+            @Parameter(description = "导出格式：csv 或 ndjson，默认csv", example = "csv")
+            @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "产品ID", example = "1")
+            @RequestParam(required = false) Long productId,
+            @Parameter(description = "销售员ID", example = "4")
+            @RequestParam(required = false) Long salesmanId,
+            @Parameter(description = "开始时间（包含）", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "结束时间（不包含）", example = "2026-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            HttpServletResponse response) throws IOException {
+        RecordPageQuery query = RecordPageQuery.builder()
+                .productId(productId)
+                .userId(salesmanId)
+                .startTime(startTime)
+                .endTime(endTime)
+                .build();
+        recordExportService.exportSaleRecords(query, format, response);
+    }
+
     /**
      * 修改销售记录
      */
@@ -123,4 +244,4 @@ public class SaleController {
         saleService.deleteSale(id);
         return Result.success();
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,13 @@
 package cn.pcs.appliancesystem.controller;
 
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.DashboardVO;
+import cn.pcs.appliancesystem.entity.ProductSalesVO;
 import cn.pcs.appliancesystem.entity.Result;
 import cn.pcs.appliancesystem.entity.StatisticsVO;
+import cn.pcs.appliancesystem.service.DailyRollupService;
+import cn.pcs.appliancesystem.service.DashboardService;
+import cn.pcs.appliancesystem.service.SalesAnalysisService;
 import cn.pcs.appliancesystem.service.StatisticsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -21,54 +27,142 @@ import java.util.Map;
 public class StatisticsController {
     
     private final StatisticsService statisticsService;
+    private final DailyRollupService dailyRollupService;
+    private final DashboardService dashboardService;
+    private final SalesAnalysisService salesAnalysisService;
     
-    @Operation(summary = "入库统计（按日期）")
+    @Operation(summary = "入库统计（按日期）", description = "aggregate=true时每天返回一条汇总，数据来自日汇总表；否则返回每条入库记录")
     @GetMapping("/stock-in")
     public Result<List<StatisticsVO>> getStockInStatistics(
             @Parameter(description = "开始日期", example = "2025-01-01")
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @Parameter(description = "结束日期", example = "2025-12-31")
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "是否按天汇总", example = "true")
+            @RequestParam(defaultValue = "false") boolean aggregate) {
+        if (aggregate) {
+            return Result.success(statisticsService.getDailyStatistics(DailyRollup.KIND_STOCK_IN, startDate, endDate));
+        }
         return Result.success(statisticsService.getStockInStatistics(startDate, endDate));
     }
     
-    @Operation(summary = "出库统计（按日期）")
+    @Operation(summary = "出库统计（按日期）", description = "aggregate=true时每天返回一条汇总，数据来自日汇总表；否则返回每条出库记录")
     @GetMapping("/stock-out")
     public Result<List<StatisticsVO>> getStockOutStatistics(
             @Parameter(description = "开始日期", example = "2025-01-01")
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @Parameter(description = "结束日期", example = "2025-12-31")
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "是否按天汇总", example = "true")
+            @RequestParam(defaultValue = "false") boolean aggregate) {
+        if (aggregate) {
+            return Result.success(statisticsService.getDailyStatistics(DailyRollup.KIND_STOCK_OUT, startDate, endDate));
+        }
         return Result.success(statisticsService.getStockOutStatistics(startDate, endDate));
     }
     
-    @Operation(summary = "销售统计（按日期）")
+    @Operation(summary = "销售统计（按日期）", description = "aggregate=true时每天返回一条汇总，数据来自日汇总表；否则返回每条销售记录")
     @GetMapping("/sale")
     public Result<List<StatisticsVO>> getSaleStatistics(
             @Parameter(description = "开始日期", example = "2025-01-01")
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @Parameter(description = "结束日期", example = "2025-12-31")
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "是否按天汇总", example = "true")
+            @RequestParam(defaultValue = "false") boolean aggregate) {
+        if (aggregate) {
+            return Result.success(statisticsService.getDailyStatistics(DailyRollup.KIND_SALE, startDate, endDate));
+        }
         return Result.success(statisticsService.getSaleStatistics(startDate, endDate));
     }
     
-    @Operation(summary = "销售统计（按产品）")
+    @Operation(summary = "首页看板",
+            description = "一次返回入库、出库、销售分桶图表、销售额排行和库存预警，各部分并行计算；超时或失败的部分为空，原因见errors")
+    @GetMapping("/dashboard")
+    public Result<DashboardVO> getDashboard(
+            @Parameter(description = "开始日期", example = "2025-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "结束日期", example = "2025-12-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "图表统计粒度：hour/day/week/month", example = "day")
+            @RequestParam(defaultValue = "day") String granularity,
+            @Parameter(description = "销售额排行返回的产品数", example = "10")
+            @RequestParam(required = false) Integer topLimit,
+            @Parameter(description = "库存预警阈值，默认10", example = "10")
+            @RequestParam(required = false) Integer threshold) {
+        return Result.success(dashboardService.getDashboard(startDate, endDate, granularity, topLimit, threshold));
+    }
+    
+    @Operation(summary = "重建日汇总", description = "根据销售、入库、出库明细重建日期范围内的日汇总，用于历史数据回填；日期为空表示不限")
+    @PostMapping("/rollup/rebuild")
+    public Result<Integer> rebuildDailyRollup(
+            @Parameter(description = "开始日期", example = "2025-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "结束日期", example = "2025-12-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return Result.success(dailyRollupService.rebuild(startDate, endDate));
+    }
+    
+    @Operation(summary = "销售统计（按产品）", description = "每个产品一条汇总（数量、金额、订单数），按销售额倒序")
     @GetMapping("/sale-by-product")
     public Result<List<StatisticsVO>> getSaleStatisticsByProduct(
             @Parameter(description = "开始日期", example = "2025-01-01")
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @Parameter(description = "结束日期", example = "2025-12-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "只返回销售额最高的前N个产品，不传返回全部", example = "10")
+            @RequestParam(required = false) Integer limit) {
+        return Result.success(statisticsService.getSaleStatisticsByProduct(startDate, endDate, limit));
+    }
+    
+    @Operation(summary = "销售统计（按产品类型）", description = "每个产品类型一条汇总（数量、金额、订单数），按销售额倒序")
+    @GetMapping("/sale-by-type")
+    public Result<List<StatisticsVO>> getSaleStatisticsByType(
+            @Parameter(description = "开始日期", example = "2025-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "结束日期", example = "2025-12-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return Result.success(statisticsService.getSaleStatisticsByType(startDate, endDate));
+    }
+    
+    @Operation(summary = "销售排行", description = "按销售额或销售数量返回前N个产品，数据库按产品汇总后在服务端用有界堆取前N")
+    @GetMapping("/top-products")
+    public Result<List<ProductSalesVO>> getTopProducts(
+            @Parameter(description = "开始日期", example = "2025-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "结束日期", example = "2025-03-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "返回产品数，默认20", example = "20")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "排序指标：amount（销售额）或quantity（销售数量）", example = "amount")
+            @RequestParam(defaultValue = "amount") String orderBy) {
+        return Result.success(salesAnalysisService.getTopProducts(startDate, endDate, limit, orderBy));
+    }
+    
+    @Operation(summary = "产品ABC分析", description = "全部产品按销售额倒序，给出销售额占比、累计占比和ABC分类（默认A类80%，B类95%）")
+    @GetMapping("/abc")
+    public Result<List<ProductSalesVO>> getAbcAnalysis(
+            @Parameter(description = "开始日期", example = "2025-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "结束日期", example = "2025-03-31")
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        return Result.success(statisticsService.getSaleStatisticsByProduct(startDate, endDate));
+        return Result.success(salesAnalysisService.getAbcAnalysis(startDate, endDate));
     }
     
-    @Operation(summary = "入库统计图表数据（按日期）")
+    @Operation(summary = "入库统计图表数据（按日期）",
+            description = "传granularity时在数据库中按时间分桶聚合并补齐空桶，返回列式的ChartSeriesVO；不传时返回每条入库记录")
     @GetMapping("/stock-in-chart")
-    public Result<Map<String, Object>> getStockInChartStatistics(
+    public Result<?> getStockInChartStatistics(
             @Parameter(description = "开始日期", example = "2025-01-01")
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @Parameter(description = "结束日期", example = "2025-12-31")
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "统计粒度：hour/day/week/month", example = "day")
+            @RequestParam(required = false) String granularity) {
+        
+        if (granularity != null) {
+            return Result.success(statisticsService.getChartSeries(DailyRollup.KIND_STOCK_IN, granularity, startDate, endDate));
+        }
         
         List<StatisticsVO> statistics = statisticsService.getStockInStatistics(startDate, endDate);
         
@@ -91,13 +185,20 @@ public class StatisticsController {
         return Result.success(chartData);
     }
     
-    @Operation(summary = "出库统计图表数据（按日期）")
+    @Operation(summary = "出库统计图表数据（按日期）",
+            description = "传granularity时在数据库中按时间分桶聚合并补齐空桶，返回列式的ChartSeriesVO；不传时返回每条出库记录")
     @GetMapping("/stock-out-chart")
-    public Result<Map<String, Object>> getStockOutChartStatistics(
+    public Result<?> getStockOutChartStatistics(
             @Parameter(description = "开始日期", example = "2025-01-01")
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @Parameter(description = "结束日期", example = "2025-12-31")
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "统计粒度：hour/day/week/month", example = "day")
+            @RequestParam(required = false) String granularity) {
+        
+        if (granularity != null) {
+            return Result.success(statisticsService.getChartSeries(DailyRollup.KIND_STOCK_OUT, granularity, startDate, endDate));
+        }
         
         List<StatisticsVO> statistics = statisticsService.getStockOutStatistics(startDate, endDate);
         
@@ -120,13 +221,20 @@ public class StatisticsController {
         return Result.success(chartData);
     }
     
-    @Operation(summary = "销售统计图表数据（按日期）")
+    @Operation(summary = "销售统计图表数据（按日期）",
+            description = "传granularity时在数据库中按时间分桶聚合并补齐空桶，返回列式的ChartSeriesVO；不传时返回每条销售记录")
     @GetMapping("/sale-chart")
-    public Result<Map<String, Object>> getSaleChartStatistics(
+    public Result<?> getSaleChartStatistics(
             @Parameter(description = "开始日期", example = "2025-01-01")
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @Parameter(description = "结束日期", example = "2025-12-31")
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "统计粒度：hour/day/week/month", example = "day")
+            @RequestParam(required = false) String granularity) {
+        
+        if (granularity != null) {
+            return Result.success(statisticsService.getChartSeries(DailyRollup.KIND_SALE, granularity, startDate, endDate));
+        }
         
         List<StatisticsVO> statistics = statisticsService.getSaleStatistics(startDate, endDate);
         
@@ -1,8 +1,13 @@
 package cn.pcs.appliancesystem.controller;
 
+import cn.pcs.appliancesystem.entity.CursorPage;
+import cn.pcs.appliancesystem.entity.RecordPageQuery;
 import cn.pcs.appliancesystem.entity.Result;
+import cn.pcs.appliancesystem.entity.StockBatchRequest;
 import cn.pcs.appliancesystem.entity.StockInRecordVO;
 import cn.pcs.appliancesystem.entity.StockOutRecordVO;
+import cn.pcs.appliancesystem.service.IdempotencyService;
+import cn.pcs.appliancesystem.service.RecordExportService;
 import cn.pcs.appliancesystem.service.StockService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,9 +16,14 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 
 @Tag(name = "库存管理", description = "产品入库、出库操作接口")
@@ -23,6 +33,8 @@ import java.util.List;
 public class StockController {
 
     private final StockService stockService;
+    private final IdempotencyService idempotencyService;
+    private final RecordExportService recordExportService;
 
     /**
      * 产品入库
@@ -50,9 +62,14 @@ public class StockController {
             @Parameter(description = "入库数量", required = true, example = "10")
             @RequestParam Integer quantity,
             @Parameter(description = "操作员ID", required = true, example = "1")
-            @RequestParam Long operatorId) {
-        stockService.stockIn(productId, quantity, operatorId);
-        return Result.success();
+            @RequestParam Long operatorId,
+            @Parameter(description = "幂等键，超时重试时携带相同的值，重复请求直接返回首次结果")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Parameter(hidden = true) @RequestAttribute(value = "userId", required = false) Long userId) {
+        return idempotencyService.execute("stock-in", idempotencyKey, userId, Arrays.asList(productId, quantity, operatorId), () -> {
+            stockService.stockIn(productId, quantity, operatorId);
+            return Result.success();
+        });
     }
 
     /**
@@ -81,9 +98,76 @@ public class StockController {
             @Parameter(description = "出库数量", required = true, example = "5")
             @RequestParam Integer quantity,
             @Parameter(description = "操作员ID", required = true, example = "1")
-            @RequestParam Long operatorId) {
-        stockService.stockOut(productId, quantity, operatorId);
-        return Result.success();
+            @RequestParam Long operatorId,
+            @Parameter(description = "幂等键，超时重试时携带相同的值，重复请求直接返回首次结果")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Parameter(hidden = true) @RequestAttribute(value = "userId", required = false) Long userId) {
+        return idempotencyService.execute("stock-out", idempotencyKey, userId, Arrays.asList(productId, quantity, operatorId), () -> {
+            stockService.stockOut(productId, quantity, operatorId);
+            return Result.success();
+        });
+    }
+
+    /**
+     * 批量入库
+     */
+    @Operation(
+            summary = "批量入库",
+            description = "一次提交多个产品的入库明细，在同一事务内写入入库记录并按产品汇总增加库存"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "入库成功",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "入库失败（产品不存在、参数错误等），整批回滚",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            )
+    })
+    @PostMapping("/in/batch")
+    public Result<?> stockInBatch(
+            @RequestBody StockBatchRequest request,
+            @Parameter(description = "幂等键，超时重试时携带相同的值，重复请求直接返回首次结果")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Parameter(hidden = true) @RequestAttribute(value = "userId", required = false) Long userId) {
+        return idempotencyService.execute("stock-in-batch", idempotencyKey, userId, request, () -> {
+            stockService.stockInBatch(request.getItems(), request.getOperatorId());
+            return Result.success();
+        });
+    }
+
+    /**
+     * 批量出库
+     */
+    @Operation(
+            summary = "批量出库",
+            description = "一次提交多个产品的出库明细，任一产品库存不足则整批失败"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "出库成功",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "出库失败（产品不存在、库存不足、参数错误等），整批回滚",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            )
+    })
+    @PostMapping("/out/batch")
+    public Result<?> stockOutBatch(
+            @RequestBody StockBatchRequest request,
+            @Parameter(description = "幂等键，超时重试时携带相同的值，重复请求直接返回首次结果")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Parameter(hidden = true) @RequestAttribute(value = "userId", required = false) Long userId) {
+        return idempotencyService.execute("stock-out-batch", idempotencyKey, userId, request, () -> {
+            stockService.stockOutBatch(request.getItems(), request.getOperatorId());
+            return Result.success();
+        });
     }
 
     /**
@@ -126,6 +210,152 @@ public class StockController {
         return Result.success(records);
     }
 
+    /**
+     * 分页查询入库记录
+     */
+    @Operation(
+            summary = "分页查询入库记录",
+            description = "按入库时间倒序的游标分页查询，支持按产品、操作员、时间范围过滤；翻页时传入上一页返回的nextCursor"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "查询成功",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "分页游标无效",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            )
+    })
+    @GetMapping("/in-records/page")
+    public Result<CursorPage<StockInRecordVO>> getStockInRecordPage(
+            @Parameter(description = "产品ID", example = "1")
+            @RequestParam(required = false) Long productId,
+            @Parameter(description = "操作员ID", example = "2")
+            @RequestParam(required = false) Long operatorId,
+            @Parameter(description = "开始时间（包含）", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "结束时间（不包含）", example = "2026-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @Parameter(description = "分页游标，第一页不传")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页条数，默认20，最大200", example = "20")
+            @RequestParam(required = false) Integer size) {
+        RecordPageQuery query = RecordPageQuery.builder()
+                .productId(productId)
+                .userId(operatorId)
+                .startTime(startTime)
+                .endTime(endTime)
+                .cursor(cursor)
+                .size(size)
+                .build();
+        return Result.success(stockService.getStockInRecordPage(query));
+    }
+
+    /**
+     * 分页查询出库记录
+     */
+    @Operation(
+            summary = "分页查询出库记录",
+            description = "按出库时间倒序的游标分页查询，支持按产品、操作员、时间范围过滤；翻页时传入上一页返回的nextCursor"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "查询成功",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "分页游标无效",
+                    content = @Content(schema = @Schema(implementation = Result.class))
+            )
+    })
+    @GetMapping("/out-records/page")
+    public Result<CursorPage<StockOutRecordVO>> getStockOutRecordPage(
+            @Parameter(description = "产品ID", example = "1")
+            @RequestParam(required = false) Long productId,
+            @Parameter(description = "操作员ID", example = "2")
+            @RequestParam(required = false) Long operatorId,
+            @Parameter(description = "开始时间（包含）", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "结束时间（不包含）", example = "2026-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @Parameter(description = "分页游标，第一页不传")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页条数，默认20，最大200", example = "20")
+            @RequestParam(required = false) Integer size) {
+        RecordPageQuery query = RecordPageQuery.builder()
+                .productId(productId)
+                .userId(operatorId)
+                .startTime(startTime)
+                .endTime(endTime)
+                .cursor(cursor)
+                .size(size)
+                .build();
+        return Result.success(stockService.getStockOutRecordPage(query));
+    }
+
+    /**
+     * 导出入库记录
+     */
+    @Operation(
+            summary = "导出入库记录",
+            description = "按入库时间倒序流式导出入库记录，支持csv和ndjson格式，过滤条件与分页查询相同"
+    )
+    @GetMapping("/in-records/export")
+    public void exportStockInRecords(
+            @Parameter(description = "导出格式：csv 或 ndjson，默认csv", example = "csv")
+            @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "产品ID", example = "1")
+            @RequestParam(required = false) Long productId,
+            @Parameter(description = "操作员ID", example = "2")
+            @RequestParam(required = false) Long operatorId,
+            @Parameter(description = "开始时间（包含）", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "结束时间（不包含）", example = "2026-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            HttpServletResponse response) throws IOException {
+        RecordPageQuery query = RecordPageQuery.builder()
+                .productId(productId)
+                .userId(operatorId)
+                .startTime(startTime)
+                .endTime(endTime)
+                .build();
+        recordExportService.exportStockInRecords(query, format, response);
+    }
+
+    /**
+     * 导出出库记录
+     */
+    @Operation(
+            summary = "导出出库记录",
+            description = "按出库时间倒序流式导出出库记录，支持csv和ndjson格式，过滤条件与分页查询相同"
+    )
+    @GetMapping("/out-records/export")
+    public void exportStockOutRecords(
+            @Parameter(description = "导出格式：csv 或 ndjson，默认csv", example = "csv")
+            @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "产品ID", example = "1")
+            @RequestParam(required = false) Long productId,
+            @Parameter(description = "操作员ID", example = "2")
+            @RequestParam(required = false) Long operatorId,
+            @Parameter(description = "开始时间（包含）", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "结束时间（不包含）", example = "2026-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            HttpServletResponse response) throws IOException {
+        RecordPageQuery query = RecordPageQuery.builder()
+                .productId(productId)
+                .userId(operatorId)
+                .startTime(startTime)
+                .endTime(endTime)
+                .build();
+        recordExportService.exportStockOutRecords(query, format, response);
+    }
+
     /**
      * 修改入库记录
      */
@@ -225,4 +455,4 @@ public class StockController {
         stockService.deleteStockOut(id);
         return Result.success();
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,17 @@
 package cn.pcs.appliancesystem.controller;
 
+import cn.pcs.appliancesystem.entity.CursorPage;
 import cn.pcs.appliancesystem.entity.Result;
 import cn.pcs.appliancesystem.entity.StockWarning;
 import cn.pcs.appliancesystem.service.StockWarningService;
+import cn.pcs.appliancesystem.service.impl.LowStockIndex;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -18,13 +22,36 @@ import java.util.List;
 public class StockWarningController {
     
     private final StockWarningService stockWarningService;
+    private final LowStockIndex lowStockIndex;
     
-    @Operation(summary = "获取库存预警列表")
+    @Operation(summary = "获取库存预警列表", description = "只包含在售产品，按库存升序")
     @GetMapping("/list")
     public Result<List<StockWarning>> getWarningList(
-            @Parameter(description = "预警阈值，默认10", example = "10")
+            @Parameter(description = "预警阈值，不传时使用产品或产品类型设置的阈值，都未设置时默认10", example = "10")
             @RequestParam(required = false) Integer threshold) {
         return Result.success(stockWarningService.getWarningList(threshold));
     }
+    
+    @Operation(summary = "分页获取库存预警", description = "按（库存，产品ID）升序游标分页，可按预警级别过滤")
+    @GetMapping("/page")
+    public Result<CursorPage<StockWarning>> getWarningPage(
+            @Parameter(description = "预警阈值，不传时使用产品或产品类型设置的阈值，都未设置时默认10", example = "10")
+            @RequestParam(required = false) Integer threshold,
+            @Parameter(description = "预警级别（1-低库存，2-缺货），不传表示全部", example = "2")
+            @RequestParam(required = false) Integer level,
+            @Parameter(description = "分页游标，取上一页返回的nextCursor，为空表示第一页")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页条数，默认20，最大200", example = "20")
+            @RequestParam(required = false) Integer size) {
+        return Result.success(stockWarningService.getWarningPage(threshold, level, cursor, size));
+    }
+    
+    @Operation(summary = "订阅库存预警变化（SSE）",
+            description = "连接后先推送snapshot事件（当前全部预警），之后产品进入低库存、缺货或恢复正常时分别推送low、out-of-stock、recovered事件。"
+                    + "浏览器EventSource无法设置Authorization请求头，可先调用/api/auth/stream-token获取订阅令牌，"
+                    + "再通过access_token查询参数传递")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return lowStockIndex.subscribe();
+    }
 }
-
@@ -10,6 +10,7 @@ import cn.pcs.appliancesystem.mapper.StockInMapper;
 import cn.pcs.appliancesystem.mapper.StockOutMapper;
 import cn.pcs.appliancesystem.mapper.SysUserMapper;
 import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.service.impl.DictionaryCache;
 import cn.pcs.appliancesystem.util.PasswordUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import io.swagger.v3.oas.annotations.Operation;
@@ -30,6 +31,7 @@ public class UserController {
     private final SaleMapper saleMapper;
     private final StockInMapper stockInMapper;
     private final StockOutMapper stockOutMapper;
+    private final DictionaryCache dictionaryCache;
 
     @Operation(summary = "查询所有用户")
     @GetMapping("/list")
@@ -75,6 +77,7 @@ public class UserController {
         user.setPassword(encodedPassword);
 
         sysUserMapper.insert(user);
+        dictionaryCache.onUserSaved(user.getId(), user.getUsername());
         return Result.success();
     }
 
@@ -102,6 +105,7 @@ public class UserController {
         }
 
         sysUserMapper.updateById(user);
+        dictionaryCache.onUserSaved(user.getId(), user.getUsername());
         return Result.success();
     }
 
@@ -139,6 +143,7 @@ public class UserController {
         }
         
         sysUserMapper.deleteById(id);
+        dictionaryCache.onUserDeleted(id);
         return Result.success();
     }
 }
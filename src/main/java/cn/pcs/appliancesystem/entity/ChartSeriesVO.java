@@ -0,0 +1,35 @@
+package cn.pcs.appliancesystem.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 按时间分桶的图表数据，列式存储，各数组下标一一对应，没有数据的桶补0
+ */
+@Schema(description = "分桶图表数据")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChartSeriesVO {
+
+    @Schema(description = "统计粒度（hour/day/week/month）", example = "day")
+    private String granularity;
+
+    @Schema(description = "时间桶标签（小时 yyyy-MM-dd HH:00，天 yyyy-MM-dd，周为周一日期，月 yyyy-MM）")
+    private String[] labels;
+
+    @Schema(description = "各桶数量合计")
+    private int[] quantities;
+
+    @Schema(description = "各桶金额合计，仅销售统计返回")
+    private BigDecimal[] amounts;
+
+    @Schema(description = "各桶记录条数")
+    private int[] counts;
+}
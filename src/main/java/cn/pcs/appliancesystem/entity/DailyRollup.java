@@ -0,0 +1,39 @@
+package cn.pcs.appliancesystem.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 日汇总，按（类型，日期，产品）累计数量、金额和记录条数，随业务写入在同一事务内增量更新
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyRollup {
+
+    // 汇总类型
+    public static final String KIND_SALE = "SALE";
+    public static final String KIND_STOCK_IN = "STOCK_IN";
+    public static final String KIND_STOCK_OUT = "STOCK_OUT";
+
+    private String kind;
+
+    private LocalDate day;
+
+    private Long productId;
+
+    // 数量合计
+    private Integer qty;
+
+    // 金额合计，出入库为0
+    private BigDecimal amount;
+
+    // 记录条数
+    private Integer cnt;
+}
@@ -0,0 +1,42 @@
+package cn.pcs.appliancesystem.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 首页看板数据，各部分并行计算；某部分超时或失败时该部分为空，原因记录在errors中
+ */
+@Schema(description = "首页看板数据")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardVO {
+
+    @Schema(description = "入库分桶图表")
+    private ChartSeriesVO stockInChart;
+
+    @Schema(description = "出库分桶图表")
+    private ChartSeriesVO stockOutChart;
+
+    @Schema(description = "销售分桶图表")
+    private ChartSeriesVO saleChart;
+
+    @Schema(description = "销售额最高的产品")
+    private List<StatisticsVO> topProducts;
+
+    @Schema(description = "库存预警列表")
+    private List<StockWarning> stockWarnings;
+
+    @Schema(description = "未能返回的部分及原因，键为字段名，全部成功时为空")
+    private Map<String, String> errors;
+
+    @Schema(description = "总耗时（毫秒）", example = "120")
+    private Long elapsedMillis;
+}
@@ -0,0 +1,33 @@
+package cn.pcs.appliancesystem.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "名称字典缓存统计")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DictionaryCacheStats {
+
+    @Schema(description = "缓存的产品名称数", example = "5")
+    private Integer productNames;
+
+    @Schema(description = "缓存的产品类型名称数", example = "4")
+    private Integer typeNames;
+
+    @Schema(description = "缓存的用户名数", example = "4")
+    private Integer usernames;
+
+    @Schema(description = "命中次数", example = "1024")
+    private Long hits;
+
+    @Schema(description = "未命中次数（回源数据库）", example = "3")
+    private Long misses;
+
+    @Schema(description = "命中率", example = "0.997")
+    private Double hitRate;
+}
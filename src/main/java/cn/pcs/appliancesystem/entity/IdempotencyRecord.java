@@ -0,0 +1,20 @@
+package cn.pcs.appliancesystem.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 幂等键保存的内容：首次请求的参数摘要和响应结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    // 请求参数摘要，同一个键携带不同参数时拒绝
+    private String fingerprint;
+
+    // 响应结果，为空表示正在处理
+    private Result<?> result;
+}
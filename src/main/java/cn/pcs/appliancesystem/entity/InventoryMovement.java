@@ -0,0 +1,52 @@
+package cn.pcs.appliancesystem.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存流水，只追加不修改
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("inventory_movement")
+public class InventoryMovement {
+
+    // 变动类型
+    public static final String TYPE_INIT = "INIT";
+    public static final String TYPE_MANUAL = "MANUAL";
+    public static final String TYPE_STOCK_IN = "STOCK_IN";
+    public static final String TYPE_STOCK_IN_ADJUST = "STOCK_IN_ADJUST";
+    public static final String TYPE_STOCK_IN_DELETE = "STOCK_IN_DELETE";
+    public static final String TYPE_STOCK_OUT = "STOCK_OUT";
+    public static final String TYPE_STOCK_OUT_ADJUST = "STOCK_OUT_ADJUST";
+    public static final String TYPE_STOCK_OUT_DELETE = "STOCK_OUT_DELETE";
+    public static final String TYPE_SALE = "SALE";
+    public static final String TYPE_SALE_ADJUST = "SALE_ADJUST";
+    public static final String TYPE_SALE_DELETE = "SALE_DELETE";
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long productId;
+
+    // 库存变化量，正数增加，负数减少
+    private Integer changeQty;
+
+    private String movementType;
+
+    // 关联单据ID（入库/出库/销售记录ID）
+    private Long refId;
+
+    private Long operatorId;
+
+    private LocalDateTime createTime;
+}
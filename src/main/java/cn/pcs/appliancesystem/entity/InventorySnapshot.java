@@ -0,0 +1,32 @@
+package cn.pcs.appliancesystem.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存快照，记录截至快照时间的产品库存
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("inventory_snapshot")
+public class InventorySnapshot {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long productId;
+
+    private Integer stock;
+
+    // 快照截止时间，包含该时间及之前的所有流水
+    private LocalDateTime snapshotTime;
+}
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.annotation.Version;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -46,4 +47,14 @@ public class Product {
 
     @Schema(description = "创建时间", example = "2025-01-01T10:00:00")
     private LocalDateTime createTime;
+
+    @Schema(description = "版本号（乐观锁，修改库存时需回传查询到的版本号）", example = "0")
+    @Version
+    private Integer version;
+
+    @Schema(description = "库存预警阈值，为空时使用产品类型的阈值", example = "10")
+    private Integer warningThreshold;
+
+    @Schema(description = "已预留数量（可用库存 = 库存 - 已预留），由预留接口维护，不能直接修改", example = "0")
+    private Integer reserved;
 }
@@ -0,0 +1,33 @@
+package cn.pcs.appliancesystem.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "产品乐观锁统计")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductLockStats {
+
+    @Schema(description = "产品ID，为空表示全部产品汇总", example = "1")
+    private Long productId;
+
+    @Schema(description = "更新尝试次数", example = "120")
+    private Long attempts;
+
+    @Schema(description = "版本冲突次数", example = "6")
+    private Long conflicts;
+
+    @Schema(description = "冲突后重试次数", example = "5")
+    private Long retries;
+
+    @Schema(description = "最终失败次数（需客户端刷新后重试）", example = "1")
+    private Long failures;
+
+    @Schema(description = "冲突率（冲突次数/尝试次数）", example = "0.05")
+    private Double conflictRate;
+}
@@ -0,0 +1,49 @@
+package cn.pcs.appliancesystem.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 单个产品在统计期间的销售合计，ABC分析时附带销售额占比和分类
+ */
+@Schema(description = "产品销售分析")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSalesVO {
+
+    // ABC分类
+    public static final String CLASS_A = "A";
+    public static final String CLASS_B = "B";
+    public static final String CLASS_C = "C";
+
+    @Schema(description = "产品ID", example = "1")
+    private Long productId;
+
+    @Schema(description = "产品名称", example = "海尔冰箱")
+    private String productName;
+
+    @Schema(description = "销售数量", example = "12")
+    private Integer quantity;
+
+    @Schema(description = "销售额", example = "59988.00")
+    private BigDecimal amount;
+
+    @Schema(description = "订单数", example = "8")
+    private Integer orderCount;
+
+    @Schema(description = "销售额占比", example = "0.4213")
+    private BigDecimal share;
+
+    @Schema(description = "累计销售额占比（按销售额倒序累计到本产品）", example = "0.7651")
+    private BigDecimal cumulativeShare;
+
+    @Schema(description = "ABC分类（A/B/C）", example = "A")
+    private String abcClass;
+}
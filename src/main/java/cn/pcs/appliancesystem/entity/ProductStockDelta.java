@@ -0,0 +1,41 @@
+package cn.pcs.appliancesystem.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 产品库存变更推送，携带变更后的库存而不是增量，重复或合并的事件都可以直接覆盖本地数据
+ */
+@Schema(description = "产品库存变更")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductStockDelta {
+
+    @Schema(description = "变更序号，单调递增，断线重连时作为lastSeq或Last-Event-ID回传", example = "1735689600000001")
+    private Long seq;
+
+    @Schema(description = "产品ID", example = "1")
+    private Long productId;
+
+    @Schema(description = "变更后的库存，产品已删除时为空", example = "99")
+    private Integer stock;
+
+    @Schema(description = "变更后的版本号，产品已删除时为空", example = "3")
+    private Integer version;
+
+    @Schema(description = "产品状态（0-下架，1-上架），产品已删除时为空", example = "1")
+    private Integer status;
+
+    @Schema(description = "产品是否已删除", example = "false")
+    private Boolean deleted;
+
+    @Schema(description = "变更时间", example = "2025-01-01T10:00:00")
+    private LocalDateTime time;
+}
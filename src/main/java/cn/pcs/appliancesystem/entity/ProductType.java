@@ -21,4 +21,7 @@ public class ProductType {
     private String typeName;
 
     private String remark;
+
+    // 库存预警阈值，产品未单独设置时使用，为空时使用系统默认值
+    private Integer warningThreshold;
 }
@@ -0,0 +1,38 @@
+package cn.pcs.appliancesystem.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 出入库、销售记录分页查询条件
+ */
+@Schema(description = "记录分页查询条件")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecordPageQuery {
+
+    @Schema(description = "产品ID", example = "1")
+    private Long productId;
+
+    @Schema(description = "操作员ID（出入库记录）或销售员ID（销售记录）", example = "2")
+    private Long userId;
+
+    @Schema(description = "开始时间（包含）", example = "2025-01-01T00:00:00")
+    private LocalDateTime startTime;
+
+    @Schema(description = "结束时间（不包含）", example = "2026-01-01T00:00:00")
+    private LocalDateTime endTime;
+
+    @Schema(description = "分页游标，取上一页返回的nextCursor，为空表示第一页")
+    private String cursor;
+
+    @Schema(description = "每页条数，默认20，最大200", example = "20")
+    private Integer size;
+}
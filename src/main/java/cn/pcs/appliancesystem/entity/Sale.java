@@ -30,4 +30,7 @@ public class Sale {
     private Long salesmanId;
 
     private LocalDateTime saleTime;
+
+    // 订单号，多产品订单的各条销售记录共用同一订单号
+    private String orderNo;
 }
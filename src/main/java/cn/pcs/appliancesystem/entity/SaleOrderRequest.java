@@ -0,0 +1,16 @@
+package cn.pcs.appliancesystem.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+@Schema(description = "销售订单请求")
+@Data
+public class SaleOrderRequest {
+    @Schema(description = "销售员ID", example = "4")
+    private Long salesmanId;
+
+    @Schema(description = "订单明细")
+    private List<SaleOrderItem> items;
+}
@@ -0,0 +1,33 @@
+package cn.pcs.appliancesystem.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "统计日缓存指标")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatisticsCacheStats {
+
+    @Schema(description = "缓存的（类型，日期）条目数", example = "90")
+    private Integer entries;
+
+    @Schema(description = "命中的天数", example = "2048")
+    private Long hits;
+
+    @Schema(description = "未命中（查询数据库）的天数", example = "90")
+    private Long misses;
+
+    @Schema(description = "命中率", example = "0.958")
+    private Double hitRate;
+
+    @Schema(description = "因补录、修改、删除历史数据而失效的条目数", example = "3")
+    private Long evictions;
+
+    @Schema(description = "当天实时查询次数", example = "120")
+    private Long liveQueries;
+}
@@ -23,7 +23,13 @@ public class StatisticsVO {
     @Schema(description = "总金额")
     private BigDecimal totalAmount;
     
+    @Schema(description = "产品ID（按产品统计时返回）")
+    private Long productId;
+
     @Schema(description = "产品名称")
     private String productName;
+
+    @Schema(description = "记录条数（销售为订单条数）")
+    private Integer orderCount;
 }
 
@@ -0,0 +1,18 @@
+package cn.pcs.appliancesystem.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "批量出入库明细")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBatchItem {
+    @Schema(description = "产品ID", example = "1")
+    private Long productId;
+
+    @Schema(description = "数量", example = "10")
+    private Integer quantity;
+}
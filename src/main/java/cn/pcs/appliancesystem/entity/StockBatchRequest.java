@@ -0,0 +1,16 @@
+package cn.pcs.appliancesystem.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+@Schema(description = "批量出入库请求")
+@Data
+public class StockBatchRequest {
+    @Schema(description = "操作员ID", example = "2")
+    private Long operatorId;
+
+    @Schema(description = "出入库明细")
+    private List<StockBatchItem> items;
+}
@@ -0,0 +1,33 @@
+package cn.pcs.appliancesystem.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 合并提交引擎中已提交、但调用方事务尚未完成的库存变更
+ * 调用方事务提交时删除；回滚或进程崩溃后仍存在的记录按相反方向补偿
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("stock_change_pending")
+public class StockChangePending {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long productId;
+
+    // 已提交的库存变化量，正数增加，负数减少
+    private Long delta;
+
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,15 @@
+package cn.pcs.appliancesystem.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 产品库存或预警相关属性（状态、阈值）发生变化，由ProductService在变更时发布，事务提交后处理
+ */
+@Data
+@AllArgsConstructor
+public class StockChangedEvent {
+
+    // 产品ID，为空表示影响多个产品（如修改了产品类型的预警阈值），需要全部重新计算
+    private Long productId;
+}
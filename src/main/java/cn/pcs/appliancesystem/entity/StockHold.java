@@ -0,0 +1,42 @@
+package cn.pcs.appliancesystem.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存预留，收银时临时占用库存，到期未确认自动释放
+ */
+@Schema(description = "库存预留信息")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("stock_hold")
+public class StockHold {
+
+    @Schema(description = "预留ID", example = "1")
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long holdId;
+
+    @Schema(description = "产品ID", example = "1")
+    private Long productId;
+
+    @Schema(description = "预留数量", example = "1")
+    private Integer quantity;
+
+    @Schema(description = "销售员ID", example = "4")
+    private Long salesmanId;
+
+    @Schema(description = "到期时间")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime expireTime;
+}
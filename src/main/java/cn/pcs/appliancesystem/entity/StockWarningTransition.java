@@ -0,0 +1,49 @@
+package cn.pcs.appliancesystem.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存预警状态变化，只在预警级别改变时推送
+ */
+@Schema(description = "库存预警状态变化")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockWarningTransition {
+
+    // 变化类型
+    public static final String TYPE_LOW = "low";
+    public static final String TYPE_OUT_OF_STOCK = "out-of-stock";
+    public static final String TYPE_RECOVERED = "recovered";
+
+    @Schema(description = "变化类型（low-进入低库存，out-of-stock-进入缺货，recovered-恢复正常）", example = "low")
+    private String type;
+
+    @Schema(description = "产品ID", example = "1")
+    private Long productId;
+
+    @Schema(description = "产品名称", example = "海尔冰箱")
+    private String productName;
+
+    @Schema(description = "当前库存，产品下架或删除时为空", example = "8")
+    private Integer stock;
+
+    @Schema(description = "预警阈值", example = "10")
+    private Integer threshold;
+
+    @Schema(description = "当前预警级别（0-正常，1-低库存，2-缺货）", example = "1")
+    private Integer level;
+
+    @Schema(description = "变化前的预警级别", example = "0")
+    private Integer previousLevel;
+
+    @Schema(description = "检测到变化的时间", example = "2025-01-01T10:00:00")
+    private LocalDateTime time;
+}
@@ -36,8 +36,9 @@ public class GlobalExceptionHandler {
             response.setStatus(HttpStatus.UNAUTHORIZED.value());
             return new Result<>(401, e.getMessage(), null);
         }
-        // 其他业务异常返回400
-        response.setStatus(HttpStatus.BAD_REQUEST.value());
+        // 错误码本身是HTTP错误状态码时直接使用（如409），其他业务异常返回400
+        HttpStatus status = e.getCode() != null ? HttpStatus.resolve(e.getCode()) : null;
+        response.setStatus(status != null && status.isError() ? status.value() : HttpStatus.BAD_REQUEST.value());
         return new Result<>(e.getCode(), e.getMessage(), null);
     }
 
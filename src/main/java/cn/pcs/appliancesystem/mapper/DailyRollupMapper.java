@@ -0,0 +1,121 @@
+package cn.pcs.appliancesystem.mapper;
+
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.StatisticsVO;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Mapper
+public interface DailyRollupMapper {
+
+    /**
+     * 多行累加：汇总行不存在时插入，存在时在原值上累加
+     */
+    @Insert("<script>" +
+            "INSERT INTO daily_rollup (kind, day, product_id, qty, amount, cnt) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.kind}, #{item.day}, #{item.productId}, #{item.qty}, #{item.amount}, #{item.cnt})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE qty = qty + VALUES(qty), amount = amount + VALUES(amount), cnt = cnt + VALUES(cnt)" +
+            "</script>")
+    int upsertBatch(@Param("list") List<DailyRollup> list);
+
+    /**
+     * 按天汇总（合并所有产品），按日期升序
+     */
+    @Select("<script>" +
+            "SELECT day, SUM(qty) AS qty, SUM(amount) AS amount, SUM(cnt) AS cnt FROM daily_rollup" +
+            " WHERE kind = #{kind}" +
+            "<if test='startDay != null'> AND day &gt;= #{startDay}</if>" +
+            "<if test='endDay != null'> AND day &lt;= #{endDay}</if>" +
+            " GROUP BY day ORDER BY day" +
+            "</script>")
+    List<DailyRollup> sumByDay(@Param("kind") String kind, @Param("startDay") LocalDate startDay,
+                               @Param("endDay") LocalDate endDay);
+
+    /**
+     * 查询日期范围内的全部汇总行（按产品），按日期、产品升序
+     */
+    @Select("SELECT kind, day, product_id, qty, amount, cnt FROM daily_rollup" +
+            " WHERE kind = #{kind} AND day >= #{startDay} AND day <= #{endDay}" +
+            " ORDER BY day, product_id")
+    List<DailyRollup> selectRange(@Param("kind") String kind, @Param("startDay") LocalDate startDay,
+                                  @Param("endDay") LocalDate endDay);
+
+    /**
+     * 按天、周（以周一为起点）或月分桶汇总（合并所有产品），按桶升序
+     * 桶标签格式与TimeBuckets.label一致
+     * @param granularity day/week/month
+     */
+    @Select("<script>" +
+            "SELECT " +
+            "<choose>" +
+            "<when test='granularity == \"week\"'>DATE_FORMAT(DATE_SUB(day, INTERVAL WEEKDAY(day) DAY), '%Y-%m-%d')</when>" +
+            "<when test='granularity == \"month\"'>DATE_FORMAT(day, '%Y-%m')</when>" +
+            "<otherwise>DATE_FORMAT(day, '%Y-%m-%d')</otherwise>" +
+            "</choose>" +
+            " AS label, SUM(qty) AS count, SUM(amount) AS total_amount, SUM(cnt) AS order_count FROM daily_rollup" +
+            " WHERE kind = #{kind}" +
+            "<if test='startDay != null'> AND day &gt;= #{startDay}</if>" +
+            "<if test='endDay != null'> AND day &lt;= #{endDay}</if>" +
+            " GROUP BY label ORDER BY label" +
+            "</script>")
+    List<StatisticsVO> sumByBucket(@Param("kind") String kind, @Param("granularity") String granularity,
+                                   @Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+
+    /**
+     * 删除日期范围内的汇总，日期为空表示不限
+     */
+    @Delete("<script>" +
+            "DELETE FROM daily_rollup WHERE kind = #{kind}" +
+            "<if test='startDay != null'> AND day &gt;= #{startDay}</if>" +
+            "<if test='endDay != null'> AND day &lt;= #{endDay}</if>" +
+            "</script>")
+    int deleteRange(@Param("kind") String kind, @Param("startDay") LocalDate startDay,
+                    @Param("endDay") LocalDate endDay);
+
+    /**
+     * 从销售明细重建日期范围内的汇总
+     */
+    @Insert("<script>" +
+            "INSERT INTO daily_rollup (kind, day, product_id, qty, amount, cnt)" +
+            " SELECT 'SALE', DATE(sale_time), product_id, SUM(quantity), SUM(total_price), COUNT(*) FROM sale" +
+            " WHERE sale_time IS NOT NULL" +
+            "<if test='startDay != null'> AND sale_time &gt;= #{startDay}</if>" +
+            "<if test='endDay != null'> AND sale_time &lt; DATE_ADD(#{endDay}, INTERVAL 1 DAY)</if>" +
+            " GROUP BY DATE(sale_time), product_id" +
+            "</script>")
+    int rebuildSale(@Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+
+    /**
+     * 从入库明细重建日期范围内的汇总
+     */
+    @Insert("<script>" +
+            "INSERT INTO daily_rollup (kind, day, product_id, qty, amount, cnt)" +
+            " SELECT 'STOCK_IN', DATE(in_time), product_id, SUM(quantity), 0, COUNT(*) FROM stock_in" +
+            " WHERE in_time IS NOT NULL" +
+            "<if test='startDay != null'> AND in_time &gt;= #{startDay}</if>" +
+            "<if test='endDay != null'> AND in_time &lt; DATE_ADD(#{endDay}, INTERVAL 1 DAY)</if>" +
+            " GROUP BY DATE(in_time), product_id" +
+            "</script>")
+    int rebuildStockIn(@Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+
+    /**
+     * 从出库明细重建日期范围内的汇总
+     */
+    @Insert("<script>" +
+            "INSERT INTO daily_rollup (kind, day, product_id, qty, amount, cnt)" +
+            " SELECT 'STOCK_OUT', DATE(out_time), product_id, SUM(quantity), 0, COUNT(*) FROM stock_out" +
+            " WHERE out_time IS NOT NULL" +
+            "<if test='startDay != null'> AND out_time &gt;= #{startDay}</if>" +
+            "<if test='endDay != null'> AND out_time &lt; DATE_ADD(#{endDay}, INTERVAL 1 DAY)</if>" +
+            " GROUP BY DATE(out_time), product_id" +
+            "</script>")
+    int rebuildStockOut(@Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+}
@@ -0,0 +1,27 @@
+package cn.pcs.appliancesystem.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+
+/**
+ * Redis库存引擎已回写的增量批次
+ */
+@Mapper
+public interface InventoryFlushBatchMapper {
+
+    /**
+     * 登记回写批次，批次已登记过时抛出DuplicateKeyException
+     */
+    @Insert("INSERT INTO inventory_flush_batch (batch_id, flush_time) VALUES (#{batchId}, NOW())")
+    int insert(@Param("batchId") String batchId);
+
+    /**
+     * 清理早于指定时间的批次记录
+     */
+    @Delete("DELETE FROM inventory_flush_batch WHERE flush_time < #{before}")
+    int deleteBefore(@Param("before") LocalDateTime before);
+}
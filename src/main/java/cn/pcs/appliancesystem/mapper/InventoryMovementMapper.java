@@ -0,0 +1,49 @@
+package cn.pcs.appliancesystem.mapper;
+
+import cn.pcs.appliancesystem.entity.InventoryMovement;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface InventoryMovementMapper extends BaseMapper<InventoryMovement> {
+
+    /**
+     * 多行插入库存流水
+     */
+    @Insert("<script>" +
+            "INSERT INTO inventory_movement (product_id, change_qty, movement_type, ref_id, operator_id, create_time) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.productId}, #{item.changeQty}, #{item.movementType}, #{item.refId}, #{item.operatorId}, #{item.createTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<InventoryMovement> list);
+
+    /**
+     * 按产品汇总时间段内的流水，(from, to]，from为空表示从头开始；changeQty为变化量合计
+     */
+    @Select("<script>" +
+            "SELECT product_id, SUM(change_qty) AS change_qty FROM inventory_movement " +
+            "WHERE create_time &lt;= #{to} " +
+            "<if test='from != null'>AND create_time &gt; #{from} </if>" +
+            "GROUP BY product_id" +
+            "</script>")
+    List<InventoryMovement> sumChangesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 汇总单个产品时间段内的流水变化量，(from, to]，from为空表示从头开始
+     */
+    @Select("<script>" +
+            "SELECT IFNULL(SUM(change_qty), 0) FROM inventory_movement " +
+            "WHERE product_id = #{productId} AND create_time &lt;= #{to} " +
+            "<if test='from != null'>AND create_time &gt; #{from} </if>" +
+            "</script>")
+    int sumProductChangesBetween(@Param("productId") Long productId,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to);
+}
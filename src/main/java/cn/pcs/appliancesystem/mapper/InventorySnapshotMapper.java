@@ -0,0 +1,46 @@
+package cn.pcs.appliancesystem.mapper;
+
+import cn.pcs.appliancesystem.entity.InventorySnapshot;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface InventorySnapshotMapper extends BaseMapper<InventorySnapshot> {
+
+    /**
+     * 多行插入库存快照；同一产品同一截止时间的快照已存在时（多实例同时生成）覆盖为相同的值，不产生重复快照
+     */
+    @Insert("<script>" +
+            "INSERT INTO inventory_snapshot (product_id, stock, snapshot_time) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.productId}, #{item.stock}, #{item.snapshotTime})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE stock = VALUES(stock)" +
+            "</script>")
+    int upsertBatch(@Param("list") List<InventorySnapshot> list);
+
+    /**
+     * 最近一次快照的截止时间
+     */
+    @Select("SELECT MAX(snapshot_time) FROM inventory_snapshot")
+    LocalDateTime selectLatestSnapshotTime();
+
+    /**
+     * 查询指定时间点的全部快照
+     */
+    @Select("SELECT * FROM inventory_snapshot WHERE snapshot_time = #{snapshotTime}")
+    List<InventorySnapshot> selectBySnapshotTime(@Param("snapshotTime") LocalDateTime snapshotTime);
+
+    /**
+     * 查询产品在指定时间之前（含）最近的一次快照
+     */
+    @Select("SELECT * FROM inventory_snapshot WHERE product_id = #{productId} AND snapshot_time <= #{time} " +
+            "ORDER BY snapshot_time DESC LIMIT 1")
+    InventorySnapshot selectLatestBefore(@Param("productId") Long productId, @Param("time") LocalDateTime time);
+}
@@ -1,9 +1,166 @@
 package cn.pcs.appliancesystem.mapper;
 
 import cn.pcs.appliancesystem.entity.Product;
+import cn.pcs.appliancesystem.entity.StockWarning;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 @Mapper
 public interface ProductMapper extends BaseMapper<Product> {
+
+    // 产品生效的预警阈值：指定阈值优先，其次产品阈值、类型阈值，最后为系统默认值
+    String EFFECTIVE_THRESHOLD =
+            "<choose>" +
+            "<when test='threshold != null'>#{threshold}</when>" +
+            "<otherwise>COALESCE(p.warning_threshold, t.warning_threshold, #{defaultThreshold})</otherwise>" +
+            "</choose>";
+
+    // 以下库存更新均为原子语句，同时递增version，使基于旧版本号的产品修改因乐观锁冲突而失败
+    // 扣减库存时校验可用库存（库存 - 已预留），已预留的数量不能被其他出库或销售占用
+
+    /**
+     * 原子增加库存
+     * @return 受影响行数，0表示产品不存在
+     */
+    @Update("UPDATE product SET stock = IFNULL(stock, 0) + #{quantity}, version = version + 1 WHERE id = #{productId}")
+    int increaseStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+
+    /**
+     * 原子扣减库存（带可用库存充足条件）
+     * @return 受影响行数，0表示产品不存在或可用库存不足
+     */
+    @Update("UPDATE product SET stock = stock - #{quantity}, version = version + 1 WHERE id = #{productId} AND stock - reserved >= #{quantity}")
+    int decreaseStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+
+    /**
+     * 按增量调整库存，不校验库存是否充足（用于批量回写和回滚补偿，增量可为负数）
+     */
+    @Update("UPDATE product SET stock = IFNULL(stock, 0) + #{delta}, version = version + 1 WHERE id = #{productId}")
+    int applyStockDelta(@Param("productId") Long productId, @Param("delta") Long delta);
+
+    /**
+     * 按增量调整库存，调整后库存不能低于已预留数量（用于合并提交）
+     * @return 受影响行数，0表示产品不存在或可用库存不足
+     */
+    @Update("UPDATE product SET stock = IFNULL(stock, 0) + #{delta}, version = version + 1 WHERE id = #{productId} AND IFNULL(stock, 0) + #{delta} >= reserved")
+    int applyStockDeltaIfEnough(@Param("productId") Long productId, @Param("delta") Long delta);
+
+    /**
+     * 加锁读取当前库存（读到最新提交的值，并阻塞其他事务修改该产品直到本事务结束）
+     * @return 产品不存在时返回null
+     */
+    @Select("SELECT IFNULL(stock, 0) FROM product WHERE id = #{productId} FOR UPDATE")
+    Integer selectStockForUpdate(@Param("productId") Long productId);
+
+    /**
+     * 直接设置库存（手工修改库存），新库存不能低于已预留数量
+     * @return 受影响行数，0表示产品不存在或新库存低于已预留数量
+     */
+    @Update("UPDATE product SET stock = #{stock}, version = version + 1 WHERE id = #{productId} AND reserved <= #{stock}")
+    int updateStock(@Param("productId") Long productId, @Param("stock") Integer stock);
+
+    /**
+     * 查询当前库存
+     * @return 产品不存在时返回null
+     */
+    @Select("SELECT IFNULL(stock, 0) FROM product WHERE id = #{productId}")
+    Integer selectStock(@Param("productId") Long productId);
+
+    /**
+     * 查询当前可用库存（库存 - 已预留）
+     * @return 产品不存在时返回null
+     */
+    @Select("SELECT IFNULL(stock, 0) - reserved FROM product WHERE id = #{productId}")
+    Integer selectAvailable(@Param("productId") Long productId);
+
+    /**
+     * 查询已预留数量
+     * @return 产品不存在时返回null
+     */
+    @Select("SELECT reserved FROM product WHERE id = #{productId}")
+    Integer selectReserved(@Param("productId") Long productId);
+
+    /**
+     * 可用库存充足时增加已预留数量
+     * @return 受影响行数，0表示产品不存在或可用库存不足
+     */
+    @Update("UPDATE product SET reserved = reserved + #{quantity} WHERE id = #{productId} AND IFNULL(stock, 0) - reserved >= #{quantity}")
+    int reserveStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+
+    /**
+     * 按增量调整已预留数量，不校验可用库存，结果不小于0（用于释放预留和redis引擎同步预留数量）
+     */
+    @Update("UPDATE product SET reserved = GREATEST(reserved + #{delta}, 0) WHERE id = #{productId}")
+    int addReserved(@Param("productId") Long productId, @Param("delta") Integer delta);
+
+    /**
+     * 确认预留：扣减库存并同时减少已预留数量
+     * @return 受影响行数，0表示产品不存在或预留数量不足
+     */
+    @Update("UPDATE product SET stock = stock - #{quantity}, reserved = reserved - #{quantity}, version = version + 1 " +
+            "WHERE id = #{productId} AND reserved >= #{quantity} AND stock >= #{quantity}")
+    int commitReservedStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+
+    /**
+     * 所有产品和产品类型中最大的预警阈值，用于确定预警查询的库存上界
+     */
+    @Select("SELECT GREATEST(COALESCE((SELECT MAX(warning_threshold) FROM product), 0)," +
+            " COALESCE((SELECT MAX(warning_threshold) FROM product_type), 0))")
+    int selectMaxWarningThreshold();
+
+    /**
+     * 按（库存，ID）升序查询在售产品的库存预警
+     * 先用stock上界走(status, stock)索引范围扫描，再逐行比较产品生效的阈值，扫描行数与预警数量相当
+     * @param maxThreshold 库存上界，不小于任何产品生效的阈值
+     * @param threshold 指定阈值，为空时使用产品或类型阈值
+     * @param level 预警级别过滤（1-低库存，2-缺货），为空表示全部
+     * @param cursorStock 上一页最后一个产品的库存，为空表示从头查询
+     * @param limit 最多返回条数，为空表示不限制
+     */
+    @Select("<script>" +
+            "SELECT p.id AS product_id, p.product_name, p.stock, " + EFFECTIVE_THRESHOLD + " AS threshold," +
+            " CASE WHEN p.stock &lt;= 0 THEN 2 ELSE 1 END AS level" +
+            " FROM product p LEFT JOIN product_type t ON t.id = p.type_id" +
+            " WHERE p.status = 1 AND p.stock &lt;= #{maxThreshold}" +
+            " AND p.stock &lt;= " + EFFECTIVE_THRESHOLD +
+            "<if test='level == 2'> AND p.stock &lt;= 0</if>" +
+            "<if test='level == 1'> AND p.stock &gt; 0</if>" +
+            "<if test='cursorStock != null'> AND (p.stock &gt; #{cursorStock} OR (p.stock = #{cursorStock} AND p.id &gt; #{cursorId}))</if>" +
+            " ORDER BY p.stock, p.id" +
+            "<if test='limit != null'> LIMIT #{limit}</if>" +
+            "</script>")
+    List<StockWarning> selectWarnings(@Param("maxThreshold") Integer maxThreshold, @Param("threshold") Integer threshold,
+                                      @Param("defaultThreshold") Integer defaultThreshold, @Param("level") Integer level,
+                                      @Param("cursorStock") Integer cursorStock, @Param("cursorId") Long cursorId,
+                                      @Param("limit") Integer limit);
+
+    /**
+     * 查询单个在售产品当前的预警状态，level为0表示未达到预警阈值
+     * @return 产品不存在或已下架时返回null
+     */
+    @Select("SELECT p.id AS product_id, p.product_name, p.stock," +
+            " COALESCE(p.warning_threshold, t.warning_threshold, #{defaultThreshold}) AS threshold," +
+            " CASE WHEN p.stock <= 0 THEN 2" +
+            " WHEN p.stock <= COALESCE(p.warning_threshold, t.warning_threshold, #{defaultThreshold}) THEN 1 ELSE 0 END AS level" +
+            " FROM product p LEFT JOIN product_type t ON t.id = p.type_id" +
+            " WHERE p.id = #{productId} AND p.status = 1 AND p.stock IS NOT NULL")
+    StockWarning selectWarningState(@Param("productId") Long productId, @Param("defaultThreshold") Integer defaultThreshold);
+
+    /**
+     * 按ID升序分页查询产品的库存和已预留数量，供Redis库存引擎分页对账
+     * @param afterId 上一页最后一个产品的ID，从头查询时传0
+     */
+    @Select("SELECT id, stock, reserved FROM product WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Product> selectStockPage(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * 只查询产品的库存、版本号和状态，供库存变更推送使用
+     */
+    @Select("SELECT id, stock, version, status FROM product WHERE id = #{productId}")
+    Product selectStockState(@Param("productId") Long productId);
 }
@@ -1,9 +1,159 @@
 package cn.pcs.appliancesystem.mapper;
 
+import cn.pcs.appliancesystem.entity.ProductSalesVO;
+import cn.pcs.appliancesystem.entity.RecordPageQuery;
 import cn.pcs.appliancesystem.entity.Sale;
+import cn.pcs.appliancesystem.entity.SaleRecordVO;
+import cn.pcs.appliancesystem.entity.StatisticsVO;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Mapper
 public interface SaleMapper extends BaseMapper<Sale> {
+
+    // 销售记录视图查询：关联产品表和用户表取名称，下架或已删除的产品同样能取到名称
+    String RECORD_VO_SELECT = "SELECT r.id, COALESCE(p.product_name, '未知产品') AS product_name, r.quantity, r.total_price, COALESCE(u.username, '未知销售员') AS salesman, r.sale_time FROM sale r" +
+            " LEFT JOIN product p ON p.id = r.product_id" +
+            " LEFT JOIN sys_user u ON u.id = r.salesman_id";
+
+    // 过滤条件，由调用方包在<where>中
+    String RECORD_VO_FILTERS =
+            "<if test='q.productId != null'> AND r.product_id = #{q.productId}</if>" +
+            "<if test='q.userId != null'> AND r.salesman_id = #{q.userId}</if>" +
+            "<if test='q.startTime != null'> AND r.sale_time &gt;= #{q.startTime}</if>" +
+            "<if test='q.endTime != null'> AND r.sale_time &lt; #{q.endTime}</if>";
+
+    /**
+     * 多行插入销售记录
+     */
+    @Insert("<script>" +
+            "INSERT INTO sale (product_id, quantity, total_price, salesman_id, sale_time, order_no) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.productId}, #{item.quantity}, #{item.totalPrice}, #{item.salesmanId}, #{item.saleTime}, #{item.orderNo})" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<Sale> list);
+
+    /**
+     * 按（销售时间，ID）倒序查询销售记录视图，一条SQL完成名称关联
+     * @param cursorTime 上一页最后一条记录的时间，为空表示从头查询
+     * @param cursorId 上一页最后一条记录的ID
+     * @param limit 最多返回条数，为空表示不限制
+     */
+    @Select("<script>" + RECORD_VO_SELECT +
+            "<where>" + RECORD_VO_FILTERS +
+            "<if test='cursorTime != null'> AND (r.sale_time &lt; #{cursorTime} OR (r.sale_time = #{cursorTime} AND r.id &lt; #{cursorId}))</if>" +
+            "</where>" +
+            " ORDER BY r.sale_time DESC, r.id DESC" +
+            "<if test='limit != null'> LIMIT #{limit}</if>" +
+            "</script>")
+    List<SaleRecordVO> selectRecordVOs(@Param("q") RecordPageQuery query, @Param("cursorTime") LocalDateTime cursorTime,
+                                       @Param("cursorId") Long cursorId, @Param("limit") Integer limit);
+
+    /**
+     * 流式查询销售记录视图，按时间倒序逐行交给handler处理，不在内存中保留结果集
+     * fetchSize为Integer.MIN_VALUE时MySQL驱动逐行读取结果
+     */
+    @Select("<script>" + RECORD_VO_SELECT +
+            "<where>" + RECORD_VO_FILTERS + "</where>" +
+            " ORDER BY r.sale_time DESC, r.id DESC" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(SaleRecordVO.class)
+    void streamRecords(@Param("q") RecordPageQuery query, ResultHandler<SaleRecordVO> handler);
+
+    /**
+     * 流式读取全部销售的（时间，产品，数量，金额），用于加载列式销售数据
+     */
+    @Select("SELECT product_id, quantity, total_price, sale_time FROM sale WHERE sale_time IS NOT NULL ORDER BY id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(Sale.class)
+    void streamSaleFacts(ResultHandler<Sale> handler);
+
+    /**
+     * 按产品汇总销售数量、金额和订单数，按销售额倒序
+     * @param startTime 开始时间（含），为空表示不限
+     * @param endTime 结束时间（不含），为空表示不限
+     * @param limit 只取销售额最高的前N个产品，为空表示不限制
+     */
+    @Select("<script>" +
+            "SELECT r.product_id, COALESCE(p.product_name, '未知产品') AS label, COALESCE(p.product_name, '未知产品') AS product_name," +
+            " SUM(r.quantity) AS count, SUM(r.total_price) AS total_amount, COUNT(*) AS order_count FROM sale r" +
+            " LEFT JOIN product p ON p.id = r.product_id" +
+            "<where>" +
+            "<if test='startTime != null'> AND r.sale_time &gt;= #{startTime}</if>" +
+            "<if test='endTime != null'> AND r.sale_time &lt; #{endTime}</if>" +
+            "</where>" +
+            " GROUP BY r.product_id, p.product_name" +
+            " ORDER BY total_amount DESC, r.product_id" +
+            "<if test='limit != null'> LIMIT #{limit}</if>" +
+            "</script>")
+    List<StatisticsVO> sumByProduct(@Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime,
+                                    @Param("limit") Integer limit);
+
+    /**
+     * 按产品类型汇总销售数量、金额和订单数，按销售额倒序
+     * @param startTime 开始时间（含），为空表示不限
+     * @param endTime 结束时间（不含），为空表示不限
+     */
+    @Select("<script>" +
+            "SELECT COALESCE(t.type_name, '未知类型') AS label," +
+            " SUM(r.quantity) AS count, SUM(r.total_price) AS total_amount, COUNT(*) AS order_count FROM sale r" +
+            " LEFT JOIN product p ON p.id = r.product_id" +
+            " LEFT JOIN product_type t ON t.id = p.type_id" +
+            "<where>" +
+            "<if test='startTime != null'> AND r.sale_time &gt;= #{startTime}</if>" +
+            "<if test='endTime != null'> AND r.sale_time &lt; #{endTime}</if>" +
+            "</where>" +
+            " GROUP BY p.type_id, t.type_name" +
+            " ORDER BY total_amount DESC, p.type_id" +
+            "</script>")
+    List<StatisticsVO> sumByType(@Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 按小时分桶汇总销售数量和记录条数，按桶升序，桶标签格式为yyyy-MM-dd HH:00
+     * @param startTime 开始时间（含），为空表示不限
+     * @param endTime 结束时间（不含），为空表示不限
+     */
+    @Select("<script>" +
+            "SELECT DATE_FORMAT(sale_time, '%Y-%m-%d %H:00') AS label, SUM(quantity) AS count, SUM(total_price) AS total_amount, COUNT(*) AS order_count FROM sale" +
+            " WHERE sale_time IS NOT NULL" +
+            "<if test='startTime != null'> AND sale_time &gt;= #{startTime}</if>" +
+            "<if test='endTime != null'> AND sale_time &lt; #{endTime}</if>" +
+            " GROUP BY label ORDER BY label" +
+            "</script>")
+    List<StatisticsVO> sumByHour(@Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 流式返回全部产品在时间范围内的销售合计，每个产品一行（没有销售的产品数量、金额为0）
+     * 结果不排序，由调用方逐行处理，内存只与产品数有关
+     * @param startTime 开始时间（含），为空表示不限
+     * @param endTime 结束时间（不含），为空表示不限
+     */
+    @Select("<script>" +
+            "SELECT p.id AS product_id, p.product_name, COALESCE(s.quantity, 0) AS quantity," +
+            " COALESCE(s.amount, 0) AS amount, COALESCE(s.order_count, 0) AS order_count FROM product p" +
+            " LEFT JOIN (SELECT product_id, SUM(quantity) AS quantity, SUM(total_price) AS amount, COUNT(*) AS order_count" +
+            " FROM sale" +
+            "<where>" +
+            "<if test='startTime != null'> AND sale_time &gt;= #{startTime}</if>" +
+            "<if test='endTime != null'> AND sale_time &lt; #{endTime}</if>" +
+            "</where>" +
+            " GROUP BY product_id) s ON s.product_id = p.id" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(ProductSalesVO.class)
+    void streamProductTotals(@Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime,
+                             ResultHandler<ProductSalesVO> handler);
 }
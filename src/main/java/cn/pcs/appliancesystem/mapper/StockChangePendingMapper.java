@@ -0,0 +1,35 @@
+package cn.pcs.appliancesystem.mapper;
+
+import cn.pcs.appliancesystem.entity.StockChangePending;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface StockChangePendingMapper extends BaseMapper<StockChangePending> {
+
+    /**
+     * 多行插入待确认的库存变更，回填自增ID
+     */
+    @Insert("<script>" +
+            "INSERT INTO stock_change_pending (product_id, delta, create_time) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.productId}, #{item.delta}, #{item.createTime})" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<StockChangePending> list);
+
+    /**
+     * 查询早于指定时间仍未确认的变更
+     */
+    @Select("SELECT id, product_id, delta, create_time FROM stock_change_pending " +
+            "WHERE create_time < #{before} ORDER BY id LIMIT #{limit}")
+    List<StockChangePending> selectStale(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
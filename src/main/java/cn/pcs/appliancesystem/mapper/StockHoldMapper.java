@@ -0,0 +1,27 @@
+package cn.pcs.appliancesystem.mapper;
+
+import cn.pcs.appliancesystem.entity.StockHold;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface StockHoldMapper extends BaseMapper<StockHold> {
+
+    /**
+     * 统计产品当前的预留记录数（走 idx_hold_product 索引）
+     */
+    @Select("SELECT COUNT(*) FROM stock_hold WHERE product_id = #{productId}")
+    long countByProduct(@Param("productId") Long productId);
+
+    /**
+     * 查询已到期的预留，按到期时间升序
+     */
+    @Select("SELECT id AS hold_id, product_id, quantity, salesman_id, expire_time FROM stock_hold " +
+            "WHERE expire_time <= #{now} ORDER BY expire_time LIMIT #{limit}")
+    List<StockHold> selectExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
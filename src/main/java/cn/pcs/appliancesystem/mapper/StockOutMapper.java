@@ -1,9 +1,88 @@
 package cn.pcs.appliancesystem.mapper;
 
+import cn.pcs.appliancesystem.entity.RecordPageQuery;
+import cn.pcs.appliancesystem.entity.StatisticsVO;
 import cn.pcs.appliancesystem.entity.StockOut;
+import cn.pcs.appliancesystem.entity.StockOutRecordVO;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Mapper
 public interface StockOutMapper extends BaseMapper<StockOut> {
+
+    // 出库记录视图查询：关联产品表和用户表取名称，下架或已删除的产品同样能取到名称
+    String RECORD_VO_SELECT = "SELECT r.id, COALESCE(p.product_name, '未知产品') AS product_name, r.quantity, COALESCE(u.username, '未知操作员') AS operator, r.out_time FROM stock_out r" +
+            " LEFT JOIN product p ON p.id = r.product_id" +
+            " LEFT JOIN sys_user u ON u.id = r.operator_id";
+
+    // 过滤条件，由调用方包在<where>中
+    String RECORD_VO_FILTERS =
+            "<if test='q.productId != null'> AND r.product_id = #{q.productId}</if>" +
+            "<if test='q.userId != null'> AND r.operator_id = #{q.userId}</if>" +
+            "<if test='q.startTime != null'> AND r.out_time &gt;= #{q.startTime}</if>" +
+            "<if test='q.endTime != null'> AND r.out_time &lt; #{q.endTime}</if>";
+
+    /**
+     * 多行插入出库记录
+     */
+    @Insert("<script>" +
+            "INSERT INTO stock_out (product_id, quantity, operator_id, out_time) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.productId}, #{item.quantity}, #{item.operatorId}, #{item.outTime})" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "list.id")
+    int insertBatch(@Param("list") List<StockOut> list);
+
+    /**
+     * 按（出库时间，ID）倒序查询出库记录视图，一条SQL完成名称关联
+     * @param cursorTime 上一页最后一条记录的时间，为空表示从头查询
+     * @param cursorId 上一页最后一条记录的ID
+     * @param limit 最多返回条数，为空表示不限制
+     */
+    @Select("<script>" + RECORD_VO_SELECT +
+            "<where>" + RECORD_VO_FILTERS +
+            "<if test='cursorTime != null'> AND (r.out_time &lt; #{cursorTime} OR (r.out_time = #{cursorTime} AND r.id &lt; #{cursorId}))</if>" +
+            "</where>" +
+            " ORDER BY r.out_time DESC, r.id DESC" +
+            "<if test='limit != null'> LIMIT #{limit}</if>" +
+            "</script>")
+    List<StockOutRecordVO> selectRecordVOs(@Param("q") RecordPageQuery query, @Param("cursorTime") LocalDateTime cursorTime,
+                                           @Param("cursorId") Long cursorId, @Param("limit") Integer limit);
+
+    /**
+     * 流式查询出库记录视图，按时间倒序逐行交给handler处理，不在内存中保留结果集
+     * fetchSize为Integer.MIN_VALUE时MySQL驱动逐行读取结果
+     */
+    @Select("<script>" + RECORD_VO_SELECT +
+            "<where>" + RECORD_VO_FILTERS + "</where>" +
+            " ORDER BY r.out_time DESC, r.id DESC" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(StockOutRecordVO.class)
+    void streamRecords(@Param("q") RecordPageQuery query, ResultHandler<StockOutRecordVO> handler);
+
+    /**
+     * 按小时分桶汇总出库数量和记录条数，按桶升序，桶标签格式为yyyy-MM-dd HH:00
+     * @param startTime 开始时间（含），为空表示不限
+     * @param endTime 结束时间（不含），为空表示不限
+     */
+    @Select("<script>" +
+            "SELECT DATE_FORMAT(out_time, '%Y-%m-%d %H:00') AS label, SUM(quantity) AS count, COUNT(*) AS order_count FROM stock_out" +
+            " WHERE out_time IS NOT NULL" +
+            "<if test='startTime != null'> AND out_time &gt;= #{startTime}</if>" +
+            "<if test='endTime != null'> AND out_time &lt; #{endTime}</if>" +
+            " GROUP BY label ORDER BY label" +
+            "</script>")
+    List<StatisticsVO> sumByHour(@Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
 }
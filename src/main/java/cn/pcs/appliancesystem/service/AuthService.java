@@ -5,7 +5,16 @@ import cn.pcs.appliancesystem.entity.LoginResponse;
 import cn.pcs.appliancesystem.entity.RegisterRequest;
 
 public interface AuthService {
-    LoginResponse login(LoginRequest request);
+    /**
+     * 登录
+     * @param clientIp 客户端IP，用于按IP限流，为空时只按用户名限流
+     */
+    LoginResponse login(LoginRequest request, String clientIp);
     void register(RegisterRequest request);
+
+    /**
+     * 为已登录用户签发SSE订阅使用的短期令牌
+     */
+    String createStreamToken(Long userId, String username, String role);
 }
 
@@ -0,0 +1,50 @@
+package cn.pcs.appliancesystem.service;
+
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.StatisticsVO;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 销售、入库、出库日汇总
+ */
+public interface DailyRollupService {
+
+    /**
+     * 累加一条日汇总，需在业务事务内调用
+     * @param kind 汇总类型
+     * @param time 业务发生时间，决定累加到哪一天
+     * @param productId 产品ID
+     * @param qty 数量变化
+     * @param amount 金额变化，出入库传null
+     * @param cnt 记录条数变化（新增1，删除-1，修改0）
+     */
+    void record(String kind, LocalDateTime time, Long productId, int qty, BigDecimal amount, int cnt);
+
+    /**
+     * 批量累加日汇总，相同（类型，日期，产品）先合并，需在业务事务内调用
+     */
+    void recordBatch(List<DailyRollup> rows);
+
+    /**
+     * 按明细重建日期范围内的全部日汇总，用于历史数据回填和纠错
+     * @param startDate 开始日期（包含），为空表示不限
+     * @param endDate 结束日期（包含），为空表示不限
+     * @return 重建的汇总行数
+     */
+    int rebuild(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * 按天查询汇总（合并所有产品）
+     */
+    List<DailyRollup> sumByDay(String kind, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * 按天、周或月分桶查询汇总（合并所有产品），按桶升序，只返回有数据的桶
+     * @param granularity 见TimeBuckets，不支持小时
+     */
+    List<StatisticsVO> sumByBucket(String kind, String granularity, LocalDate startDate, LocalDate endDate);
+}
@@ -0,0 +1,20 @@
+package cn.pcs.appliancesystem.service;
+
+import cn.pcs.appliancesystem.entity.DashboardVO;
+
+import java.time.LocalDate;
+
+/**
+ * 首页看板
+ */
+public interface DashboardService {
+
+    /**
+     * 并行计算看板的各部分，超时或失败的部分留空并在errors中说明
+     * @param granularity 图表统计粒度 hour/day/week/month
+     * @param topLimit 销售额排行返回的产品数
+     * @param threshold 库存预警阈值，为空使用默认值
+     */
+    DashboardVO getDashboard(LocalDate startDate, LocalDate endDate, String granularity,
+                             Integer topLimit, Integer threshold);
+}
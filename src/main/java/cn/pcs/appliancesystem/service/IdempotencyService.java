@@ -0,0 +1,19 @@
+package cn.pcs.appliancesystem.service;
+
+import cn.pcs.appliancesystem.entity.Result;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+
+    /**
+     * 按幂等键执行操作，重复请求直接返回首次执行保存的结果
+     * @param scope 接口范围，不同接口的相同键互不影响
+     * @param key 客户端传入的幂等键，为空时直接执行
+     * @param userId 当前登录用户ID，不同用户的相同键互不影响
+     * @param request 请求参数，相同的键携带不同参数时返回422
+     * @param action 实际业务操作
+     * @return 响应结果
+     */
+    <T> Result<T> execute(String scope, String key, Long userId, Object request, Supplier<Result<T>> action);
+}
@@ -0,0 +1,34 @@
+package cn.pcs.appliancesystem.service;
+
+import cn.pcs.appliancesystem.entity.IdempotencyRecord;
+import cn.pcs.appliancesystem.entity.Result;
+
+/**
+ * 幂等键存储，保存已处理请求的参数摘要和响应结果
+ * 通过配置 idempotency.store 选择实现：memory（默认，本机内存）、redis（多实例共享）
+ */
+public interface IdempotencyStore {
+
+    /**
+     * 占用幂等键并标记为处理中
+     * @param fingerprint 请求参数摘要
+     * @return true-占用成功，false-该键已存在
+     */
+    boolean tryAcquire(String key, String fingerprint);
+
+    /**
+     * 获取幂等键保存的内容
+     * @return 不存在时返回null；正在处理时结果为空
+     */
+    IdempotencyRecord get(String key);
+
+    /**
+     * 保存处理完成的响应结果
+     */
+    void complete(String key, String fingerprint, Result<?> result);
+
+    /**
+     * 处理失败时释放幂等键，允许客户端重试
+     */
+    void release(String key);
+}
@@ -0,0 +1,83 @@
+package cn.pcs.appliancesystem.service;
+
+import cn.pcs.appliancesystem.entity.Product;
+
+import java.util.List;
+
+/**
+ * 库存引擎，负责产品库存的实际增减
+ * 通过配置 inventory.engine 选择实现：database（默认，直接更新MySQL）、redis（Redis计数器+异步回写）、coalescing（合并提交）
+ * 所有库存读写都应经过引擎，不要直接读写 product.stock，否则redis引擎的计数器会与数据库不一致
+ * 已预留数量（product.reserved）与库存一起由引擎维护：扣减库存时校验可用库存（库存 - 已预留），
+ * 预留只能通过确认预留转为实际扣减
+ */
+public interface InventoryEngine {
+
+    /**
+     * 增加库存
+     * @param productId 产品ID
+     * @param quantity 增加数量（已校验大于0）
+     */
+    void increase(Long productId, int quantity);
+
+    /**
+     * 扣减库存，可用库存不足时抛出业务异常
+     * @param productId 产品ID
+     * @param quantity 扣减数量（已校验大于0）
+     */
+    void decrease(Long productId, int quantity);
+
+    /**
+     * 直接设置库存（手工修改库存），产品不存在或新库存低于已预留数量时抛出业务异常
+     * @param productId 产品ID
+     * @param stock 新库存（已校验不小于0）
+     * @return 修改前的库存
+     */
+    int set(Long productId, int stock);
+
+    /**
+     * 查询实时库存
+     * @return 产品不存在时返回null
+     */
+    Integer get(Long productId);
+
+    /**
+     * 查询实时可用库存（库存 - 已预留）
+     * @return 产品不存在时返回null
+     */
+    Integer getAvailable(Long productId);
+
+    /**
+     * 预留库存，可用库存不足时抛出业务异常
+     * @param quantity 预留数量（已校验大于0）
+     */
+    void reserve(Long productId, int quantity);
+
+    /**
+     * 释放预留，归还可用库存
+     */
+    void unreserve(Long productId, int quantity);
+
+    /**
+     * 确认预留：扣减库存并减少同样数量的已预留数量
+     */
+    void commitReserved(Long productId, int quantity);
+
+    /**
+     * 用实时库存覆盖产品对象中的库存字段；数据库引擎的 product.stock 就是实时库存，无需处理
+     */
+    default void fillStock(List<Product> products) {
+    }
+
+    /**
+     * 新产品的期初库存已写入数据库（事务提交前调用）
+     */
+    default void init(Long productId, int stock) {
+    }
+
+    /**
+     * 产品已删除（事务提交后调用），清理引擎中保存的库存
+     */
+    default void remove(Long productId) {
+    }
+}
@@ -0,0 +1,39 @@
+package cn.pcs.appliancesystem.service;
+
+import cn.pcs.appliancesystem.entity.InventoryMovement;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface InventoryLedgerService {
+
+    /**
+     * 追加一条库存流水，需在业务事务内调用
+     * @param productId 产品ID
+     * @param changeQty 库存变化量，正数增加，负数减少
+     * @param movementType 变动类型
+     * @param refId 关联单据ID
+     * @param operatorId 操作人ID
+     */
+    void record(Long productId, int changeQty, String movementType, Long refId, Long operatorId);
+
+    /**
+     * 批量追加库存流水，需在业务事务内调用
+     * @param movements 库存流水
+     */
+    void recordBatch(List<InventoryMovement> movements);
+
+    /**
+     * 查询产品在指定时间点的库存：最近快照 + 快照之后到该时间点的流水
+     * @param productId 产品ID
+     * @param time 时间点
+     * @return 库存数量
+     */
+    Integer getStockAt(Long productId, LocalDateTime time);
+
+    /**
+     * 生成库存快照
+     * @return 生成的快照条数
+     */
+    int createSnapshots();
+}
@@ -18,6 +18,33 @@ public interface ProductService {
      */
     List<Product> getAllProducts();
 
+    /**
+     * 查询实时库存（经库存引擎读取）
+     * @return 产品不存在时返回null
+     */
+    Integer getStock(Long productId);
+
+    /**
+     * 查询实时可用库存（库存 - 已预留）
+     * @return 产品不存在时返回null
+     */
+    Integer getAvailableStock(Long productId);
+
+    /**
+     * 预留库存，可用库存不足时抛出业务异常
+     */
+    void reserveStock(Long productId, Integer quantity);
+
+    /**
+     * 释放预留的库存
+     */
+    void releaseStock(Long productId, Integer quantity);
+
+    /**
+     * 确认预留：扣减库存并减少已预留数量
+     */
+    void commitReservedStock(Long productId, Integer quantity);
+
     void increaseStock(Long productId, Integer quantity);
 
     void decreaseStock(Long productId, Integer quantity);
@@ -0,0 +1,32 @@
+package cn.pcs.appliancesystem.service;
+
+import cn.pcs.appliancesystem.entity.RecordPageQuery;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * 出入库、销售记录导出
+ * 校验导出格式、设置下载响应头后，记录从数据库逐行读出直接写入响应，内存占用与导出行数无关
+ */
+public interface RecordExportService {
+
+    /**
+     * 导出入库记录
+     * @param query 过滤条件（分页游标和条数不生效）
+     * @param format 导出格式：csv 或 ndjson，其他格式抛出业务异常
+     * @param response 下载响应
+     * @return 导出行数
+     */
+    long exportStockInRecords(RecordPageQuery query, String format, HttpServletResponse response) throws IOException;
+
+    /**
+     * 导出出库记录
+     */
+    long exportStockOutRecords(RecordPageQuery query, String format, HttpServletResponse response) throws IOException;
+
+    /**
+     * 导出销售记录
+     */
+    long exportSaleRecords(RecordPageQuery query, String format, HttpServletResponse response) throws IOException;
+}
@@ -0,0 +1,35 @@
+package cn.pcs.appliancesystem.service;
+
+import cn.pcs.appliancesystem.entity.StockHold;
+
+public interface ReservationService {
+
+    /**
+     * 预留库存，到期未确认自动释放
+     * @param productId 产品ID
+     * @param quantity 预留数量
+     * @param salesmanId 销售员ID
+     * @param ttlSeconds 预留有效期（秒）
+     * @return 预留信息
+     */
+    StockHold hold(Long productId, Integer quantity, Long salesmanId, Integer ttlSeconds);
+
+    /**
+     * 确认预留，转为销售记录
+     * @param holdId 预留ID
+     */
+    void confirm(Long holdId);
+
+    /**
+     * 取消预留，归还可用库存
+     * @param holdId 预留ID
+     */
+    void release(Long holdId);
+
+    /**
+     * 获取可用库存（库存 - 已预留）
+     * @param productId 产品ID
+     * @return 可用库存
+     */
+    Integer getAvailableStock(Long productId);
+}
@@ -1,5 +1,8 @@
 package cn.pcs.appliancesystem.service;
 
+import cn.pcs.appliancesystem.entity.CursorPage;
+import cn.pcs.appliancesystem.entity.RecordPageQuery;
+import cn.pcs.appliancesystem.entity.SaleOrderItem;
 import cn.pcs.appliancesystem.entity.SaleRecordVO;
 
 import java.util.List;
@@ -7,12 +10,33 @@ import java.util.List;
 public interface SaleService {
 
     void sell(Long productId, Integer quantity, Long salesmanId);
+
+    /**
+     * 销售已预留的库存：扣减库存的同时减少已预留数量，不再校验可用库存
+     * 由确认预留调用，调用方负责删除预留记录
+     */
+    void sellReserved(Long productId, Integer quantity, Long salesmanId);
+
+    /**
+     * 多产品订单销售，所有明细在一个事务内完成
+     * @param items 订单明细
+     * @param salesmanId 销售员ID
+     * @return 订单号
+     */
+    String sellOrder(List<SaleOrderItem> items, Long salesmanId);
     
     /**
      * 获取所有销售记录
      * @return 销售记录列表
      */
     List<SaleRecordVO> getSaleRecords();
+
+    /**
+     * 按时间倒序游标分页查询销售记录，支持按产品、人员、时间范围过滤
+     * @param query 查询条件
+     * @return 一页销售记录
+     */
+    CursorPage<SaleRecordVO> getSaleRecordPage(RecordPageQuery query);
     
     /**
      * 根据ID更新销售记录数量
@@ -0,0 +1,25 @@
+package cn.pcs.appliancesystem.service;
+
+import cn.pcs.appliancesystem.entity.ProductSalesVO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 产品销售分析
+ */
+public interface SalesAnalysisService {
+
+    /**
+     * 销售排行前N的产品
+     * @param limit 返回产品数
+     * @param orderBy 排序指标：amount（销售额，默认）或quantity（销售数量）
+     */
+    List<ProductSalesVO> getTopProducts(LocalDate startDate, LocalDate endDate, Integer limit, String orderBy);
+
+    /**
+     * 全部产品的ABC分类，按销售额倒序
+     * 累计销售额占比达到A类阈值之前的产品为A类，达到B类阈值之前的为B类，其余为C类
+     */
+    List<ProductSalesVO> getAbcAnalysis(LocalDate startDate, LocalDate endDate);
+}
@@ -0,0 +1,21 @@
+package cn.pcs.appliancesystem.service;
+
+import java.util.function.Consumer;
+
+/**
+ * 统计日缓存失效广播，多实例部署时把本实例的失效通知给其他实例
+ * 通过配置 statistics.cache.broadcast 选择实现：none（默认，不广播，只适用于单实例部署）、redis（Redis发布订阅）
+ */
+public interface StatisticsCacheBroadcaster {
+
+    /**
+     * 通知其他实例使某天的缓存失效
+     * @param day 日期，为空表示清空全部缓存
+     */
+    void publish(String kind, String day);
+
+    /**
+     * 注册收到其他实例失效通知时的处理，通知内容为"kind|day"，全部失效时为"*"
+     */
+    void subscribe(Consumer<String> listener);
+}
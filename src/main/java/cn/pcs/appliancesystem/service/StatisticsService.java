@@ -1,5 +1,6 @@
 package cn.pcs.appliancesystem.service;
 
+import cn.pcs.appliancesystem.entity.ChartSeriesVO;
 import cn.pcs.appliancesystem.entity.StatisticsVO;
 
 import java.time.LocalDate;
@@ -22,8 +23,27 @@ public interface StatisticsService {
     List<StatisticsVO> getSaleStatistics(LocalDate startDate, LocalDate endDate);
     
     /**
-     * 销售统计（按产品）
+     * 销售统计（按产品），每个产品一条汇总，按销售额倒序
+     * @param limit 只返回销售额最高的前N个产品，为空表示全部
      */
-    List<StatisticsVO> getSaleStatisticsByProduct(LocalDate startDate, LocalDate endDate);
+    List<StatisticsVO> getSaleStatisticsByProduct(LocalDate startDate, LocalDate endDate, Integer limit);
+
+    /**
+     * 销售统计（按产品类型），每个类型一条汇总，按销售额倒序
+     */
+    List<StatisticsVO> getSaleStatisticsByType(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * 按天汇总统计，数据来自日汇总表，每天一条
+     * @param kind 汇总类型，见DailyRollup.KIND_*
+     */
+    List<StatisticsVO> getDailyStatistics(String kind, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * 按时间分桶的图表数据，在数据库中聚合，范围内没有数据的桶补0
+     * @param kind 汇总类型，见DailyRollup.KIND_*
+     * @param granularity 统计粒度 hour/day/week/month
+     */
+    ChartSeriesVO getChartSeries(String kind, String granularity, LocalDate startDate, LocalDate endDate);
 }
 
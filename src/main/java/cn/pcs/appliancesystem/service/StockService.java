@@ -1,5 +1,8 @@
 package cn.pcs.appliancesystem.service;
 
+import cn.pcs.appliancesystem.entity.CursorPage;
+import cn.pcs.appliancesystem.entity.RecordPageQuery;
+import cn.pcs.appliancesystem.entity.StockBatchItem;
 import cn.pcs.appliancesystem.entity.StockInRecordVO;
 import cn.pcs.appliancesystem.entity.StockOutRecordVO;
 
@@ -10,18 +13,46 @@ public interface StockService {
     void stockIn(Long productId, Integer quantity, Long operatorId);
 
     void stockOut(Long productId, Integer quantity, Long operatorId);
+
+    /**
+     * 批量入库，所有明细在一个事务内完成
+     * @param items 入库明细
+     * @param operatorId 操作员ID
+     */
+    void stockInBatch(List<StockBatchItem> items, Long operatorId);
+
+    /**
+     * 批量出库，任一产品库存不足则整批失败
+     * @param items 出库明细
+     * @param operatorId 操作员ID
+     */
+    void stockOutBatch(List<StockBatchItem> items, Long operatorId);
     
     /**
      * 获取所有入库记录
      * @return 入库记录列表
      */
     List<StockInRecordVO> getStockInRecords();
+
+    /**
+     * 按时间倒序游标分页查询入库记录，支持按产品、人员、时间范围过滤
+     * @param query 查询条件
+     * @return 一页入库记录
+     */
+    CursorPage<StockInRecordVO> getStockInRecordPage(RecordPageQuery query);
     
     /**
      * 获取所有出库记录
      * @return 出库记录列表
      */
     List<StockOutRecordVO> getStockOutRecords();
+
+    /**
+     * 按时间倒序游标分页查询出库记录，支持按产品、人员、时间范围过滤
+     * @param query 查询条件
+     * @return 一页出库记录
+     */
+    CursorPage<StockOutRecordVO> getStockOutRecordPage(RecordPageQuery query);
     
     /**
      * 根据ID更新入库记录数量
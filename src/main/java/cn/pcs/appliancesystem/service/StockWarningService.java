@@ -1,14 +1,23 @@
 package cn.pcs.appliancesystem.service;
 
+import cn.pcs.appliancesystem.entity.CursorPage;
 import cn.pcs.appliancesystem.entity.StockWarning;
 
 import java.util.List;
 
 public interface StockWarningService {
     /**
-     * 获取库存预警列表
-     * @param threshold 预警阈值，默认10
+     * 获取库存预警列表，只包含在售产品，按库存升序
+     * @param threshold 预警阈值，为空时使用产品或产品类型的阈值，都未设置时默认10
      */
     List<StockWarning> getWarningList(Integer threshold);
-}
 
+    /**
+     * 分页获取库存预警，按（库存，产品ID）升序
+     * @param threshold 预警阈值，为空时使用产品或产品类型的阈值
+     * @param level 预警级别（1-低库存，2-缺货），为空表示全部
+     * @param cursor 分页游标，为空表示第一页
+     * @param size 每页条数
+     */
+    CursorPage<StockWarning> getWarningPage(Integer threshold, Integer level, String cursor, Integer size);
+}
@@ -10,24 +10,89 @@ import cn.pcs.appliancesystem.mapper.SysUserMapper;
 import cn.pcs.appliancesystem.service.AuthService;
 import cn.pcs.appliancesystem.util.JwtUtil;
 import cn.pcs.appliancesystem.util.PasswordUtil;
+import cn.pcs.appliancesystem.util.TokenBucketRateLimiter;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 认证服务
+ * BCrypt计算在专用的有界线程池中执行，登录高峰或撞库时只占用固定数量的CPU，不拖慢出入库和销售接口；
+ * 队列已满或等待超时时快速返回503。登录前按IP和用户名分别做令牌桶限流，超出时返回429
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class AuthServiceImpl implements AuthService {
 
     private final SysUserMapper sysUserMapper;
     private final JwtUtil jwtUtil;
     private final PasswordUtil passwordUtil;
+    private final DictionaryCache dictionaryCache;
+    private final TokenBucketRateLimiter ipLimiter;
+    private final TokenBucketRateLimiter usernameLimiter;
+    private final long hashTimeoutMillis;
+    private final ThreadPoolExecutor hashExecutor;
+
+    public AuthServiceImpl(SysUserMapper sysUserMapper,
+                           JwtUtil jwtUtil,
+                           PasswordUtil passwordUtil,
+                           DictionaryCache dictionaryCache,
+                           @Value("${auth.password.threads:2}") int threads,
+                           @Value("${auth.password.queue-capacity:32}") int queueCapacity,
+                           @Value("${auth.password.timeout-millis:3000}") long hashTimeoutMillis,
+                           @Value("${auth.rate-limit.ip.capacity:20}") int ipCapacity,
+                           @Value("${auth.rate-limit.ip.refill-per-minute:20}") int ipRefillPerMinute,
+                           @Value("${auth.rate-limit.username.capacity:5}") int usernameCapacity,
+                           @Value("${auth.rate-limit.username.refill-per-minute:5}") int usernameRefillPerMinute,
+                           @Value("${auth.rate-limit.max-keys:100000}") int maxKeys) {
+        this.sysUserMapper = sysUserMapper;
+        this.jwtUtil = jwtUtil;
+        this.passwordUtil = passwordUtil;
+        this.dictionaryCache = dictionaryCache;
+        this.ipLimiter = new TokenBucketRateLimiter(ipCapacity, ipRefillPerMinute, maxKeys);
+        this.usernameLimiter = new TokenBucketRateLimiter(usernameCapacity, usernameRefillPerMinute, maxKeys);
+        this.hashTimeoutMillis = hashTimeoutMillis;
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 队列满时直接拒绝，请求线程立即返回503而不是排队等待
+        this.hashExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "password-hash-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.hashExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdownNow();
+    }
 
     @Override
-    public LoginResponse login(LoginRequest request) {
+    public LoginResponse login(LoginRequest request, String clientIp) {
         if (request.getUsername() == null || request.getPassword() == null) {
             throw new BusinessException("用户名和密码不能为空");
         }
 
+        // 按IP和用户名限流，两者都有令牌才继续
+        if ((clientIp != null && !ipLimiter.tryAcquire(clientIp))
+                || !usernameLimiter.tryAcquire(request.getUsername())) {
+            log.warn("登录过于频繁: username={}, ip={}", request.getUsername(), clientIp);
+            throw new BusinessException(429, "登录尝试过于频繁，请稍后再试");
+        }
+
         // 查询用户（包含角色信息）
         UserWithRole user = sysUserMapper.selectByUsernameWithRole(request.getUsername());
         if (user == null) {
@@ -52,7 +117,7 @@ public class AuthServiceImpl implements AuthService {
         }
         
         // 使用BCrypt验证密码
-        if (!passwordUtil.matches(request.getPassword(), storedPassword)) {
+        if (!hash(() -> passwordUtil.matches(request.getPassword(), storedPassword))) {
             throw new BusinessException("用户名或密码错误");
         }
 
@@ -123,7 +188,7 @@ public class AuthServiceImpl implements AuthService {
         }
 
         // 创建新用户
-        String encodedPassword = passwordUtil.encode(request.getPassword());
+        String encodedPassword = hash(() -> passwordUtil.encode(request.getPassword()));
         SysUser newUser = SysUser.builder()
                 .username(request.getUsername())
                 .password(encodedPassword)
@@ -132,5 +197,43 @@ public class AuthServiceImpl implements AuthService {
                 .build();
 
         sysUserMapper.insert(newUser);
+        dictionaryCache.onUserSaved(newUser.getId(), newUser.getUsername());
+    }
+
+    /**
+     * 在密码线程池中执行BCrypt计算并等待结果
+     * 线程池已满或超时时抛出503业务异常
+     */
+    private <T> T hash(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = hashExecutor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new BusinessException(503, "认证请求过多，请稍后再试");
+        }
+        try {
+            return future.get(hashTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new BusinessException(503, "认证请求过多，请稍后再试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new BusinessException("认证请求已中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public String createStreamToken(Long userId, String username, String role) {
+        if (userId == null) {
+            throw new BusinessException(401, "未登录，请先登录");
+        }
+        return jwtUtil.generateStreamToken(userId, username, role);
     }
 }
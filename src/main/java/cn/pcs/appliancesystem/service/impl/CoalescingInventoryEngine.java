@@ -0,0 +1,431 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.Product;
+import cn.pcs.appliancesystem.entity.StockChangePending;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.ProductMapper;
+import cn.pcs.appliancesystem.mapper.StockChangePendingMapper;
+import cn.pcs.appliancesystem.service.InventoryEngine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 合并提交库存引擎
+ * 同一产品的并发库存变更按产品ID分段排队，每个时间窗口（或攒满一批）合并为一次事务提交：
+ * 先尝试用一条求和后的UPDATE完成整批，库存不足时再按到达顺序逐条扣减，保证每个调用方得到各自的结果。
+ * 库存变更在独立事务中提交，与调用方的业务记录、库存流水不在同一事务：
+ * 调用方处于事务中时，批次事务同时写入一条待确认记录（stock_change_pending），调用方在自己的事务中删除它，
+ * 因此调用方提交时记录随之删除；回滚时在新事务中删除记录并反向补偿；
+ * 调用方回滚后补偿失败或进程崩溃时，记录保留下来，由定时任务在超时后补偿，库存与流水最终一致。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "inventory.engine", havingValue = "coalescing")
+public class CoalescingInventoryEngine implements InventoryEngine {
+
+    private static final int PENDING = 0;
+    private static final int TAKEN = 1;
+    private static final int CANCELLED = 2;
+    // 每次定时补偿处理的最大记录数
+    private static final int SWEEP_BATCH = 500;
+
+    private final ProductMapper productMapper;
+    private final StockChangePendingMapper pendingMapper;
+    private final TransactionTemplate transactionTemplate;
+    // 补偿在调用方事务结束后执行，必须使用新事务
+    private final TransactionTemplate compensationTemplate;
+    private final long windowMillis;
+    private final int maxBatch;
+    private final long waitMillis;
+    private final long pendingTimeoutMillis;
+    private final Stripe[] stripes;
+    private final ScheduledExecutorService scheduler;
+
+    public CoalescingInventoryEngine(ProductMapper productMapper,
+                                     StockChangePendingMapper pendingMapper,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${inventory.coalescing.window-millis:2}") long windowMillis,
+                                     @Value("${inventory.coalescing.max-batch:64}") int maxBatch,
+                                     @Value("${inventory.coalescing.stripes:16}") int stripeCount,
+                                     @Value("${inventory.coalescing.wait-millis:5000}") long waitMillis,
+                                     @Value("${inventory.coalescing.pending-timeout-millis:600000}") long pendingTimeoutMillis) {
+        this.productMapper = productMapper;
+        this.pendingMapper = pendingMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.compensationTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.compensationTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.pendingTimeoutMillis = pendingTimeoutMillis;
+        this.windowMillis = windowMillis;
+        this.maxBatch = maxBatch;
+        this.waitMillis = waitMillis;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.scheduler = new ScheduledThreadPoolExecutor(Math.min(stripeCount, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread thread = new Thread(r, "stock-coalescer-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Override
+    public void increase(Long productId, int quantity) {
+        StockRequest request = new StockRequest(productId, quantity);
+        submit(request);
+        confirmWithCaller(request);
+    }
+
+    @Override
+    public void decrease(Long productId, int quantity) {
+        StockRequest request = new StockRequest(productId, -quantity);
+        submit(request);
+        confirmWithCaller(request);
+    }
+
+    /**
+     * 手工修改库存不合并，在调用方事务中加行锁直接写入，与合并批次通过行锁互斥
+     */
+    @Override
+    public int set(Long productId, int stock) {
+        Integer oldStock = productMapper.selectStockForUpdate(productId);
+        if (oldStock == null) {
+            throw new BusinessException("产品不存在");
+        }
+        if (productMapper.updateStock(productId, stock) == 0) {
+            throw new BusinessException("库存不能小于已预留数量: " + productMapper.selectReserved(productId));
+        }
+        return oldStock;
+    }
+
+    @Override
+    public Integer get(Long productId) {
+        return productMapper.selectStock(productId);
+    }
+
+    @Override
+    public Integer getAvailable(Long productId) {
+        return productMapper.selectAvailable(productId);
+    }
+
+    /**
+     * 预留相关操作同样不合并，在调用方事务中直接执行，随调用方事务提交或回滚
+     * 这些操作会持有产品行锁直到调用方事务结束，同一事务中之后不能再合并增减该产品的库存，否则批次会等待到超时
+     */
+    @Override
+    public void reserve(Long productId, int quantity) {
+        if (productMapper.reserveStock(productId, quantity) == 0) {
+            Integer available = productMapper.selectAvailable(productId);
+            if (available == null) {
+                throw new BusinessException("产品不存在");
+            }
+            throw new BusinessException("可用库存不足，当前可用库存: " + Math.max(available, 0));
+        }
+    }
+
+    @Override
+    public void unreserve(Long productId, int quantity) {
+        productMapper.addReserved(productId, -quantity);
+    }
+
+    @Override
+    public void commitReserved(Long productId, int quantity) {
+        if (productMapper.commitReservedStock(productId, quantity) == 0) {
+            throw new BusinessException("产品不存在或预留数量不足");
+        }
+    }
+
+    /**
+     * 提交请求并等待所在批次提交完成
+     */
+    private void submit(StockRequest request) {
+        Stripe stripe = stripes[Math.floorMod(request.productId.hashCode(), stripes.length)];
+        stripe.queue.add(request);
+        if (stripe.size.incrementAndGet() % maxBatch == 0) {
+            // 攒满一批立即提交，不再等待时间窗口
+            scheduler.execute(() -> flush(stripe));
+        } else if (stripe.scheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> flush(stripe), windowMillis, TimeUnit.MILLISECONDS);
+        }
+        await(request);
+    }
+
+    private void await(StockRequest request) {
+        try {
+            try {
+                request.future.get(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // 尚未被批次取走则取消；已被取走说明正在提交，必须等待结果，否则库存已变而业务记录未写
+                if (request.state.compareAndSet(PENDING, CANCELLED)) {
+                    throw new BusinessException("库存服务繁忙，请稍后重试");
+                }
+                request.future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BusinessException) {
+                throw (BusinessException) e.getCause();
+            }
+            throw new BusinessException("库存更新失败", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("库存更新被中断", e);
+        }
+    }
+
+    private void flush(Stripe stripe) {
+        stripe.lock.lock();
+        try {
+            stripe.scheduled.set(false);
+            List<StockRequest> batch = new ArrayList<>();
+            StockRequest request;
+            while (batch.size() < maxBatch && (request = stripe.queue.poll()) != null) {
+                stripe.size.decrementAndGet();
+                if (request.state.compareAndSet(PENDING, TAKEN)) {
+                    batch.add(request);
+                }
+            }
+            if (!batch.isEmpty()) {
+                applyBatch(batch);
+            }
+        } catch (Exception e) {
+            log.error("库存合并提交异常", e);
+        } finally {
+            stripe.lock.unlock();
+        }
+        // 还有剩余请求时继续调度
+        if (!stripe.queue.isEmpty() && stripe.scheduled.compareAndSet(false, true)) {
+            scheduler.execute(() -> flush(stripe));
+        }
+    }
+
+    /**
+     * 一个批次在一个事务内提交，提交成功后再通知各调用方
+     */
+    private void applyBatch(List<StockRequest> batch) {
+        Map<Long, List<StockRequest>> byProduct = new LinkedHashMap<>();
+        for (StockRequest request : batch) {
+            byProduct.computeIfAbsent(request.productId, id -> new ArrayList<>()).add(request);
+        }
+        Map<StockRequest, BusinessException> failures = new LinkedHashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                failures.clear();
+                byProduct.forEach((productId, requests) -> applyProduct(productId, requests, failures));
+                recordPending(batch, failures);
+            });
+        } catch (Exception e) {
+            log.error("库存合并提交失败，批次大小: {}", batch.size(), e);
+            BusinessException error = new BusinessException("库存更新失败，请稍后重试");
+            batch.forEach(request -> request.future.completeExceptionally(error));
+            return;
+        }
+        for (StockRequest request : batch) {
+            BusinessException failure = failures.get(request);
+            if (failure != null) {
+                request.future.completeExceptionally(failure);
+            } else {
+                request.future.complete(null);
+            }
+        }
+    }
+
+    private void applyProduct(Long productId, List<StockRequest> requests, Map<StockRequest, BusinessException> failures) {
+        long total = 0;
+        for (StockRequest request : requests) {
+            total += request.delta;
+        }
+        // 绝大多数情况：求和后一条UPDATE完成整批
+        if (productMapper.applyStockDeltaIfEnough(productId, total) > 0) {
+            return;
+        }
+        Product product = productMapper.selectById(productId);
+        if (product == null) {
+            BusinessException error = new BusinessException("产品不存在");
+            requests.forEach(request -> failures.put(request, error));
+            return;
+        }
+        // 合并后可用库存不足：先入库，再按到达顺序逐条扣减，决定每个请求的成败
+        long increase = 0;
+        for (StockRequest request : requests) {
+            if (request.delta > 0) {
+                increase += request.delta;
+            }
+        }
+        if (increase > 0) {
+            productMapper.applyStockDelta(productId, increase);
+        }
+        long available = (product.getStock() != null ? product.getStock() : 0)
+                - (product.getReserved() != null ? product.getReserved() : 0) + increase;
+        for (StockRequest request : requests) {
+            if (request.delta >= 0) {
+                continue;
+            }
+            if (productMapper.decreaseStock(productId, (int) -request.delta) > 0) {
+                available += request.delta;
+            } else {
+                failures.put(request, new BusinessException("可用库存不足，当前可用库存: " + Math.max(available, 0)));
+            }
+        }
+    }
+
+    /**
+     * 为调用方处于事务中的成功请求写入待确认记录，与库存变更在同一批次事务中提交
+     */
+    private void recordPending(List<StockRequest> batch, Map<StockRequest, BusinessException> failures) {
+        List<StockRequest> journaled = new ArrayList<>();
+        List<StockChangePending> rows = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (StockRequest request : batch) {
+            if (request.inTransaction && !failures.containsKey(request)) {
+                journaled.add(request);
+                rows.add(StockChangePending.builder()
+                        .productId(request.productId)
+                        .delta(request.delta)
+                        .createTime(now)
+                        .build());
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        pendingMapper.insertBatch(rows);
+        for (int i = 0; i < rows.size(); i++) {
+            journaled.get(i).pendingId = rows.get(i).getId();
+        }
+    }
+
+    /**
+     * 在调用方事务中删除待确认记录，删除随调用方事务一起提交；调用方回滚时在新事务中补偿
+     */
+    private void confirmWithCaller(StockRequest request) {
+        Long pendingId = request.pendingId;
+        if (pendingId == null) {
+            return;
+        }
+        pendingMapper.deleteById(pendingId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    compensate(pendingId, request.productId, request.delta);
+                } catch (Exception e) {
+                    log.error("库存补偿失败，将由定时任务重试，产品ID: {}, 变化量: {}", request.productId, request.delta, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 定时补偿超时仍未确认的变更：调用方回滚后补偿失败，或进程在调用方事务结束前崩溃
+     * 超时时间必须大于最长的业务事务；调用方事务仍在进行时删除会等待其行锁，提交后删除不到记录，不会误补偿
+     */
+    @Scheduled(fixedDelayString = "${inventory.coalescing.sweep-interval:60000}")
+    public void sweepPending() {
+        try {
+            LocalDateTime before = LocalDateTime.now().minusNanos(pendingTimeoutMillis * 1_000_000);
+            for (StockChangePending pending : pendingMapper.selectStale(before, SWEEP_BATCH)) {
+                if (compensate(pending.getId(), pending.getProductId(), pending.getDelta())) {
+                    log.warn("已补偿未确认的库存变更，产品ID: {}, 变化量: {}", pending.getProductId(), pending.getDelta());
+                }
+            }
+        } catch (Exception e) {
+            log.error("补偿未确认的库存变更失败，将在下次调度时重试", e);
+        }
+    }
+
+    /**
+     * 删除待确认记录并反向补偿，两者在同一新事务中提交；记录已被删除（调用方已提交或已补偿过）时不补偿。
+     * 撤销入库时库存不能低于已预留数量：入库的数量在回滚前已被卖出或预留时，只收回当前可用的部分，
+     * 差额作为新的待确认记录保留，由定时任务在超时后继续补偿
+     * @return 是否执行了补偿
+     */
+    private boolean compensate(Long pendingId, Long productId, long delta) {
+        return Boolean.TRUE.equals(compensationTemplate.execute(status -> {
+            if (pendingMapper.deleteById(pendingId) == 0) {
+                return false;
+            }
+            // 撤销出库只增加库存，不会低于已预留数量
+            if (delta <= 0) {
+                productMapper.applyStockDelta(productId, -delta);
+                return true;
+            }
+            if (productMapper.applyStockDeltaIfEnough(productId, -delta) > 0) {
+                return true;
+            }
+            Integer stock = productMapper.selectStockForUpdate(productId);
+            if (stock == null) {
+                log.warn("产品已删除，放弃库存补偿，产品ID: {}, 变化量: {}", productId, delta);
+                return true;
+            }
+            long reclaimed = Math.min(delta, Math.max(stock - productMapper.selectReserved(productId), 0));
+            if (reclaimed > 0) {
+                productMapper.applyStockDelta(productId, -reclaimed);
+            }
+            long shortfall = delta - reclaimed;
+            pendingMapper.insert(StockChangePending.builder()
+                    .productId(productId)
+                    .delta(shortfall)
+                    .createTime(LocalDateTime.now())
+                    .build());
+            log.error("撤销入库时可用库存不足，已收回: {}, 待补偿: {}, 产品ID: {}", reclaimed, shortfall, productId);
+            return true;
+        }));
+    }
+
+    private static class Stripe {
+        private final Queue<StockRequest> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final ReentrantLock lock = new ReentrantLock();
+    }
+
+    private static class StockRequest {
+        private final Long productId;
+        private final long delta;
+        // 调用方是否处于事务中，是则需要写入待确认记录
+        private final boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        // 批次提交后回填，future完成前写入，调用方在future完成后读取
+        private volatile Long pendingId;
+
+        private StockRequest(Long productId, long delta) {
+            this.productId = productId;
+            this.delta = delta;
+        }
+    }
+}
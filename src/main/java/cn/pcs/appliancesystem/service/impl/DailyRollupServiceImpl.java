@@ -0,0 +1,118 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.StatisticsVO;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.DailyRollupMapper;
+import cn.pcs.appliancesystem.service.DailyRollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DailyRollupServiceImpl implements DailyRollupService {
+
+    private static final int UPSERT_CHUNK_SIZE = 500;
+    // 按（类型，日期，产品）排序，与主键顺序一致，保证并发事务以相同顺序加行锁
+    private static final Comparator<DailyRollup> KEY_ORDER = Comparator.comparing(DailyRollup::getKind)
+            .thenComparing(DailyRollup::getDay)
+            .thenComparing(DailyRollup::getProductId);
+
+    private final DailyRollupMapper dailyRollupMapper;
+    private final StatisticsDayCache statisticsDayCache;
+
+    @Override
+    public void record(String kind, LocalDateTime time, Long productId, int qty, BigDecimal amount, int cnt) {
+        if (time == null || (qty == 0 && cnt == 0 && (amount == null || amount.signum() == 0))) {
+            return;
+        }
+        dailyRollupMapper.upsertBatch(List.of(DailyRollup.builder()
+                .kind(kind)
+                .day(time.toLocalDate())
+                .productId(productId)
+                .qty(qty)
+                .amount(amount != null ? amount : BigDecimal.ZERO)
+                .cnt(cnt)
+                .build()));
+        statisticsDayCache.evict(kind, time.toLocalDate());
+    }
+
+    @Override
+    public void recordBatch(List<DailyRollup> rows) {
+        Map<DailyRollup, DailyRollup> merged = new TreeMap<>(KEY_ORDER);
+        for (DailyRollup row : rows) {
+            BigDecimal amount = row.getAmount() != null ? row.getAmount() : BigDecimal.ZERO;
+            merged.merge(row, DailyRollup.builder()
+                            .kind(row.getKind())
+                            .day(row.getDay())
+                            .productId(row.getProductId())
+                            .qty(row.getQty())
+                            .amount(amount)
+                            .cnt(row.getCnt())
+                            .build(),
+                    (a, b) -> {
+                        a.setQty(a.getQty() + b.getQty());
+                        a.setAmount(a.getAmount().add(b.getAmount()));
+                        a.setCnt(a.getCnt() + b.getCnt());
+                        return a;
+                    });
+        }
+        List<DailyRollup> list = new ArrayList<>(merged.values());
+        for (int from = 0; from < list.size(); from += UPSERT_CHUNK_SIZE) {
+            dailyRollupMapper.upsertBatch(list.subList(from, Math.min(from + UPSERT_CHUNK_SIZE, list.size())));
+        }
+        for (DailyRollup row : list) {
+            statisticsDayCache.evict(row.getKind(), row.getDay());
+        }
+    }
+
+    @Override
+    @Transactional
+    public int rebuild(LocalDate startDate, LocalDate endDate) {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            throw new BusinessException("开始日期不能晚于结束日期");
+        }
+        dailyRollupMapper.deleteRange(DailyRollup.KIND_SALE, startDate, endDate);
+        dailyRollupMapper.deleteRange(DailyRollup.KIND_STOCK_IN, startDate, endDate);
+        dailyRollupMapper.deleteRange(DailyRollup.KIND_STOCK_OUT, startDate, endDate);
+        int rows = dailyRollupMapper.rebuildSale(startDate, endDate)
+                + dailyRollupMapper.rebuildStockIn(startDate, endDate)
+                + dailyRollupMapper.rebuildStockOut(startDate, endDate);
+        statisticsDayCache.evictAll();
+        log.info("日汇总重建完成：{} ~ {}，共{}行", startDate, endDate, rows);
+        return rows;
+    }
+
+    /**
+     * 每天凌晨重建前一天的汇总，修正可能的偏差
+     */
+    @Scheduled(cron = "${statistics.rollup.rebuild-cron:0 0 3 * * ?}")
+    @Transactional
+    public void rebuildYesterday() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        rebuild(yesterday, yesterday);
+    }
+
+    @Override
+    public List<DailyRollup> sumByDay(String kind, LocalDate startDate, LocalDate endDate) {
+        return dailyRollupMapper.sumByDay(kind, startDate, endDate);
+    }
+
+    @Override
+    public List<StatisticsVO> sumByBucket(String kind, String granularity, LocalDate startDate, LocalDate endDate) {
+        return dailyRollupMapper.sumByBucket(kind, granularity, startDate, endDate);
+    }
+}
@@ -0,0 +1,148 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.ChartSeriesVO;
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.DashboardVO;
+import cn.pcs.appliancesystem.entity.StatisticsVO;
+import cn.pcs.appliancesystem.entity.StockWarning;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.service.DashboardService;
+import cn.pcs.appliancesystem.service.StatisticsService;
+import cn.pcs.appliancesystem.service.StockWarningService;
+import cn.pcs.appliancesystem.util.QueryDeadline;
+import cn.pcs.appliancesystem.util.TimeBuckets;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 首页看板
+ * 各部分提交到有界线程池并行计算，总耗时接近最慢的一部分而不是各部分之和；
+ * 所有部分共用一个截止时间，超时的部分被取消并在errors中标记，其余部分照常返回；
+ * 各部分的SQL查询以剩余时间作为JDBC查询超时，取消后数据库中的查询不会继续占用连接
+ */
+@Slf4j
+@Service
+public class DashboardServiceImpl implements DashboardService {
+
+    private static final int DEFAULT_TOP_LIMIT = 10;
+
+    private final StatisticsService statisticsService;
+    private final StockWarningService stockWarningService;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    public DashboardServiceImpl(StatisticsService statisticsService,
+                                StockWarningService stockWarningService,
+                                @Value("${statistics.dashboard.threads:8}") int threads,
+                                @Value("${statistics.dashboard.queue-capacity:64}") int queueCapacity,
+                                @Value("${statistics.dashboard.timeout-millis:3000}") long timeoutMillis) {
+        this.statisticsService = statisticsService;
+        this.stockWarningService = stockWarningService;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 队列满时直接拒绝，由对应部分标记为繁忙，不阻塞请求线程
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "dashboard-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public DashboardVO getDashboard(LocalDate startDate, LocalDate endDate, String granularity,
+                                    Integer topLimit, Integer threshold) {
+        long start = System.currentTimeMillis();
+        String unit = TimeBuckets.normalize(granularity != null ? granularity : TimeBuckets.DAY);
+        int limit = topLimit != null ? topLimit : DEFAULT_TOP_LIMIT;
+        if (limit <= 0) {
+            throw new BusinessException("返回数量必须大于0");
+        }
+
+        // 1. 先提交全部部分，再统一等待
+        long deadline = start + timeoutMillis;
+        Future<ChartSeriesVO> stockIn = submit(deadline, () ->
+                statisticsService.getChartSeries(DailyRollup.KIND_STOCK_IN, unit, startDate, endDate));
+        Future<ChartSeriesVO> stockOut = submit(deadline, () ->
+                statisticsService.getChartSeries(DailyRollup.KIND_STOCK_OUT, unit, startDate, endDate));
+        Future<ChartSeriesVO> sale = submit(deadline, () ->
+                statisticsService.getChartSeries(DailyRollup.KIND_SALE, unit, startDate, endDate));
+        Future<List<StatisticsVO>> topProducts = submit(deadline, () ->
+                statisticsService.getSaleStatisticsByProduct(startDate, endDate, limit));
+        Future<List<StockWarning>> warnings = submit(deadline, () -> stockWarningService.getWarningList(threshold));
+
+        // 2. 在同一截止时间前收集结果
+        Map<String, String> errors = new LinkedHashMap<>();
+        DashboardVO dashboard = DashboardVO.builder()
+                .stockInChart(await("stockInChart", stockIn, deadline, errors))
+                .stockOutChart(await("stockOutChart", stockOut, deadline, errors))
+                .saleChart(await("saleChart", sale, deadline, errors))
+                .topProducts(await("topProducts", topProducts, deadline, errors))
+                .stockWarnings(await("stockWarnings", warnings, deadline, errors))
+                .build();
+        dashboard.setErrors(errors);
+        dashboard.setElapsedMillis(System.currentTimeMillis() - start);
+        return dashboard;
+    }
+
+    /**
+     * 提交一个部分，部分中的查询受截止时间约束；线程池已满时返回null，等待时标记为繁忙
+     */
+    private <T> Future<T> submit(long deadline, Callable<T> part) {
+        try {
+            return executor.submit(QueryDeadline.bind(deadline, part));
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 等待部分结果，超时或失败时返回null并记录原因
+     */
+    private <T> T await(String name, Future<T> future, long deadline, Map<String, String> errors) {
+        if (future == null) {
+            errors.put(name, "系统繁忙，请稍后重试");
+            return null;
+        }
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            errors.put(name, "计算超时");
+            log.warn("看板部分{}超过{}ms未完成，已取消", name, timeoutMillis);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            errors.put(name, cause instanceof BusinessException ? cause.getMessage() : "计算失败");
+            if (!(cause instanceof BusinessException)) {
+                log.error("看板部分{}计算失败", name, cause);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            errors.put(name, "请求已中断");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,86 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.ProductMapper;
+import cn.pcs.appliancesystem.service.InventoryEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * 默认库存引擎：直接在MySQL上执行原子条件UPDATE
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "inventory.engine", havingValue = "database", matchIfMissing = true)
+public class DatabaseInventoryEngine implements InventoryEngine {
+
+    private final ProductMapper productMapper;
+
+    @Override
+    public void increase(Long productId, int quantity) {
+        // 单条UPDATE原子累加，避免先查后改丢失并发更新
+        if (productMapper.increaseStock(productId, quantity) == 0) {
+            throw new BusinessException("产品不存在");
+        }
+    }
+
+    @Override
+    public void decrease(Long productId, int quantity) {
+        // 条件UPDATE：只有库存充足时才会扣减成功，并发下不会超卖
+        if (productMapper.decreaseStock(productId, quantity) == 0) {
+            // 扣减失败时再查询一次，区分产品不存在和库存不足
+            throw insufficient(productId);
+        }
+    }
+
+    @Override
+    public int set(Long productId, int stock) {
+        // 先加锁读取旧库存，保证返回的旧值与写入之间没有其他事务插入修改
+        Integer oldStock = productMapper.selectStockForUpdate(productId);
+        if (oldStock == null) {
+            throw new BusinessException("产品不存在");
+        }
+        if (productMapper.updateStock(productId, stock) == 0) {
+            throw new BusinessException("库存不能小于已预留数量: " + productMapper.selectReserved(productId));
+        }
+        return oldStock;
+    }
+
+    @Override
+    public Integer get(Long productId) {
+        return productMapper.selectStock(productId);
+    }
+
+    @Override
+    public Integer getAvailable(Long productId) {
+        return productMapper.selectAvailable(productId);
+    }
+
+    @Override
+    public void reserve(Long productId, int quantity) {
+        if (productMapper.reserveStock(productId, quantity) == 0) {
+            throw insufficient(productId);
+        }
+    }
+
+    @Override
+    public void unreserve(Long productId, int quantity) {
+        productMapper.addReserved(productId, -quantity);
+    }
+
+    @Override
+    public void commitReserved(Long productId, int quantity) {
+        if (productMapper.commitReservedStock(productId, quantity) == 0) {
+            throw new BusinessException("产品不存在或预留数量不足");
+        }
+    }
+
+    private BusinessException insufficient(Long productId) {
+        Integer available = productMapper.selectAvailable(productId);
+        if (available == null) {
+            return new BusinessException("产品不存在");
+        }
+        return new BusinessException("可用库存不足，当前可用库存: " + Math.max(available, 0));
+    }
+}
@@ -0,0 +1,283 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.DictionaryCacheStats;
+import cn.pcs.appliancesystem.entity.Product;
+import cn.pcs.appliancesystem.entity.ProductType;
+import cn.pcs.appliancesystem.entity.SysUser;
+import cn.pcs.appliancesystem.mapper.ProductMapper;
+import cn.pcs.appliancesystem.mapper.ProductTypeMapper;
+import cn.pcs.appliancesystem.mapper.SysUserMapper;
+import cn.pcs.appliancesystem.util.LongObjectHashMap;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 名称字典缓存
+ * 启动时加载全部产品名称、产品类型名称和用户名，之后由产品、产品类型、用户的增删改同步更新；
+ * 读操作直接访问不可变快照，写操作复制一份修改后整体替换（写时复制），读写互不阻塞。
+ * 未命中时回源数据库，兼容其他实例新增的数据；回源结果先放入并发的补充表，
+ * 积累到一定数量或下次写操作时再一并合并进快照，避免每次未命中都复制整个快照
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DictionaryCache {
+
+    private final ProductMapper productMapper;
+    private final ProductTypeMapper productTypeMapper;
+    private final SysUserMapper sysUserMapper;
+
+    // 补充表达到该数量时合并进快照
+    private static final int MERGE_THRESHOLD = 256;
+
+    private final NameTable productNames = new NameTable();
+    private final NameTable typeNames = new NameTable();
+    private final NameTable usernames = new NameTable();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    public void load() {
+        List<Product> products = productMapper.selectList(null);
+        List<ProductType> types = productTypeMapper.selectList(null);
+        List<SysUser> users = sysUserMapper.selectList(null);
+        productNames.reset(build(products, Product::getId, Product::getProductName));
+        typeNames.reset(build(types, ProductType::getId, ProductType::getTypeName));
+        usernames.reset(build(users, SysUser::getId, SysUser::getUsername));
+        log.info("名称字典缓存加载完成：产品{}个，产品类型{}个，用户{}个",
+                productNames.size(), typeNames.size(), usernames.size());
+    }
+
+    /**
+     * 获取产品名称
+     * @return 产品名称，产品不存在时返回null
+     */
+    public String getProductName(Long productId) {
+        if (productId == null) {
+            return null;
+        }
+        String name = productNames.get(productId);
+        if (name != null) {
+            hits.increment();
+            return name;
+        }
+        misses.increment();
+        long loadGeneration = productNames.generation();
+        Product product = productMapper.selectById(productId);
+        if (product == null || product.getProductName() == null) {
+            return null;
+        }
+        productNames.fill(productId, product.getProductName(), loadGeneration);
+        return product.getProductName();
+    }
+
+    /**
+     * 获取产品类型名称
+     * @return 类型名称，类型不存在时返回null
+     */
+    public String getTypeName(Long typeId) {
+        if (typeId == null) {
+            return null;
+        }
+        String name = typeNames.get(typeId);
+        if (name != null) {
+            hits.increment();
+            return name;
+        }
+        misses.increment();
+        long loadGeneration = typeNames.generation();
+        ProductType type = productTypeMapper.selectById(typeId);
+        if (type == null || type.getTypeName() == null) {
+            return null;
+        }
+        typeNames.fill(typeId, type.getTypeName(), loadGeneration);
+        return type.getTypeName();
+    }
+
+    /**
+     * 获取用户名
+     * @return 用户名，用户不存在时返回null
+     */
+    public String getUsername(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        String name = usernames.get(userId);
+        if (name != null) {
+            hits.increment();
+            return name;
+        }
+        misses.increment();
+        long loadGeneration = usernames.generation();
+        SysUser user = sysUserMapper.selectById(userId);
+        if (user == null || user.getUsername() == null) {
+            return null;
+        }
+        usernames.fill(userId, user.getUsername(), loadGeneration);
+        return user.getUsername();
+    }
+
+    /**
+     * 产品新增或改名后调用，处于事务中时在提交后生效
+     */
+    public void onProductSaved(Long productId, String productName) {
+        if (productId != null && productName != null) {
+            afterCommit(() -> productNames.put(productId, productName));
+        }
+    }
+
+    public void onProductDeleted(Long productId) {
+        if (productId != null) {
+            afterCommit(() -> productNames.remove(productId));
+        }
+    }
+
+    public void onTypeSaved(Long typeId, String typeName) {
+        if (typeId != null && typeName != null) {
+            afterCommit(() -> typeNames.put(typeId, typeName));
+        }
+    }
+
+    public void onTypeDeleted(Long typeId) {
+        if (typeId != null) {
+            afterCommit(() -> typeNames.remove(typeId));
+        }
+    }
+
+    public void onUserSaved(Long userId, String username) {
+        if (userId != null && username != null) {
+            afterCommit(() -> usernames.put(userId, username));
+        }
+    }
+
+    public void onUserDeleted(Long userId) {
+        if (userId != null) {
+            afterCommit(() -> usernames.remove(userId));
+        }
+    }
+
+    public DictionaryCacheStats getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        return DictionaryCacheStats.builder()
+                .productNames(productNames.size())
+                .typeNames(typeNames.size())
+                .usernames(usernames.size())
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRate(total == 0 ? 0.0 : (double) hitCount / total)
+                .build();
+    }
+
+    private static <T> LongObjectHashMap<String> build(List<T> rows, Function<T, Long> idGetter,
+                                                       Function<T, String> nameGetter) {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>(rows.size());
+        for (T row : rows) {
+            Long id = idGetter.apply(row);
+            String name = nameGetter.apply(row);
+            if (id != null && name != null) {
+                map.put(id, name);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * 一类名称的缓存：不可变快照加回源补充表
+     */
+    private static final class NameTable {
+
+        private volatile LongObjectHashMap<String> snapshot = new LongObjectHashMap<>();
+        private final Map<Long, String> fills = new ConcurrentHashMap<>();
+        // 每次写操作加1；回源期间发生过写操作时不补入，避免把改名、删除前读到的旧名称放回去
+        private final AtomicLong generation = new AtomicLong();
+
+        String get(long id) {
+            String name = snapshot.get(id);
+            return name != null ? name : fills.get(id);
+        }
+
+        long generation() {
+            return generation.get();
+        }
+
+        int size() {
+            return snapshot.size() + fills.size();
+        }
+
+        /**
+         * 补入回源读到的名称
+         * @param loadGeneration 回源前读取的写操作计数
+         */
+        synchronized void fill(long id, String name, long loadGeneration) {
+            if (generation.get() != loadGeneration) {
+                return;
+            }
+            fills.put(id, name);
+            if (fills.size() >= MERGE_THRESHOLD) {
+                snapshot = merged();
+                fills.clear();
+            }
+        }
+
+        synchronized void put(long id, String name) {
+            generation.incrementAndGet();
+            LongObjectHashMap<String> copy = merged();
+            copy.put(id, name);
+            snapshot = copy;
+            fills.clear();
+        }
+
+        synchronized void remove(long id) {
+            generation.incrementAndGet();
+            LongObjectHashMap<String> copy = merged();
+            copy.remove(id);
+            snapshot = copy;
+            fills.clear();
+        }
+
+        synchronized void reset(LongObjectHashMap<String> loaded) {
+            generation.incrementAndGet();
+            snapshot = loaded;
+            fills.clear();
+        }
+
+        /**
+         * 复制快照并合并补充表；先替换快照再清空补充表，读操作始终能在两者之一中找到
+         */
+        private LongObjectHashMap<String> merged() {
+            LongObjectHashMap<String> copy = new LongObjectHashMap<>(snapshot);
+            fills.forEach(copy::put);
+            return copy;
+        }
+    }
+
+    /**
+     * 事务提交后再更新缓存，避免回滚的数据进入缓存；不在事务中时立即执行
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
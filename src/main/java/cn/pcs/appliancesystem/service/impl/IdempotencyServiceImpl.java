@@ -0,0 +1,77 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.IdempotencyRecord;
+import cn.pcs.appliancesystem.entity.Result;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.service.IdempotencyService;
+import cn.pcs.appliancesystem.service.IdempotencyStore;
+import com.alibaba.fastjson.JSON;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    // 幂等键最大长度，超长的键视为非法
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyStore idempotencyStore;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Result<T> execute(String scope, String key, Long userId, Object request, Supplier<Result<T>> action) {
+        if (key == null || key.trim().isEmpty()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException("幂等键长度不能超过" + MAX_KEY_LENGTH);
+        }
+
+        // 键按用户隔离，不同用户碰巧使用相同的键不会拿到对方的结果
+        String storeKey = scope + ":" + (userId != null ? userId : "-") + ":" + key;
+        String fingerprint = fingerprint(request);
+        if (!idempotencyStore.tryAcquire(storeKey, fingerprint)) {
+            IdempotencyRecord stored = idempotencyStore.get(storeKey);
+            if (stored != null && !fingerprint.equals(stored.getFingerprint())) {
+                throw new BusinessException(422, "幂等键已用于参数不同的请求");
+            }
+            if (stored == null || stored.getResult() == null) {
+                throw new BusinessException(409, "请求正在处理中，请稍后重试");
+            }
+            log.debug("幂等键命中，直接返回已保存的结果: {}", storeKey);
+            return (Result<T>) stored.getResult();
+        }
+
+        try {
+            Result<T> result = action.get();
+            idempotencyStore.complete(storeKey, fingerprint, result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            // 失败的请求不保存结果，允许客户端使用相同的键重试
+            idempotencyStore.release(storeKey);
+            throw e;
+        }
+    }
+
+    /**
+     * 请求参数序列化为JSON后计算SHA-256摘要
+     */
+    private static String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(JSON.toJSONString(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.IdempotencyRecord;
+import cn.pcs.appliancesystem.entity.Result;
+import cn.pcs.appliancesystem.service.IdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 本机内存幂等键存储：已完成的结果到期自动失效，容量超出上限时从最早的键开始淘汰
+ * 处理中的键在完成或释放前不会过期也不会被淘汰，否则重复请求会被再次执行
+ */
+@Service
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<String, StoredResult> entries = new LinkedHashMap<>();
+
+    public InMemoryIdempotencyStore(@Value("${idempotency.ttl-seconds:3600}") long ttlSeconds,
+                                    @Value("${idempotency.max-entries:100000}") int maxEntries) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public synchronized boolean tryAcquire(String key, String fingerprint) {
+        long now = System.currentTimeMillis();
+        StoredResult entry = entries.get(key);
+        if (entry != null && !entry.isExpired(now)) {
+            return false;
+        }
+        entries.remove(key);
+        entries.put(key, new StoredResult(fingerprint, null, Long.MAX_VALUE));
+        evict(now);
+        return true;
+    }
+
+    @Override
+    public synchronized IdempotencyRecord get(String key) {
+        StoredResult entry = entries.get(key);
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        return new IdempotencyRecord(entry.fingerprint, entry.result);
+    }
+
+    @Override
+    public synchronized void complete(String key, String fingerprint, Result<?> result) {
+        // 保留原插入顺序，到期时间从处理完成时开始计算
+        entries.put(key, new StoredResult(fingerprint, result, System.currentTimeMillis() + ttlMillis));
+    }
+
+    @Override
+    public synchronized void release(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 从最早的键开始淘汰已完成或已过期的键，直到不超过容量上限；跳过处理中的键
+     */
+    private void evict(long now) {
+        Iterator<StoredResult> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            StoredResult entry = iterator.next();
+            if (entry.result != null || entry.isExpired(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class StoredResult {
+        private final String fingerprint;
+        private final Result<?> result;
+        private final long expireAt;
+
+        private StoredResult(String fingerprint, Result<?> result, long expireAt) {
+            this.fingerprint = fingerprint;
+            this.result = result;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+}
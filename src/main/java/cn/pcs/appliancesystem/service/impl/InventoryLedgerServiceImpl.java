@@ -0,0 +1,106 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.InventoryMovement;
+import cn.pcs.appliancesystem.entity.InventorySnapshot;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.InventoryMovementMapper;
+import cn.pcs.appliancesystem.mapper.InventorySnapshotMapper;
+import cn.pcs.appliancesystem.service.InventoryLedgerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryLedgerServiceImpl implements InventoryLedgerService {
+
+    // 快照截止时间比当前时间滞后的分钟数，确保截止时间之前开始的事务都已提交；
+    // 截止时间取整到分钟，多实例同时生成时得到相同的截止时间，由唯一索引合并为一份快照
+    private static final int SNAPSHOT_LAG_MINUTES = 5;
+    private static final int INSERT_CHUNK_SIZE = 500;
+
+    private final InventoryMovementMapper inventoryMovementMapper;
+    private final InventorySnapshotMapper inventorySnapshotMapper;
+
+    @Override
+    public void record(Long productId, int changeQty, String movementType, Long refId, Long operatorId) {
+        if (changeQty == 0) {
+            return;
+        }
+        inventoryMovementMapper.insert(InventoryMovement.builder()
+                .productId(productId)
+                .changeQty(changeQty)
+                .movementType(movementType)
+                .refId(refId)
+                .operatorId(operatorId)
+                .createTime(LocalDateTime.now())
+                .build());
+    }
+
+    @Override
+    public void recordBatch(List<InventoryMovement> movements) {
+        for (int from = 0; from < movements.size(); from += INSERT_CHUNK_SIZE) {
+            inventoryMovementMapper.insertBatch(movements.subList(from, Math.min(from + INSERT_CHUNK_SIZE, movements.size())));
+        }
+    }
+
+    @Override
+    public Integer getStockAt(Long productId, LocalDateTime time) {
+        if (productId == null) {
+            throw new BusinessException("产品ID不能为空");
+        }
+        if (time == null) {
+            throw new BusinessException("查询时间不能为空");
+        }
+        InventorySnapshot snapshot = inventorySnapshotMapper.selectLatestBefore(productId, time);
+        int base = snapshot != null ? snapshot.getStock() : 0;
+        LocalDateTime from = snapshot != null ? snapshot.getSnapshotTime() : null;
+        return base + inventoryMovementMapper.sumProductChangesBetween(productId, from, time);
+    }
+
+    /**
+     * 每天定时生成库存快照：上次快照 + 两次快照之间的流水汇总
+     */
+    @Override
+    @Transactional
+    @Scheduled(cron = "${inventory.snapshot.cron:0 30 2 * * ?}")
+    public int createSnapshots() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(SNAPSHOT_LAG_MINUTES).truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime previousTime = inventorySnapshotMapper.selectLatestSnapshotTime();
+        if (previousTime != null && !previousTime.isBefore(cutoff)) {
+            return 0;
+        }
+
+        Map<Long, Integer> stocks = new TreeMap<>();
+        if (previousTime != null) {
+            for (InventorySnapshot previous : inventorySnapshotMapper.selectBySnapshotTime(previousTime)) {
+                stocks.put(previous.getProductId(), previous.getStock());
+            }
+        }
+        for (InventoryMovement change : inventoryMovementMapper.sumChangesBetween(previousTime, cutoff)) {
+            stocks.merge(change.getProductId(), change.getChangeQty(), Integer::sum);
+        }
+
+        List<InventorySnapshot> snapshots = new ArrayList<>(stocks.size());
+        stocks.forEach((productId, stock) -> snapshots.add(InventorySnapshot.builder()
+                .productId(productId)
+                .stock(stock)
+                .snapshotTime(cutoff)
+                .build()));
+        for (int from = 0; from < snapshots.size(); from += INSERT_CHUNK_SIZE) {
+            inventorySnapshotMapper.upsertBatch(snapshots.subList(from, Math.min(from + INSERT_CHUNK_SIZE, snapshots.size())));
+        }
+        log.info("库存快照生成完成，截止时间: {}, 产品数: {}", cutoff, snapshots.size());
+        return snapshots.size();
+    }
+}
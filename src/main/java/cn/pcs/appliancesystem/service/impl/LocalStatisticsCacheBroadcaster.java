@@ -0,0 +1,23 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.service.StatisticsCacheBroadcaster;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Consumer;
+
+/**
+ * 不广播失效，只适用于单实例部署；多实例部署时其他实例的缓存会一直保留失效前的数据，需配置为redis
+ */
+@Service
+@ConditionalOnProperty(name = "statistics.cache.broadcast", havingValue = "none", matchIfMissing = true)
+public class LocalStatisticsCacheBroadcaster implements StatisticsCacheBroadcaster {
+
+    @Override
+    public void publish(String kind, String day) {
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+    }
+}
@@ -0,0 +1,186 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.StockChangedEvent;
+import cn.pcs.appliancesystem.entity.StockWarning;
+import cn.pcs.appliancesystem.entity.StockWarningTransition;
+import cn.pcs.appliancesystem.mapper.ProductMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 内存中的低库存索引
+ * 只保存处于预警状态的在售产品，启动时从数据库加载，之后由库存变化事件增量维护：
+ * 事务提交后只重新读取变化的产品，预警级别改变时通过SSE推送给订阅的页面，开销与变化次数成正比。
+ * 所有刷新在单个后台线程中串行执行，同一产品的多次变化在处理前合并为一次。
+ * 使用redis库存引擎时数据库库存异步回写，回写提交后引擎再次发布变化事件，索引反映的是已回写的库存。
+ */
+@Slf4j
+@Component
+public class LowStockIndex {
+
+    private static final Comparator<StockWarning> BY_STOCK = Comparator.comparing(StockWarning::getStock)
+            .thenComparing(StockWarning::getProductId);
+
+    private final ProductMapper productMapper;
+    private final SseBroadcaster broadcaster;
+    private final Map<Long, StockWarning> warnings = new ConcurrentHashMap<>();
+    // 已排队等待刷新的产品，重复的变化不再重复排队
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final ExecutorService worker;
+
+    public LowStockIndex(ProductMapper productMapper,
+                         @Value("${stock-warning.stream.timeout-millis:1800000}") long streamTimeoutMillis) {
+        this.productMapper = productMapper;
+        this.broadcaster = new SseBroadcaster("库存预警", streamTimeoutMillis);
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "low-stock-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<Long, StockWarning> loaded = loadAll();
+        warnings.putAll(loaded);
+        log.info("低库存索引加载完成：{}个产品处于预警状态", loaded.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+        broadcaster.completeAll();
+    }
+
+    /**
+     * 库存变化后（事务提交后）排队刷新；不在事务中时立即排队
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        if (event.getProductId() == null) {
+            if (rebuildPending.compareAndSet(false, true)) {
+                worker.execute(this::rebuild);
+            }
+            return;
+        }
+        Long productId = event.getProductId();
+        if (dirty.add(productId)) {
+            worker.execute(() -> refresh(productId));
+        }
+    }
+
+    /**
+     * 订阅预警变化，连接建立后先推送一次当前全部预警（snapshot事件），之后只推送变化
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = broadcaster.register();
+        broadcaster.send(emitter, SseEmitter.event().name("snapshot").data(snapshot()));
+        return emitter;
+    }
+
+    /**
+     * 当前处于预警状态的产品，按库存升序
+     */
+    public List<StockWarning> snapshot() {
+        List<StockWarning> list = new ArrayList<>(warnings.values());
+        list.sort(BY_STOCK);
+        return list;
+    }
+
+    @Scheduled(fixedDelayString = "${stock-warning.stream.heartbeat-millis:30000}")
+    public void heartbeat() {
+        broadcaster.heartbeat();
+    }
+
+    private void refresh(Long productId) {
+        // 先移出排队集合再读库，读库期间提交的变化会重新排队
+        dirty.remove(productId);
+        try {
+            StockWarning state = productMapper.selectWarningState(productId, StockWarningServiceImpl.DEFAULT_THRESHOLD);
+            StockWarning current = state != null && state.getLevel() > 0 ? state : null;
+            StockWarning previous = current != null ? warnings.put(productId, current) : warnings.remove(productId);
+            publish(previous, current, state);
+        } catch (RuntimeException e) {
+            log.error("刷新产品{}的库存预警失败", productId, e);
+        }
+    }
+
+    /**
+     * 预警阈值批量变化时重新加载全部预警，与当前索引比较后推送变化
+     */
+    private void rebuild() {
+        rebuildPending.set(false);
+        try {
+            Map<Long, StockWarning> loaded = loadAll();
+            Set<Long> productIds = new HashSet<>(warnings.keySet());
+            productIds.addAll(loaded.keySet());
+            for (Long productId : productIds) {
+                StockWarning current = loaded.get(productId);
+                StockWarning previous = current != null ? warnings.put(productId, current) : warnings.remove(productId);
+                // 恢复正常的产品不在加载结果中，单独读取当前库存
+                StockWarning state = current == null && previous != null
+                        ? productMapper.selectWarningState(productId, StockWarningServiceImpl.DEFAULT_THRESHOLD) : current;
+                publish(previous, current, state);
+            }
+        } catch (RuntimeException e) {
+            log.error("重建低库存索引失败", e);
+        }
+    }
+
+    private Map<Long, StockWarning> loadAll() {
+        int maxThreshold = Math.max(StockWarningServiceImpl.DEFAULT_THRESHOLD, productMapper.selectMaxWarningThreshold());
+        List<StockWarning> list = productMapper.selectWarnings(maxThreshold, null,
+                StockWarningServiceImpl.DEFAULT_THRESHOLD, null, null, null, null);
+        Map<Long, StockWarning> map = new HashMap<>(list.size() * 2);
+        for (StockWarning warning : list) {
+            map.put(warning.getProductId(), warning);
+        }
+        return map;
+    }
+
+    /**
+     * 预警级别改变时推送，同一级别内的库存变化不推送
+     * @param state 产品当前状态，恢复正常时用于推送库存；产品已下架或删除时为null
+     */
+    private void publish(StockWarning previous, StockWarning current, StockWarning state) {
+        int previousLevel = previous != null ? previous.getLevel() : 0;
+        int level = current != null ? current.getLevel() : 0;
+        if (previousLevel == level) {
+            return;
+        }
+        StockWarning source = current != null ? current : previous;
+        String type = level == 2 ? StockWarningTransition.TYPE_OUT_OF_STOCK
+                : level == 1 ? StockWarningTransition.TYPE_LOW : StockWarningTransition.TYPE_RECOVERED;
+        StockWarningTransition transition = StockWarningTransition.builder()
+                .type(type)
+                .productId(source.getProductId())
+                .productName(source.getProductName())
+                .stock(state != null ? state.getStock() : null)
+                .threshold(source.getThreshold())
+                .level(level)
+                .previousLevel(previousLevel)
+                .time(LocalDateTime.now())
+                .build();
+        broadcaster.broadcast(() -> SseEmitter.event().name(type).data(transition));
+    }
+}
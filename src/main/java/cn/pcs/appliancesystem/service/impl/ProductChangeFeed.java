@@ -0,0 +1,156 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.Product;
+import cn.pcs.appliancesystem.entity.ProductStockDelta;
+import cn.pcs.appliancesystem.entity.StockChangedEvent;
+import cn.pcs.appliancesystem.mapper.ProductMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 产品库存变更推送
+ * 库存增减、产品修改、新增和删除在事务提交后读取该产品的库存、版本号和状态，分配序号后写入环形缓冲区
+ * 并通过SSE推送，收银终端不必反复拉取完整产品列表。
+ * 终端断线重连时回传最后收到的序号，缓冲区内仍保留的变更会补发；序号已被覆盖或不属于本次启动时
+ * 推送reset事件，终端需重新拉取一次产品列表。
+ * 序号从启动时的毫秒时间戳×1000开始，重启后不会与之前的序号重叠。
+ * 使用redis库存引擎时数据库库存异步回写，回写提交后引擎再次发布变化事件，推送的是已回写的库存。
+ */
+@Slf4j
+@Component
+public class ProductChangeFeed {
+
+    // 事件名称
+    public static final String EVENT_CHANGE = "change";
+    public static final String EVENT_RESET = "reset";
+
+    private final ProductMapper productMapper;
+    private final SseBroadcaster broadcaster;
+    private final ExecutorService worker;
+
+    // 环形缓冲区，序号为seq的变更存放在seq % capacity位置；读写都在this上同步
+    private final ProductStockDelta[] buffer;
+    private final long firstSeq;
+    private long lastSeq;
+
+    // 已排队等待读取的产品，重复的变化只推送一次最新状态
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    public ProductChangeFeed(ProductMapper productMapper,
+                             @Value("${product.feed.capacity:10000}") int capacity,
+                             @Value("${product.feed.timeout-millis:1800000}") long streamTimeoutMillis) {
+        this.productMapper = productMapper;
+        this.broadcaster = new SseBroadcaster("库存变更", streamTimeoutMillis);
+        this.buffer = new ProductStockDelta[capacity];
+        this.firstSeq = System.currentTimeMillis() * 1000 + 1;
+        this.lastSeq = firstSeq - 1;
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "product-change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+        broadcaster.completeAll();
+    }
+
+    /**
+     * 产品变化后（事务提交后）排队读取；不在事务中时立即排队
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        Long productId = event.getProductId();
+        // 为空表示只有产品类型阈值变化，不影响库存
+        if (productId != null && dirty.add(productId)) {
+            worker.execute(() -> publish(productId));
+        }
+    }
+
+    /**
+     * 订阅库存变更
+     * @param afterSeq 最后收到的序号，为空表示新连接；缓冲区中序号之后的变更先补发，无法补发时推送reset事件
+     */
+    public SseEmitter subscribe(Long afterSeq) {
+        SseEmitter emitter;
+        // 注册、补发与新变更的推送互斥：注册后到补发前分配的变更既会广播也会补发，
+        // 在同步块内注册保证每个变更只通过其中一条路径送达，不丢失也不重复
+        synchronized (this) {
+            emitter = broadcaster.register();
+            if (afterSeq == null) {
+                broadcaster.send(emitter, reset());
+                return emitter;
+            }
+            long oldest = Math.max(firstSeq, lastSeq - buffer.length + 1);
+            if (afterSeq < oldest - 1 || afterSeq > lastSeq) {
+                broadcaster.send(emitter, reset());
+                return emitter;
+            }
+            for (long seq = afterSeq + 1; seq <= lastSeq; seq++) {
+                if (!broadcaster.send(emitter, change(buffer[slot(seq)]))) {
+                    break;
+                }
+            }
+        }
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${product.feed.heartbeat-millis:30000}")
+    public void heartbeat() {
+        broadcaster.heartbeat();
+    }
+
+    private void publish(Long productId) {
+        // 先移出排队集合再读库，读库期间提交的变化会重新排队
+        dirty.remove(productId);
+        Product product;
+        try {
+            product = productMapper.selectStockState(productId);
+        } catch (RuntimeException e) {
+            log.error("读取产品{}的库存失败，未推送变更", productId, e);
+            return;
+        }
+        ProductStockDelta delta = ProductStockDelta.builder()
+                .productId(productId)
+                .stock(product != null ? product.getStock() : null)
+                .version(product != null ? product.getVersion() : null)
+                .status(product != null ? product.getStatus() : null)
+                .deleted(product == null)
+                .time(LocalDateTime.now())
+                .build();
+        synchronized (this) {
+            delta.setSeq(++lastSeq);
+            buffer[slot(lastSeq)] = delta;
+            broadcaster.broadcast(() -> change(delta));
+        }
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % buffer.length);
+    }
+
+    private static SseEmitter.SseEventBuilder change(ProductStockDelta delta) {
+        return SseEmitter.event().id(String.valueOf(delta.getSeq())).name(EVENT_CHANGE).data(delta);
+    }
+
+    /**
+     * reset事件携带当前序号，终端重新拉取产品列表后从该序号继续
+     */
+    private SseEmitter.SseEventBuilder reset() {
+        return SseEmitter.event().id(String.valueOf(lastSeq)).name(EVENT_RESET).data(Map.of("lastSeq", lastSeq));
+    }
+}
@@ -0,0 +1,83 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.ProductLockStats;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 产品更新乐观锁指标
+ * 按产品统计更新尝试、版本冲突、重试和最终失败次数
+ */
+@Component
+public class ProductLockMetrics {
+
+    private final Map<Long, Counters> byProduct = new ConcurrentHashMap<>();
+    private final Counters total = new Counters();
+
+    public void recordAttempt(Long productId) {
+        total.attempts.increment();
+        countersFor(productId).attempts.increment();
+    }
+
+    public void recordConflict(Long productId) {
+        total.conflicts.increment();
+        countersFor(productId).conflicts.increment();
+    }
+
+    public void recordRetry(Long productId) {
+        total.retries.increment();
+        countersFor(productId).retries.increment();
+    }
+
+    public void recordFailure(Long productId) {
+        total.failures.increment();
+        countersFor(productId).failures.increment();
+    }
+
+    /**
+     * 全部产品汇总
+     */
+    public ProductLockStats getTotal() {
+        return total.toStats(null);
+    }
+
+    /**
+     * 各产品统计，按冲突次数降序
+     */
+    public List<ProductLockStats> getByProduct() {
+        return byProduct.entrySet().stream()
+                .map(e -> e.getValue().toStats(e.getKey()))
+                .sorted(Comparator.comparing(ProductLockStats::getConflicts).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private Counters countersFor(Long productId) {
+        return byProduct.computeIfAbsent(productId, id -> new Counters());
+    }
+
+    private static class Counters {
+        final LongAdder attempts = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder failures = new LongAdder();
+
+        ProductLockStats toStats(Long productId) {
+            long attemptCount = attempts.sum();
+            long conflictCount = conflicts.sum();
+            return ProductLockStats.builder()
+                    .productId(productId)
+                    .attempts(attemptCount)
+                    .conflicts(conflictCount)
+                    .retries(retries.sum())
+                    .failures(failures.sum())
+                    .conflictRate(attemptCount == 0 ? 0.0 : (double) conflictCount / attemptCount)
+                    .build();
+        }
+    }
+}
@@ -1,19 +1,25 @@
 package cn.pcs.appliancesystem.service.impl;
 
+import cn.pcs.appliancesystem.entity.InventoryMovement;
 import cn.pcs.appliancesystem.entity.Product;
-import cn.pcs.appliancesystem.entity.ProductType;
+import cn.pcs.appliancesystem.entity.StockChangedEvent;
 import cn.pcs.appliancesystem.exception.BusinessException;
 import cn.pcs.appliancesystem.mapper.ProductMapper;
-import cn.pcs.appliancesystem.mapper.ProductTypeMapper;
+import cn.pcs.appliancesystem.service.InventoryEngine;
+import cn.pcs.appliancesystem.service.InventoryLedgerService;
 import cn.pcs.appliancesystem.service.ProductService;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 @Service
@@ -21,7 +27,22 @@ import java.util.stream.Collectors;
 public class ProductServiceImpl implements ProductService {
 
     private final ProductMapper productMapper;
-    private final ProductTypeMapper productTypeMapper;
+    private final InventoryEngine inventoryEngine;
+    private final InventoryLedgerService inventoryLedgerService;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductLockMetrics productLockMetrics;
+    private final DictionaryCache dictionaryCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // 版本冲突后的最大重试次数
+    @Value("${product.update.max-retries:3}")
+    private int maxRetries;
+
+    // 重试退避基准时间（毫秒），每次翻倍并加随机抖动
+    @Value("${product.update.retry-backoff-millis:20}")
+    private long retryBackoffMillis;
+
+    private enum UpdateOutcome { UPDATED, NOT_FOUND, CONFLICT, STOCK_CONFLICT }
 
     @Override
     public List<Product> listAll() {
@@ -29,46 +50,20 @@ public class ProductServiceImpl implements ProductService {
         LambdaQueryWrapper<Product> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(Product::getStatus, 1);
         List<Product> products = productMapper.selectList(wrapper);
-        // 填充类型名称
+        // 填充类型名称和实时库存
         fillTypeName(products);
         return products;
     }
 
     /**
-     * 填充产品类型名称
+     * 填充产品类型名称（从名称字典缓存中读取），并用库存引擎中的实时库存覆盖数据库库存
      */
     private void fillTypeName(List<Product> products) {
         if (products == null || products.isEmpty()) {
             return;
         }
-
-        // 获取所有类型ID（过滤掉null值）
-        List<Long> typeIds = products.stream()
-                .map(Product::getTypeId)
-                .filter(id -> id != null)
-                .distinct()
-                .collect(Collectors.toList());
-
-        if (typeIds.isEmpty()) {
-            log.warn("产品列表中没有有效的类型ID");
-            return;
-        }
-
-        // 批量查询类型信息
-        LambdaQueryWrapper<ProductType> typeWrapper = new LambdaQueryWrapper<>();
-        typeWrapper.in(ProductType::getId, typeIds);
-        List<ProductType> types = productTypeMapper.selectList(typeWrapper);
-        log.debug("查询到的类型列表: {}", types);
-        Map<Long, String> typeMap = types.stream()
-                .collect(Collectors.toMap(ProductType::getId, ProductType::getTypeName));
-        log.debug("类型映射表: {}", typeMap);
-
-        // 填充类型名称
-        products.forEach(product -> {
-            String typeName = typeMap.get(product.getTypeId());
-            log.debug("产品ID: {}, 类型ID: {}, 类型名称: {}", product.getId(), product.getTypeId(), typeName);
-            product.setTypeName(typeName);
-        });
+        products.forEach(product -> product.setTypeName(dictionaryCache.getTypeName(product.getTypeId())));
+        inventoryEngine.fillStock(products);
     }
 
     @Override
@@ -90,50 +85,154 @@ public class ProductServiceImpl implements ProductService {
             wrapper.eq(Product::getTypeId, typeId);
         }
         List<Product> products = productMapper.selectList(wrapper);
-        // 填充类型名称
+        // 填充类型名称和实时库存
         fillTypeName(products);
         return products;
     }
 
     @Override
-    public void increaseStock(Long productId, Integer quantity) {
-        Product product = productMapper.selectById(productId);
-        if (product == null) {
-            throw new BusinessException("产品不存在");
+    public Integer getStock(Long productId) {
+        return inventoryEngine.get(productId);
+    }
+
+    @Override
+    public Integer getAvailableStock(Long productId) {
+        return inventoryEngine.getAvailable(productId);
+    }
+
+    @Override
+    public void reserveStock(Long productId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new BusinessException("预留数量必须大于0");
         }
+        inventoryEngine.reserve(productId, quantity);
+    }
+
+    @Override
+    public void releaseStock(Long productId, Integer quantity) {
+        inventoryEngine.unreserve(productId, quantity);
+    }
+
+    @Override
+    public void commitReservedStock(Long productId, Integer quantity) {
+        inventoryEngine.commitReserved(productId, quantity);
+        eventPublisher.publishEvent(new StockChangedEvent(productId));
+    }
+
+    @Override
+    public void increaseStock(Long productId, Integer quantity) {
         if (quantity == null || quantity <= 0) {
             throw new BusinessException("入库数量必须大于0");
         }
-        product.setStock(product.getStock() + quantity);
-        productMapper.updateById(product);
+        inventoryEngine.increase(productId, quantity);
+        eventPublisher.publishEvent(new StockChangedEvent(productId));
     }
 
     @Override
     public void decreaseStock(Long productId, Integer quantity) {
-        Product product = productMapper.selectById(productId);
-        if (product == null) {
-            throw new BusinessException("产品不存在");
-        }
         if (quantity == null || quantity <= 0) {
             throw new BusinessException("出库数量必须大于0");
         }
-        if (product.getStock() < quantity) {
-            throw new BusinessException("库存不足，当前库存: " + product.getStock());
-        }
-        product.setStock(product.getStock() - quantity);
-        productMapper.updateById(product);
+        inventoryEngine.decrease(productId, quantity);
+        eventPublisher.publishEvent(new StockChangedEvent(productId));
     }
 
+    /**
+     * 基于版本号的乐观锁更新
+     * 只修改名称、类型、价格、状态时，版本冲突后读取最新版本自动重试（有限次数，指数退避加抖动）；
+     * 修改库存时必须回传查询到的版本号，期间库存发生过变化则直接返回冲突，不自动重试，避免覆盖并发出入库；
+     * 提交的库存与当前库存相同时视为未修改库存，不要求版本号
+     */
     @Override
     public boolean updateProduct(Product product) {
+        Long productId = product.getId();
+        if (product.getStock() != null && product.getStock() < 0) {
+            throw new BusinessException("库存不能小于0");
+        }
+        if (product.getWarningThreshold() != null && product.getWarningThreshold() < 0) {
+            throw new BusinessException("库存预警阈值不能小于0");
+        }
+
+        for (int attempt = 0; ; attempt++) {
+            productLockMetrics.recordAttempt(productId);
+            // 每次尝试使用独立事务，重试时才能读到其他事务已提交的最新版本
+            UpdateOutcome outcome = transactionTemplate.execute(status -> tryUpdateProduct(product));
+            if (outcome == UpdateOutcome.UPDATED) {
+                return true;
+            }
+            if (outcome == UpdateOutcome.NOT_FOUND) {
+                return false;
+            }
+
+            productLockMetrics.recordConflict(productId);
+            if (outcome == UpdateOutcome.STOCK_CONFLICT) {
+                productLockMetrics.recordFailure(productId);
+                throw new BusinessException(409, "产品库存已被修改，请刷新后重试");
+            }
+            if (attempt >= maxRetries) {
+                productLockMetrics.recordFailure(productId);
+                throw new BusinessException(409, "产品正在被频繁修改，请稍后重试");
+            }
+            productLockMetrics.recordRetry(productId);
+            backoff(attempt);
+        }
+    }
+
+    private UpdateOutcome tryUpdateProduct(Product product) {
         // 检查产品是否存在
         Product existingProduct = productMapper.selectById(product.getId());
         if (existingProduct == null) {
-            return false;
+            return UpdateOutcome.NOT_FOUND;
+        }
+
+        // 只更新可编辑字段，库存与当前值相同时视为未修改库存
+        Product update = Product.builder()
+                .id(product.getId())
+                .productName(product.getProductName())
+                .typeId(product.getTypeId())
+                .price(product.getPrice())
+                .status(product.getStatus())
+                .warningThreshold(product.getWarningThreshold())
+                .version(existingProduct.getVersion())
+                .build();
+        // 实时库存从库存引擎读取，redis引擎下数据库库存可能尚未回写；只有实际修改库存时才要求回传版本号
+        boolean stockChanged = product.getStock() != null
+                && !Objects.equals(product.getStock(), inventoryEngine.get(product.getId()));
+        if (stockChanged) {
+            if (product.getVersion() == null) {
+                throw new BusinessException("修改库存时必须提供产品版本号");
+            }
+            update.setVersion(product.getVersion());
+        }
+
+        // 乐观锁更新，版本号不一致时受影响行数为0
+        if (productMapper.updateById(update) == 0) {
+            return stockChanged ? UpdateOutcome.STOCK_CONFLICT : UpdateOutcome.CONFLICT;
+        }
+
+        // 库存经库存引擎写入，并按实际修改前的库存记录库存流水
+        if (stockChanged) {
+            int oldStock = inventoryEngine.set(product.getId(), product.getStock());
+            if (oldStock != product.getStock()) {
+                inventoryLedgerService.record(product.getId(), product.getStock() - oldStock,
+                        InventoryMovement.TYPE_MANUAL, null, null);
+            }
+        }
+        if (product.getProductName() != null) {
+            dictionaryCache.onProductSaved(product.getId(), product.getProductName());
+        }
+        eventPublisher.publishEvent(new StockChangedEvent(product.getId()));
+        return UpdateOutcome.UPDATED;
+    }
+
+    private void backoff(int attempt) {
+        long base = retryBackoffMillis << attempt;
+        try {
+            Thread.sleep(base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("产品更新被中断");
         }
-        
-        // 更新产品信息
-        return productMapper.updateById(product) > 0;
     }
 
     @Override
@@ -145,10 +244,17 @@ public class ProductServiceImpl implements ProductService {
         }
         
         // 删除产品
-        return productMapper.deleteById(id) > 0;
+        if (productMapper.deleteById(id) == 0) {
+            return false;
+        }
+        inventoryEngine.remove(id);
+        dictionaryCache.onProductDeleted(id);
+        eventPublisher.publishEvent(new StockChangedEvent(id));
+        return true;
     }
 
     @Override
+    @Transactional
     public boolean createProduct(Product product) {
         // 设置创建时间
         product.setCreateTime(java.time.LocalDateTime.now());
@@ -158,19 +264,36 @@ public class ProductServiceImpl implements ProductService {
             product.setStatus(1);
         }
         
-        // 如果库存未设置，默认为0
+        // 如果库存未设置，默认为0；新产品没有预留
         if (product.getStock() == null) {
             product.setStock(0);
         }
+        product.setReserved(0);
+        if (product.getStock() < 0) {
+            throw new BusinessException("库存不能小于0");
+        }
+        if (product.getWarningThreshold() != null && product.getWarningThreshold() < 0) {
+            throw new BusinessException("库存预警阈值不能小于0");
+        }
+        product.setVersion(0);
         
         // 插入产品并返回是否成功
-        return productMapper.insert(product) > 0;
+        if (productMapper.insert(product) == 0) {
+            return false;
+        }
+
+        // 记录期初库存流水
+        inventoryEngine.init(product.getId(), product.getStock());
+        inventoryLedgerService.record(product.getId(), product.getStock(), InventoryMovement.TYPE_INIT, null, null);
+        dictionaryCache.onProductSaved(product.getId(), product.getProductName());
+        eventPublisher.publishEvent(new StockChangedEvent(product.getId()));
+        return true;
     }
 
     @Override
     public List<Product> getAllProducts() {
         List<Product> products = productMapper.selectList(null); // 查询所有产品，不限制状态
-        // 填充类型名称
+        // 填充类型名称和实时库存
         fillTypeName(products);
         return products;
     }
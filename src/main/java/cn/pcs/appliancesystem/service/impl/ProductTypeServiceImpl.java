@@ -1,10 +1,12 @@
 package cn.pcs.appliancesystem.service.impl;
 
 import cn.pcs.appliancesystem.entity.ProductType;
+import cn.pcs.appliancesystem.entity.StockChangedEvent;
 import cn.pcs.appliancesystem.exception.BusinessException;
 import cn.pcs.appliancesystem.mapper.ProductTypeMapper;
 import cn.pcs.appliancesystem.service.ProductTypeService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,6 +16,8 @@ import java.util.List;
 public class ProductTypeServiceImpl implements ProductTypeService {
     
     private final ProductTypeMapper productTypeMapper;
+    private final DictionaryCache dictionaryCache;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Override
     public List<ProductType> listAll() {
@@ -34,7 +38,9 @@ public class ProductTypeServiceImpl implements ProductTypeService {
         if (productType.getTypeName() == null || productType.getTypeName().trim().isEmpty()) {
             throw new BusinessException("产品类型名称不能为空");
         }
+        checkWarningThreshold(productType.getWarningThreshold());
         productTypeMapper.insert(productType);
+        dictionaryCache.onTypeSaved(productType.getId(), productType.getTypeName());
     }
     
     @Override
@@ -49,7 +55,11 @@ public class ProductTypeServiceImpl implements ProductTypeService {
         if (productType.getTypeName() == null || productType.getTypeName().trim().isEmpty()) {
             throw new BusinessException("产品类型名称不能为空");
         }
+        checkWarningThreshold(productType.getWarningThreshold());
         productTypeMapper.updateById(productType);
+        dictionaryCache.onTypeSaved(productType.getId(), productType.getTypeName());
+        // 类型的预警阈值影响该类型下所有产品，重新计算全部预警
+        eventPublisher.publishEvent(new StockChangedEvent(null));
     }
     
     @Override
@@ -59,6 +69,12 @@ public class ProductTypeServiceImpl implements ProductTypeService {
             throw new BusinessException("产品类型不存在");
         }
         productTypeMapper.deleteById(id);
+        dictionaryCache.onTypeDeleted(id);
     }
-}
 
+    private static void checkWarningThreshold(Integer warningThreshold) {
+        if (warningThreshold != null && warningThreshold < 0) {
+            throw new BusinessException("库存预警阈值不能小于0");
+        }
+    }
+}
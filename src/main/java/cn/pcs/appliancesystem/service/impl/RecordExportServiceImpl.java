@@ -0,0 +1,70 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.RecordPageQuery;
+import cn.pcs.appliancesystem.entity.SaleRecordVO;
+import cn.pcs.appliancesystem.entity.StockInRecordVO;
+import cn.pcs.appliancesystem.entity.StockOutRecordVO;
+import cn.pcs.appliancesystem.mapper.SaleMapper;
+import cn.pcs.appliancesystem.mapper.StockInMapper;
+import cn.pcs.appliancesystem.mapper.StockOutMapper;
+import cn.pcs.appliancesystem.service.RecordExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecordExportServiceImpl implements RecordExportService {
+
+    private static final String[] STOCK_IN_HEADERS = {"入库记录ID", "产品名称", "入库数量", "操作人", "入库时间"};
+    private static final String[] STOCK_OUT_HEADERS = {"出库记录ID", "产品名称", "出库数量", "操作人", "出库时间"};
+    private static final String[] SALE_HEADERS = {"销售记录ID", "产品名称", "销售数量", "总价格", "销售员", "销售时间"};
+
+    private final StockInMapper stockInMapper;
+    private final StockOutMapper stockOutMapper;
+    private final SaleMapper saleMapper;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public long exportStockInRecords(RecordPageQuery query, String format, HttpServletResponse response) throws IOException {
+        RecordExportWriter<StockInRecordVO> writer = RecordExportWriter.open(response, format, "stock-in-records", STOCK_IN_HEADERS,
+                r -> new Object[]{r.getId(), r.getProductName(), r.getQuantity(), r.getOperator(), r.getInTime()},
+                objectMapper);
+        stockInMapper.streamRecords(query, writer);
+        return finish(writer, "入库");
+    }
+
+    @Override
+    public long exportStockOutRecords(RecordPageQuery query, String format, HttpServletResponse response) throws IOException {
+        RecordExportWriter<StockOutRecordVO> writer = RecordExportWriter.open(response, format, "stock-out-records", STOCK_OUT_HEADERS,
+                r -> new Object[]{r.getId(), r.getProductName(), r.getQuantity(), r.getOperator(), r.getOutTime()},
+                objectMapper);
+        stockOutMapper.streamRecords(query, writer);
+        return finish(writer, "出库");
+    }
+
+    @Override
+    public long exportSaleRecords(RecordPageQuery query, String format, HttpServletResponse response) throws IOException {
+        RecordExportWriter<SaleRecordVO> writer = RecordExportWriter.open(response, format, "sale-records", SALE_HEADERS,
+                r -> new Object[]{r.getId(), r.getProductName(), r.getQuantity(), r.getTotalPrice(),
+                        r.getSalesman(), r.getSaleTime()},
+                objectMapper);
+        saleMapper.streamRecords(query, writer);
+        return finish(writer, "销售");
+    }
+
+    private long finish(RecordExportWriter<?> writer, String label) {
+        long rows = writer.finish();
+        if (writer.isAborted()) {
+            log.info("{}记录导出被客户端中断，已写出{}行", label, rows);
+        } else {
+            log.info("{}记录导出完成，共{}行", label, rows);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,161 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.exception.BusinessException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Function;
+
+/**
+ * 记录导出写入器
+ * 作为MyBatis的ResultHandler逐行接收查询结果，按CSV或NDJSON格式写入输出流，每写满一批刷新一次；
+ * 客户端断开连接导致写入失败时停止读取结果。
+ * CSV中以 = + - @ 等字符开头的文本单元格加单引号前缀，避免被表格软件当作公式执行
+ */
+class RecordExportWriter<T> implements ResultHandler<T> {
+
+    static final String FORMAT_CSV = "csv";
+    static final String FORMAT_NDJSON = "ndjson";
+
+    // 每写入多少行刷新一次输出流
+    private static final int FLUSH_ROWS = 1000;
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final BufferedWriter writer;
+    private final boolean csv;
+    private final Function<T, Object[]> csvColumns;
+    private final ObjectMapper objectMapper;
+    private long rows;
+    private boolean aborted;
+
+    /**
+     * 校验导出格式、设置下载响应头，创建写入响应的写入器
+     * @param fileName 下载文件名（不含扩展名）
+     */
+    static <T> RecordExportWriter<T> open(HttpServletResponse response, String format, String fileName,
+                                          String[] csvHeaders, Function<T, Object[]> csvColumns,
+                                          ObjectMapper objectMapper) throws IOException {
+        checkFormat(format);
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType(FORMAT_CSV.equals(format) ? "text/csv" : "application/x-ndjson");
+        response.setHeader("Content-Disposition", "attachment; filename=" + fileName + "." + format);
+        return new RecordExportWriter<>(response.getOutputStream(), format, csvHeaders, csvColumns, objectMapper);
+    }
+
+    /**
+     * @param csvHeaders CSV表头，NDJSON格式时不使用
+     * @param csvColumns 取出一行的各列值，NDJSON格式时不使用
+     */
+    RecordExportWriter(OutputStream out, String format, String[] csvHeaders,
+                       Function<T, Object[]> csvColumns, ObjectMapper objectMapper) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.csv = FORMAT_CSV.equals(format);
+        this.csvColumns = csvColumns;
+        this.objectMapper = objectMapper;
+        if (csv) {
+            try {
+                // UTF-8 BOM，保证Excel打开中文不乱码
+                writer.write('\uFEFF');
+                writeCsvLine(csvHeaders);
+            } catch (IOException e) {
+                aborted = true;
+            }
+        }
+    }
+
+    @Override
+    public void handleResult(ResultContext<? extends T> context) {
+        if (aborted) {
+            context.stop();
+            return;
+        }
+        try {
+            T record = context.getResultObject();
+            if (csv) {
+                writeCsvLine(csvColumns.apply(record));
+            } else {
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.write('\n');
+            }
+            if (++rows % FLUSH_ROWS == 0) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            // 客户端已断开，不再继续读取
+            aborted = true;
+            context.stop();
+        }
+    }
+
+    /**
+     * 写出缓冲区中剩余的数据
+     * @return 已写出的行数
+     */
+    long finish() {
+        if (!aborted) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                aborted = true;
+            }
+        }
+        return rows;
+    }
+
+    boolean isAborted() {
+        return aborted;
+    }
+
+    private void writeCsvLine(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvValue(values[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeCsvValue(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof LocalDateTime time ? TIME_FORMATTER.format(time) : value.toString();
+        if (!(value instanceof Number) && isFormulaLike(text)) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * 表格软件会把以这些字符开头的单元格当作公式；数值列（如负数）不处理
+     */
+    private static boolean isFormulaLike(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        char first = text.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+    }
+
+    static void checkFormat(String format) {
+        if (!FORMAT_CSV.equals(format) && !FORMAT_NDJSON.equals(format)) {
+            throw new BusinessException("导出格式只支持csv或ndjson");
+        }
+    }
+}
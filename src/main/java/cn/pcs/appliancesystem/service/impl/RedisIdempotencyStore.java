@@ -0,0 +1,62 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.IdempotencyRecord;
+import cn.pcs.appliancesystem.entity.Result;
+import cn.pcs.appliancesystem.service.IdempotencyStore;
+import com.alibaba.fastjson.JSON;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Redis幂等键存储，多实例部署时共享幂等结果
+ * 处理中的标记使用单独的较短有效期：处理请求的实例崩溃后不会释放该键，标记到期后客户端才能重试；
+ * 有效期必须大于最长的请求处理时间，否则处理中的请求可能被重复执行
+ */
+@Service
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "redis")
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    private static final String KEY_PREFIX = "idempotency:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+    private final Duration processingTtl;
+
+    public RedisIdempotencyStore(StringRedisTemplate redisTemplate,
+                                 @Value("${idempotency.ttl-seconds:3600}") long ttlSeconds,
+                                 @Value("${idempotency.processing-ttl-seconds:60}") long processingTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.processingTtl = Duration.ofSeconds(processingTtlSeconds);
+    }
+
+    @Override
+    public boolean tryAcquire(String key, String fingerprint) {
+        String processing = JSON.toJSONString(new IdempotencyRecord(fingerprint, null));
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + key, processing, processingTtl));
+    }
+
+    @Override
+    public IdempotencyRecord get(String key) {
+        String value = redisTemplate.opsForValue().get(KEY_PREFIX + key);
+        if (value == null) {
+            return null;
+        }
+        return JSON.parseObject(value, IdempotencyRecord.class);
+    }
+
+    @Override
+    public void complete(String key, String fingerprint, Result<?> result) {
+        redisTemplate.opsForValue().set(KEY_PREFIX + key,
+                JSON.toJSONString(new IdempotencyRecord(fingerprint, result)), ttl);
+    }
+
+    @Override
+    public void release(String key) {
+        redisTemplate.delete(KEY_PREFIX + key);
+    }
+}
@@ -0,0 +1,492 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.Product;
+import cn.pcs.appliancesystem.entity.StockChangedEvent;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.InventoryFlushBatchMapper;
+import cn.pcs.appliancesystem.mapper.ProductMapper;
+import cn.pcs.appliancesystem.service.InventoryEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Redis库存引擎
+ * 实时库存和已预留数量保存在Redis计数器中，通过Lua脚本原子校验可用库存（库存 - 已预留）并扣减；
+ * 已预留数量同时在调用方事务中同步到 product.reserved，对账时以数据库中的值重建；
+ * 每次变更同时累加到增量Hash，由定时任务批量回写到 product.stock（write-behind）。
+ * 启动时先回写遗留增量，再以数据库库存+未回写增量重建计数器。
+ * 每批增量带有批次ID，回写事务中同时登记到 inventory_flush_batch，
+ * 回写提交后、删除增量前进程崩溃时，下次回写发现批次已登记直接跳过，不会重复回写。
+ * 回写提交后为每个回写的产品发布库存变化事件，低库存索引和库存变更推送据此读取已回写的库存。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "inventory.engine", havingValue = "redis")
+public class RedisInventoryEngine implements InventoryEngine {
+
+    // 所有key使用相同的hash tag，保证集群模式下Lua脚本访问的key在同一个slot
+    private static final String STOCK_KEY_PREFIX = "{inventory}:stock:";
+    private static final String RESERVED_KEY_PREFIX = "{inventory}:reserved:";
+    private static final String DELTA_KEY = "{inventory}:delta";
+    private static final String FLUSHING_KEY = "{inventory}:delta:flushing";
+    private static final String FLUSH_LOCK_KEY = "{inventory}:flush-lock";
+    private static final Duration FLUSH_LOCK_TTL = Duration.ofSeconds(30);
+    // 启动对账每页重建的产品数，每页之后续期回写锁
+    static final int RECONCILE_PAGE_SIZE = 500;
+    // 待回写Hash中保存批次ID的字段
+    private static final String BATCH_FIELD = "__batch";
+    // 已回写批次记录保留天数
+    private static final int BATCH_RETENTION_DAYS = 7;
+
+    private static final long KEY_MISSING = -2L;
+    private static final long INSUFFICIENT = -1L;
+
+    // 以下脚本的KEYS依次为：库存计数器、增量Hash、已预留计数器
+
+    // 校验可用库存并扣减，同时记录待回写增量
+    private static final DefaultRedisScript<Long> DECREASE_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then return -2 end " +
+            "local qty = tonumber(ARGV[1]) " +
+            "if tonumber(stock) - tonumber(redis.call('GET', KEYS[3]) or '0') < qty then return -1 end " +
+            "redis.call('HINCRBY', KEYS[2], ARGV[2], -qty) " +
+            "return redis.call('DECRBY', KEYS[1], qty)",
+            Long.class);
+
+    // 无条件调整库存（入库、事务回滚补偿），同时记录待回写增量
+    private static final DefaultRedisScript<Long> ADJUST_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -2 end " +
+            "redis.call('HINCRBY', KEYS[2], ARGV[2], ARGV[1]) " +
+            "return redis.call('INCRBY', KEYS[1], ARGV[1])",
+            Long.class);
+
+    // 直接设置库存，同时记录与旧值的差额作为待回写增量，返回旧库存；新库存低于已预留数量时返回-1
+    private static final DefaultRedisScript<Long> SET_SCRIPT = new DefaultRedisScript<>(
+            "local old = redis.call('GET', KEYS[1]) " +
+            "if not old then return -2 end " +
+            "if tonumber(ARGV[1]) < tonumber(redis.call('GET', KEYS[3]) or '0') then return -1 end " +
+            "local delta = tonumber(ARGV[1]) - tonumber(old) " +
+            "if delta ~= 0 then redis.call('HINCRBY', KEYS[2], ARGV[2], delta) end " +
+            "redis.call('SET', KEYS[1], ARGV[1]) " +
+            "return tonumber(old)",
+            Long.class);
+
+    // 可用库存充足时增加已预留数量
+    private static final DefaultRedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then return -2 end " +
+            "local qty = tonumber(ARGV[1]) " +
+            "if tonumber(stock) - tonumber(redis.call('GET', KEYS[3]) or '0') < qty then return -1 end " +
+            "return redis.call('INCRBY', KEYS[3], qty)",
+            Long.class);
+
+    // 按增量调整已预留数量，结果不小于0（释放预留、回滚补偿）；计数器未加载时不处理，加载时从数据库读取
+    private static final DefaultRedisScript<Long> ADD_RESERVED_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -2 end " +
+            "local reserved = tonumber(redis.call('GET', KEYS[3]) or '0') + tonumber(ARGV[1]) " +
+            "if reserved < 0 then reserved = 0 end " +
+            "redis.call('SET', KEYS[3], reserved) " +
+            "return reserved",
+            Long.class);
+
+    // 确认预留：扣减库存并减少已预留数量，同时记录待回写增量
+    private static final DefaultRedisScript<Long> COMMIT_RESERVED_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then return -2 end " +
+            "local qty = tonumber(ARGV[1]) " +
+            "if tonumber(stock) < qty or tonumber(redis.call('GET', KEYS[3]) or '0') < qty then return -1 end " +
+            "redis.call('DECRBY', KEYS[3], qty) " +
+            "redis.call('HINCRBY', KEYS[2], ARGV[2], -qty) " +
+            "return redis.call('DECRBY', KEYS[1], qty)",
+            Long.class);
+
+    // 清除产品的计数器和未回写增量，KEYS依次为：库存计数器、增量Hash、待回写Hash、已预留计数器
+    private static final DefaultRedisScript<Long> CLEAR_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HDEL', KEYS[2], ARGV[1]) " +
+            "redis.call('HDEL', KEYS[3], ARGV[1]) " +
+            "redis.call('DEL', KEYS[4]) " +
+            "return redis.call('DEL', KEYS[1])",
+            Long.class);
+
+    // 将增量Hash切换为待回写Hash并分配批次ID，返回批次ID；上一批尚未回写完成时返回上一批的批次ID
+    private static final DefaultRedisScript<String> SWAP_DELTA_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then " +
+            "redis.call('HSETNX', KEYS[2], ARGV[2], ARGV[1]) " +
+            "return redis.call('HGET', KEYS[2], ARGV[2]) end " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return false end " +
+            "redis.call('RENAME', KEYS[1], KEYS[2]) " +
+            "redis.call('HSET', KEYS[2], ARGV[2], ARGV[1]) " +
+            "return ARGV[1]",
+            String.class);
+
+    // 只删除指定批次的待回写Hash
+    private static final DefaultRedisScript<Long> DELETE_FLUSHING_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], ARGV[2]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0",
+            Long.class);
+
+    // 只释放自己持有的回写锁，锁已过期并被其他实例获取时不删除
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0",
+            Long.class);
+
+    // 只续期自己持有的回写锁，锁已过期并被其他实例获取时返回0
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end " +
+            "return 0",
+            Long.class);
+
+    // 以数据库库存加上尚未回写的增量重建库存计数器，以数据库中的已预留数量重建已预留计数器
+    private static final DefaultRedisScript<Long> RESET_SCRIPT = new DefaultRedisScript<>(
+            "local pending = tonumber(redis.call('HGET', KEYS[2], ARGV[2]) or '0') " +
+            "+ tonumber(redis.call('HGET', KEYS[3], ARGV[2]) or '0') " +
+            "local stock = tonumber(ARGV[1]) + pending " +
+            "redis.call('SET', KEYS[1], stock) " +
+            "redis.call('SET', KEYS[4], ARGV[3]) " +
+            "return stock",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ProductMapper productMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryFlushBatchMapper flushBatchMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void increase(Long productId, int quantity) {
+        executeLoaded(ADJUST_SCRIPT, productId, quantity);
+        onRollback(() -> execute(ADJUST_SCRIPT, productId, -quantity));
+    }
+
+    @Override
+    public void decrease(Long productId, int quantity) {
+        if (executeLoaded(DECREASE_SCRIPT, productId, quantity) == INSUFFICIENT) {
+            throw insufficient(productId);
+        }
+        onRollback(() -> execute(ADJUST_SCRIPT, productId, quantity));
+    }
+
+    @Override
+    public int set(Long productId, int stock) {
+        long oldStock = executeLoaded(SET_SCRIPT, productId, stock);
+        if (oldStock == INSUFFICIENT) {
+            throw new BusinessException("库存不能小于已预留数量: " + redisTemplate.opsForValue().get(reservedKey(productId)));
+        }
+        onRollback(() -> execute(ADJUST_SCRIPT, productId, (int) oldStock - stock));
+        return (int) oldStock;
+    }
+
+    @Override
+    public Integer get(Long productId) {
+        String value = redisTemplate.opsForValue().get(stockKey(productId));
+        if (value == null) {
+            loadCounter(productId);
+            value = redisTemplate.opsForValue().get(stockKey(productId));
+        }
+        return value != null ? Integer.valueOf(value) : null;
+    }
+
+    @Override
+    public Integer getAvailable(Long productId) {
+        Integer stock = get(productId);
+        if (stock == null) {
+            return null;
+        }
+        String reserved = redisTemplate.opsForValue().get(reservedKey(productId));
+        return stock - (reserved != null ? Integer.parseInt(reserved) : 0);
+    }
+
+    @Override
+    public void reserve(Long productId, int quantity) {
+        if (executeLoaded(RESERVE_SCRIPT, productId, quantity) == INSUFFICIENT) {
+            throw insufficient(productId);
+        }
+        onRollback(() -> execute(ADD_RESERVED_SCRIPT, productId, -quantity));
+        productMapper.addReserved(productId, quantity);
+    }
+
+    @Override
+    public void unreserve(Long productId, int quantity) {
+        execute(ADD_RESERVED_SCRIPT, productId, -quantity);
+        onRollback(() -> execute(ADD_RESERVED_SCRIPT, productId, quantity));
+        productMapper.addReserved(productId, -quantity);
+    }
+
+    @Override
+    public void commitReserved(Long productId, int quantity) {
+        if (executeLoaded(COMMIT_RESERVED_SCRIPT, productId, quantity) == INSUFFICIENT) {
+            throw new BusinessException("产品不存在或预留数量不足");
+        }
+        onRollback(() -> {
+            execute(ADD_RESERVED_SCRIPT, productId, quantity);
+            execute(ADJUST_SCRIPT, productId, quantity);
+        });
+        productMapper.addReserved(productId, -quantity);
+    }
+
+    @Override
+    public void fillStock(List<Product> products) {
+        if (products == null || products.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(products.size());
+        for (Product product : products) {
+            keys.add(stockKey(product.getId()));
+        }
+        // 计数器尚未加载的产品保留数据库库存
+        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+        if (values == null) {
+            return;
+        }
+        for (int i = 0; i < products.size(); i++) {
+            if (values.get(i) != null) {
+                products.get(i).setStock(Integer.valueOf(values.get(i)));
+            }
+        }
+    }
+
+    /**
+     * 清除可能残留的同ID计数器，事务提交后首次访问时从数据库加载期初库存
+     */
+    @Override
+    public void init(Long productId, int stock) {
+        clear(productId);
+    }
+
+    @Override
+    public void remove(Long productId) {
+        clear(productId);
+    }
+
+    /**
+     * 定时将累计的库存增量批量回写到数据库
+     */
+    @Scheduled(fixedDelayString = "${inventory.redis.flush-interval:1000}")
+    public void flush() {
+        String token = tryLock();
+        if (token == null) {
+            return;
+        }
+        try {
+            flushPendingDeltas();
+        } catch (Exception e) {
+            log.error("库存增量回写失败，将在下次调度时重试", e);
+        } finally {
+            unlock(token);
+        }
+    }
+
+    /**
+     * 定期清理过期的回写批次记录
+     */
+    @Scheduled(fixedDelayString = "${inventory.redis.batch-prune-interval:3600000}")
+    public void pruneFlushBatches() {
+        try {
+            flushBatchMapper.deleteBefore(LocalDateTime.now().minusDays(BATCH_RETENTION_DAYS));
+        } catch (Exception e) {
+            log.warn("清理库存回写批次记录失败", e);
+        }
+    }
+
+    /**
+     * 启动对账：回写遗留增量后，用数据库库存重建所有计数器
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        String token = tryLock();
+        if (token == null) {
+            log.info("其他实例正在回写库存增量，跳过本次启动对账");
+            return;
+        }
+        try {
+            // 可能需要两轮：先处理上次遗留的待回写Hash，再处理当前增量Hash
+            flushPendingDeltas();
+            flushPendingDeltas();
+            // 按ID分页重建，每页之后续期回写锁，产品很多时对账也不会超出锁的有效期与回写重叠
+            long lastId = 0;
+            int total = 0;
+            while (true) {
+                List<Product> page = productMapper.selectStockPage(lastId, RECONCILE_PAGE_SIZE);
+                for (Product product : page) {
+                    resetCounter(product);
+                }
+                total += page.size();
+                if (page.size() < RECONCILE_PAGE_SIZE) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).getId();
+                if (!renewLock(token)) {
+                    log.warn("回写锁已失效，停止启动对账，已重建 {} 个产品，其余产品的计数器在首次访问时加载", total);
+                    return;
+                }
+            }
+            log.info("Redis库存计数器对账完成，共 {} 个产品", total);
+        } finally {
+            unlock(token);
+        }
+    }
+
+    private void flushPendingDeltas() {
+        String batchId = redisTemplate.execute(SWAP_DELTA_SCRIPT, List.of(DELTA_KEY, FLUSHING_KEY),
+                UUID.randomUUID().toString(), BATCH_FIELD);
+        if (batchId == null) {
+            return;
+        }
+        Map<Object, Object> deltas = redisTemplate.opsForHash().entries(FLUSHING_KEY);
+        deltas.remove(BATCH_FIELD);
+        List<Long> flushed = new ArrayList<>(deltas.size());
+        try {
+            // 同一批增量在一个事务内回写，每个产品只执行一条UPDATE；批次登记与回写一起提交
+            transactionTemplate.executeWithoutResult(status -> {
+                flushBatchMapper.insert(batchId);
+                deltas.forEach((field, value) -> {
+                    long delta = Long.parseLong(value.toString());
+                    if (delta != 0) {
+                        Long productId = Long.valueOf(field.toString());
+                        productMapper.applyStockDelta(productId, delta);
+                        flushed.add(productId);
+                    }
+                });
+            });
+            log.debug("已回写 {} 个产品的库存增量", flushed.size());
+        } catch (DuplicateKeyException e) {
+            log.info("库存增量批次{}已回写过，跳过", batchId);
+            flushed.clear();
+        }
+        redisTemplate.execute(DELETE_FLUSHING_SCRIPT, List.of(FLUSHING_KEY), batchId, BATCH_FIELD);
+        // 事务已提交，不在事务中发布，监听器立即读取回写后的库存
+        for (Long productId : flushed) {
+            eventPublisher.publishEvent(new StockChangedEvent(productId));
+        }
+    }
+
+    private void loadCounter(Long productId) {
+        Product product = productMapper.selectById(productId);
+        if (product == null) {
+            return;
+        }
+        // 只在计数器不存在时初始化，避免覆盖其他线程已写入的值；先加载已预留数量，库存计数器存在即表示已加载完成
+        redisTemplate.opsForValue().setIfAbsent(reservedKey(productId),
+                String.valueOf(product.getReserved() != null ? product.getReserved() : 0));
+        redisTemplate.opsForValue().setIfAbsent(stockKey(productId),
+                String.valueOf(product.getStock() != null ? product.getStock() : 0));
+    }
+
+    private void clear(Long productId) {
+        redisTemplate.execute(CLEAR_SCRIPT, List.of(stockKey(productId), DELTA_KEY, FLUSHING_KEY, reservedKey(productId)),
+                String.valueOf(productId));
+    }
+
+    private void resetCounter(Product product) {
+        int stock = product.getStock() != null ? product.getStock() : 0;
+        int reserved = product.getReserved() != null ? product.getReserved() : 0;
+        redisTemplate.execute(RESET_SCRIPT,
+                List.of(stockKey(product.getId()), DELTA_KEY, FLUSHING_KEY, reservedKey(product.getId())),
+                String.valueOf(stock), String.valueOf(product.getId()), String.valueOf(reserved));
+    }
+
+    /**
+     * Redis操作不参与数据库事务，外层事务回滚时按相反方向补偿
+     */
+    private void onRollback(Runnable compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    compensation.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 扣减或预留失败时的异常，区分产品不存在（计数器未加载且数据库中已删除）和可用库存不足
+     */
+    private BusinessException insufficient(Long productId) {
+        Integer available = getAvailable(productId);
+        if (available == null) {
+            return new BusinessException("产品不存在");
+        }
+        return new BusinessException("可用库存不足，当前可用库存: " + Math.max(available, 0));
+    }
+
+    /**
+     * 执行脚本，计数器未加载时从数据库加载后重试
+     */
+    private long executeLoaded(DefaultRedisScript<Long> script, Long productId, int quantity) {
+        long result = execute(script, productId, quantity);
+        if (result == KEY_MISSING) {
+            loadCounter(productId);
+            result = execute(script, productId, quantity);
+        }
+        if (result == KEY_MISSING) {
+            throw new BusinessException("产品不存在");
+        }
+        return result;
+    }
+
+    private long execute(DefaultRedisScript<Long> script, Long productId, int quantity) {
+        Long result = redisTemplate.execute(script, List.of(stockKey(productId), DELTA_KEY, reservedKey(productId)),
+                String.valueOf(quantity), String.valueOf(productId));
+        if (result == null) {
+            throw new BusinessException("库存服务暂不可用，请稍后重试");
+        }
+        return result;
+    }
+
+    /**
+     * 获取回写锁
+     * @return 锁令牌，未获取到时返回null
+     */
+    private String tryLock() {
+        String token = UUID.randomUUID().toString();
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(FLUSH_LOCK_KEY, token, FLUSH_LOCK_TTL))
+                ? token : null;
+    }
+
+    /**
+     * 续期回写锁
+     * @return 锁仍由自己持有时返回true
+     */
+    private boolean renewLock(String token) {
+        Long renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(FLUSH_LOCK_KEY), token,
+                String.valueOf(FLUSH_LOCK_TTL.toMillis()));
+        return renewed != null && renewed == 1L;
+    }
+
+    private void unlock(String token) {
+        redisTemplate.execute(UNLOCK_SCRIPT, List.of(FLUSH_LOCK_KEY), token);
+    }
+
+    private String stockKey(Long productId) {
+        return STOCK_KEY_PREFIX + productId;
+    }
+
+    private String reservedKey(Long productId) {
+        return RESERVED_KEY_PREFIX + productId;
+    }
+}
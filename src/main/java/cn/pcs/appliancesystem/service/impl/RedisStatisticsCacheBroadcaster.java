@@ -0,0 +1,67 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.service.StatisticsCacheBroadcaster;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * 通过Redis发布订阅广播统计日缓存失效
+ * 消息格式为"实例ID|kind|day"或"实例ID|*"，收到本实例发出的消息时忽略。
+ * 发布订阅不保证送达，Redis断线期间的失效会丢失，缓存中的旧数据保留到被淘汰或下次汇总重建
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "statistics.cache.broadcast", havingValue = "redis")
+public class RedisStatisticsCacheBroadcaster implements StatisticsCacheBroadcaster {
+
+    private static final String CHANNEL = "statistics:cache:evict";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer container;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public RedisStatisticsCacheBroadcaster(StringRedisTemplate redisTemplate, RedisConnectionFactory connectionFactory) {
+        this.redisTemplate = redisTemplate;
+        this.container = new RedisMessageListenerContainer();
+        this.container.setConnectionFactory(connectionFactory);
+        this.container.afterPropertiesSet();
+        this.container.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        container.destroy();
+    }
+
+    @Override
+    public void publish(String kind, String day) {
+        String message = instanceId + "|" + (day == null ? "*" : kind + "|" + day);
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (RuntimeException e) {
+            log.error("广播统计缓存失效失败：{}", message, e);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        container.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            int sep = body.indexOf('|');
+            if (sep < 0 || instanceId.equals(body.substring(0, sep))) {
+                return;
+            }
+            listener.accept(body.substring(sep + 1));
+        }, new ChannelTopic(CHANNEL));
+    }
+}
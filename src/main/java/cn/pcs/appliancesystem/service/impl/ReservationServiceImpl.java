@@ -0,0 +1,150 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.StockHold;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.StockHoldMapper;
+import cn.pcs.appliancesystem.service.ProductService;
+import cn.pcs.appliancesystem.service.ReservationService;
+import cn.pcs.appliancesystem.service.SaleService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 库存预留
+ * 预留记录保存在 stock_hold 表中，预留数量同时累加到产品的已预留数量上，
+ * 所有扣减库存的操作都按 库存 - 已预留 校验，预留的数量只能通过确认预留卖出。
+ * 预留、确认、取消和到期释放都在事务中同时修改预留记录和已预留数量，服务重启后预留仍然有效。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReservationServiceImpl implements ReservationService {
+
+    private static final int DEFAULT_TTL_SECONDS = 300;
+    private static final int MIN_TTL_SECONDS = 10;
+    private static final int MAX_TTL_SECONDS = 3600;
+    // 每次到期释放处理的最大预留数
+    private static final int EXPIRE_BATCH = 500;
+
+    private final StockHoldMapper stockHoldMapper;
+    private final ProductService productService;
+    private final SaleService saleService;
+    private final TransactionTemplate transactionTemplate;
+
+    // 单个产品同时存在的最大预留数，按产品ID走索引计数
+    @Value("${reservation.max-holds-per-product:1000}")
+    private int maxHoldsPerProduct;
+
+    @Override
+    @Transactional
+    public StockHold hold(Long productId, Integer quantity, Long salesmanId, Integer ttlSeconds) {
+        // 1. 参数校验
+        if (productId == null) {
+            throw new BusinessException("产品ID不能为空");
+        }
+        if (quantity == null || quantity <= 0) {
+            throw new BusinessException("预留数量必须大于0");
+        }
+        if (salesmanId == null) {
+            throw new BusinessException("销售员ID不能为空");
+        }
+        int ttl = ttlSeconds != null ? ttlSeconds : DEFAULT_TTL_SECONDS;
+        if (ttl < MIN_TTL_SECONDS || ttl > MAX_TTL_SECONDS) {
+            throw new BusinessException("预留有效期必须在" + MIN_TTL_SECONDS + "到" + MAX_TTL_SECONDS + "秒之间");
+        }
+        if (stockHoldMapper.countByProduct(productId) >= maxHoldsPerProduct) {
+            throw new BusinessException("该产品当前预留数量已达上限，请稍后重试");
+        }
+
+        // 2. 可用库存充足时增加已预留数量，不足时抛出异常
+        productService.reserveStock(productId, quantity);
+
+        // 3. 登记预留
+        StockHold hold = StockHold.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .salesmanId(salesmanId)
+                .expireTime(LocalDateTime.now().plusSeconds(ttl))
+                .build();
+        stockHoldMapper.insert(hold);
+        return hold;
+    }
+
+    @Override
+    @Transactional
+    public void confirm(Long holdId) {
+        // 删除预留记录即占有该预留，并发确认、取消或到期释放中只有一个能删除成功；销售失败时随事务一起回滚
+        StockHold hold = claim(holdId);
+        saleService.sellReserved(hold.getProductId(), hold.getQuantity(), hold.getSalesmanId());
+    }
+
+    @Override
+    @Transactional
+    public void release(Long holdId) {
+        StockHold hold = claim(holdId);
+        productService.releaseStock(hold.getProductId(), hold.getQuantity());
+    }
+
+    @Override
+    public Integer getAvailableStock(Long productId) {
+        Integer available = productService.getAvailableStock(productId);
+        if (available == null) {
+            throw new BusinessException("产品不存在");
+        }
+        return Math.max(available, 0);
+    }
+
+    /**
+     * 定时释放到期的预留，多实例同时执行时由删除结果决定由谁释放
+     */
+    @Scheduled(fixedDelayString = "${reservation.expire-interval:1000}")
+    public void expireHolds() {
+        List<StockHold> expired;
+        try {
+            expired = stockHoldMapper.selectExpired(LocalDateTime.now(), EXPIRE_BATCH);
+        } catch (Exception e) {
+            log.error("查询到期库存预留失败", e);
+            return;
+        }
+        for (StockHold hold : expired) {
+            try {
+                Boolean released = transactionTemplate.execute(status -> {
+                    if (stockHoldMapper.deleteById(hold.getHoldId()) == 0) {
+                        return false;
+                    }
+                    productService.releaseStock(hold.getProductId(), hold.getQuantity());
+                    return true;
+                });
+                if (Boolean.TRUE.equals(released)) {
+                    log.info("库存预留已过期释放，预留ID: {}, 产品ID: {}, 数量: {}",
+                            hold.getHoldId(), hold.getProductId(), hold.getQuantity());
+                }
+            } catch (Exception e) {
+                log.error("释放过期库存预留失败，预留ID: {}", hold.getHoldId(), e);
+            }
+        }
+    }
+
+    /**
+     * 删除未过期的预留记录并返回；不存在、已过期或已被其他请求处理时抛出业务异常
+     */
+    private StockHold claim(Long holdId) {
+        if (holdId == null) {
+            throw new BusinessException("预留ID不能为空");
+        }
+        StockHold hold = stockHoldMapper.selectById(holdId);
+        if (hold == null || !hold.getExpireTime().isAfter(LocalDateTime.now())
+                || stockHoldMapper.deleteById(holdId) == 0) {
+            throw new BusinessException("预留不存在或已过期");
+        }
+        return hold;
+    }
+}
@@ -1,38 +1,70 @@
 package cn.pcs.appliancesystem.service.impl;
 
+import cn.pcs.appliancesystem.entity.CursorPage;
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.InventoryMovement;
 import cn.pcs.appliancesystem.entity.Product;
+import cn.pcs.appliancesystem.entity.RecordPageQuery;
 import cn.pcs.appliancesystem.entity.Sale;
+import cn.pcs.appliancesystem.entity.SaleOrderItem;
 import cn.pcs.appliancesystem.entity.SaleRecordVO;
-import cn.pcs.appliancesystem.entity.SysUser;
 import cn.pcs.appliancesystem.exception.BusinessException;
 import cn.pcs.appliancesystem.mapper.ProductMapper;
 import cn.pcs.appliancesystem.mapper.SaleMapper;
-import cn.pcs.appliancesystem.mapper.SysUserMapper;
+import cn.pcs.appliancesystem.service.DailyRollupService;
+import cn.pcs.appliancesystem.service.InventoryLedgerService;
 import cn.pcs.appliancesystem.service.ProductService;
 import cn.pcs.appliancesystem.service.SaleService;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import cn.pcs.appliancesystem.util.RecordCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class SaleServiceImpl implements SaleService {
 
+    // 单个订单最多明细条数
+    private static final int MAX_ORDER_ITEMS = 100;
+    // 记录分页默认条数和最大条数
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final DateTimeFormatter ORDER_NO_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
     private final SaleMapper saleMapper;
     private final ProductMapper productMapper;
-    private final SysUserMapper sysUserMapper;
     private final ProductService productService;
+    private final InventoryLedgerService inventoryLedgerService;
+    private final DailyRollupService dailyRollupService;
+    private final SalesColumnStore salesColumnStore;
 
     @Override
     @Transactional
     public void sell(Long productId, Integer quantity, Long salesmanId) {
+        sell(productId, quantity, salesmanId, false);
+    }
+
+    @Override
+    @Transactional
+    public void sellReserved(Long productId, Integer quantity, Long salesmanId) {
+        sell(productId, quantity, salesmanId, true);
+    }
+
+    /**
+     * @param reserved 是否销售已预留的库存
+     */
+    private void sell(Long productId, Integer quantity, Long salesmanId, boolean reserved) {
         // 1. 参数校验
         if (productId == null) {
             throw new BusinessException("产品ID不能为空");
@@ -50,8 +82,12 @@ public class SaleServiceImpl implements SaleService {
             throw new BusinessException("产品不存在");
         }
 
-        // 3. 减库存
-        productService.decreaseStock(productId, quantity);
+        // 3. 减库存：普通销售只能扣减可用库存（已被收银预留的数量不能再卖），确认预留时扣减预留部分
+        if (reserved) {
+            productService.commitReservedStock(productId, quantity);
+        } else {
+            productService.decreaseStock(productId, quantity);
+        }
 
         // 4. 计算总价
         BigDecimal totalPrice = product.getPrice()
@@ -66,48 +102,137 @@ public class SaleServiceImpl implements SaleService {
                 .saleTime(LocalDateTime.now())
                 .build();
         saleMapper.insert(sale);
+
+        // 6. 记录库存流水和日汇总
+        inventoryLedgerService.record(productId, -quantity, InventoryMovement.TYPE_SALE, sale.getId(), salesmanId);
+        dailyRollupService.record(DailyRollup.KIND_SALE, sale.getSaleTime(), productId, quantity, totalPrice, 1);
+        salesColumnStore.append(sale.getSaleTime().toLocalDate(), productId, quantity, totalPrice, 1);
     }
 
     @Override
-    public List<SaleRecordVO> getSaleRecords() {
-        // 查询所有销售记录
-        List<Sale> sales = saleMapper.selectList(new LambdaQueryWrapper<>());
-        
-        // 提取所有涉及的产品ID和销售员ID
-        List<Long> productIds = sales.stream()
-                .map(Sale::getProductId)
-                .distinct()
-                .collect(Collectors.toList());
-                
-        List<Long> salesmanIds = sales.stream()
-                .map(Sale::getSalesmanId)
-                .distinct()
-                .collect(Collectors.toList());
-        
-        // 批量查询产品和销售员信息
-        Map<Long, String> productNamesMap = productIds.isEmpty() ? 
-                Map.of() : 
-                productService.listAll().stream()
-                        .filter(p -> productIds.contains(p.getId()))
-                        .collect(Collectors.toMap(Product::getId, Product::getProductName));
-                        
-        Map<Long, String> salesmanNamesMap = salesmanIds.isEmpty() ? 
-                Map.of() : 
-                sysUserMapper.selectBatchIds(salesmanIds).stream()
-                        .collect(Collectors.toMap(SysUser::getId, SysUser::getUsername));
-        
-        // 组装返回数据
-        return sales.stream()
-                .map(sale -> SaleRecordVO.builder()
-                        .id(sale.getId())
-                        .productName(productNamesMap.getOrDefault(sale.getProductId(), "未知产品"))
-                        .quantity(sale.getQuantity())
-                        .totalPrice(sale.getTotalPrice())
-                        .salesman(salesmanNamesMap.getOrDefault(sale.getSalesmanId(), "未知销售员"))
-                        .saleTime(sale.getSaleTime())
+    @Transactional
+    public String sellOrder(List<SaleOrderItem> items, Long salesmanId) {
+        // 1. 参数校验
+        if (salesmanId == null) {
+            throw new BusinessException("销售员ID不能为空");
+        }
+        if (items == null || items.isEmpty()) {
+            throw new BusinessException("订单明细不能为空");
+        }
+        if (items.size() > MAX_ORDER_ITEMS) {
+            throw new BusinessException("单个订单明细不能超过" + MAX_ORDER_ITEMS + "条");
+        }
+
+        // 2. 按产品汇总数量，按ID升序排列，保证并发订单以相同顺序加行锁，避免死锁
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (SaleOrderItem item : items) {
+            if (item == null || item.getProductId() == null) {
+                throw new BusinessException("产品ID不能为空");
+            }
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new BusinessException("销售数量必须大于0");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+
+        // 3. 一次查询所有产品价格
+        Map<Long, Product> products = productMapper.selectByIds(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        for (Long productId : quantities.keySet()) {
+            if (!products.containsKey(productId)) {
+                throw new BusinessException("产品不存在，产品ID: " + productId);
+            }
+        }
+
+        // 4. 逐个产品扣减库存，任一产品不足则整单回滚
+        quantities.forEach((productId, quantity) -> {
+            try {
+                productService.decreaseStock(productId, quantity);
+            } catch (BusinessException e) {
+                throw new BusinessException(products.get(productId).getProductName() + "：" + e.getMessage());
+            }
+        });
+
+        // 5. 多行插入销售记录，共用同一订单号
+        String orderNo = generateOrderNo();
+        LocalDateTime now = LocalDateTime.now();
+        List<Sale> sales = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> sales.add(Sale.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .totalPrice(products.get(productId).getPrice().multiply(BigDecimal.valueOf(quantity)))
+                .salesmanId(salesmanId)
+                .saleTime(now)
+                .orderNo(orderNo)
+                .build()));
+        saleMapper.insertBatch(sales);
+
+        // 6. 逐条记录库存流水，按产品累加日汇总
+        inventoryLedgerService.recordBatch(sales.stream()
+                .map(sale -> InventoryMovement.builder()
+                        .productId(sale.getProductId())
+                        .changeQty(-sale.getQuantity())
+                        .movementType(InventoryMovement.TYPE_SALE)
+                        .refId(sale.getId())
+                        .operatorId(salesmanId)
+                        .createTime(now)
+                        .build())
+                .collect(Collectors.toList()));
+        List<DailyRollup> rollups = sales.stream()
+                .map(sale -> DailyRollup.builder()
+                        .kind(DailyRollup.KIND_SALE)
+                        .day(now.toLocalDate())
+                        .productId(sale.getProductId())
+                        .qty(sale.getQuantity())
+                        .amount(sale.getTotalPrice())
+                        .cnt(1)
                         .build())
-                .sorted((a, b) -> b.getSaleTime().compareTo(a.getSaleTime())) // 按时间倒序排列
                 .collect(Collectors.toList());
+        dailyRollupService.recordBatch(rollups);
+        salesColumnStore.appendAll(rollups);
+        return orderNo;
+    }
+
+    private static int normalizePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * 生成订单号：SO + 毫秒时间戳 + 3位随机数
+     */
+    private String generateOrderNo() {
+        return "SO" + LocalDateTime.now().format(ORDER_NO_FORMATTER)
+                + String.format("%03d", ThreadLocalRandom.current().nextInt(1000));
+    }
+
+    @Override
+    public List<SaleRecordVO> getSaleRecords() {
+        // 查询所有销售记录，关联查询产品名称和人员名称，在数据库中按时间倒序排列
+        return saleMapper.selectRecordVOs(new RecordPageQuery(), null, null, null);
+    }
+
+    @Override
+    public CursorPage<SaleRecordVO> getSaleRecordPage(RecordPageQuery query) {
+        int size = normalizePageSize(query.getSize());
+        RecordCursor cursor = RecordCursor.decode(query.getCursor());
+        // 多查一条用于判断是否还有下一页
+        List<SaleRecordVO> rows = saleMapper.selectRecordVOs(query,
+                cursor != null ? cursor.getTime() : null, cursor != null ? cursor.getId() : null, size + 1);
+        boolean hasMore = rows.size() > size;
+        String nextCursor = null;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+            SaleRecordVO last = rows.get(rows.size() - 1);
+            nextCursor = new RecordCursor(last.getSaleTime(), last.getId()).encode();
+        }
+        return CursorPage.<SaleRecordVO>builder()
+                .records(rows)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
     }
 
     @Override
@@ -142,9 +267,18 @@ public class SaleServiceImpl implements SaleService {
         } else if (diff < 0) {
             productService.increaseStock(originalSale.getProductId(), Math.abs(diff));
         }
+        inventoryLedgerService.record(originalSale.getProductId(), -diff,
+                InventoryMovement.TYPE_SALE_ADJUST, id, originalSale.getSalesmanId());
         
         // 计算新的总价
         BigDecimal newTotalPrice = product.getPrice().multiply(BigDecimal.valueOf(quantity));
+        BigDecimal amountDiff = newTotalPrice.subtract(originalSale.getTotalPrice());
+        dailyRollupService.record(DailyRollup.KIND_SALE, originalSale.getSaleTime(), originalSale.getProductId(),
+                diff, amountDiff, 0);
+        if (originalSale.getSaleTime() != null) {
+            salesColumnStore.append(originalSale.getSaleTime().toLocalDate(), originalSale.getProductId(),
+                    diff, amountDiff, 0);
+        }
         
         // 更新销售记录
         originalSale.setQuantity(quantity);
@@ -166,6 +300,14 @@ public class SaleServiceImpl implements SaleService {
         
         // 增加库存（因为删除销售记录相当于把销售的商品还回去）
         productService.increaseStock(sale.getProductId(), sale.getQuantity());
+        inventoryLedgerService.record(sale.getProductId(), sale.getQuantity(),
+                InventoryMovement.TYPE_SALE_DELETE, id, sale.getSalesmanId());
+        dailyRollupService.record(DailyRollup.KIND_SALE, sale.getSaleTime(), sale.getProductId(),
+                -sale.getQuantity(), sale.getTotalPrice().negate(), -1);
+        if (sale.getSaleTime() != null) {
+            salesColumnStore.append(sale.getSaleTime().toLocalDate(), sale.getProductId(),
+                    -sale.getQuantity(), sale.getTotalPrice().negate(), -1);
+        }
         
         // 删除销售记录
         saleMapper.deleteById(id);
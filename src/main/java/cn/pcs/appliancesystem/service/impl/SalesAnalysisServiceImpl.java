@@ -0,0 +1,137 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.ProductSalesVO;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.SaleMapper;
+import cn.pcs.appliancesystem.service.SalesAnalysisService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+@Service
+public class SalesAnalysisServiceImpl implements SalesAnalysisService {
+
+    private static final int DEFAULT_TOP_LIMIT = 20;
+    private static final int MAX_TOP_LIMIT = 1000;
+    private static final String ORDER_BY_AMOUNT = "amount";
+    private static final String ORDER_BY_QUANTITY = "quantity";
+    private static final int SHARE_SCALE = 4;
+
+    private static final Comparator<ProductSalesVO> BY_AMOUNT = Comparator.comparing(ProductSalesVO::getAmount)
+            .thenComparing(ProductSalesVO::getProductId, Comparator.reverseOrder());
+    private static final Comparator<ProductSalesVO> BY_QUANTITY = Comparator.comparing(ProductSalesVO::getQuantity)
+            .thenComparing(ProductSalesVO::getProductId, Comparator.reverseOrder());
+
+    private final SaleMapper saleMapper;
+    private final BigDecimal aShare;
+    private final BigDecimal bShare;
+
+    public SalesAnalysisServiceImpl(SaleMapper saleMapper,
+                                    @Value("${statistics.abc.a-share:0.80}") BigDecimal aShare,
+                                    @Value("${statistics.abc.b-share:0.95}") BigDecimal bShare) {
+        this.saleMapper = saleMapper;
+        this.aShare = aShare;
+        this.bShare = bShare;
+    }
+
+    @Override
+    public List<ProductSalesVO> getTopProducts(LocalDate startDate, LocalDate endDate, Integer limit, String orderBy) {
+        int size = limit != null ? limit : DEFAULT_TOP_LIMIT;
+        if (size <= 0 || size > MAX_TOP_LIMIT) {
+            throw new BusinessException("返回数量必须在1到" + MAX_TOP_LIMIT + "之间");
+        }
+        checkRange(startDate, endDate);
+        Comparator<ProductSalesVO> order = comparatorOf(orderBy);
+
+        // 小顶堆只保留当前最大的size个产品，逐行处理数据库返回的产品合计
+        PriorityQueue<ProductSalesVO> heap = new PriorityQueue<>(size + 1, order);
+        saleMapper.streamProductTotals(startTimeOf(startDate), endTimeOf(endDate), context -> {
+            ProductSalesVO row = context.getResultObject();
+            if (row.getQuantity() == 0) {
+                return;
+            }
+            if (heap.size() < size) {
+                heap.add(row);
+            } else if (order.compare(row, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(row);
+            }
+        });
+
+        List<ProductSalesVO> result = new ArrayList<>(heap);
+        result.sort(order.reversed());
+        return result;
+    }
+
+    @Override
+    public List<ProductSalesVO> getAbcAnalysis(LocalDate startDate, LocalDate endDate) {
+        checkRange(startDate, endDate);
+        List<ProductSalesVO> products = new ArrayList<>();
+        saleMapper.streamProductTotals(startTimeOf(startDate), endTimeOf(endDate),
+                context -> products.add(context.getResultObject()));
+        products.sort(BY_AMOUNT.reversed());
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (ProductSalesVO product : products) {
+            total = total.add(product.getAmount());
+        }
+
+        // 按销售额倒序累计，产品加入前的累计占比决定分类，跨过阈值的那个产品仍归入较高一类
+        BigDecimal cumulative = BigDecimal.ZERO;
+        for (ProductSalesVO product : products) {
+            BigDecimal before = share(cumulative, total);
+            cumulative = cumulative.add(product.getAmount());
+            product.setShare(share(product.getAmount(), total));
+            product.setCumulativeShare(share(cumulative, total));
+            if (product.getAmount().signum() <= 0) {
+                product.setAbcClass(ProductSalesVO.CLASS_C);
+            } else if (before.compareTo(aShare) < 0) {
+                product.setAbcClass(ProductSalesVO.CLASS_A);
+            } else if (before.compareTo(bShare) < 0) {
+                product.setAbcClass(ProductSalesVO.CLASS_B);
+            } else {
+                product.setAbcClass(ProductSalesVO.CLASS_C);
+            }
+        }
+        return products;
+    }
+
+    private static Comparator<ProductSalesVO> comparatorOf(String orderBy) {
+        if (orderBy == null || ORDER_BY_AMOUNT.equals(orderBy)) {
+            return BY_AMOUNT;
+        }
+        if (ORDER_BY_QUANTITY.equals(orderBy)) {
+            return BY_QUANTITY;
+        }
+        throw new BusinessException("不支持的排序指标：" + orderBy + "，可选 amount、quantity");
+    }
+
+    private static BigDecimal share(BigDecimal part, BigDecimal total) {
+        if (total.signum() == 0) {
+            return BigDecimal.ZERO.setScale(SHARE_SCALE);
+        }
+        return part.divide(total, SHARE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static void checkRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            throw new BusinessException("开始日期不能晚于结束日期");
+        }
+    }
+
+    private static LocalDateTime startTimeOf(LocalDate startDate) {
+        return startDate != null ? startDate.atStartOfDay() : null;
+    }
+
+    private static LocalDateTime endTimeOf(LocalDate endDate) {
+        return endDate != null ? endDate.plusDays(1).atStartOfDay() : null;
+    }
+}
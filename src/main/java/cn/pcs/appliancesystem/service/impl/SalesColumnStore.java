@@ -0,0 +1,318 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.Sale;
+import cn.pcs.appliancesystem.mapper.SaleMapper;
+import cn.pcs.appliancesystem.util.LongObjectHashMap;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * 内存中的列式销售数据，供统计看板直接聚合，不再每次扫描sale表
+ * 每条销售一行，按列存放在基本类型数组中（日期为epochDay，金额以分为单位）；
+ * 销售修改和删除追加一条差值行（数量、金额、条数取差），与日汇总的增量规则一致。
+ * 启动时从sale表加载，之后由SaleServiceImpl在事务提交后追加；
+ * 只反映本实例的写入，多实例部署时不要开启。由statistics.column-store.enabled控制，默认关闭
+ */
+@Slf4j
+@Component
+public class SalesColumnStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // 行数超过该值时分段并行扫描
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final SaleMapper saleMapper;
+    private final boolean enabled;
+
+    // 读操作只访问size以内的行，追加时先写数组再发布新的Columns，读写互不阻塞
+    private volatile Columns columns = new Columns(0);
+
+    public SalesColumnStore(SaleMapper saleMapper,
+                            @Value("${statistics.column-store.enabled:false}") boolean enabled) {
+        this.saleMapper = saleMapper;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Columns[] loaded = {new Columns(INITIAL_CAPACITY)};
+        saleMapper.streamSaleFacts(context -> {
+            Sale sale = context.getResultObject();
+            loaded[0] = loaded[0].append(sale.getSaleTime().toLocalDate().toEpochDay(), sale.getProductId(),
+                    sale.getQuantity(), toCents(sale.getTotalPrice()), 1);
+        });
+        synchronized (this) {
+            columns = loaded[0];
+        }
+        log.info("列式销售数据加载完成：{}行，耗时{}ms", loaded[0].size, System.currentTimeMillis() - start);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return columns.size;
+    }
+
+    /**
+     * 追加一行，事务提交后生效
+     * @param qty 数量变化
+     * @param amount 金额变化
+     * @param cnt 条数变化（新增1，删除-1，修改0）
+     */
+    public void append(LocalDate day, Long productId, int qty, BigDecimal amount, int cnt) {
+        if (!enabled) {
+            return;
+        }
+        long epochDay = day.toEpochDay();
+        long cents = toCents(amount);
+        afterCommit(() -> {
+            synchronized (this) {
+                columns = columns.append(epochDay, productId, qty, cents, cnt);
+            }
+        });
+    }
+
+    /**
+     * 批量追加，事务提交后生效
+     */
+    public void appendAll(List<DailyRollup> rows) {
+        if (!enabled || rows.isEmpty()) {
+            return;
+        }
+        List<DailyRollup> copy = new ArrayList<>(rows);
+        afterCommit(() -> {
+            synchronized (this) {
+                Columns current = columns;
+                for (DailyRollup row : copy) {
+                    current = current.append(row.getDay().toEpochDay(), row.getProductId(), row.getQty(),
+                            toCents(row.getAmount()), row.getCnt());
+                }
+                columns = current;
+            }
+        });
+    }
+
+    /**
+     * 按产品汇总日期范围内的销售，只返回有数据的产品，顺序不确定
+     * @param startDate 开始日期（包含），为空表示不限
+     * @param endDate 结束日期（包含），为空表示不限
+     */
+    public List<DailyRollup> sumByProduct(LocalDate startDate, LocalDate endDate) {
+        Columns c = columns;
+        int fromDay = startDate != null ? (int) startDate.toEpochDay() : Integer.MIN_VALUE;
+        int toDay = endDate != null ? (int) endDate.toEpochDay() : Integer.MAX_VALUE;
+        LongObjectHashMap<long[]> totals = chunks(c.size)
+                .mapToObj(chunk -> sumByProduct(c, chunk, fromDay, toDay))
+                .reduce(SalesColumnStore::merge)
+                .orElseGet(LongObjectHashMap::new);
+
+        List<DailyRollup> result = new ArrayList<>(totals.size());
+        totals.forEach((t, productId) -> {
+            if (t[0] != 0 || t[1] != 0 || t[2] != 0) {
+                result.add(toRollup(null, productId, t[0], t[1], t[2]));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 按天汇总日期范围内的销售（合并所有产品），按日期升序，只返回有数据的日期
+     */
+    public List<DailyRollup> sumByDay(LocalDate startDate, LocalDate endDate) {
+        Columns c = columns;
+        if (c.size == 0) {
+            return new ArrayList<>();
+        }
+        int fromDay = startDate != null ? (int) startDate.toEpochDay() : c.minDay;
+        int toDay = endDate != null ? (int) endDate.toEpochDay() : c.maxDay;
+        fromDay = Math.max(fromDay, c.minDay);
+        toDay = Math.min(toDay, c.maxDay);
+        if (fromDay > toDay) {
+            return new ArrayList<>();
+        }
+        int first = fromDay;
+        int span = toDay - fromDay + 1;
+        // 每个日期占3个槽位：数量、金额（分）、条数
+        long[] totals = chunks(c.size)
+                .mapToObj(chunk -> sumByDay(c, chunk, first, span))
+                .reduce((a, b) -> {
+                    for (int i = 0; i < a.length; i++) {
+                        a[i] += b[i];
+                    }
+                    return a;
+                })
+                .orElseGet(() -> new long[span * 3]);
+
+        List<DailyRollup> result = new ArrayList<>();
+        for (int d = 0; d < span; d++) {
+            long qty = totals[d * 3];
+            long cents = totals[d * 3 + 1];
+            long cnt = totals[d * 3 + 2];
+            if (qty != 0 || cents != 0 || cnt != 0) {
+                result.add(toRollup(LocalDate.ofEpochDay(first + d), null, qty, cents, cnt));
+            }
+        }
+        return result;
+    }
+
+    private static LongObjectHashMap<long[]> sumByProduct(Columns c, int chunk, int fromDay, int toDay) {
+        LongObjectHashMap<long[]> totals = new LongObjectHashMap<>();
+        int end = Math.min(c.size, (chunk + 1) * CHUNK_SIZE);
+        for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+            int day = c.days[i];
+            if (day < fromDay || day > toDay) {
+                continue;
+            }
+            long[] t = totals.get(c.productIds[i]);
+            if (t == null) {
+                t = new long[3];
+                totals.put(c.productIds[i], t);
+            }
+            t[0] += c.qtys[i];
+            t[1] += c.amountCents[i];
+            t[2] += c.cnts[i];
+        }
+        return totals;
+    }
+
+    private static long[] sumByDay(Columns c, int chunk, int fromDay, int span) {
+        long[] totals = new long[span * 3];
+        int end = Math.min(c.size, (chunk + 1) * CHUNK_SIZE);
+        for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+            int d = c.days[i] - fromDay;
+            if (d < 0 || d >= span) {
+                continue;
+            }
+            totals[d * 3] += c.qtys[i];
+            totals[d * 3 + 1] += c.amountCents[i];
+            totals[d * 3 + 2] += c.cnts[i];
+        }
+        return totals;
+    }
+
+    private static LongObjectHashMap<long[]> merge(LongObjectHashMap<long[]> a, LongObjectHashMap<long[]> b) {
+        b.forEach((t, productId) -> {
+            long[] target = a.get(productId);
+            if (target == null) {
+                a.put(productId, t);
+            } else {
+                target[0] += t[0];
+                target[1] += t[1];
+                target[2] += t[2];
+            }
+        });
+        return a;
+    }
+
+    /**
+     * 按CHUNK_SIZE分段，行数较多时并行（ForkJoin公共池）扫描
+     */
+    private static IntStream chunks(int size) {
+        int count = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream stream = IntStream.range(0, count);
+        return size > PARALLEL_THRESHOLD ? stream.parallel() : stream;
+    }
+
+    private static DailyRollup toRollup(LocalDate day, Long productId, long qty, long cents, long cnt) {
+        return DailyRollup.builder()
+                .kind(DailyRollup.KIND_SALE)
+                .day(day)
+                .productId(productId)
+                .qty((int) qty)
+                .amount(BigDecimal.valueOf(cents, 2))
+                .cnt((int) cnt)
+                .build();
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount != null ? amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact() : 0L;
+    }
+
+    /**
+     * 事务提交后再追加，避免回滚的数据进入统计；不在事务中时立即执行
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 列数据快照，数组可能比size长；size以内的行写入后不再修改
+     */
+    private static final class Columns {
+        final int[] days;
+        final long[] productIds;
+        final int[] qtys;
+        final long[] amountCents;
+        final int[] cnts;
+        final int size;
+        final int minDay;
+        final int maxDay;
+
+        Columns(int capacity) {
+            this(new int[capacity], new long[capacity], new int[capacity], new long[capacity], new int[capacity],
+                    0, Integer.MAX_VALUE, Integer.MIN_VALUE);
+        }
+
+        private Columns(int[] days, long[] productIds, int[] qtys, long[] amountCents, int[] cnts,
+                        int size, int minDay, int maxDay) {
+            this.days = days;
+            this.productIds = productIds;
+            this.qtys = qtys;
+            this.amountCents = amountCents;
+            this.cnts = cnts;
+            this.size = size;
+            this.minDay = minDay;
+            this.maxDay = maxDay;
+        }
+
+        /**
+         * 在size位置写入一行并返回新快照，容量不足时按两倍扩容；调用方需串行调用
+         */
+        Columns append(long epochDay, long productId, int qty, long cents, int cnt) {
+            Columns target = this;
+            if (size == days.length) {
+                int capacity = Math.max(INITIAL_CAPACITY, days.length << 1);
+                target = new Columns(Arrays.copyOf(days, capacity), Arrays.copyOf(productIds, capacity),
+                        Arrays.copyOf(qtys, capacity), Arrays.copyOf(amountCents, capacity),
+                        Arrays.copyOf(cnts, capacity), size, minDay, maxDay);
+            }
+            int day = (int) epochDay;
+            target.days[size] = day;
+            target.productIds[size] = productId;
+            target.qtys[size] = qty;
+            target.amountCents[size] = cents;
+            target.cnts[size] = cnt;
+            return new Columns(target.days, target.productIds, target.qtys, target.amountCents, target.cnts,
+                    size + 1, Math.min(minDay, day), Math.max(maxDay, day));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * SSE连接登记与广播
+ * 连接完成、超时或写入失败时自动移除；广播时逐个发送，某个连接失败不影响其他连接
+ */
+@Slf4j
+class SseBroadcaster {
+
+    private final String name;
+    private final long timeoutMillis;
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    SseBroadcaster(String name, long timeoutMillis) {
+        this.name = name;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    SseEmitter register() {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        return emitter;
+    }
+
+    /**
+     * 向单个连接发送事件
+     * @return 发送失败（连接已断开）时返回false
+     */
+    boolean send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("{}推送失败，移除连接: {}", name, e.getMessage());
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    /**
+     * 向所有连接发送事件，每个连接单独构建事件
+     */
+    void broadcast(Supplier<SseEmitter.SseEventBuilder> event) {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, event.get());
+        }
+    }
+
+    /**
+     * 发送注释行作为心跳，及时发现已断开的连接
+     */
+    void heartbeat() {
+        broadcast(() -> SseEmitter.event().comment("ping"));
+    }
+
+    void completeAll() {
+        for (SseEmitter emitter : emitters) {
+            emitter.complete();
+        }
+        emitters.clear();
+    }
+
+    int size() {
+        return emitters.size();
+    }
+}
@@ -0,0 +1,244 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.StatisticsCacheStats;
+import cn.pcs.appliancesystem.mapper.DailyRollupMapper;
+import cn.pcs.appliancesystem.service.StatisticsCacheBroadcaster;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 统计日缓存
+ * 按（类型，日期）缓存该日各产品的汇总行。已经过去的日期很少变化，缓存后只在补录、修改、删除
+ * 触及该日时失效（由DailyRollupServiceImpl在事务提交后通知）；当天的数据仍在变化，每次实时查询。
+ * 范围查询由各日缓存拼接而成，缺失的日期合并为一次查询补齐。
+ * 失效只作用于本实例的缓存，多实例部署时需配置 statistics.cache.broadcast=redis 把失效广播给其他实例，
+ * 否则其他实例会一直返回失效前的数据。
+ */
+@Component
+public class StatisticsDayCache {
+
+    private final DailyRollupMapper dailyRollupMapper;
+    private final StatisticsCacheBroadcaster broadcaster;
+    private final int maxEntries;
+    private final int maxDays;
+
+    // 按访问顺序淘汰最久未使用的条目，所有访问在this上同步
+    private final LinkedHashMap<String, List<DailyRollup>> entries;
+
+    // 每次失效加1；加载期间发生过失效时不写入缓存，避免把失效前读到的旧数据放回去
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder liveQueries = new LongAdder();
+
+    public StatisticsDayCache(DailyRollupMapper dailyRollupMapper,
+                              StatisticsCacheBroadcaster broadcaster,
+                              @Value("${statistics.cache.max-entries:4000}") int maxEntries,
+                              @Value("${statistics.cache.max-days:1100}") int maxDays) {
+        this.dailyRollupMapper = dailyRollupMapper;
+        this.broadcaster = broadcaster;
+        this.maxEntries = maxEntries;
+        this.maxDays = maxDays;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<DailyRollup>> eldest) {
+                return size() > StatisticsDayCache.this.maxEntries;
+            }
+        };
+        broadcaster.subscribe(this::onRemoteEvict);
+    }
+
+    /**
+     * 范围是否适合走日缓存：起止日期都给定且天数不超过上限
+     */
+    public boolean supports(LocalDate startDate, LocalDate endDate) {
+        return startDate != null && endDate != null && !startDate.isAfter(endDate)
+                && ChronoUnit.DAYS.between(startDate, endDate) < maxDays;
+    }
+
+    /**
+     * 获取日期范围内每天各产品的汇总行，按日期升序
+     * 返回的行与缓存共享，调用方不能修改
+     */
+    public List<List<DailyRollup>> getDays(String kind, LocalDate startDate, LocalDate endDate) {
+        LocalDate today = LocalDate.now();
+        int span = (int) ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        List<List<DailyRollup>> days = new ArrayList<>(Collections.nCopies(span, null));
+
+        // 1. 已过去的日期先查缓存，记录缺失日期的范围
+        LocalDate firstMissing = null;
+        LocalDate lastMissing = null;
+        synchronized (this) {
+            for (int i = 0; i < span; i++) {
+                LocalDate day = startDate.plusDays(i);
+                if (!day.isBefore(today)) {
+                    break;
+                }
+                List<DailyRollup> cached = entries.get(key(kind, day));
+                if (cached != null) {
+                    days.set(i, cached);
+                    hits.increment();
+                } else {
+                    if (firstMissing == null) {
+                        firstMissing = day;
+                    }
+                    lastMissing = day;
+                    misses.increment();
+                }
+            }
+        }
+
+        // 2. 缺失的历史日期一次查询补齐并写入缓存（包括没有数据的日期）
+        if (firstMissing != null) {
+            long loadGeneration = generation.get();
+            Map<LocalDate, List<DailyRollup>> loaded = groupByDay(
+                    dailyRollupMapper.selectRange(kind, firstMissing, lastMissing));
+            synchronized (this) {
+                boolean cacheable = generation.get() == loadGeneration;
+                for (LocalDate day = firstMissing; !day.isAfter(lastMissing); day = day.plusDays(1)) {
+                    int i = (int) ChronoUnit.DAYS.between(startDate, day);
+                    if (days.get(i) != null) {
+                        continue;
+                    }
+                    List<DailyRollup> rows = Collections.unmodifiableList(
+                            loaded.getOrDefault(day, Collections.emptyList()));
+                    days.set(i, rows);
+                    if (cacheable) {
+                        entries.put(key(kind, day), rows);
+                    }
+                }
+            }
+        }
+
+        // 3. 当天（及以后）实时查询，不缓存
+        if (!endDate.isBefore(today)) {
+            LocalDate liveStart = startDate.isAfter(today) ? startDate : today;
+            liveQueries.increment();
+            Map<LocalDate, List<DailyRollup>> live = groupByDay(dailyRollupMapper.selectRange(kind, liveStart, endDate));
+            for (LocalDate day = liveStart; !day.isAfter(endDate); day = day.plusDays(1)) {
+                days.set((int) ChronoUnit.DAYS.between(startDate, day), live.getOrDefault(day, Collections.emptyList()));
+            }
+        }
+        return days;
+    }
+
+    /**
+     * 某天的汇总发生变化，事务提交后使该天缓存失效
+     */
+    public void evict(String kind, LocalDate day) {
+        if (day == null) {
+            return;
+        }
+        afterCommit(() -> {
+            if (!day.isBefore(LocalDate.now())) {
+                // 当天不缓存，无需失效；按提交时判断，跨零点提交的事务同样会失效前一天
+                return;
+            }
+            evictLocal(kind, day);
+            broadcaster.publish(kind, day.toString());
+        });
+    }
+
+    /**
+     * 汇总整体重建后清空缓存
+     */
+    public void evictAll() {
+        afterCommit(() -> {
+            evictAllLocal();
+            broadcaster.publish(null, null);
+        });
+    }
+
+    /**
+     * 收到其他实例的失效通知
+     * @param message "kind|day"，全部失效时为"*"
+     */
+    private void onRemoteEvict(String message) {
+        if ("*".equals(message)) {
+            evictAllLocal();
+            return;
+        }
+        int sep = message.indexOf('|');
+        if (sep > 0) {
+            evictLocal(message.substring(0, sep), LocalDate.parse(message.substring(sep + 1)));
+        }
+    }
+
+    private void evictLocal(String kind, LocalDate day) {
+        generation.incrementAndGet();
+        synchronized (this) {
+            if (entries.remove(key(kind, day)) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private void evictAllLocal() {
+        generation.incrementAndGet();
+        synchronized (this) {
+            evictions.add(entries.size());
+            entries.clear();
+        }
+    }
+
+    public StatisticsCacheStats getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return StatisticsCacheStats.builder()
+                .entries(size)
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRate(total == 0 ? 0.0 : (double) hitCount / total)
+                .evictions(evictions.sum())
+                .liveQueries(liveQueries.sum())
+                .build();
+    }
+
+    private static Map<LocalDate, List<DailyRollup>> groupByDay(List<DailyRollup> rows) {
+        Map<LocalDate, List<DailyRollup>> byDay = new LinkedHashMap<>();
+        for (DailyRollup row : rows) {
+            byDay.computeIfAbsent(row.getDay(), day -> new ArrayList<>()).add(row);
+        }
+        return byDay;
+    }
+
+    private static String key(String kind, LocalDate day) {
+        return kind + "|" + day;
+    }
+
+    /**
+     * 事务提交后再失效，避免提交前被其他请求用旧数据重新填充；不在事务中时立即执行
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,26 +1,31 @@
 package cn.pcs.appliancesystem.service.impl;
 
+import cn.pcs.appliancesystem.entity.ChartSeriesVO;
+import cn.pcs.appliancesystem.entity.DailyRollup;
 import cn.pcs.appliancesystem.entity.StatisticsVO;
 import cn.pcs.appliancesystem.entity.StockIn;
 import cn.pcs.appliancesystem.entity.StockOut;
 import cn.pcs.appliancesystem.entity.Sale;
+import cn.pcs.appliancesystem.exception.BusinessException;
 import cn.pcs.appliancesystem.mapper.SaleMapper;
 import cn.pcs.appliancesystem.mapper.StockInMapper;
 import cn.pcs.appliancesystem.mapper.StockOutMapper;
-import cn.pcs.appliancesystem.mapper.ProductMapper;
+import cn.pcs.appliancesystem.service.DailyRollupService;
 import cn.pcs.appliancesystem.service.StatisticsService;
+import cn.pcs.appliancesystem.util.LongObjectHashMap;
+import cn.pcs.appliancesystem.util.TimeBuckets;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -29,7 +34,13 @@ public class StatisticsServiceImpl implements StatisticsService {
     private final StockInMapper stockInMapper;
     private final StockOutMapper stockOutMapper;
     private final SaleMapper saleMapper;
-    private final ProductMapper productMapper;
+    private final DictionaryCache dictionaryCache;
+    private final DailyRollupService dailyRollupService;
+    private final SalesColumnStore salesColumnStore;
+    private final StatisticsDayCache statisticsDayCache;
+
+    @Value("${statistics.chart.max-buckets:1000}")
+    private int maxBuckets;
     
     @Override
     public List<StatisticsVO> getStockInStatistics(LocalDate startDate, LocalDate endDate) {
@@ -44,25 +55,10 @@ public class StatisticsServiceImpl implements StatisticsService {
         
         List<cn.pcs.appliancesystem.entity.StockIn> list = stockInMapper.selectList(wrapper);
         
-        // 获取所有涉及的产品ID
-        List<Long> productIds = list.stream()
-                .map(cn.pcs.appliancesystem.entity.StockIn::getProductId)
-                .distinct()
-                .collect(Collectors.toList());
-        
-        // 批量查询产品信息
-        Map<Long, String> productNamesMap = new HashMap<>();
-        if (!productIds.isEmpty()) {
-            List<cn.pcs.appliancesystem.entity.Product> products = productMapper.selectBatchIds(productIds);
-            productNamesMap = products.stream()
-                    .collect(Collectors.toMap(cn.pcs.appliancesystem.entity.Product::getId, 
-                            cn.pcs.appliancesystem.entity.Product::getProductName));
-        }
-        
         // 返回每条单独的入库记录，而不是按日期聚合
         List<StatisticsVO> result = new ArrayList<>();
         for (cn.pcs.appliancesystem.entity.StockIn stockIn : list) {
-            String productName = productNamesMap.getOrDefault(stockIn.getProductId(), "未知产品");
+            String productName = productNameOf(stockIn.getProductId());
             
             result.add(StatisticsVO.builder()
                     .label(stockIn.getInTime() != null ? stockIn.getInTime().toLocalDate().format(DateTimeFormatter.ISO_DATE) : "未知日期")
@@ -87,25 +83,10 @@ public class StatisticsServiceImpl implements StatisticsService {
         
         List<cn.pcs.appliancesystem.entity.StockOut> list = stockOutMapper.selectList(wrapper);
         
-        // 获取所有涉及的产品ID
-        List<Long> productIds = list.stream()
-                .map(cn.pcs.appliancesystem.entity.StockOut::getProductId)
-                .distinct()
-                .collect(Collectors.toList());
-        
-        // 批量查询产品信息
-        Map<Long, String> productNamesMap = new HashMap<>();
-        if (!productIds.isEmpty()) {
-            List<cn.pcs.appliancesystem.entity.Product> products = productMapper.selectBatchIds(productIds);
-            productNamesMap = products.stream()
-                    .collect(Collectors.toMap(cn.pcs.appliancesystem.entity.Product::getId, 
-                            cn.pcs.appliancesystem.entity.Product::getProductName));
-        }
-        
         // 返回每条单独的出库记录，而不是按日期聚合
         List<StatisticsVO> result = new ArrayList<>();
         for (cn.pcs.appliancesystem.entity.StockOut stockOut : list) {
-            String productName = productNamesMap.getOrDefault(stockOut.getProductId(), "未知产品");
+            String productName = productNameOf(stockOut.getProductId());
             
             result.add(StatisticsVO.builder()
                     .label(stockOut.getOutTime() != null ? stockOut.getOutTime().toLocalDate().format(DateTimeFormatter.ISO_DATE) : "未知日期")
@@ -130,25 +111,10 @@ public class StatisticsServiceImpl implements StatisticsService {
         
         List<cn.pcs.appliancesystem.entity.Sale> list = saleMapper.selectList(wrapper);
         
-        // 获取所有涉及的产品ID
-        List<Long> productIds = list.stream()
-                .map(cn.pcs.appliancesystem.entity.Sale::getProductId)
-                .distinct()
-                .collect(Collectors.toList());
-        
-        // 批量查询产品信息
-        Map<Long, String> productNamesMap = new HashMap<>();
-        if (!productIds.isEmpty()) {
-            List<cn.pcs.appliancesystem.entity.Product> products = productMapper.selectBatchIds(productIds);
-            productNamesMap = products.stream()
-                    .collect(Collectors.toMap(cn.pcs.appliancesystem.entity.Product::getId, 
-                            cn.pcs.appliancesystem.entity.Product::getProductName));
-        }
-        
         // 返回每条单独的销售记录，包含产品名称、时间、销售数量和金额
         List<StatisticsVO> result = new ArrayList<>();
         for (cn.pcs.appliancesystem.entity.Sale sale : list) {
-            String productName = productNamesMap.getOrDefault(sale.getProductId(), "未知产品");
+            String productName = productNameOf(sale.getProductId());
             
             result.add(StatisticsVO.builder()
                     .label(sale.getSaleTime() != null ? sale.getSaleTime().toLocalDate().format(DateTimeFormatter.ISO_DATE) : "未知日期")
@@ -162,46 +128,247 @@ public class StatisticsServiceImpl implements StatisticsService {
     }
     
     @Override
-    public List<StatisticsVO> getSaleStatisticsByProduct(LocalDate startDate, LocalDate endDate) {
-        LambdaQueryWrapper<cn.pcs.appliancesystem.entity.Sale> wrapper = new LambdaQueryWrapper<>();
-        if (startDate != null) {
-            wrapper.ge(cn.pcs.appliancesystem.entity.Sale::getSaleTime, startDate.atStartOfDay());
+    public List<StatisticsVO> getSaleStatisticsByProduct(LocalDate startDate, LocalDate endDate, Integer limit) {
+        if (limit != null && limit <= 0) {
+            throw new BusinessException("返回数量必须大于0");
         }
-        if (endDate != null) {
-            wrapper.le(cn.pcs.appliancesystem.entity.Sale::getSaleTime, endDate.atTime(23, 59, 59));
+        if (salesColumnStore.isEnabled()) {
+            return toProductStatistics(salesColumnStore.sumByProduct(startDate, endDate), limit);
         }
-        
-        List<cn.pcs.appliancesystem.entity.Sale> list = saleMapper.selectList(wrapper);
-        
-        // 获取所有涉及的产品ID
-        List<Long> productIds = list.stream()
-                .map(cn.pcs.appliancesystem.entity.Sale::getProductId)
-                .distinct()
-                .collect(Collectors.toList());
-        
-        // 批量查询产品信息
-        Map<Long, String> productNamesMap = new HashMap<>();
-        if (!productIds.isEmpty()) {
-            List<cn.pcs.appliancesystem.entity.Product> products = productMapper.selectBatchIds(productIds);
-            productNamesMap = products.stream()
-                    .collect(Collectors.toMap(cn.pcs.appliancesystem.entity.Product::getId, 
-                            cn.pcs.appliancesystem.entity.Product::getProductName));
+        if (statisticsDayCache.supports(startDate, endDate)) {
+            return toProductStatistics(sumByProductFromDayCache(startDate, endDate), limit);
         }
-        
-        // 返回每条单独的销售记录，包含产品名称、时间、销售数量和金额
-        List<StatisticsVO> result = new ArrayList<>();
-        for (cn.pcs.appliancesystem.entity.Sale sale : list) {
-            String productName = productNamesMap.getOrDefault(sale.getProductId(), "未知产品");
-            
+        // 在数据库中按产品分组汇总，返回条数只与产品数有关，与销售记录数无关
+        return saleMapper.sumByProduct(startTimeOf(startDate), endTimeOf(endDate), limit);
+    }
+
+    @Override
+    public List<StatisticsVO> getSaleStatisticsByType(LocalDate startDate, LocalDate endDate) {
+        return saleMapper.sumByType(startTimeOf(startDate), endTimeOf(endDate));
+    }
+
+    @Override
+    public List<StatisticsVO> getDailyStatistics(String kind, LocalDate startDate, LocalDate endDate) {
+        List<DailyRollup> days;
+        if (DailyRollup.KIND_SALE.equals(kind) && salesColumnStore.isEnabled()) {
+            days = salesColumnStore.sumByDay(startDate, endDate);
+        } else if (statisticsDayCache.supports(startDate, endDate)) {
+            days = sumByDayFromDayCache(kind, startDate, endDate);
+        } else {
+            days = dailyRollupService.sumByDay(kind, startDate, endDate);
+        }
+        List<StatisticsVO> result = new ArrayList<>(days.size());
+        for (DailyRollup day : days) {
             result.add(StatisticsVO.builder()
-                    .label(sale.getSaleTime() != null ? sale.getSaleTime().toLocalDate().format(DateTimeFormatter.ISO_DATE) : "未知日期")
-                    .count(sale.getQuantity())
-                    .totalAmount(sale.getTotalPrice())
+                    .label(day.getDay().format(DateTimeFormatter.ISO_DATE))
+                    .count(day.getQty())
+                    .totalAmount(day.getAmount())
+                    .orderCount(day.getCnt())
+                    .build());
+        }
+        return result;
+    }
+
+    @Override
+    public ChartSeriesVO getChartSeries(String kind, String granularity, LocalDate startDate, LocalDate endDate) {
+        String unit = TimeBuckets.normalize(granularity);
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            throw new BusinessException("开始日期不能晚于结束日期");
+        }
+        if (TimeBuckets.HOUR.equals(unit) && startDate == null) {
+            // 小时粒度不允许无起点地扫全表，默认只统计结束日期当天
+            startDate = endDate != null ? endDate : LocalDate.now();
+        }
+        LocalDateTime first = startDate != null ? TimeBuckets.floor(startDate.atStartOfDay(), unit) : null;
+        LocalDateTime last = endDate != null ? TimeBuckets.floor(endDate.atTime(23, 0), unit) : null;
+        if (first != null && last != null) {
+            // 范围已知时先校验桶数，避免为超大范围执行查询
+            checkBucketCount(first, last, unit);
+        }
+
+        // 小时粒度直接聚合明细表，天/周/月聚合日汇总表
+        List<StatisticsVO> rows = TimeBuckets.HOUR.equals(unit)
+                ? sumByHour(kind, startTimeOf(startDate), endTimeOf(endDate))
+                : dailyRollupService.sumByBucket(kind, unit, startDate, endDate);
+
+        if (first == null) {
+            first = rows.isEmpty() ? null : TimeBuckets.parse(rows.get(0).getLabel(), unit);
+        }
+        if (last == null) {
+            last = TimeBuckets.floor(LocalDateTime.now(), unit);
+            if (!rows.isEmpty()) {
+                LocalDateTime lastRow = TimeBuckets.parse(rows.get(rows.size() - 1).getLabel(), unit);
+                if (lastRow.isAfter(last)) {
+                    last = lastRow;
+                }
+            }
+        }
+        if (first == null) {
+            first = last;
+        }
+        int size = checkBucketCount(first, last, unit);
+
+        boolean withAmount = DailyRollup.KIND_SALE.equals(kind);
+        String[] labels = new String[size];
+        int[] quantities = new int[size];
+        BigDecimal[] amounts = withAmount ? new BigDecimal[size] : null;
+        int[] counts = new int[size];
+
+        // 桶标签定长，字典序即时间顺序，查询结果与补齐的桶按顺序归并
+        int rowIndex = 0;
+        LocalDateTime bucket = first;
+        for (int i = 0; i < size; i++, bucket = TimeBuckets.next(bucket, unit)) {
+            String label = TimeBuckets.label(bucket, unit);
+            labels[i] = label;
+            while (rowIndex < rows.size() && rows.get(rowIndex).getLabel().compareTo(label) < 0) {
+                rowIndex++;
+            }
+            StatisticsVO row = rowIndex < rows.size() && rows.get(rowIndex).getLabel().equals(label)
+                    ? rows.get(rowIndex++) : null;
+            if (row != null) {
+                quantities[i] = row.getCount() != null ? row.getCount() : 0;
+                counts[i] = row.getOrderCount() != null ? row.getOrderCount() : 0;
+            }
+            if (withAmount) {
+                amounts[i] = row != null && row.getTotalAmount() != null ? row.getTotalAmount() : BigDecimal.ZERO;
+            }
+        }
+
+        return ChartSeriesVO.builder()
+                .granularity(unit)
+                .labels(labels)
+                .quantities(quantities)
+                .amounts(amounts)
+                .counts(counts)
+                .build();
+    }
+
+    /**
+     * 由日缓存拼出每天的合计（合并所有产品），只返回有汇总行的日期，与sumByDay查询一致
+     */
+    private List<DailyRollup> sumByDayFromDayCache(String kind, LocalDate startDate, LocalDate endDate) {
+        List<List<DailyRollup>> days = statisticsDayCache.getDays(kind, startDate, endDate);
+        List<DailyRollup> result = new ArrayList<>();
+        for (int i = 0; i < days.size(); i++) {
+            List<DailyRollup> rows = days.get(i);
+            if (rows.isEmpty()) {
+                continue;
+            }
+            DailyRollup total = emptyRollup(kind, startDate.plusDays(i), null);
+            for (DailyRollup row : rows) {
+                addTo(total, row);
+            }
+            result.add(total);
+        }
+        return result;
+    }
+
+    /**
+     * 由日缓存合并出各产品的销售合计，只返回有销售的产品
+     */
+    private List<DailyRollup> sumByProductFromDayCache(LocalDate startDate, LocalDate endDate) {
+        LongObjectHashMap<DailyRollup> totals = new LongObjectHashMap<>();
+        for (List<DailyRollup> rows : statisticsDayCache.getDays(DailyRollup.KIND_SALE, startDate, endDate)) {
+            for (DailyRollup row : rows) {
+                // 缓存中的行与其他请求共享，只累加到新建的合计对象上
+                DailyRollup total = totals.get(row.getProductId());
+                if (total == null) {
+                    total = emptyRollup(DailyRollup.KIND_SALE, null, row.getProductId());
+                    totals.put(row.getProductId(), total);
+                }
+                addTo(total, row);
+            }
+        }
+        List<DailyRollup> result = new ArrayList<>(totals.size());
+        totals.forEach((total, productId) -> {
+            if (total.getCnt() != 0 || total.getQty() != 0 || total.getAmount().signum() != 0) {
+                result.add(total);
+            }
+        });
+        return result;
+    }
+
+    private static DailyRollup emptyRollup(String kind, LocalDate day, Long productId) {
+        return DailyRollup.builder()
+                .kind(kind)
+                .day(day)
+                .productId(productId)
+                .qty(0)
+                .amount(BigDecimal.ZERO)
+                .cnt(0)
+                .build();
+    }
+
+    private static void addTo(DailyRollup total, DailyRollup row) {
+        total.setQty(total.getQty() + row.getQty());
+        total.setAmount(total.getAmount().add(row.getAmount()));
+        total.setCnt(total.getCnt() + row.getCnt());
+    }
+
+    /**
+     * 把按产品的合计转为统计结果，排序规则与SQL一致：销售额倒序，相同时按产品ID
+     */
+    private List<StatisticsVO> toProductStatistics(List<DailyRollup> totals, Integer limit) {
+        totals.sort(Comparator.comparing(DailyRollup::getAmount).reversed()
+                .thenComparing(DailyRollup::getProductId));
+        int size = limit != null ? Math.min(limit, totals.size()) : totals.size();
+        List<StatisticsVO> result = new ArrayList<>(size);
+        for (DailyRollup total : totals.subList(0, size)) {
+            String productName = productNameOf(total.getProductId());
+            result.add(StatisticsVO.builder()
+                    .label(productName)
+                    .productId(total.getProductId())
                     .productName(productName)
+                    .count(total.getQty())
+                    .totalAmount(total.getAmount())
+                    .orderCount(total.getCnt())
                     .build());
         }
-        
         return result;
     }
-}
 
+    private List<StatisticsVO> sumByHour(String kind, LocalDateTime startTime, LocalDateTime endTime) {
+        switch (kind) {
+            case DailyRollup.KIND_STOCK_IN:
+                return stockInMapper.sumByHour(startTime, endTime);
+            case DailyRollup.KIND_STOCK_OUT:
+                return stockOutMapper.sumByHour(startTime, endTime);
+            default:
+                return saleMapper.sumByHour(startTime, endTime);
+        }
+    }
+
+    /**
+     * 校验桶数不超过上限
+     * @return 桶数
+     */
+    private int checkBucketCount(LocalDateTime first, LocalDateTime last, String unit) {
+        long count = TimeBuckets.count(first, last, unit);
+        if (count > maxBuckets) {
+            throw new BusinessException("统计范围过大：共" + count + "个时间桶，最多" + maxBuckets + "个，请缩小日期范围或使用更粗的粒度");
+        }
+        return (int) count;
+    }
+
+    /**
+     * 开始日期转为开始时间（含），为空表示不限
+     */
+    private static LocalDateTime startTimeOf(LocalDate startDate) {
+        return startDate != null ? startDate.atStartOfDay() : null;
+    }
+
+    /**
+     * 结束日期转为次日零点（不含），为空表示不限
+     */
+    private static LocalDateTime endTimeOf(LocalDate endDate) {
+        return endDate != null ? endDate.plusDays(1).atStartOfDay() : null;
+    }
+
+    /**
+     * 从名称字典缓存中取产品名称
+     */
+    private String productNameOf(Long productId) {
+        String productName = dictionaryCache.getProductName(productId);
+        return productName != null ? productName : "未知产品";
+    }
+}
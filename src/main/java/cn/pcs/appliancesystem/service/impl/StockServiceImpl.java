@@ -4,10 +4,11 @@ import cn.pcs.appliancesystem.entity.*;
 import cn.pcs.appliancesystem.exception.BusinessException;
 import cn.pcs.appliancesystem.mapper.StockInMapper;
 import cn.pcs.appliancesystem.mapper.StockOutMapper;
-import cn.pcs.appliancesystem.mapper.SysUserMapper;
+import cn.pcs.appliancesystem.service.DailyRollupService;
+import cn.pcs.appliancesystem.service.InventoryLedgerService;
 import cn.pcs.appliancesystem.service.ProductService;
 import cn.pcs.appliancesystem.service.StockService;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import cn.pcs.appliancesystem.util.RecordCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,16 +16,27 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class StockServiceImpl implements StockService {
 
+    // 单批最多明细条数
+    private static final int MAX_BATCH_SIZE = 1000;
+    // 多行插入每条SQL的最大行数，避免超出max_allowed_packet
+    private static final int INSERT_CHUNK_SIZE = 500;
+    // 记录分页默认条数和最大条数
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final StockInMapper stockInMapper;
     private final StockOutMapper stockOutMapper;
     private final ProductService productService;
-    private final SysUserMapper sysUserMapper;
+    private final InventoryLedgerService inventoryLedgerService;
+    private final DailyRollupService dailyRollupService;
 
     @Override
     @Transactional
@@ -49,8 +61,10 @@ public class StockServiceImpl implements StockService {
                 .build();
         stockInMapper.insert(stockIn);
 
-        // 3. 增加库存
+        // 3. 增加库存并记录库存流水、日汇总
         productService.increaseStock(productId, quantity);
+        inventoryLedgerService.record(productId, quantity, InventoryMovement.TYPE_STOCK_IN, stockIn.getId(), operatorId);
+        dailyRollupService.record(DailyRollup.KIND_STOCK_IN, stockIn.getInTime(), productId, quantity, null, 1);
     }
 
     @Override
@@ -78,88 +92,199 @@ public class StockServiceImpl implements StockService {
                 .outTime(LocalDateTime.now())
                 .build();
         stockOutMapper.insert(stockOut);
+
+        // 4. 记录库存流水和日汇总
+        inventoryLedgerService.record(productId, -quantity, InventoryMovement.TYPE_STOCK_OUT, stockOut.getId(), operatorId);
+        dailyRollupService.record(DailyRollup.KIND_STOCK_OUT, stockOut.getOutTime(), productId, quantity, null, 1);
     }
 
     @Override
-    public List<StockInRecordVO> getStockInRecords() {
-        // 查询所有入库记录
-        List<StockIn> stockIns = stockInMapper.selectList(new LambdaQueryWrapper<>());
-        
-        // 提取所有涉及的产品ID和操作员ID
-        List<Long> productIds = stockIns.stream()
-                .map(StockIn::getProductId)
-                .distinct()
-                .collect(Collectors.toList());
-                
-        List<Long> operatorIds = stockIns.stream()
-                .map(StockIn::getOperatorId)
-                .distinct()
-                .collect(Collectors.toList());
-        
-        // 批量查询产品和操作员信息
-        Map<Long, String> productNamesMap = productIds.isEmpty() ? 
-                Map.of() : 
-                productService.listAll().stream()
-                        .filter(p -> productIds.contains(p.getId()))
-                        .collect(Collectors.toMap(Product::getId, Product::getProductName));
-                        
-        Map<Long, String> operatorNamesMap = operatorIds.isEmpty() ? 
-                Map.of() : 
-                sysUserMapper.selectBatchIds(operatorIds).stream()
-                        .collect(Collectors.toMap(SysUser::getId, SysUser::getUsername));
-        
-        // 组装返回数据
-        return stockIns.stream()
-                .map(stockIn -> StockInRecordVO.builder()
-                        .id(stockIn.getId())
-                        .productName(productNamesMap.getOrDefault(stockIn.getProductId(), "未知产品"))
-                        .quantity(stockIn.getQuantity())
-                        .operator(operatorNamesMap.getOrDefault(stockIn.getOperatorId(), "未知操作员"))
-                        .inTime(stockIn.getInTime())
+    @Transactional
+    public void stockInBatch(List<StockBatchItem> items, Long operatorId) {
+        validateBatch(items, operatorId, "入库");
+
+        // 1. 多行插入入库记录
+        LocalDateTime now = LocalDateTime.now();
+        List<StockIn> records = items.stream()
+                .map(item -> StockIn.builder()
+                        .productId(item.getProductId())
+                        .quantity(item.getQuantity())
+                        .operatorId(operatorId)
+                        .inTime(now)
                         .build())
-                .sorted((a, b) -> b.getInTime().compareTo(a.getInTime())) // 按时间倒序排列
                 .collect(Collectors.toList());
+        insertInChunks(records, stockInMapper::insertBatch);
+
+        // 2. 每个产品只更新一次库存
+        sumByProduct(items).forEach(productService::increaseStock);
+
+        // 3. 逐条记录库存流水，按产品累加日汇总
+        inventoryLedgerService.recordBatch(records.stream()
+                .map(stockIn -> movement(stockIn.getProductId(), stockIn.getQuantity(),
+                        InventoryMovement.TYPE_STOCK_IN, stockIn.getId(), operatorId, now))
+                .collect(Collectors.toList()));
+        dailyRollupService.recordBatch(records.stream()
+                .map(stockIn -> rollup(DailyRollup.KIND_STOCK_IN, now, stockIn.getProductId(), stockIn.getQuantity()))
+                .collect(Collectors.toList()));
     }
 
     @Override
-    public List<StockOutRecordVO> getStockOutRecords() {
-        // 查询所有出库记录
-        List<StockOut> stockOuts = stockOutMapper.selectList(new LambdaQueryWrapper<>());
-        
-        // 提取所有涉及的产品ID和操作员ID
-        List<Long> productIds = stockOuts.stream()
-                .map(StockOut::getProductId)
-                .distinct()
-                .collect(Collectors.toList());
-                
-        List<Long> operatorIds = stockOuts.stream()
-                .map(StockOut::getOperatorId)
-                .distinct()
-                .collect(Collectors.toList());
-        
-        // 批量查询产品和操作员信息
-        Map<Long, String> productNamesMap = productIds.isEmpty() ? 
-                Map.of() : 
-                productService.listAll().stream()
-                        .filter(p -> productIds.contains(p.getId()))
-                        .collect(Collectors.toMap(Product::getId, Product::getProductName));
-                        
-        Map<Long, String> operatorNamesMap = operatorIds.isEmpty() ? 
-                Map.of() : 
-                sysUserMapper.selectBatchIds(operatorIds).stream()
-                        .collect(Collectors.toMap(SysUser::getId, SysUser::getUsername));
-        
-        // 组装返回数据
-        return stockOuts.stream()
-                .map(stockOut -> StockOutRecordVO.builder()
-                        .id(stockOut.getId())
-                        .productName(productNamesMap.getOrDefault(stockOut.getProductId(), "未知产品"))
-                        .quantity(stockOut.getQuantity())
-                        .operator(operatorNamesMap.getOrDefault(stockOut.getOperatorId(), "未知操作员"))
-                        .outTime(stockOut.getOutTime())
+    @Transactional
+    public void stockOutBatch(List<StockBatchItem> items, Long operatorId) {
+        validateBatch(items, operatorId, "出库");
+
+        // 1. 按产品汇总扣减库存，任一产品不足则抛出异常回滚整批
+        sumByProduct(items).forEach((productId, quantity) -> {
+            try {
+                productService.decreaseStock(productId, quantity);
+            } catch (BusinessException e) {
+                throw new BusinessException("产品ID " + productId + " 出库失败：" + e.getMessage());
+            }
+        });
+
+        // 2. 多行插入出库记录
+        LocalDateTime now = LocalDateTime.now();
+        List<StockOut> records = items.stream()
+                .map(item -> StockOut.builder()
+                        .productId(item.getProductId())
+                        .quantity(item.getQuantity())
+                        .operatorId(operatorId)
+                        .outTime(now)
                         .build())
-                .sorted((a, b) -> b.getOutTime().compareTo(a.getOutTime())) // 按时间倒序排列
                 .collect(Collectors.toList());
+        insertInChunks(records, stockOutMapper::insertBatch);
+
+        // 3. 逐条记录库存流水，按产品累加日汇总
+        inventoryLedgerService.recordBatch(records.stream()
+                .map(stockOut -> movement(stockOut.getProductId(), -stockOut.getQuantity(),
+                        InventoryMovement.TYPE_STOCK_OUT, stockOut.getId(), operatorId, now))
+                .collect(Collectors.toList()));
+        dailyRollupService.recordBatch(records.stream()
+                .map(stockOut -> rollup(DailyRollup.KIND_STOCK_OUT, now, stockOut.getProductId(), stockOut.getQuantity()))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * 校验批量出入库参数
+     */
+    private void validateBatch(List<StockBatchItem> items, Long operatorId, String action) {
+        if (operatorId == null) {
+            throw new BusinessException("操作员ID不能为空");
+        }
+        if (items == null || items.isEmpty()) {
+            throw new BusinessException(action + "明细不能为空");
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException("单批" + action + "明细不能超过" + MAX_BATCH_SIZE + "条");
+        }
+        for (StockBatchItem item : items) {
+            if (item == null || item.getProductId() == null) {
+                throw new BusinessException("产品ID不能为空");
+            }
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new BusinessException(action + "数量必须大于0");
+            }
+        }
+    }
+
+    /**
+     * 按产品ID汇总数量，按ID升序返回，保证并发批次以相同顺序加行锁，避免死锁
+     */
+    private Map<Long, Integer> sumByProduct(List<StockBatchItem> items) {
+        Map<Long, Integer> totals = new TreeMap<>();
+        for (StockBatchItem item : items) {
+            totals.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return totals;
+    }
+
+    private static InventoryMovement movement(Long productId, int changeQty, String type,
+                                              Long refId, Long operatorId, LocalDateTime time) {
+        return InventoryMovement.builder()
+                .productId(productId)
+                .changeQty(changeQty)
+                .movementType(type)
+                .refId(refId)
+                .operatorId(operatorId)
+                .createTime(time)
+                .build();
+    }
+
+    private static DailyRollup rollup(String kind, LocalDateTime time, Long productId, int qty) {
+        return DailyRollup.builder()
+                .kind(kind)
+                .day(time.toLocalDate())
+                .productId(productId)
+                .qty(qty)
+                .cnt(1)
+                .build();
+    }
+
+    private static int normalizePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    private static <T> void insertInChunks(List<T> records, Consumer<List<T>> inserter) {
+        for (int from = 0; from < records.size(); from += INSERT_CHUNK_SIZE) {
+            inserter.accept(records.subList(from, Math.min(from + INSERT_CHUNK_SIZE, records.size())));
+        }
+    }
+
+    @Override
+    public List<StockInRecordVO> getStockInRecords() {
+        // 查询所有入库记录，关联查询产品名称和人员名称，在数据库中按时间倒序排列
+        return stockInMapper.selectRecordVOs(new RecordPageQuery(), null, null, null);
+    }
+
+    @Override
+    public CursorPage<StockInRecordVO> getStockInRecordPage(RecordPageQuery query) {
+        int size = normalizePageSize(query.getSize());
+        RecordCursor cursor = RecordCursor.decode(query.getCursor());
+        // 多查一条用于判断是否还有下一页
+        List<StockInRecordVO> rows = stockInMapper.selectRecordVOs(query,
+                cursor != null ? cursor.getTime() : null, cursor != null ? cursor.getId() : null, size + 1);
+        boolean hasMore = rows.size() > size;
+        String nextCursor = null;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+            StockInRecordVO last = rows.get(rows.size() - 1);
+            nextCursor = new RecordCursor(last.getInTime(), last.getId()).encode();
+        }
+        return CursorPage.<StockInRecordVO>builder()
+                .records(rows)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    @Override
+    public List<StockOutRecordVO> getStockOutRecords() {
+        // 查询所有出库记录，关联查询产品名称和人员名称，在数据库中按时间倒序排列
+        return stockOutMapper.selectRecordVOs(new RecordPageQuery(), null, null, null);
+    }
+
+    @Override
+    public CursorPage<StockOutRecordVO> getStockOutRecordPage(RecordPageQuery query) {
+        int size = normalizePageSize(query.getSize());
+        RecordCursor cursor = RecordCursor.decode(query.getCursor());
+        // 多查一条用于判断是否还有下一页
+        List<StockOutRecordVO> rows = stockOutMapper.selectRecordVOs(query,
+                cursor != null ? cursor.getTime() : null, cursor != null ? cursor.getId() : null, size + 1);
+        boolean hasMore = rows.size() > size;
+        String nextCursor = null;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+            StockOutRecordVO last = rows.get(rows.size() - 1);
+            nextCursor = new RecordCursor(last.getOutTime(), last.getId()).encode();
+        }
+        return CursorPage.<StockOutRecordVO>builder()
+                .records(rows)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
     }
 
     @Override
@@ -188,6 +313,10 @@ public class StockServiceImpl implements StockService {
         } else if (diff < 0) {
             productService.decreaseStock(originalRecord.getProductId(), Math.abs(diff));
         }
+        inventoryLedgerService.record(originalRecord.getProductId(), diff,
+                InventoryMovement.TYPE_STOCK_IN_ADJUST, id, originalRecord.getOperatorId());
+        dailyRollupService.record(DailyRollup.KIND_STOCK_IN, originalRecord.getInTime(),
+                originalRecord.getProductId(), diff, null, 0);
         
         // 更新入库记录
         originalRecord.setQuantity(quantity);
@@ -208,6 +337,10 @@ public class StockServiceImpl implements StockService {
         
         // 减少库存
         productService.decreaseStock(stockIn.getProductId(), stockIn.getQuantity());
+        inventoryLedgerService.record(stockIn.getProductId(), -stockIn.getQuantity(),
+                InventoryMovement.TYPE_STOCK_IN_DELETE, id, stockIn.getOperatorId());
+        dailyRollupService.record(DailyRollup.KIND_STOCK_IN, stockIn.getInTime(),
+                stockIn.getProductId(), -stockIn.getQuantity(), null, -1);
         
         // 删除入库记录
         stockInMapper.deleteById(id);
@@ -239,6 +372,10 @@ public class StockServiceImpl implements StockService {
         } else if (diff < 0) {
             productService.decreaseStock(originalRecord.getProductId(), Math.abs(diff));
         }
+        inventoryLedgerService.record(originalRecord.getProductId(), diff,
+                InventoryMovement.TYPE_STOCK_OUT_ADJUST, id, originalRecord.getOperatorId());
+        dailyRollupService.record(DailyRollup.KIND_STOCK_OUT, originalRecord.getOutTime(),
+                originalRecord.getProductId(), -diff, null, 0);
         
         // 更新出库记录
         originalRecord.setQuantity(quantity);
@@ -259,6 +396,10 @@ public class StockServiceImpl implements StockService {
         
         // 增加库存（因为删除出库记录相当于把出库的商品还回去）
         productService.increaseStock(stockOut.getProductId(), stockOut.getQuantity());
+        inventoryLedgerService.record(stockOut.getProductId(), stockOut.getQuantity(),
+                InventoryMovement.TYPE_STOCK_OUT_DELETE, id, stockOut.getOperatorId());
+        dailyRollupService.record(DailyRollup.KIND_STOCK_OUT, stockOut.getOutTime(),
+                stockOut.getProductId(), -stockOut.getQuantity(), null, -1);
         
         // 删除出库记录
         stockOutMapper.deleteById(id);
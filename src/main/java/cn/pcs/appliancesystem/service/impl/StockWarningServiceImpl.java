@@ -1,49 +1,79 @@
 package cn.pcs.appliancesystem.service.impl;
 
-import cn.pcs.appliancesystem.entity.Product;
+import cn.pcs.appliancesystem.entity.CursorPage;
 import cn.pcs.appliancesystem.entity.StockWarning;
+import cn.pcs.appliancesystem.exception.BusinessException;
 import cn.pcs.appliancesystem.mapper.ProductMapper;
 import cn.pcs.appliancesystem.service.StockWarningService;
+import cn.pcs.appliancesystem.util.StockCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class StockWarningServiceImpl implements StockWarningService {
     
+    // 产品和产品类型都未设置阈值时使用的默认预警阈值
+    static final int DEFAULT_THRESHOLD = 10;
+    // 分页默认条数和最大条数
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 200;
+    // 预警级别
+    private static final int LEVEL_LOW = 1;
+    private static final int LEVEL_OUT = 2;
+
     private final ProductMapper productMapper;
-    private static final int DEFAULT_THRESHOLD = 10;
     
     @Override
     public List<StockWarning> getWarningList(Integer threshold) {
-        if (threshold == null || threshold < 0) {
-            threshold = DEFAULT_THRESHOLD;
+        Integer fixed = normalizeThreshold(threshold);
+        return productMapper.selectWarnings(maxThresholdOf(fixed), fixed, DEFAULT_THRESHOLD,
+                null, null, null, null);
+    }
+
+    @Override
+    public CursorPage<StockWarning> getWarningPage(Integer threshold, Integer level, String cursor, Integer size) {
+        if (level != null && level != LEVEL_LOW && level != LEVEL_OUT) {
+            throw new BusinessException("预警级别只能为1（低库存）或2（缺货）");
         }
-        
-        List<Product> products = productMapper.selectList(null);
-        List<StockWarning> warnings = new ArrayList<>();
-        
-        for (Product product : products) {
-            if (product.getStock() == null) {
-                continue;
-            }
-            
-            if (product.getStock() <= threshold) {
-                int level = product.getStock() == 0 ? 2 : 1; // 2-缺货，1-低库存
-                warnings.add(StockWarning.builder()
-                        .productId(product.getId())
-                        .productName(product.getProductName())
-                        .stock(product.getStock())
-                        .threshold(threshold)
-                        .level(level)
-                        .build());
-            }
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        Integer fixed = normalizeThreshold(threshold);
+        StockCursor stockCursor = StockCursor.decode(cursor);
+
+        // 多查一条用于判断是否还有下一页
+        List<StockWarning> rows = productMapper.selectWarnings(maxThresholdOf(fixed), fixed, DEFAULT_THRESHOLD, level,
+                stockCursor != null ? stockCursor.getStock() : null, stockCursor != null ? stockCursor.getId() : null,
+                pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        String nextCursor = null;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+            StockWarning last = rows.get(rows.size() - 1);
+            nextCursor = new StockCursor(last.getStock(), last.getProductId()).encode();
         }
-        
-        return warnings;
+        return CursorPage.<StockWarning>builder()
+                .records(rows)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
     }
-}
 
+    /**
+     * 负数阈值视为未指定，使用产品或类型阈值
+     */
+    private static Integer normalizeThreshold(Integer threshold) {
+        return threshold != null && threshold >= 0 ? threshold : null;
+    }
+
+    /**
+     * 库存上界：指定阈值时即为该阈值，否则取默认值与所有已设置阈值中的最大值
+     */
+    private int maxThresholdOf(Integer threshold) {
+        if (threshold != null) {
+            return threshold;
+        }
+        return Math.max(DEFAULT_THRESHOLD, productMapper.selectMaxWarningThreshold());
+    }
+}
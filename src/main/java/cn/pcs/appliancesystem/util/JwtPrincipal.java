@@ -0,0 +1,30 @@
+package cn.pcs.appliancesystem.util;
+
+import lombok.Value;
+
+/**
+ * 已验证令牌中的用户信息，不可变，可在请求之间共享
+ */
+@Value
+public class JwtPrincipal {
+
+    Long userId;
+
+    String username;
+
+    String role;
+
+    // 令牌用途，普通令牌为空，推送订阅令牌为JwtUtil.SCOPE_STREAM
+    String scope;
+
+    // 令牌过期时间（毫秒时间戳）
+    long expiresAt;
+
+    public boolean isStreamOnly() {
+        return JwtUtil.SCOPE_STREAM.equals(scope);
+    }
+
+    public boolean isExpired(long now) {
+        return now > expiresAt;
+    }
+}
@@ -3,6 +3,7 @@ package cn.pcs.appliancesystem.util;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -15,14 +16,19 @@ import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * JWT工具类
  * 用于生成和验证JWT令牌
+ * 验证使用启动时构建的解析器，验证通过的令牌缓存到过期时间为止，同一令牌的后续请求不再重复验签
  */
 @Component
 public class JwtUtil {
 
+    // 推送订阅令牌的用途声明，只能用于SSE订阅接口
+    public static final String SCOPE_STREAM = "stream";
+
     // JWT密钥（从配置文件读取）
     @Value("${jwt.secret:AppliancesSystemSecretKey2025ForJWTTokenGeneration}")
     private String secretKey;
@@ -31,9 +37,26 @@ public class JwtUtil {
     @Value("${jwt.expiration:300000}")
     private long expirationTime;
 
+    // 推送订阅令牌过期时间（默认1分钟），只需在建立连接时有效
+    @Value("${jwt.stream-expiration:60000}")
+    private long streamExpirationTime;
+
+    // 验证结果缓存的最大令牌数，超出时不再缓存新令牌
+    @Value("${jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
     // 密钥对象（延迟初始化）
     private SecretKey key;
 
+    // 解析器线程安全，与密钥一起初始化后复用
+    private JwtParser parser;
+
+    // 已验证的令牌，按令牌过期时间失效
+    private final Map<String, JwtPrincipal> verified = new ConcurrentHashMap<>();
+
+    // 上次清理过期缓存的时间，缓存满时最多每秒清理一次
+    private volatile long lastPurgeMillis;
+
     /**
      * 初始化密钥（在Bean创建后执行）
      */
@@ -52,6 +75,7 @@ public class JwtUtil {
             System.arraycopy(keyBytes, 0, truncatedKey, 0, 32);
             this.key = Keys.hmacShaKeyFor(truncatedKey);
         }
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
     /**
@@ -63,6 +87,19 @@ public class JwtUtil {
      * @return JWT令牌
      */
     public String generateToken(Long userId, String username, String role) {
+        return buildToken(userId, username, role, null, expirationTime);
+    }
+
+    /**
+     * 生成推送订阅令牌
+     * 浏览器EventSource不能设置Authorization请求头，SSE订阅接口改为通过access_token查询参数传递令牌；
+     * 该令牌有效期很短且只能用于订阅接口，即使出现在访问日志中也无法调用其他接口
+     */
+    public String generateStreamToken(Long userId, String username, String role) {
+        return buildToken(userId, username, role, SCOPE_STREAM, streamExpirationTime);
+    }
+
+    private String buildToken(Long userId, String username, String role, String scope, long expiration) {
         if (key == null) {
             throw new IllegalStateException("JWT密钥未初始化");
         }
@@ -70,16 +107,69 @@ public class JwtUtil {
         claims.put("userId", userId);
         claims.put("username", username);
         claims.put("role", role);
+        if (scope != null) {
+            claims.put("scope", scope);
+        }
 
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(username)
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expirationTime))
+                .setExpiration(new Date(System.currentTimeMillis() + expiration))
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * 验证令牌并返回其中的用户信息，验签和过期检查只做一次
+     * 
+     * @param token JWT令牌
+     * @return 用户信息
+     * @throws ExpiredJwtException 令牌已过期
+     * @throws JwtException 令牌格式错误或签名无效
+     */
+    public JwtPrincipal verify(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("令牌为空");
+        }
+        long now = System.currentTimeMillis();
+        JwtPrincipal cached = verified.get(token);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return cached;
+            }
+            // 已过期的缓存移除后重新解析，由解析器抛出过期异常
+            verified.remove(token);
+        }
+
+        Claims claims = getAllClaimsFromToken(token);
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            throw new JwtException("令牌缺少过期时间");
+        }
+        JwtPrincipal principal = new JwtPrincipal(claims.get("userId", Long.class), claims.getSubject(),
+                claims.get("role", String.class), claims.get("scope", String.class), expiration.getTime());
+        cache(token, principal, now);
+        return principal;
+    }
+
+    /**
+     * 缓存验证结果；缓存已满时先清理过期令牌，仍然满则不缓存
+     */
+    private void cache(String token, JwtPrincipal principal, long now) {
+        if (verified.size() >= cacheMaxEntries) {
+            if (now - lastPurgeMillis < 1000) {
+                return;
+            }
+            lastPurgeMillis = now;
+            verified.values().removeIf(p -> p.isExpired(now));
+            if (verified.size() >= cacheMaxEntries) {
+                return;
+            }
+        }
+        verified.put(token, principal);
+    }
+
     /**
      * 从令牌中获取用户名
      * 
@@ -141,14 +231,10 @@ public class JwtUtil {
      * @return 所有声明
      */
     public Claims getAllClaimsFromToken(String token) {
-        if (key == null) {
+        if (parser == null) {
             throw new IllegalStateException("JWT密钥未初始化");
         }
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     /**
@@ -181,16 +267,13 @@ public class JwtUtil {
      * @return 是否有效
      */
     public Boolean validateToken(String token) {
-        if (key == null) {
+        if (parser == null) {
             return false;
         }
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token);
-            // 再次检查是否过期
-            return !isTokenExpired(token);
+            // 解析时已检查过期时间
+            verify(token);
+            return true;
         } catch (ExpiredJwtException e) {
             // Token已过期
             return false;
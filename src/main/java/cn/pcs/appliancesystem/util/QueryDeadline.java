@@ -0,0 +1,44 @@
+package cn.pcs.appliancesystem.util;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 当前线程SQL查询的截止时间
+ * 取消Future只能中断线程，无法中断阻塞在JDBC上的查询；设置截止时间后，
+ * QueryDeadlineInterceptor为线程中执行的每条语句设置剩余时间作为查询超时，由数据库驱动终止超时的查询
+ */
+public final class QueryDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private QueryDeadline() {
+    }
+
+    /**
+     * 包装任务，执行期间的查询受截止时间约束
+     * @param deadline 截止时间（毫秒时间戳）
+     */
+    public static <T> Callable<T> bind(long deadline, Callable<T> task) {
+        return () -> {
+            DEADLINE.set(deadline);
+            try {
+                return task.call();
+            } finally {
+                DEADLINE.remove();
+            }
+        };
+    }
+
+    /**
+     * 距截止时间的剩余秒数，向上取整且至少为1（JDBC查询超时以秒为单位，0表示不限）
+     * @return 未设置截止时间时返回null
+     */
+    public static Integer remainingSeconds() {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return null;
+        }
+        long remaining = deadline - System.currentTimeMillis();
+        return (int) Math.max(1, (remaining + 999) / 1000);
+    }
+}
@@ -0,0 +1,50 @@
+package cn.pcs.appliancesystem.util;
+
+import cn.pcs.appliancesystem.exception.BusinessException;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 记录分页游标
+ * 保存上一页最后一条记录的（时间，ID），下一页从该位置之后继续查询；
+ * 对外以Base64编码的不透明字符串传递，客户端原样回传即可
+ */
+@Getter
+public class RecordCursor {
+
+    private final LocalDateTime time;
+    private final Long id;
+
+    public RecordCursor(LocalDateTime time, Long id) {
+        this.time = time;
+        this.id = id;
+    }
+
+    public String encode() {
+        String raw = time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     * @param cursor 游标字符串，为空表示查询第一页
+     * @return 游标，第一页时返回null
+     */
+    public static RecordCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new RecordCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BusinessException("无效的分页游标");
+        }
+    }
+}
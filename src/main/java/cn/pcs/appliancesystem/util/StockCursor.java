@@ -0,0 +1,47 @@
+package cn.pcs.appliancesystem.util;
+
+import cn.pcs.appliancesystem.exception.BusinessException;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 按（库存，产品ID）升序分页的游标
+ * 保存上一页最后一个产品的（库存，ID），对外以Base64编码的不透明字符串传递
+ */
+@Getter
+public class StockCursor {
+
+    private final Integer stock;
+    private final Long id;
+
+    public StockCursor(Integer stock, Long id) {
+        this.stock = stock;
+        this.id = id;
+    }
+
+    public String encode() {
+        String raw = stock + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     * @param cursor 游标字符串，为空表示查询第一页
+     * @return 游标，第一页时返回null
+     */
+    public static StockCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new StockCursor(Integer.parseInt(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BusinessException("无效的分页游标");
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package cn.pcs.appliancesystem.util;
+
+import cn.pcs.appliancesystem.exception.BusinessException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * 图表时间分桶
+ * 桶标签格式与SQL中的DATE_FORMAT保持一致：
+ * 小时 yyyy-MM-dd HH:00，天 yyyy-MM-dd，周 周一日期 yyyy-MM-dd，月 yyyy-MM
+ */
+public final class TimeBuckets {
+
+    public static final String HOUR = "hour";
+    public static final String DAY = "day";
+    public static final String WEEK = "week";
+    public static final String MONTH = "month";
+
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private TimeBuckets() {
+    }
+
+    /**
+     * 校验并规范化粒度参数
+     */
+    public static String normalize(String granularity) {
+        String value = granularity == null ? "" : granularity.trim().toLowerCase();
+        switch (value) {
+            case HOUR:
+            case DAY:
+            case WEEK:
+            case MONTH:
+                return value;
+            default:
+                throw new BusinessException("不支持的统计粒度：" + granularity + "，可选 hour、day、week、month");
+        }
+    }
+
+    /**
+     * 取时间所在桶的起点
+     */
+    public static LocalDateTime floor(LocalDateTime time, String granularity) {
+        switch (granularity) {
+            case HOUR:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            case DAY:
+                return time.toLocalDate().atStartOfDay();
+            case WEEK:
+                return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+            default:
+                return time.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        }
+    }
+
+    /**
+     * 下一个桶的起点
+     */
+    public static LocalDateTime next(LocalDateTime bucket, String granularity) {
+        switch (granularity) {
+            case HOUR:
+                return bucket.plusHours(1);
+            case DAY:
+                return bucket.plusDays(1);
+            case WEEK:
+                return bucket.plusWeeks(1);
+            default:
+                return bucket.plusMonths(1);
+        }
+    }
+
+    /**
+     * 从起点桶到终点桶（包含）共有多少个桶
+     */
+    public static long count(LocalDateTime first, LocalDateTime last, String granularity) {
+        if (last.isBefore(first)) {
+            return 0;
+        }
+        switch (granularity) {
+            case HOUR:
+                return ChronoUnit.HOURS.between(first, last) + 1;
+            case DAY:
+                return ChronoUnit.DAYS.between(first, last) + 1;
+            case WEEK:
+                return ChronoUnit.WEEKS.between(first, last) + 1;
+            default:
+                return ChronoUnit.MONTHS.between(first, last) + 1;
+        }
+    }
+
+    public static String label(LocalDateTime bucket, String granularity) {
+        switch (granularity) {
+            case HOUR:
+                return bucket.format(HOUR_FORMAT);
+            case MONTH:
+                return bucket.format(MONTH_FORMAT);
+            default:
+                return bucket.format(DAY_FORMAT);
+        }
+    }
+
+    /**
+     * 解析数据库返回的桶标签为桶起点
+     */
+    public static LocalDateTime parse(String label, String granularity) {
+        try {
+            switch (granularity) {
+                case HOUR:
+                    return LocalDateTime.parse(label, HOUR_FORMAT);
+                case MONTH:
+                    return YearMonth.parse(label, MONTH_FORMAT).atDay(1).atStartOfDay();
+                default:
+                    return LocalDate.parse(label, DAY_FORMAT).atStartOfDay();
+            }
+        } catch (DateTimeParseException e) {
+            throw new IllegalStateException("无法解析时间桶：" + label, e);
+        }
+    }
+}
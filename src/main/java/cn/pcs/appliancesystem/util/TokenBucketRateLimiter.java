@@ -0,0 +1,103 @@
+package cn.pcs.appliancesystem.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按键（如用户名、IP）独立计数的令牌桶限流器
+ * 每个键最多积攒capacity个令牌，按固定速率补充，每次请求消耗一个；
+ * 已补满的桶与新建的桶等价，键数量达到上限时清理这些空闲桶。线程安全
+ */
+public class TokenBucketRateLimiter {
+
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+    // 键数量达到上限时，最多每秒清理一次
+    private static final long PURGE_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final int maxKeys;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private volatile long lastPurgeNanos = System.nanoTime() - PURGE_INTERVAL_NANOS;
+
+    /**
+     * @param capacity 桶容量，即允许的突发请求数
+     * @param refillPerMinute 每分钟补充的令牌数
+     * @param maxKeys 最多跟踪的键数量
+     */
+    public TokenBucketRateLimiter(int capacity, int refillPerMinute, int maxKeys) {
+        if (capacity <= 0 || refillPerMinute <= 0 || maxKeys <= 0) {
+            throw new IllegalArgumentException("限流参数必须大于0");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = (double) refillPerMinute / NANOS_PER_MINUTE;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * 尝试为键消耗一个令牌
+     * 键数量已达上限且没有可清理的空闲桶时放行，不因跟踪表已满而拒绝新的键
+     *
+     * @return 有可用令牌时返回true
+     */
+    public boolean tryAcquire(String key) {
+        long now = System.nanoTime();
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                purge(now);
+                if (buckets.size() >= maxKeys) {
+                    return true;
+                }
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(now));
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * 清理已补满的桶
+     */
+    private void purge(long now) {
+        if (now - lastPurgeNanos < PURGE_INTERVAL_NANOS) {
+            return;
+        }
+        lastPurgeNanos = now;
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private final class Bucket {
+        private double tokens;
+        private long updatedAt;
+
+        Bucket(long now) {
+            this.tokens = capacity;
+            this.updatedAt = now;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            refill(now);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            if (now > updatedAt) {
+                tokens = Math.min(capacity, tokens + (now - updatedAt) * tokensPerNano);
+                updatedAt = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package cn.pcs.appliancesystem.config;
+
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.exception.TokenExpiredException;
+import cn.pcs.appliancesystem.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtInterceptorTest {
+
+    private JwtUtil jwtUtil;
+    private JwtInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secretKey", "AppliancesSystemSecretKey2025ForJWTTokenGeneration");
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", 300_000L);
+        ReflectionTestUtils.setField(jwtUtil, "streamExpirationTime", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxEntries", 100);
+        jwtUtil.init();
+        interceptor = new JwtInterceptor(jwtUtil);
+    }
+
+    @Test
+    void bearerTokenSetsUserAttributes() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        request.addHeader("Authorization", "Bearer " + jwtUtil.generateToken(7L, "alice", "ADMIN"));
+
+        assertTrue(preHandle(request));
+
+        assertEquals(7L, request.getAttribute("userId"));
+        assertEquals("ADMIN", request.getAttribute("role"));
+        assertEquals("alice", request.getAttribute("username"));
+    }
+
+    @Test
+    void excludedPathNeedsNoToken() {
+        assertTrue(preHandle(new MockHttpServletRequest("POST", "/api/auth/login")));
+    }
+
+    @Test
+    void missingOrInvalidTokenIsUnauthorized() {
+        MockHttpServletRequest invalid = new MockHttpServletRequest("GET", "/api/products");
+        invalid.addHeader("Authorization", "Bearer not-a-jwt");
+
+        assertEquals(401, assertThrows(BusinessException.class, () ->
+                preHandle(new MockHttpServletRequest("GET", "/api/products"))).getCode());
+        assertEquals(401, assertThrows(BusinessException.class, () -> preHandle(invalid)).getCode());
+    }
+
+    @Test
+    void expiredTokenIsReportedAsExpired() {
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", -1000L);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        request.addHeader("Authorization", "Bearer " + jwtUtil.generateToken(7L, "alice", "ADMIN"));
+
+        assertThrows(TokenExpiredException.class, () -> preHandle(request));
+    }
+
+    @Test
+    void streamEndpointAcceptsStreamTokenAsQueryParameter() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/changes/stream");
+        request.setParameter("access_token", jwtUtil.generateStreamToken(7L, "alice", "USER"));
+
+        assertTrue(preHandle(request));
+        assertEquals(7L, request.getAttribute("userId"));
+    }
+
+    @Test
+    void queryParameterRejectsRegularToken() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/changes/stream");
+        request.setParameter("access_token", jwtUtil.generateToken(7L, "alice", "USER"));
+
+        assertEquals(401, assertThrows(BusinessException.class, () -> preHandle(request)).getCode());
+    }
+
+    @Test
+    void streamTokenCannotCallOtherEndpoints() {
+        String streamToken = jwtUtil.generateStreamToken(7L, "alice", "USER");
+        MockHttpServletRequest header = new MockHttpServletRequest("GET", "/api/products");
+        header.addHeader("Authorization", "Bearer " + streamToken);
+        MockHttpServletRequest param = new MockHttpServletRequest("GET", "/api/products");
+        param.setParameter("access_token", streamToken);
+
+        assertEquals(401, assertThrows(BusinessException.class, () -> preHandle(header)).getCode());
+        // 非订阅接口不读取查询参数
+        assertEquals(401, assertThrows(BusinessException.class, () -> preHandle(param)).getCode());
+    }
+
+    private boolean preHandle(MockHttpServletRequest request) {
+        return interceptor.preHandle(request, new MockHttpServletResponse(), new Object());
+    }
+}
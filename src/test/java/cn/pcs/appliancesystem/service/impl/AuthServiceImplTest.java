@@ -0,0 +1,217 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.LoginRequest;
+import cn.pcs.appliancesystem.entity.LoginResponse;
+import cn.pcs.appliancesystem.entity.UserWithRole;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.SysUserMapper;
+import cn.pcs.appliancesystem.util.JwtPrincipal;
+import cn.pcs.appliancesystem.util.JwtUtil;
+import cn.pcs.appliancesystem.util.PasswordUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthServiceImplTest {
+
+    private static final String PASSWORD = "secret123";
+
+    private SysUserMapper sysUserMapper;
+    private JwtUtil jwtUtil;
+    private BlockingPasswordUtil passwordUtil;
+    private AuthServiceImpl authService;
+    private ExecutorService clients;
+
+    @BeforeEach
+    void setUp() {
+        sysUserMapper = mock(SysUserMapper.class);
+        when(sysUserMapper.selectByUsernameWithRole(anyString())).thenAnswer(invocation -> {
+            UserWithRole user = new UserWithRole();
+            user.setId(7L);
+            user.setUsername(invocation.getArgument(0));
+            user.setPassword("$2a$10$storedHashPlaceholder");
+            user.setRoleId(1L);
+            user.setRoleCode("ADMIN");
+            user.setRoleName("管理员");
+            user.setStatus(1);
+            return user;
+        });
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secretKey", "AppliancesSystemSecretKey2025ForJWTTokenGeneration");
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", 300_000L);
+        ReflectionTestUtils.setField(jwtUtil, "streamExpirationTime", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxEntries", 100);
+        jwtUtil.init();
+        passwordUtil = new BlockingPasswordUtil();
+        clients = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordUtil.release.countDown();
+        clients.shutdownNow();
+        if (authService != null) {
+            authService.shutdown();
+        }
+    }
+
+    @Test
+    void successfulLoginReturnsVerifiableToken() {
+        passwordUtil.release.countDown();
+        authService = authService(2, 32, 3000, 20, 5);
+
+        LoginResponse response = authService.login(request("alice", PASSWORD), "10.0.0.1");
+
+        JwtPrincipal principal = jwtUtil.verify(response.getToken());
+        assertEquals("alice", principal.getUsername());
+        assertEquals("ADMIN", principal.getRole());
+        assertEquals("ADMIN", response.getRoleCode());
+
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> authService.login(request("alice", "wrong"), "10.0.0.1"));
+        assertEquals("用户名或密码错误", e.getMessage());
+    }
+
+    @Test
+    void saturatedHashPoolRejectsWith503() throws Exception {
+        // 1个线程、队列容量1：第一个请求占用线程，第二个排队，第三个被拒绝
+        authService = authService(1, 1, 10_000, 20, 5);
+        Future<LoginResponse> running = clients.submit(() -> authService.login(request("u1", PASSWORD), "10.0.0.1"));
+        assertTrue(passwordUtil.started.await(5, TimeUnit.SECONDS));
+        Future<LoginResponse> queued = clients.submit(() -> authService.login(request("u2", PASSWORD), "10.0.0.2"));
+        ThreadPoolExecutor hashExecutor = (ThreadPoolExecutor) ReflectionTestUtils.getField(authService, "hashExecutor");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (hashExecutor.getQueue().size() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, hashExecutor.getQueue().size());
+
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> authService.login(request("u3", PASSWORD), "10.0.0.3"));
+        assertEquals(503, e.getCode());
+        assertEquals("认证请求过多，请稍后再试", e.getMessage());
+
+        // 放行后已接受的请求正常完成
+        passwordUtil.release.countDown();
+        assertNotNull(running.get(5, TimeUnit.SECONDS).getToken());
+        assertNotNull(queued.get(5, TimeUnit.SECONDS).getToken());
+    }
+
+    @Test
+    void slowHashTimesOutWith503() {
+        authService = authService(1, 1, 100, 20, 5);
+
+        long start = System.nanoTime();
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> authService.login(request("alice", PASSWORD), "10.0.0.1"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(503, e.getCode());
+        assertEquals("认证请求过多，请稍后再试", e.getMessage());
+        assertTrue(elapsedMillis < 2000, "等待时间应受超时限制: " + elapsedMillis);
+    }
+
+    @Test
+    void usernameLimitRejectsWith429() {
+        passwordUtil.release.countDown();
+        authService = authService(2, 32, 3000, 100, 2);
+
+        // 同一用户名从不同IP尝试，按用户名限流
+        authService.login(request("alice", PASSWORD), "10.0.0.1");
+        authService.login(request("alice", PASSWORD), "10.0.0.2");
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> authService.login(request("alice", PASSWORD), "10.0.0.3"));
+
+        assertEquals(429, e.getCode());
+        assertEquals("登录尝试过于频繁，请稍后再试", e.getMessage());
+        assertNotNull(authService.login(request("bob", PASSWORD), "10.0.0.3").getToken());
+        // 被限流的请求不做密码校验
+        assertEquals(3, passwordUtil.calls.get());
+    }
+
+    @Test
+    void ipLimitRejectsWith429() {
+        passwordUtil.release.countDown();
+        authService = authService(2, 32, 3000, 2, 100);
+
+        // 同一IP尝试不同用户名，按IP限流
+        authService.login(request("u1", PASSWORD), "10.0.0.1");
+        authService.login(request("u2", PASSWORD), "10.0.0.1");
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> authService.login(request("u3", PASSWORD), "10.0.0.1"));
+
+        assertEquals(429, e.getCode());
+        assertNotNull(authService.login(request("u3", PASSWORD), "10.0.0.2").getToken());
+    }
+
+    @Test
+    void rejectedAttemptDoesNotQueryUser() {
+        passwordUtil.release.countDown();
+        authService = authService(2, 32, 3000, 1, 100);
+
+        authService.login(request("u1", PASSWORD), "10.0.0.1");
+        assertThrows(BusinessException.class, () -> authService.login(request("blocked", PASSWORD), "10.0.0.1"));
+
+        verify(sysUserMapper, never()).selectByUsernameWithRole("blocked");
+    }
+
+    private AuthServiceImpl authService(int threads, int queueCapacity, long timeoutMillis,
+                                        int ipCapacity, int usernameCapacity) {
+        // 登录不使用名称字典缓存
+        return new AuthServiceImpl(sysUserMapper, jwtUtil, passwordUtil, null,
+                threads, queueCapacity, timeoutMillis, ipCapacity, 1, usernameCapacity, 1, 1000);
+    }
+
+    private static LoginRequest request(String username, String password) {
+        LoginRequest request = new LoginRequest();
+        request.setUsername(username);
+        request.setPassword(password);
+        return request;
+    }
+
+    /**
+     * 在放行前阻塞密码校验，模拟耗时的BCrypt计算
+     */
+    private static final class BlockingPasswordUtil extends PasswordUtil {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public boolean matches(String rawPassword, String encodedPassword) {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return PASSWORD.equals(rawPassword);
+        }
+
+        @Override
+        public boolean isEncoded(String password) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.StockChangePending;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.support.ConcurrentRunner;
+import cn.pcs.appliancesystem.support.InMemoryPendingTable;
+import cn.pcs.appliancesystem.support.InMemoryProductTable;
+import cn.pcs.appliancesystem.support.TestTransactionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoalescingInventoryEngineTest {
+
+    private static final long PRODUCT_ID = 1L;
+
+    private InMemoryProductTable table;
+    private InMemoryPendingTable pending;
+    private TransactionTemplate callerTransaction;
+    private CoalescingInventoryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        table = new InMemoryProductTable();
+        pending = new InMemoryPendingTable();
+        TestTransactionManager transactionManager = new TestTransactionManager();
+        callerTransaction = new TransactionTemplate(transactionManager);
+        engine = new CoalescingInventoryEngine(table.mapper(), pending.mapper(),
+                new TransactionTemplate(transactionManager), 2, 64, 4, 5000, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void concurrentDecreasesNeverOversell() throws Exception {
+        table.insert(PRODUCT_ID, 100);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ConcurrentRunner.run(32, 10, (thread, i) -> {
+            try {
+                engine.decrease(PRODUCT_ID, 1);
+                sold.incrementAndGet();
+            } catch (BusinessException e) {
+                assertTrue(e.getMessage().startsWith("可用库存不足"), e.getMessage());
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(100, sold.get());
+        assertEquals(220, rejected.get());
+        assertEquals(0, table.stock(PRODUCT_ID));
+    }
+
+    @Test
+    void finalStockEqualsSumOfSuccessfulDeltasWithFewerUpdates() throws Exception {
+        table.insert(PRODUCT_ID, 50);
+        AtomicLong applied = new AtomicLong();
+        int threads = 16;
+        int iterations = 200;
+
+        ConcurrentRunner.run(threads, iterations, (thread, i) -> {
+            int quantity = ThreadLocalRandom.current().nextInt(1, 5);
+            if (ThreadLocalRandom.current().nextBoolean()) {
+                engine.increase(PRODUCT_ID, quantity);
+                applied.addAndGet(quantity);
+            } else {
+                try {
+                    engine.decrease(PRODUCT_ID, quantity);
+                    applied.addAndGet(-quantity);
+                } catch (BusinessException e) {
+                    // 库存不足的扣减不生效
+                }
+            }
+        });
+
+        assertEquals(50 + applied.get(), table.stock(PRODUCT_ID));
+        assertTrue(table.stock(PRODUCT_ID) >= 0);
+        // 同一窗口内的请求合并为一条UPDATE
+        assertTrue(table.updates() < threads * iterations,
+                "updates=" + table.updates() + ", requests=" + threads * iterations);
+    }
+
+    @Test
+    void callerCommitConfirmsChange() {
+        table.insert(PRODUCT_ID, 10);
+
+        callerTransaction.executeWithoutResult(status -> engine.decrease(PRODUCT_ID, 3));
+
+        assertEquals(7, table.stock(PRODUCT_ID));
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    void callerRollbackIsCompensated() {
+        table.insert(PRODUCT_ID, 10);
+
+        callerTransaction.executeWithoutResult(status -> {
+            engine.decrease(PRODUCT_ID, 3);
+            engine.increase(PRODUCT_ID, 5);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(10, table.stock(PRODUCT_ID));
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    void rolledBackIncreaseAlreadySoldKeepsShortfallPending() {
+        table.insert(PRODUCT_ID, 10);
+
+        callerTransaction.executeWithoutResult(status -> {
+            engine.increase(PRODUCT_ID, 5);
+            // 调用方回滚前，入库的数量已被其他请求卖出
+            CompletableFuture.runAsync(() -> engine.decrease(PRODUCT_ID, 13)).join();
+            status.setRollbackOnly();
+        });
+
+        // 只收回剩余的2件，库存不为负，差额3保留为待确认记录
+        assertEquals(0, table.stock(PRODUCT_ID));
+        List<StockChangePending> rows = pending.rows();
+        assertEquals(1, rows.size());
+        assertEquals(3L, rows.get(0).getDelta());
+
+        // 补货后由定时任务收回差额
+        engine.increase(PRODUCT_ID, 10);
+        rows.get(0).setCreateTime(LocalDateTime.now().minusHours(1));
+        engine.sweepPending();
+
+        assertEquals(7, table.stock(PRODUCT_ID));
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    void rolledBackIncreaseNeverTakesReservedStock() {
+        table.insert(PRODUCT_ID, 10);
+
+        callerTransaction.executeWithoutResult(status -> {
+            engine.increase(PRODUCT_ID, 5);
+            // 其他请求预留了入库后的库存
+            CompletableFuture.runAsync(() -> engine.reserve(PRODUCT_ID, 12)).join();
+            status.setRollbackOnly();
+        });
+
+        assertEquals(12, table.stock(PRODUCT_ID));
+        assertEquals(12, table.reserved(PRODUCT_ID));
+        assertEquals(2L, pending.rows().get(0).getDelta());
+    }
+
+    @Test
+    void failedDecreaseInCallerTransactionLeavesNoPendingRow() {
+        table.insert(PRODUCT_ID, 2);
+
+        assertThrows(BusinessException.class, () ->
+                callerTransaction.executeWithoutResult(status -> engine.decrease(PRODUCT_ID, 3)));
+
+        assertEquals(2, table.stock(PRODUCT_ID));
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    void sweepCompensatesStalePendingChanges() {
+        table.insert(PRODUCT_ID, 10);
+        // 进程在调用方事务结束前崩溃留下的记录
+        pending.insert(StockChangePending.builder()
+                .productId(PRODUCT_ID)
+                .delta(-4L)
+                .createTime(LocalDateTime.now().minusHours(1))
+                .build());
+        pending.insert(StockChangePending.builder()
+                .productId(PRODUCT_ID)
+                .delta(-1L)
+                .createTime(LocalDateTime.now())
+                .build());
+
+        engine.sweepPending();
+
+        // 只补偿超时的记录
+        assertEquals(14, table.stock(PRODUCT_ID));
+        assertEquals(1, pending.size());
+    }
+}
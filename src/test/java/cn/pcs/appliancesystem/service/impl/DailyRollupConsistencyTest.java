@@ -0,0 +1,243 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.StockBatchItem;
+import cn.pcs.appliancesystem.entity.StockIn;
+import cn.pcs.appliancesystem.entity.StockOut;
+import cn.pcs.appliancesystem.mapper.DailyRollupMapper;
+import cn.pcs.appliancesystem.mapper.StockInMapper;
+import cn.pcs.appliancesystem.mapper.StockOutMapper;
+import cn.pcs.appliancesystem.service.InventoryLedgerService;
+import cn.pcs.appliancesystem.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 出入库及其修改、删除增量维护的日汇总，必须与按明细重建的结果（rebuild的GROUP BY）一致
+ */
+class DailyRollupConsistencyTest {
+
+    private static final Long OPERATOR_ID = 1L;
+    private static final int PRODUCTS = 5;
+
+    private final Map<Long, StockIn> stockIns = new TreeMap<>();
+    private final Map<Long, StockOut> stockOuts = new TreeMap<>();
+    private final Map<String, DailyRollup> rollups = new TreeMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private DailyRollupServiceImpl dailyRollupService;
+    private StockServiceImpl stockService;
+
+    @BeforeEach
+    void setUp() {
+        StockInMapper stockInMapper = mock(StockInMapper.class);
+        when(stockInMapper.insert(any(StockIn.class))).thenAnswer(inv -> {
+            StockIn row = inv.getArgument(0);
+            row.setId(nextId.incrementAndGet());
+            stockIns.put(row.getId(), copy(row));
+            return 1;
+        });
+        when(stockInMapper.insertBatch(anyList())).thenAnswer(inv -> {
+            List<StockIn> rows = inv.getArgument(0);
+            rows.forEach(row -> {
+                row.setId(nextId.incrementAndGet());
+                stockIns.put(row.getId(), copy(row));
+            });
+            return rows.size();
+        });
+        when(stockInMapper.selectById(anyLong())).thenAnswer(inv -> {
+            StockIn row = stockIns.get((Long) inv.getArgument(0));
+            return row != null ? copy(row) : null;
+        });
+        when(stockInMapper.updateById(any(StockIn.class))).thenAnswer(inv -> {
+            StockIn row = inv.getArgument(0);
+            stockIns.put(row.getId(), copy(row));
+            return 1;
+        });
+        when(stockInMapper.deleteById(anyLong())).thenAnswer(inv -> stockIns.remove((Long) inv.getArgument(0)) != null ? 1 : 0);
+
+        StockOutMapper stockOutMapper = mock(StockOutMapper.class);
+        when(stockOutMapper.insert(any(StockOut.class))).thenAnswer(inv -> {
+            StockOut row = inv.getArgument(0);
+            row.setId(nextId.incrementAndGet());
+            stockOuts.put(row.getId(), copy(row));
+            return 1;
+        });
+        when(stockOutMapper.insertBatch(anyList())).thenAnswer(inv -> {
+            List<StockOut> rows = inv.getArgument(0);
+            rows.forEach(row -> {
+                row.setId(nextId.incrementAndGet());
+                stockOuts.put(row.getId(), copy(row));
+            });
+            return rows.size();
+        });
+        when(stockOutMapper.selectById(anyLong())).thenAnswer(inv -> {
+            StockOut row = stockOuts.get((Long) inv.getArgument(0));
+            return row != null ? copy(row) : null;
+        });
+        when(stockOutMapper.updateById(any(StockOut.class))).thenAnswer(inv -> {
+            StockOut row = inv.getArgument(0);
+            stockOuts.put(row.getId(), copy(row));
+            return 1;
+        });
+        when(stockOutMapper.deleteById(anyLong())).thenAnswer(inv -> stockOuts.remove((Long) inv.getArgument(0)) != null ? 1 : 0);
+
+        // upsert：主键存在时累加，否则插入
+        DailyRollupMapper dailyRollupMapper = mock(DailyRollupMapper.class);
+        when(dailyRollupMapper.upsertBatch(anyList())).thenAnswer(inv -> {
+            List<DailyRollup> rows = inv.getArgument(0);
+            for (DailyRollup row : rows) {
+                rollups.merge(key(row.getKind(), row.getDay(), row.getProductId()), copy(row), (a, b) -> {
+                    a.setQty(a.getQty() + b.getQty());
+                    a.setAmount(a.getAmount().add(b.getAmount()));
+                    a.setCnt(a.getCnt() + b.getCnt());
+                    return a;
+                });
+            }
+            return rows.size();
+        });
+
+        dailyRollupService = new DailyRollupServiceImpl(dailyRollupMapper,
+                new StatisticsDayCache(dailyRollupMapper, new LocalStatisticsCacheBroadcaster(), 100, 100));
+        stockService = new StockServiceImpl(stockInMapper, stockOutMapper, mock(ProductService.class),
+                mock(InventoryLedgerService.class), dailyRollupService);
+    }
+
+    @Test
+    void incrementalRollupMatchesRebuildFromDetail() {
+        Random random = new Random(20240501);
+        seedHistory(random);
+
+        for (int i = 0; i < 600; i++) {
+            switch (random.nextInt(8)) {
+                case 0 -> stockService.stockIn(product(random), quantity(random), OPERATOR_ID);
+                case 1 -> stockService.stockOut(product(random), quantity(random), OPERATOR_ID);
+                case 2 -> stockService.stockInBatch(batch(random), OPERATOR_ID);
+                case 3 -> stockService.stockOutBatch(batch(random), OPERATOR_ID);
+                case 4 -> pick(random, stockIns).ifPresent(id -> stockService.updateStockIn(id, quantity(random)));
+                case 5 -> pick(random, stockOuts).ifPresent(id -> stockService.updateStockOut(id, quantity(random)));
+                case 6 -> pick(random, stockIns).ifPresent(stockService::deleteStockIn);
+                default -> pick(random, stockOuts).ifPresent(stockService::deleteStockOut);
+            }
+        }
+
+        Map<String, DailyRollup> rebuilt = rebuildFromDetail();
+        assertFalse(rebuilt.isEmpty());
+        assertEquals(rebuilt, nonEmptyRollups());
+    }
+
+    /**
+     * 之前几天的明细及其汇总，修改和删除这些记录时要更新记录原来所在日期的汇总
+     */
+    private void seedHistory(Random random) {
+        LocalDateTime start = LocalDateTime.now().minusDays(5);
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime time = start.plusMinutes(random.nextInt(5 * 24 * 60));
+            long id = nextId.incrementAndGet();
+            if (random.nextBoolean()) {
+                stockIns.put(id, StockIn.builder().id(id).productId(product(random)).quantity(quantity(random))
+                        .operatorId(OPERATOR_ID).inTime(time).build());
+            } else {
+                stockOuts.put(id, StockOut.builder().id(id).productId(product(random)).quantity(quantity(random))
+                        .operatorId(OPERATOR_ID).outTime(time).build());
+            }
+        }
+        dailyRollupService.recordBatch(new ArrayList<>(rebuildFromDetail().values()));
+    }
+
+    /**
+     * 与DailyRollupMapper.rebuildStockIn/rebuildStockOut相同：按（日期，产品）汇总数量和条数
+     */
+    private Map<String, DailyRollup> rebuildFromDetail() {
+        Map<String, DailyRollup> result = new TreeMap<>();
+        stockIns.values().forEach(r -> accumulate(result, DailyRollup.KIND_STOCK_IN, r.getInTime(), r.getProductId(), r.getQuantity()));
+        stockOuts.values().forEach(r -> accumulate(result, DailyRollup.KIND_STOCK_OUT, r.getOutTime(), r.getProductId(), r.getQuantity()));
+        return result;
+    }
+
+    private static void accumulate(Map<String, DailyRollup> result, String kind, LocalDateTime time, Long productId, int qty) {
+        result.merge(key(kind, time.toLocalDate(), productId),
+                DailyRollup.builder().kind(kind).day(time.toLocalDate()).productId(productId)
+                        .qty(qty).amount(BigDecimal.ZERO).cnt(1).build(),
+                (a, b) -> {
+                    a.setQty(a.getQty() + b.getQty());
+                    a.setCnt(a.getCnt() + 1);
+                    return a;
+                });
+    }
+
+    /**
+     * 记录全部删除后汇总行留下数量和条数为0的行，重建不会产生这些行
+     */
+    private Map<String, DailyRollup> nonEmptyRollups() {
+        Map<String, DailyRollup> result = new TreeMap<>();
+        rollups.forEach((key, row) -> {
+            if (row.getQty() != 0 || row.getCnt() != 0) {
+                result.put(key, row);
+            }
+        });
+        return result;
+    }
+
+    private static String key(String kind, LocalDate day, Long productId) {
+        return kind + "|" + day + "|" + productId;
+    }
+
+    private static Optional<Long> pick(Random random, Map<Long, ?> table) {
+        if (table.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Long> ids = new ArrayList<>(table.keySet());
+        return Optional.of(ids.get(random.nextInt(ids.size())));
+    }
+
+    private static List<StockBatchItem> batch(Random random) {
+        List<StockBatchItem> items = new ArrayList<>();
+        int size = 1 + random.nextInt(10);
+        for (int i = 0; i < size; i++) {
+            items.add(new StockBatchItem(product(random), quantity(random)));
+        }
+        return items;
+    }
+
+    private static Long product(Random random) {
+        return (long) (1 + random.nextInt(PRODUCTS));
+    }
+
+    private static int quantity(Random random) {
+        return 1 + random.nextInt(20);
+    }
+
+    private static StockIn copy(StockIn row) {
+        return StockIn.builder().id(row.getId()).productId(row.getProductId()).quantity(row.getQuantity())
+                .operatorId(row.getOperatorId()).inTime(row.getInTime()).build();
+    }
+
+    private static StockOut copy(StockOut row) {
+        return StockOut.builder().id(row.getId()).productId(row.getProductId()).quantity(row.getQuantity())
+                .operatorId(row.getOperatorId()).outTime(row.getOutTime()).build();
+    }
+
+    private static DailyRollup copy(DailyRollup row) {
+        return DailyRollup.builder().kind(row.getKind()).day(row.getDay()).productId(row.getProductId())
+                .qty(row.getQty()).amount(row.getAmount()).cnt(row.getCnt()).build();
+    }
+}
@@ -0,0 +1,183 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.ChartSeriesVO;
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.DashboardVO;
+import cn.pcs.appliancesystem.entity.StatisticsVO;
+import cn.pcs.appliancesystem.entity.StockWarning;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.service.StatisticsService;
+import cn.pcs.appliancesystem.service.StockWarningService;
+import cn.pcs.appliancesystem.util.QueryDeadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 看板各部分并行计算：超时、失败或线程池已满的部分为空并记录原因，其余部分照常返回
+ */
+class DashboardServiceImplTest {
+
+    private static final long TIMEOUT_MILLIS = 300;
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 1, 31);
+
+    private StatisticsService statisticsService;
+    private StockWarningService stockWarningService;
+    private DashboardServiceImpl dashboardService;
+    private final ChartSeriesVO stockInChart = chart();
+    private final ChartSeriesVO stockOutChart = chart();
+    private final ChartSeriesVO saleChart = chart();
+    private final List<StatisticsVO> topProducts = List.of(StatisticsVO.builder().productId(1L).build());
+    private final List<StockWarning> warnings = List.of(new StockWarning());
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        statisticsService = mock(StatisticsService.class);
+        stockWarningService = mock(StockWarningService.class);
+        when(statisticsService.getChartSeries(eq(DailyRollup.KIND_STOCK_IN), anyString(), any(), any())).thenReturn(stockInChart);
+        when(statisticsService.getChartSeries(eq(DailyRollup.KIND_STOCK_OUT), anyString(), any(), any())).thenReturn(stockOutChart);
+        when(statisticsService.getChartSeries(eq(DailyRollup.KIND_SALE), anyString(), any(), any())).thenReturn(saleChart);
+        when(statisticsService.getSaleStatisticsByProduct(any(), any(), anyInt())).thenReturn(topProducts);
+        when(stockWarningService.getWarningList(any())).thenReturn(warnings);
+        dashboardService = new DashboardServiceImpl(statisticsService, stockWarningService, 8, 64, TIMEOUT_MILLIS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        dashboardService.shutdown();
+    }
+
+    @Test
+    void allPartsReturnedWithoutErrors() {
+        DashboardVO dashboard = dashboardService.getDashboard(START, END, null, null, null);
+
+        assertSame(stockInChart, dashboard.getStockInChart());
+        assertSame(stockOutChart, dashboard.getStockOutChart());
+        assertSame(saleChart, dashboard.getSaleChart());
+        assertSame(topProducts, dashboard.getTopProducts());
+        assertSame(warnings, dashboard.getStockWarnings());
+        assertTrue(dashboard.getErrors().isEmpty());
+    }
+
+    @Test
+    void slowPartIsCancelledAndOtherPartsAreReturned() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(statisticsService.getSaleStatisticsByProduct(any(), any(), anyInt())).thenAnswer(inv -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return topProducts;
+        });
+
+        DashboardVO dashboard = dashboardService.getDashboard(START, END, "day", 5, null);
+
+        assertNull(dashboard.getTopProducts());
+        assertEquals(Map.of("topProducts", "计算超时"), dashboard.getErrors());
+        assertSame(stockInChart, dashboard.getStockInChart());
+        assertSame(stockOutChart, dashboard.getStockOutChart());
+        assertSame(saleChart, dashboard.getSaleChart());
+        assertSame(warnings, dashboard.getStockWarnings());
+        // 总耗时受截止时间约束，不会等到慢的部分结束
+        assertTrue(dashboard.getElapsedMillis() >= TIMEOUT_MILLIS - 20, dashboard.getElapsedMillis().toString());
+        assertTrue(dashboard.getElapsedMillis() < TIMEOUT_MILLIS + 1000, dashboard.getElapsedMillis().toString());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "超时的部分应被中断");
+    }
+
+    @Test
+    void partsShareOneDeadline() {
+        // 两个慢部分依次等待时不各自重新计时，总耗时仍以一个截止时间为限
+        when(statisticsService.getChartSeries(eq(DailyRollup.KIND_SALE), anyString(), any(), any())).thenAnswer(inv -> {
+            Thread.sleep(TIMEOUT_MILLIS * 2);
+            return saleChart;
+        });
+        when(stockWarningService.getWarningList(any())).thenAnswer(inv -> {
+            Thread.sleep(TIMEOUT_MILLIS * 2);
+            return warnings;
+        });
+
+        DashboardVO dashboard = dashboardService.getDashboard(START, END, "week", null, null);
+
+        assertEquals(Map.of("saleChart", "计算超时", "stockWarnings", "计算超时"), dashboard.getErrors());
+        assertNotNull(dashboard.getTopProducts());
+        assertTrue(dashboard.getElapsedMillis() < TIMEOUT_MILLIS * 2, dashboard.getElapsedMillis().toString());
+    }
+
+    @Test
+    void failedPartsReportReason() {
+        when(statisticsService.getChartSeries(eq(DailyRollup.KIND_STOCK_OUT), anyString(), any(), any()))
+                .thenThrow(new BusinessException("统计范围过大：共2000个时间桶，最多1000个，请缩小日期范围或使用更粗的粒度"));
+        when(stockWarningService.getWarningList(any())).thenThrow(new IllegalStateException("连接已关闭"));
+
+        DashboardVO dashboard = dashboardService.getDashboard(START, END, "day", null, null);
+
+        assertEquals("统计范围过大：共2000个时间桶，最多1000个，请缩小日期范围或使用更粗的粒度",
+                dashboard.getErrors().get("stockOutChart"));
+        assertEquals("计算失败", dashboard.getErrors().get("stockWarnings"));
+        assertEquals(2, dashboard.getErrors().size());
+        assertSame(stockInChart, dashboard.getStockInChart());
+        assertSame(topProducts, dashboard.getTopProducts());
+    }
+
+    @Test
+    void saturatedPoolMarksRejectedPartsBusy() {
+        dashboardService.shutdown();
+        // 一个线程、队列容量1：第一部分执行、第二部分排队，其余三部分被拒绝
+        dashboardService = new DashboardServiceImpl(statisticsService, stockWarningService, 1, 1, TIMEOUT_MILLIS);
+        // 排队的部分在第一部分被取消后才开始，同样阻塞，保证两者都在截止时间前未完成
+        when(statisticsService.getChartSeries(anyString(), anyString(), any(), any())).thenAnswer(inv -> {
+            release.await();
+            return stockInChart;
+        });
+
+        DashboardVO dashboard = dashboardService.getDashboard(START, END, "day", null, null);
+
+        assertEquals("计算超时", dashboard.getErrors().get("stockInChart"));
+        assertEquals("计算超时", dashboard.getErrors().get("stockOutChart"));
+        assertEquals("系统繁忙，请稍后重试", dashboard.getErrors().get("saleChart"));
+        assertEquals("系统繁忙，请稍后重试", dashboard.getErrors().get("topProducts"));
+        assertEquals("系统繁忙，请稍后重试", dashboard.getErrors().get("stockWarnings"));
+    }
+
+    @Test
+    void partsRunWithQueryDeadline() {
+        AtomicReference<Integer> remaining = new AtomicReference<>();
+        when(stockWarningService.getWarningList(any())).thenAnswer(inv -> {
+            remaining.set(QueryDeadline.remainingSeconds());
+            return warnings;
+        });
+
+        dashboardService.getDashboard(START, END, "day", null, null);
+
+        assertEquals(1, remaining.get());
+        assertNull(QueryDeadline.remainingSeconds());
+    }
+
+    private static ChartSeriesVO chart() {
+        return ChartSeriesVO.builder().granularity("day").build();
+    }
+}
@@ -0,0 +1,119 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.ProductMapper;
+import cn.pcs.appliancesystem.support.ConcurrentRunner;
+import cn.pcs.appliancesystem.support.H2Database;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 在H2上执行ProductMapper中的条件UPDATE，验证并发扣减由SQL的WHERE条件保证不超卖
+ */
+class DatabaseInventoryEngineTest {
+
+    private static final long PRODUCT_ID = 1L;
+
+    private H2Database database;
+    private JdbcTemplate jdbc;
+    private DatabaseInventoryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        database = new H2Database();
+        jdbc = database.jdbc();
+        engine = new DatabaseInventoryEngine(database.mapper(ProductMapper.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void concurrentDecreasesNeverOversell() throws Exception {
+        insert(PRODUCT_ID, 100);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ConcurrentRunner.run(32, 10, (thread, i) -> {
+            try {
+                engine.decrease(PRODUCT_ID, 1);
+                sold.incrementAndGet();
+            } catch (BusinessException e) {
+                assertTrue(e.getMessage().startsWith("可用库存不足"), e.getMessage());
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(100, sold.get());
+        assertEquals(220, rejected.get());
+        assertEquals(0, stock(PRODUCT_ID));
+    }
+
+    @Test
+    void finalStockEqualsSumOfSuccessfulDeltas() throws Exception {
+        insert(PRODUCT_ID, 50);
+        AtomicLong applied = new AtomicLong();
+
+        ConcurrentRunner.run(16, 200, (thread, i) -> {
+            int quantity = ThreadLocalRandom.current().nextInt(1, 5);
+            if (ThreadLocalRandom.current().nextBoolean()) {
+                engine.increase(PRODUCT_ID, quantity);
+                applied.addAndGet(quantity);
+            } else {
+                try {
+                    engine.decrease(PRODUCT_ID, quantity);
+                    applied.addAndGet(-quantity);
+                } catch (BusinessException e) {
+                    // 库存不足的扣减不生效
+                }
+            }
+        });
+
+        assertEquals(50 + applied.get(), stock(PRODUCT_ID));
+        assertTrue(stock(PRODUCT_ID) >= 0);
+    }
+
+    @Test
+    void reservedStockIsNotAvailableForDecrease() {
+        insert(PRODUCT_ID, 10);
+        engine.reserve(PRODUCT_ID, 8);
+
+        BusinessException e = assertThrows(BusinessException.class, () -> engine.decrease(PRODUCT_ID, 3));
+        assertEquals("可用库存不足，当前可用库存: 2", e.getMessage());
+
+        engine.commitReserved(PRODUCT_ID, 8);
+        assertEquals(2, stock(PRODUCT_ID));
+        assertEquals(0, reserved(PRODUCT_ID));
+    }
+
+    @Test
+    void missingProductIsReported() {
+        assertEquals("产品不存在", assertThrows(BusinessException.class, () -> engine.decrease(9L, 1)).getMessage());
+        assertEquals("产品不存在", assertThrows(BusinessException.class, () -> engine.increase(9L, 1)).getMessage());
+    }
+
+    private void insert(long productId, int stock) {
+        jdbc.update("INSERT INTO product (id, product_name, type_id, price, stock) VALUES (?, ?, 1, 100.00, ?)",
+                productId, "产品" + productId, stock);
+    }
+
+    private long stock(long productId) {
+        return jdbc.queryForObject("SELECT stock FROM product WHERE id = ?", Long.class, productId);
+    }
+
+    private int reserved(long productId) {
+        return jdbc.queryForObject("SELECT reserved FROM product WHERE id = ?", Integer.class, productId);
+    }
+}
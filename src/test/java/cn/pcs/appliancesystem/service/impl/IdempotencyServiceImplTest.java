@@ -0,0 +1,105 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.Result;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdempotencyServiceImplTest {
+
+    private static final String SCOPE = "sale:sell";
+
+    private InMemoryIdempotencyStore store;
+    private IdempotencyServiceImpl service;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryIdempotencyStore(3600, 100);
+        service = new IdempotencyServiceImpl(store);
+    }
+
+    @Test
+    void repeatedKeyReplaysStoredResultWithoutExecutingAgain() {
+        Result<Integer> first = service.execute(SCOPE, "k1", 7L, request(1, 2), this::sell);
+        Result<Integer> second = service.execute(SCOPE, "k1", 7L, request(1, 2), this::sell);
+
+        assertEquals(1, executions.get());
+        assertSame(first, second);
+        assertEquals(1, second.getData());
+    }
+
+    @Test
+    void keyInFlightIsRejectedWith409() {
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> service.execute(SCOPE, "k1", 7L, request(1, 2),
+                        () -> service.execute(SCOPE, "k1", 7L, request(1, 2), this::sell)));
+
+        assertEquals(409, e.getCode());
+        assertEquals("请求正在处理中，请稍后重试", e.getMessage());
+    }
+
+    @Test
+    void sameKeyWithDifferentRequestIsRejectedWith422() {
+        service.execute(SCOPE, "k1", 7L, request(1, 2), this::sell);
+
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> service.execute(SCOPE, "k1", 7L, request(1, 3), this::sell));
+
+        assertEquals(422, e.getCode());
+        assertEquals("幂等键已用于参数不同的请求", e.getMessage());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void keysAreScopedPerUserAndPerEndpoint() {
+        service.execute(SCOPE, "k1", 7L, request(1, 2), this::sell);
+        service.execute(SCOPE, "k1", 8L, request(1, 2), this::sell);
+        // 不同用户使用相同的键、携带不同参数也不冲突
+        service.execute(SCOPE, "k1", 9L, request(1, 5), this::sell);
+        service.execute("stock:in", "k1", 7L, request(1, 2), this::sell);
+
+        assertEquals(4, executions.get());
+        assertEquals(4, store.size());
+    }
+
+    @Test
+    void failedRequestReleasesKeyForRetry() {
+        assertThrows(BusinessException.class, () -> service.execute(SCOPE, "k1", 7L, request(1, 2), () -> {
+            executions.incrementAndGet();
+            throw new BusinessException("可用库存不足，当前可用库存: 0");
+        }));
+
+        Result<Integer> retried = service.execute(SCOPE, "k1", 7L, request(1, 2), this::sell);
+
+        assertEquals(2, executions.get());
+        assertEquals(2, retried.getData());
+    }
+
+    @Test
+    void blankKeyAlwaysExecutes() {
+        service.execute(SCOPE, null, 7L, request(1, 2), this::sell);
+        service.execute(SCOPE, " ", 7L, request(1, 2), this::sell);
+
+        assertEquals(2, executions.get());
+        assertEquals(0, store.size());
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> service.execute(SCOPE, "k".repeat(129), 7L, request(1, 2), this::sell));
+        assertEquals("幂等键长度不能超过128", e.getMessage());
+    }
+
+    private Result<Integer> sell() {
+        return Result.success(executions.incrementAndGet());
+    }
+
+    private static Map<String, Object> request(long productId, int quantity) {
+        return Map.of("productId", productId, "quantity", quantity);
+    }
+}
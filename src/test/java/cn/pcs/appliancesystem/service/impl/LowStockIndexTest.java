@@ -0,0 +1,174 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.controller.StockWarningController;
+import cn.pcs.appliancesystem.entity.StockChangedEvent;
+import cn.pcs.appliancesystem.entity.StockWarning;
+import cn.pcs.appliancesystem.entity.StockWarningTransition;
+import cn.pcs.appliancesystem.service.StockWarningService;
+import cn.pcs.appliancesystem.support.H2Services;
+import cn.pcs.appliancesystem.support.SseRecorder;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * 低库存索引在H2上执行：库存变化只在预警级别改变时通过 /api/stock-warning/stream 推送，
+ * 推送内容与索引快照一致
+ */
+class LowStockIndexTest {
+
+    private H2Services services;
+    private LowStockIndex index;
+    private SseRecorder stream;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        services = new H2Services();
+        services.jdbc.update("INSERT INTO product_type (id, type_name, warning_threshold) VALUES (1, '冰箱', NULL)");
+        services.insertProduct(1, "冰箱A", 12);
+        services.insertProduct(2, "冰箱B", 3);
+        services.insertProduct(3, "冰箱C", 0);
+        index = new LowStockIndex(services.productMapper, 60_000);
+        index.load();
+        stream = SseRecorder.open(new StockWarningController(mock(StockWarningService.class), index),
+                get("/api/stock-warning/stream"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.shutdown();
+        services.shutdown();
+    }
+
+    @Test
+    void subscribeStartsWithSnapshotOrderedByStock() throws Exception {
+        SseRecorder.Event snapshot = stream.await(1).get(0);
+
+        assertEquals("snapshot", snapshot.name());
+        assertEquals(List.of(3L, 2L), ids(snapshot.data()));
+        assertEquals(2, snapshot.data().get(0).get("level").asInt());
+        assertEquals(1, snapshot.data().get(1).get("level").asInt());
+        assertEquals(10, snapshot.data().get(1).get("threshold").asInt());
+    }
+
+    @Test
+    void pushesLowOutOfStockAndRecoveredTransitions() throws Exception {
+        // 12 -> 10：等于阈值进入低库存
+        services.productService.decreaseStock(1L, 2);
+        dispatch();
+        SseRecorder.Event low = stream.await(2).get(1);
+        assertTransition(low, StockWarningTransition.TYPE_LOW, 1L, 10, 1, 0);
+        assertEquals("冰箱A", low.data().get("productName").asText());
+
+        services.productService.decreaseStock(1L, 10);
+        dispatch();
+        assertTransition(stream.await(3).get(2), StockWarningTransition.TYPE_OUT_OF_STOCK, 1L, 0, 2, 1);
+
+        services.productService.increaseStock(1L, 20);
+        dispatch();
+        assertTransition(stream.await(4).get(3), StockWarningTransition.TYPE_RECOVERED, 1L, 20, 0, 2);
+
+        // 缺货直接补到正常只推送一次恢复
+        services.productService.increaseStock(3L, 50);
+        dispatch();
+        assertTransition(stream.await(5).get(4), StockWarningTransition.TYPE_RECOVERED, 3L, 50, 0, 2);
+        assertEquals(List.of(2L), snapshotIds());
+    }
+
+    @Test
+    void stockChangeWithinSameLevelIsNotPushed() throws Exception {
+        // 3 -> 1 仍为低库存，只更新索引中的库存
+        services.productService.decreaseStock(2L, 2);
+        dispatch();
+        // 后台线程按顺序处理，收到后一个变化时前一个已处理完
+        services.productService.decreaseStock(1L, 5);
+        dispatch();
+
+        List<SseRecorder.Event> events = stream.await(2);
+        assertTransition(events.get(1), StockWarningTransition.TYPE_LOW, 1L, 7, 1, 0);
+        assertEquals(2, stream.events().size());
+        List<StockWarning> snapshot = index.snapshot();
+        assertEquals(List.of(3L, 2L, 1L), snapshot.stream().map(StockWarning::getProductId).toList());
+        assertEquals(1, snapshot.get(1).getStock());
+    }
+
+    @Test
+    void takingProductOffSalePushesRecoveredWithoutStock() throws Exception {
+        services.jdbc.update("UPDATE product SET status = 0 WHERE id = 2");
+        index.onStockChanged(new StockChangedEvent(2L));
+
+        SseRecorder.Event recovered = stream.await(2).get(1);
+        assertEquals(StockWarningTransition.TYPE_RECOVERED, recovered.name());
+        assertTrue(recovered.data().get("stock").isNull());
+        assertEquals(1, recovered.data().get("previousLevel").asInt());
+        assertEquals(List.of(3L), snapshotIds());
+    }
+
+    @Test
+    void typeThresholdChangeRebuildsAndPushesOnlyChangedProducts() throws Exception {
+        services.jdbc.update("UPDATE product_type SET warning_threshold = 15 WHERE id = 1");
+        // 产品ID为空表示影响多个产品，重新加载全部预警
+        index.onStockChanged(new StockChangedEvent(null));
+
+        SseRecorder.Event low = stream.await(2).get(1);
+        assertTransition(low, StockWarningTransition.TYPE_LOW, 1L, 12, 1, 0);
+        assertEquals(15, low.data().get("threshold").asInt());
+
+        services.jdbc.update("UPDATE product_type SET warning_threshold = 2 WHERE id = 1");
+        index.onStockChanged(new StockChangedEvent(null));
+
+        List<SseRecorder.Event> events = stream.await(4);
+        List<String> recovered = new ArrayList<>();
+        for (SseRecorder.Event event : events.subList(2, 4)) {
+            assertEquals(StockWarningTransition.TYPE_RECOVERED, event.name());
+            recovered.add(event.data().get("productId").asLong() + ":" + event.data().get("stock").asInt());
+        }
+        assertEquals(List.of("1:12", "2:3"), recovered.stream().sorted().toList());
+        assertEquals(List.of(3L), snapshotIds());
+    }
+
+    /**
+     * 把服务发布的库存变化事件交给索引，相当于事务提交后的监听
+     */
+    private void dispatch() {
+        List<Object> published;
+        synchronized (services.events) {
+            published = new ArrayList<>(services.events);
+            services.events.clear();
+        }
+        for (Object event : published) {
+            if (event instanceof StockChangedEvent stockChanged) {
+                index.onStockChanged(stockChanged);
+            }
+        }
+    }
+
+    private List<Long> snapshotIds() {
+        return index.snapshot().stream().map(StockWarning::getProductId).toList();
+    }
+
+    private static void assertTransition(SseRecorder.Event event, String type, long productId, int stock,
+                                         int level, int previousLevel) {
+        assertEquals(type, event.name());
+        assertEquals(type, event.data().get("type").asText());
+        assertEquals(productId, event.data().get("productId").asLong());
+        assertEquals(stock, event.data().get("stock").asInt());
+        assertEquals(level, event.data().get("level").asInt());
+        assertEquals(previousLevel, event.data().get("previousLevel").asInt());
+    }
+
+    private static List<Long> ids(JsonNode warnings) {
+        List<Long> ids = new ArrayList<>();
+        warnings.forEach(warning -> ids.add(warning.get("productId").asLong()));
+        return ids;
+    }
+}
@@ -0,0 +1,205 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.controller.ProductController;
+import cn.pcs.appliancesystem.entity.StockChangedEvent;
+import cn.pcs.appliancesystem.service.ProductService;
+import cn.pcs.appliancesystem.support.H2Services;
+import cn.pcs.appliancesystem.support.SseRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * 产品库存变更推送在H2上执行：通过 /api/product/stream 订阅，断线重连时按lastSeq参数或
+ * Last-Event-ID请求头补发缓冲区中的变更，无法补发时推送reset
+ */
+class ProductChangeFeedTest {
+
+    private static final int CAPACITY = 4;
+
+    private H2Services services;
+    private ProductChangeFeed feed;
+    private ProductController controller;
+    // 一直在线的终端，用于等待变更处理完成并取得序号
+    private SseRecorder live;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        services = new H2Services();
+        services.insertProduct(1, "冰箱", 10);
+        services.insertProduct(2, "空调", 20);
+        feed = new ProductChangeFeed(services.productMapper, CAPACITY, 60_000);
+        controller = new ProductController(mock(ProductService.class), feed);
+        live = subscribe(get("/api/product/stream"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.shutdown();
+        services.shutdown();
+    }
+
+    @Test
+    void newConnectionGetsResetThenConsecutiveChanges() throws Exception {
+        SseRecorder.Event reset = live.await(1).get(0);
+        assertEquals(ProductChangeFeed.EVENT_RESET, reset.name());
+        long start = reset.data().get("lastSeq").asLong();
+        assertEquals(String.valueOf(start), reset.id());
+
+        services.productService.decreaseStock(1L, 3);
+        services.productService.increaseStock(2L, 5);
+        List<SseRecorder.Event> changes = changes(2);
+
+        assertEquals(List.of(start + 1, start + 2), seqs(changes));
+        SseRecorder.Event first = changes.get(0);
+        assertEquals(ProductChangeFeed.EVENT_CHANGE, first.name());
+        assertEquals(1L, first.data().get("productId").asLong());
+        assertEquals(7, first.data().get("stock").asInt());
+        assertEquals(version(1L), first.data().get("version").asInt());
+        assertEquals(1, first.data().get("status").asInt());
+        assertFalse(first.data().get("deleted").asBoolean());
+        assertEquals(25, changes.get(1).data().get("stock").asInt());
+    }
+
+    @Test
+    void resumeFromSequenceReplaysMissedChangesThenContinuesLive() throws Exception {
+        services.productService.decreaseStock(1L, 1);
+        services.productService.decreaseStock(2L, 2);
+        changes(2);
+        // 同一产品排队未处理时的多次变化会合并，等前一次推送后再修改
+        services.productService.decreaseStock(1L, 3);
+        List<SseRecorder.Event> changes = changes(3);
+        long received = seq(changes.get(0));
+
+        SseRecorder resumed = subscribe(get("/api/product/stream").param("lastSeq", String.valueOf(received)));
+
+        List<SseRecorder.Event> replayed = resumed.await(2);
+        assertEquals(List.of(received + 1, received + 2), seqs(replayed));
+        assertEquals(List.of(18, 6), stocks(replayed));
+        // 补发之后的新变更只推送一次
+        services.productService.increaseStock(2L, 10);
+        changes(4);
+        List<SseRecorder.Event> all = resumed.await(3);
+        assertEquals(List.of(received + 1, received + 2, received + 3), seqs(all));
+        assertEquals(28, all.get(2).data().get("stock").asInt());
+        assertEquals(3, resumed.events().size());
+    }
+
+    @Test
+    void lastEventIdHeaderResumesLikeLastSeq() throws Exception {
+        services.productService.increaseStock(1L, 1);
+        services.productService.increaseStock(2L, 1);
+        long received = seq(changes(2).get(0));
+
+        SseRecorder resumed = subscribe(get("/api/product/stream").header("Last-Event-ID", String.valueOf(received)));
+
+        List<SseRecorder.Event> replayed = resumed.await(1);
+        assertEquals(List.of(received + 1), seqs(replayed));
+        assertEquals(2L, replayed.get(0).data().get("productId").asLong());
+    }
+
+    @Test
+    void caughtUpTerminalReceivesNothingUntilNextChange() throws Exception {
+        services.productService.increaseStock(1L, 1);
+        long latest = seq(changes(1).get(0));
+
+        SseRecorder resumed = subscribe(get("/api/product/stream").param("lastSeq", String.valueOf(latest)));
+        services.productService.increaseStock(1L, 1);
+        changes(2);
+
+        List<SseRecorder.Event> events = resumed.await(1);
+        assertEquals(1, events.size());
+        assertEquals(List.of(latest + 1), seqs(events));
+    }
+
+    @Test
+    void overwrittenOrForeignSequenceGetsReset() throws Exception {
+        for (int i = 0; i < CAPACITY + 2; i++) {
+            services.productService.increaseStock(1L, 1);
+            changes(i + 1);
+        }
+        List<SseRecorder.Event> changes = changes(CAPACITY + 2);
+        long latest = seq(changes.get(CAPACITY + 1));
+
+        // 最早两条已被覆盖：从第一条之后补发缺少第二条，只能重置
+        assertReset(subscribe(get("/api/product/stream").param("lastSeq", String.valueOf(seq(changes.get(0))))), latest);
+        // 第二条之后的变更仍全部在缓冲区中
+        SseRecorder oldest = subscribe(get("/api/product/stream").param("lastSeq", String.valueOf(seq(changes.get(1)))));
+        assertEquals(seqs(changes.subList(2, CAPACITY + 2)), seqs(oldest.await(CAPACITY)));
+        // 大于当前序号，属于之前的某次启动
+        assertReset(subscribe(get("/api/product/stream").param("lastSeq", String.valueOf(latest + 1000))), latest);
+        assertReset(subscribe(get("/api/product/stream").param("lastSeq", "1")), latest);
+    }
+
+    @Test
+    void deletedProductIsPublishedWithoutStock() throws Exception {
+        services.jdbc.update("DELETE FROM product WHERE id = 2");
+        feed.onStockChanged(new StockChangedEvent(2L));
+        // 产品ID为空只表示类型阈值变化，不推送
+        feed.onStockChanged(new StockChangedEvent(null));
+        services.productService.increaseStock(1L, 1);
+
+        List<SseRecorder.Event> changes = changes(2);
+        SseRecorder.Event deleted = changes.get(0);
+        assertTrue(deleted.data().get("deleted").asBoolean());
+        assertTrue(deleted.data().get("stock").isNull());
+        assertEquals(1L, changes.get(1).data().get("productId").asLong());
+        assertEquals(seq(deleted) + 1, seq(changes.get(1)));
+    }
+
+    private SseRecorder subscribe(MockHttpServletRequestBuilder request) throws Exception {
+        return SseRecorder.open(controller, request);
+    }
+
+    /**
+     * 把服务发布的事件交给推送，等待在线终端收到至少count个变更，返回全部变更
+     */
+    private List<SseRecorder.Event> changes(int count) throws Exception {
+        List<Object> published;
+        synchronized (services.events) {
+            published = new ArrayList<>(services.events);
+            services.events.clear();
+        }
+        for (Object event : published) {
+            if (event instanceof StockChangedEvent stockChanged) {
+                feed.onStockChanged(stockChanged);
+            }
+        }
+        List<SseRecorder.Event> events = live.await(count + 1);
+        return events.subList(1, events.size());
+    }
+
+    private void assertReset(SseRecorder recorder, long latest) throws Exception {
+        List<SseRecorder.Event> events = recorder.await(1);
+        assertEquals(1, events.size());
+        assertEquals(ProductChangeFeed.EVENT_RESET, events.get(0).name());
+        assertEquals(latest, events.get(0).data().get("lastSeq").asLong());
+    }
+
+    private int version(long productId) {
+        return services.jdbc.queryForObject("SELECT version FROM product WHERE id = ?", Integer.class, productId);
+    }
+
+    private static long seq(SseRecorder.Event event) {
+        assertEquals(event.id(), event.data().get("seq").asText());
+        return event.data().get("seq").asLong();
+    }
+
+    private static List<Long> seqs(List<SseRecorder.Event> events) {
+        return events.stream().map(ProductChangeFeedTest::seq).toList();
+    }
+
+    private static List<Integer> stocks(List<SseRecorder.Event> events) {
+        return events.stream().map(event -> event.data().get("stock").asInt()).toList();
+    }
+}
@@ -0,0 +1,162 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.Product;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.ProductMapper;
+import cn.pcs.appliancesystem.support.H2Services;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 产品更新的乐观锁在H2上执行：只有实际修改库存时要求版本号，其他字段冲突后自动重试，库存冲突直接返回409
+ */
+class ProductServiceImplTest {
+
+    private static final long PRODUCT_ID = 1L;
+
+    private H2Services services;
+    private ProductLockMetrics metrics;
+    private DictionaryCache dictionaryCache;
+    private ProductServiceImpl productService;
+    // updateById 执行前由其他事务修改产品的次数
+    private final AtomicInteger concurrentEdits = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        services = new H2Services();
+        services.insertProduct(PRODUCT_ID, "冰箱", 10);
+        // 在读取产品之后、乐观锁更新之前插入其他事务的提交，模拟并发修改
+        ProductMapper productMapper = mock(ProductMapper.class, delegatesTo(services.productMapper));
+        doAnswer(inv -> {
+            if (concurrentEdits.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+                services.jdbc.update("UPDATE product SET status = status, version = version + 1 WHERE id = ?", PRODUCT_ID);
+            }
+            return services.productMapper.updateById((Product) inv.getArgument(0));
+        }).when(productMapper).updateById(any(Product.class));
+        metrics = new ProductLockMetrics();
+        dictionaryCache = spy(services.dictionaryCache);
+        productService = new ProductServiceImpl(productMapper, services.inventoryEngine,
+                services.inventoryLedgerService, services.transactionTemplate(), metrics,
+                dictionaryCache, services.events::add);
+        ReflectionTestUtils.setField(productService, "maxRetries", 3);
+        ReflectionTestUtils.setField(productService, "retryBackoffMillis", 1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.shutdown();
+    }
+
+    @Test
+    void unchangedStockDoesNotRequireVersion() {
+        assertTrue(productService.updateProduct(Product.builder()
+                .id(PRODUCT_ID)
+                .price(new BigDecimal("88.00"))
+                .stock(10)
+                .build()));
+
+        assertEquals(0, new BigDecimal("88.00").compareTo(services.jdbc.queryForObject(
+                "SELECT price FROM product WHERE id = ?", BigDecimal.class, PRODUCT_ID)));
+        assertEquals(10, services.stock(PRODUCT_ID));
+        assertEquals(0, services.count("inventory_movement"));
+    }
+
+    @Test
+    void changedStockRequiresVersion() {
+        BusinessException e = assertThrows(BusinessException.class, () -> productService.updateProduct(Product.builder()
+                .id(PRODUCT_ID)
+                .productName("新冰箱")
+                .stock(12)
+                .build()));
+
+        assertEquals("修改库存时必须提供产品版本号", e.getMessage());
+        assertEquals(10, services.stock(PRODUCT_ID));
+        assertEquals("冰箱", services.jdbc.queryForObject(
+                "SELECT product_name FROM product WHERE id = ?", String.class, PRODUCT_ID));
+
+        assertTrue(productService.updateProduct(Product.builder().id(PRODUCT_ID).stock(12).version(version()).build()));
+        assertEquals(12, services.stock(PRODUCT_ID));
+        assertEquals(2, services.jdbc.queryForObject(
+                "SELECT change_qty FROM inventory_movement WHERE product_id = ?", Integer.class, PRODUCT_ID));
+    }
+
+    @Test
+    void conflictingFieldUpdateIsRetriedWithLatestVersion() {
+        concurrentEdits.set(2);
+
+        assertTrue(productService.updateProduct(Product.builder().id(PRODUCT_ID).productName("新冰箱").build()));
+
+        assertEquals("新冰箱", services.jdbc.queryForObject(
+                "SELECT product_name FROM product WHERE id = ?", String.class, PRODUCT_ID));
+        assertEquals(3L, metrics.getTotal().getAttempts());
+        assertEquals(2L, metrics.getTotal().getConflicts());
+        assertEquals(2L, metrics.getTotal().getRetries());
+        assertEquals(0L, metrics.getTotal().getFailures());
+        assertEquals("新冰箱", dictionaryCache.getProductName(PRODUCT_ID));
+    }
+
+    @Test
+    void persistentConflictFailsAfterMaxRetries() {
+        concurrentEdits.set(Integer.MAX_VALUE);
+
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> productService.updateProduct(Product.builder().id(PRODUCT_ID).status(0).build()));
+
+        assertEquals(409, e.getCode());
+        assertEquals("产品正在被频繁修改，请稍后重试", e.getMessage());
+        assertEquals(4L, metrics.getTotal().getAttempts());
+        assertEquals(3L, metrics.getTotal().getRetries());
+        assertEquals(1L, metrics.getTotal().getFailures());
+    }
+
+    @Test
+    void staleVersionForStockChangeIsRejectedWithoutRetry() {
+        int staleVersion = version();
+        concurrentEdits.set(1);
+
+        BusinessException e = assertThrows(BusinessException.class, () -> productService.updateProduct(Product.builder()
+                .id(PRODUCT_ID)
+                .stock(20)
+                .version(staleVersion)
+                .build()));
+
+        assertEquals(409, e.getCode());
+        assertEquals("产品库存已被修改，请刷新后重试", e.getMessage());
+        assertEquals(10, services.stock(PRODUCT_ID));
+        assertEquals(1L, metrics.getTotal().getAttempts());
+        assertEquals(0L, metrics.getTotal().getRetries());
+        assertEquals(0, services.count("inventory_movement"));
+    }
+
+    @Test
+    void partialUpdateKeepsCachedProductName() {
+        assertEquals("冰箱", dictionaryCache.getProductName(PRODUCT_ID));
+
+        assertTrue(productService.updateProduct(Product.builder().id(PRODUCT_ID).price(new BigDecimal("66.00")).build()));
+
+        verify(dictionaryCache, never()).onProductSaved(any(), any());
+        assertEquals("冰箱", dictionaryCache.getProductName(PRODUCT_ID));
+        assertEquals("冰箱", services.jdbc.queryForObject(
+                "SELECT product_name FROM product WHERE id = ?", String.class, PRODUCT_ID));
+    }
+
+    private int version() {
+        return services.jdbc.queryForObject("SELECT version FROM product WHERE id = ?", Integer.class, PRODUCT_ID);
+    }
+}
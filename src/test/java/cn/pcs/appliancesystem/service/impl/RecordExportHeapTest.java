@@ -0,0 +1,154 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.RecordPageQuery;
+import cn.pcs.appliancesystem.entity.StockInRecordVO;
+import cn.pcs.appliancesystem.mapper.SaleMapper;
+import cn.pcs.appliancesystem.mapper.StockInMapper;
+import cn.pcs.appliancesystem.mapper.StockOutMapper;
+import cn.pcs.appliancesystem.support.ResultStreams;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 在堆上限64MB的子进程中导出100万行：导出逐行写出，不在内存中累积结果集或响应内容。
+ * mapper按流式查询的方式逐行交出现生成的记录，响应只统计写出的字节数和行数
+ */
+class RecordExportHeapTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final String HEAP = "-Xmx64m";
+
+    @ParameterizedTest
+    @ValueSource(strings = {"csv", "ndjson"})
+    void millionRowExportRunsInSmallHeap(String format) throws Exception {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        Process process = new ProcessBuilder(java.toString(), HEAP, "-XX:+ExitOnOutOfMemoryError",
+                "-cp", System.getProperty("java.class.path"), Export.class.getName(), format)
+                .redirectErrorStream(true)
+                .start();
+        String output;
+        try (InputStream in = process.getInputStream()) {
+            output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertTrue(process.waitFor(120, TimeUnit.SECONDS), output);
+
+        assertEquals(0, process.exitValue(), output);
+        int lines = "csv".equals(format) ? ROWS + 1 : ROWS;
+        assertTrue(output.contains("exported=" + ROWS + " lines=" + lines + " "), output);
+    }
+
+    /**
+     * 子进程入口：以给定格式导出，输出导出行数、响应行数和字节数
+     */
+    public static final class Export {
+
+        public static void main(String[] args) throws IOException {
+            String format = args[0];
+            if (Runtime.getRuntime().maxMemory() > 64L * 1024 * 1024) {
+                throw new IllegalStateException("堆上限未生效: " + Runtime.getRuntime().maxMemory());
+            }
+            StockInMapper stockInMapper = mock(StockInMapper.class);
+            doAnswer(inv -> {
+                ResultHandler<StockInRecordVO> handler = inv.getArgument(1);
+                ResultStreams.feed(Export::rows, handler);
+                return null;
+            }).when(stockInMapper).streamRecords(any(), any());
+            RecordExportServiceImpl exportService = new RecordExportServiceImpl(stockInMapper,
+                    mock(StockOutMapper.class), mock(SaleMapper.class),
+                    new ObjectMapper().registerModule(new JavaTimeModule()));
+            CountingResponse response = new CountingResponse();
+
+            long exported = exportService.exportStockInRecords(new RecordPageQuery(), format, response);
+
+            System.out.println("exported=" + exported + " lines=" + response.body.lines + " bytes=" + response.body.bytes);
+        }
+
+        private static Iterator<StockInRecordVO> rows() {
+            LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+            return new Iterator<>() {
+                private long id;
+
+                @Override
+                public boolean hasNext() {
+                    return id < ROWS;
+                }
+
+                @Override
+                public StockInRecordVO next() {
+                    id++;
+                    return StockInRecordVO.builder()
+                            .id(id)
+                            .productName("海尔双开门冰箱")
+                            .quantity((int) (id % 50) + 1)
+                            .operator("张三")
+                            .inTime(start.plusSeconds(id))
+                            .build();
+                }
+            };
+        }
+    }
+
+    /**
+     * 只统计写出内容的响应，不保留响应体
+     */
+    private static final class CountingResponse extends MockHttpServletResponse {
+        private final CountingOutputStream body = new CountingOutputStream();
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return body;
+        }
+    }
+
+    private static final class CountingOutputStream extends ServletOutputStream {
+        private long bytes;
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.RecordPageQuery;
+import cn.pcs.appliancesystem.entity.StockInRecordVO;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.SaleMapper;
+import cn.pcs.appliancesystem.mapper.StockInMapper;
+import cn.pcs.appliancesystem.mapper.StockOutMapper;
+import cn.pcs.appliancesystem.support.ResultStreams;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class RecordExportServiceImplTest {
+
+    private StockInMapper stockInMapper;
+    private RecordExportServiceImpl exportService;
+    private final List<StockInRecordVO> rows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        stockInMapper = mock(StockInMapper.class);
+        exportService = new RecordExportServiceImpl(stockInMapper, mock(StockOutMapper.class), mock(SaleMapper.class),
+                new ObjectMapper().registerModule(new JavaTimeModule()));
+        doAnswer(inv -> {
+            ResultHandler<StockInRecordVO> handler = inv.getArgument(1);
+            ResultStreams.feed(rows, handler);
+            return null;
+        }).when(stockInMapper).streamRecords(any(), any());
+        LocalDateTime time = LocalDateTime.of(2024, 5, 1, 9, 0);
+        for (long id = 1; id <= 2500; id++) {
+            rows.add(StockInRecordVO.builder()
+                    .id(id)
+                    .productName("冰箱")
+                    .quantity(1)
+                    .operator("张三")
+                    .inTime(time)
+                    .build());
+        }
+    }
+
+    @Test
+    void csvExportStreamsAllRowsWithDownloadHeaders() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RecordPageQuery query = RecordPageQuery.builder().productId(1L).build();
+
+        long exported = exportService.exportStockInRecords(query, "csv", response);
+
+        assertEquals(2500, exported);
+        assertTrue(response.getContentType().startsWith("text/csv"), response.getContentType());
+        assertEquals("UTF-8", response.getCharacterEncoding());
+        assertEquals("attachment; filename=stock-in-records.csv", response.getHeader("Content-Disposition"));
+        String[] lines = response.getContentAsString().split("\r\n");
+        assertEquals(2501, lines.length);
+        assertEquals("\uFEFF入库记录ID,产品名称,入库数量,操作人,入库时间", lines[0]);
+        assertEquals("2500,冰箱,1,张三,2024-05-01 09:00:00", lines[2500]);
+        verify(stockInMapper).streamRecords(eq(query), any());
+    }
+
+    @Test
+    void ndjsonExportSetsContentType() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        long exported = exportService.exportStockInRecords(new RecordPageQuery(), "ndjson", response);
+
+        assertEquals(2500, exported);
+        assertTrue(response.getContentType().startsWith("application/x-ndjson"), response.getContentType());
+        assertEquals("attachment; filename=stock-in-records.ndjson", response.getHeader("Content-Disposition"));
+        assertEquals(2500, response.getContentAsString().split("\n").length);
+    }
+
+    @Test
+    void unknownFormatIsRejectedBeforeQuerying() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        BusinessException e = assertThrows(BusinessException.class, () ->
+                exportService.exportStockInRecords(new RecordPageQuery(), "xlsx", response));
+
+        assertEquals("导出格式只支持csv或ndjson", e.getMessage());
+        verifyNoInteractions(stockInMapper);
+    }
+}
@@ -0,0 +1,150 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.SaleRecordVO;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.support.ResultStreams;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordExportWriterTest {
+
+    private static final String[] HEADERS = {"销售记录ID", "产品名称", "销售数量", "总价格", "销售员", "销售时间"};
+    private static final Function<SaleRecordVO, Object[]> COLUMNS = r -> new Object[]{r.getId(), r.getProductName(),
+            r.getQuantity(), r.getTotalPrice(), r.getSalesman(), r.getSaleTime()};
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 5, 1, 9, 30, 5);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void csvStartsWithBomAndHeaderAndEscapesSpecialCharacters() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordExportWriter<SaleRecordVO> writer = csvWriter(out);
+
+        ResultStreams.feed(List.of(
+                sale(1L, "冰箱, 双门", 2, "12.50", "张\"三\""),
+                sale(2L, "洗衣机\n滚筒", 1, "3000", null)), writer);
+
+        assertEquals(2, writer.finish());
+        assertEquals("\uFEFF销售记录ID,产品名称,销售数量,总价格,销售员,销售时间\r\n"
+                + "1,\"冰箱, 双门\",2,12.50,\"张\"\"三\"\"\",2024-05-01 09:30:05\r\n"
+                + "2,\"洗衣机\n滚筒\",1,3000,,2024-05-01 09:30:05\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void formulaLikeTextIsPrefixedButNumbersAreNot() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordExportWriter<SaleRecordVO> writer = csvWriter(out);
+
+        ResultStreams.feed(List.of(
+                sale(1L, "=HYPERLINK(\"http://x\")", -3, "-12.50", "@admin"),
+                sale(2L, "+1", 1, "1", "-x"),
+                sale(3L, "\tcmd", 1, "1", "普通")), writer);
+        writer.finish();
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals("1,\"'=HYPERLINK(\"\"http://x\"\")\",-3,-12.50,'@admin,2024-05-01 09:30:05", lines[1]);
+        assertEquals("2,'+1,1,1,'-x,2024-05-01 09:30:05", lines[2]);
+        assertEquals("3,'\tcmd,1,1,普通,2024-05-01 09:30:05", lines[3]);
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordExportWriter<SaleRecordVO> writer = new RecordExportWriter<>(out, RecordExportWriter.FORMAT_NDJSON,
+                HEADERS, COLUMNS, objectMapper);
+
+        ResultStreams.feed(List.of(sale(1L, "=冰箱", 2, "12.50", "张三"), sale(2L, "洗衣机", 1, "3000", "李四")), writer);
+
+        assertEquals(2, writer.finish());
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        // NDJSON不是表格，不加公式前缀
+        assertEquals("=冰箱", first.get("productName").asText());
+        assertEquals("2024-05-01 09:30:05", first.get("saleTime").asText());
+        assertEquals(2L, objectMapper.readTree(lines[1]).get("id").asLong());
+    }
+
+    @Test
+    void stopsReadingWhenClientDisconnects() {
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        RecordExportWriter<SaleRecordVO> writer = csvWriter(disconnected);
+        List<SaleRecordVO> rows = new ArrayList<>();
+        for (long id = 1; id <= 100_000; id++) {
+            rows.add(sale(id, "冰箱", 1, "1", "张三"));
+        }
+
+        int handled = ResultStreams.feed(rows, writer);
+
+        assertTrue(writer.isAborted());
+        assertTrue(handled < rows.size(), "handled=" + handled);
+        assertTrue(writer.finish() < handled);
+    }
+
+    @Test
+    void flushesWhileStreaming() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordExportWriter<SaleRecordVO> writer = csvWriter(out);
+        List<SaleRecordVO> rows = new ArrayList<>();
+        for (long id = 1; id <= 1500; id++) {
+            rows.add(sale(id, "冰箱", 1, "1", "张三"));
+        }
+
+        ResultStreams.feed(rows, writer);
+
+        // 写满一批后已刷新到输出流，不必等到finish
+        assertTrue(out.size() > 0);
+        int flushed = out.size();
+        assertEquals(1500, writer.finish());
+        assertTrue(out.size() > flushed);
+        assertFalse(writer.isAborted());
+    }
+
+    @Test
+    void rejectsUnknownFormat() {
+        BusinessException e = assertThrows(BusinessException.class, () -> RecordExportWriter.checkFormat("xlsx"));
+        assertEquals("导出格式只支持csv或ndjson", e.getMessage());
+    }
+
+    private RecordExportWriter<SaleRecordVO> csvWriter(OutputStream out) {
+        return new RecordExportWriter<>(out, RecordExportWriter.FORMAT_CSV, HEADERS, COLUMNS, objectMapper);
+    }
+
+    private static SaleRecordVO sale(Long id, String productName, int quantity, String totalPrice, String salesman) {
+        return SaleRecordVO.builder()
+                .id(id)
+                .productName(productName)
+                .quantity(quantity)
+                .totalPrice(new BigDecimal(totalPrice))
+                .salesman(salesman)
+                .saleTime(TIME)
+                .build();
+    }
+}
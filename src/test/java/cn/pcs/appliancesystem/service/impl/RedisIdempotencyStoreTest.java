@@ -0,0 +1,110 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.Result;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Redis幂等键存储在进程内的Redis（jedis-mock）上验证：结果经JSON往返后可重放，处理中标记与结果使用各自的有效期
+ */
+class RedisIdempotencyStoreTest {
+
+    private static final String SCOPE = "sale:sell";
+    private static final String KEY = "idempotency:" + SCOPE + ":7:k1";
+
+    private RedisServer server;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private IdempotencyServiceImpl service;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = RedisServer.newRedisServer().start();
+        // jedis-mock只支持RESP2协议
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()),
+                LettuceClientConfiguration.builder()
+                        .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                        .build());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        service = new IdempotencyServiceImpl(new RedisIdempotencyStore(redisTemplate, 3600, 30));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @Test
+    void completedResultIsReplayedFromRedis() {
+        Result<Integer> first = service.execute(SCOPE, "k1", 7L, request(2), this::sell);
+        Result<Integer> replayed = service.execute(SCOPE, "k1", 7L, request(2), this::sell);
+
+        assertEquals(1, executions.get());
+        assertEquals(first.getCode(), replayed.getCode());
+        assertEquals(first.getMessage(), replayed.getMessage());
+        assertEquals(1, replayed.getData());
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> service.execute(SCOPE, "k1", 7L, request(3), this::sell));
+        assertEquals(422, e.getCode());
+        // 其他用户的相同键不受影响
+        service.execute(SCOPE, "k1", 8L, request(3), this::sell);
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void inFlightMarkerUsesShortTtlAndCompletedResultUsesLongTtl() {
+        service.execute(SCOPE, "k1", 7L, request(2), () -> {
+            long processingTtl = redisTemplate.getExpire(KEY, TimeUnit.SECONDS);
+            assertTrue(processingTtl > 0 && processingTtl <= 30, "处理中标记有效期: " + processingTtl);
+            BusinessException e = assertThrows(BusinessException.class,
+                    () -> service.execute(SCOPE, "k1", 7L, request(2), this::sell));
+            assertEquals(409, e.getCode());
+            return sell();
+        });
+
+        long resultTtl = redisTemplate.getExpire(KEY, TimeUnit.SECONDS);
+        assertTrue(resultTtl > 3500 && resultTtl <= 3600, "结果有效期: " + resultTtl);
+    }
+
+    @Test
+    void failedRequestDeletesMarker() {
+        assertThrows(BusinessException.class, () -> service.execute(SCOPE, "k1", 7L, request(2), () -> {
+            throw new BusinessException("可用库存不足，当前可用库存: 0");
+        }));
+
+        assertNull(redisTemplate.opsForValue().get(KEY));
+        assertEquals(1, service.execute(SCOPE, "k1", 7L, request(2), this::sell).getData());
+    }
+
+    private Result<Integer> sell() {
+        return Result.success(executions.incrementAndGet());
+    }
+
+    private static Map<String, Object> request(int quantity) {
+        return Map.of("productId", 1L, "quantity", quantity);
+    }
+}
@@ -0,0 +1,296 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.StockChangedEvent;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.InventoryFlushBatchMapper;
+import cn.pcs.appliancesystem.support.ConcurrentRunner;
+import cn.pcs.appliancesystem.support.InMemoryProductTable;
+import cn.pcs.appliancesystem.support.TestTransactionManager;
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Redis库存引擎的Lua脚本、回写和回滚补偿在进程内的Redis（jedis-mock，执行真实的Lua脚本）上验证；
+ * 设置环境变量REDIS_HOST（可选REDIS_PORT）时改为连接该Redis的15号库，执行前后清空库中的库存key
+ */
+class RedisInventoryEngineTest {
+
+    private static final long PRODUCT_ID = 1L;
+
+    private RedisServer server;
+    private InventoryFlushBatchMapper flushBatchMapper;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private InMemoryProductTable table;
+    private TestTransactionManager transactionManager;
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+    // 下一次脚本执行完成后运行一次，用于在引擎的两步操作之间插入并发修改
+    private final AtomicReference<Runnable> afterScript = new AtomicReference<>();
+    private RedisInventoryEngine engine;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        RedisStandaloneConfiguration configuration;
+        String host = System.getenv("REDIS_HOST");
+        if (host != null && !host.isBlank()) {
+            configuration = new RedisStandaloneConfiguration(host,
+                    Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379")));
+            configuration.setDatabase(15);
+        } else {
+            server = RedisServer.newRedisServer().start();
+            configuration = new RedisStandaloneConfiguration(server.getHost(), server.getBindPort());
+        }
+        // jedis-mock只支持RESP2协议
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                .build();
+        connectionFactory = new LettuceConnectionFactory(configuration, clientConfiguration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory) {
+            @Override
+            public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+                T result = super.execute(script, keys, args);
+                Runnable hook = afterScript.getAndSet(null);
+                if (hook != null) {
+                    hook.run();
+                }
+                return result;
+            }
+        };
+        clearKeys();
+
+        table = new InMemoryProductTable();
+        transactionManager = new TestTransactionManager();
+        flushBatchMapper = mock(InventoryFlushBatchMapper.class);
+        engine = new RedisInventoryEngine(redisTemplate, table.mapper(), new TransactionTemplate(transactionManager),
+                flushBatchMapper, events::add);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        clearKeys();
+        connectionFactory.destroy();
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void concurrentDecreasesNeverOversellAndFlushWritesNetDelta() throws Exception {
+        table.insert(PRODUCT_ID, 100);
+        AtomicInteger sold = new AtomicInteger();
+
+        ConcurrentRunner.run(32, 10, (thread, i) -> {
+            try {
+                engine.decrease(PRODUCT_ID, 1);
+                sold.incrementAndGet();
+            } catch (BusinessException e) {
+                // 库存不足
+            }
+        });
+
+        assertEquals(100, sold.get());
+        assertEquals(0, engine.get(PRODUCT_ID));
+        // 回写之前数据库库存不变
+        assertEquals(100, table.stock(PRODUCT_ID));
+
+        engine.flush();
+        assertEquals(0, table.stock(PRODUCT_ID));
+        assertEquals(List.of(new StockChangedEvent(PRODUCT_ID)), events);
+    }
+
+    @Test
+    void finalStockEqualsSumOfSuccessfulDeltas() throws Exception {
+        table.insert(PRODUCT_ID, 50);
+        AtomicLong applied = new AtomicLong();
+
+        ConcurrentRunner.run(16, 100, (thread, i) -> {
+            int quantity = ThreadLocalRandom.current().nextInt(1, 5);
+            if (ThreadLocalRandom.current().nextBoolean()) {
+                engine.increase(PRODUCT_ID, quantity);
+                applied.addAndGet(quantity);
+            } else {
+                try {
+                    engine.decrease(PRODUCT_ID, quantity);
+                    applied.addAndGet(-quantity);
+                } catch (BusinessException e) {
+                    // 库存不足的扣减不生效
+                }
+            }
+            if (i % 25 == 0) {
+                // 回写与扣减并发进行
+                engine.flush();
+            }
+        });
+        engine.flush();
+
+        assertEquals(50 + applied.get(), (long) engine.get(PRODUCT_ID));
+        assertEquals(50 + applied.get(), table.stock(PRODUCT_ID));
+    }
+
+    @Test
+    void rolledBackDecreaseIsCompensated() {
+        table.insert(PRODUCT_ID, 10);
+        engine.get(PRODUCT_ID);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            engine.decrease(PRODUCT_ID, 4);
+            assertEquals(6, engine.get(PRODUCT_ID));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(10, engine.get(PRODUCT_ID));
+        engine.flush();
+        assertEquals(10, table.stock(PRODUCT_ID));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void rolledBackIncreaseIsCompensated() {
+        table.insert(PRODUCT_ID, 10);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            engine.increase(PRODUCT_ID, 5);
+            assertEquals(15, engine.get(PRODUCT_ID));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(10, engine.get(PRODUCT_ID));
+        engine.flush();
+        assertEquals(10, table.stock(PRODUCT_ID));
+    }
+
+    @Test
+    void reservationsLimitAvailableStockUntilCommitted() {
+        table.insert(PRODUCT_ID, 10);
+
+        engine.reserve(PRODUCT_ID, 8);
+        assertEquals(2, engine.getAvailable(PRODUCT_ID));
+        assertEquals(8, table.reserved(PRODUCT_ID));
+        BusinessException e = assertThrows(BusinessException.class, () -> engine.decrease(PRODUCT_ID, 3));
+        assertEquals("可用库存不足，当前可用库存: 2", e.getMessage());
+        assertThrows(BusinessException.class, () -> engine.set(PRODUCT_ID, 7));
+
+        engine.commitReserved(PRODUCT_ID, 5);
+        engine.unreserve(PRODUCT_ID, 3);
+        assertEquals(5, engine.get(PRODUCT_ID));
+        assertEquals(5, engine.getAvailable(PRODUCT_ID));
+        assertEquals(0, table.reserved(PRODUCT_ID));
+
+        engine.flush();
+        assertEquals(5, table.stock(PRODUCT_ID));
+    }
+
+    @Test
+    void setRecordsDifferenceForWriteBehind() {
+        table.insert(PRODUCT_ID, 10);
+        engine.decrease(PRODUCT_ID, 4);
+
+        assertEquals(6, engine.set(PRODUCT_ID, 20));
+        engine.flush();
+
+        assertEquals(20, engine.get(PRODUCT_ID));
+        assertEquals(20, table.stock(PRODUCT_ID));
+    }
+
+    @Test
+    void alreadyFlushedBatchIsNotAppliedTwice() {
+        table.insert(PRODUCT_ID, 10);
+        engine.decrease(PRODUCT_ID, 3);
+        // 模拟上次回写已提交、删除待回写Hash前进程崩溃：批次已登记
+        doThrow(new DuplicateKeyException("duplicate batch")).when(flushBatchMapper).insert(anyString());
+
+        engine.flush();
+
+        assertEquals(10, table.stock(PRODUCT_ID));
+        assertTrue(events.isEmpty());
+        assertTrue(redisTemplate.keys("{inventory}:delta*").isEmpty());
+    }
+
+    @Test
+    void decreaseOfDeletedProductReportsMissingProduct() {
+        table.insert(PRODUCT_ID, 1);
+        engine.decrease(PRODUCT_ID, 1);
+        engine.flush();
+        table.delete(PRODUCT_ID);
+        engine.remove(PRODUCT_ID);
+
+        BusinessException e = assertThrows(BusinessException.class, () -> engine.decrease(PRODUCT_ID, 1));
+        assertEquals("产品不存在", e.getMessage());
+        e = assertThrows(BusinessException.class, () -> engine.reserve(PRODUCT_ID, 1));
+        assertEquals("产品不存在", e.getMessage());
+        assertNull(engine.get(PRODUCT_ID));
+    }
+
+    @Test
+    void productDeletedBetweenDecreaseAndAvailabilityCheckIsReportedAsMissing() {
+        table.insert(PRODUCT_ID, 0);
+        engine.get(PRODUCT_ID);
+        // 扣减脚本返回库存不足后、查询可用库存前，产品被删除并清除计数器
+        afterScript.set(() -> {
+            table.delete(PRODUCT_ID);
+            engine.remove(PRODUCT_ID);
+        });
+
+        BusinessException e = assertThrows(BusinessException.class, () -> engine.decrease(PRODUCT_ID, 1));
+
+        assertEquals("产品不存在", e.getMessage());
+    }
+
+    @Test
+    void reconcileRebuildsCountersPageByPage() {
+        int products = RedisInventoryEngine.RECONCILE_PAGE_SIZE * 2 + 7;
+        for (long id = 1; id <= products; id++) {
+            table.insert(id, (int) id);
+        }
+        // 计数器中的旧值与数据库不一致，对账后以数据库库存加未回写增量为准
+        redisTemplate.opsForValue().set("{inventory}:stock:1", "999");
+        redisTemplate.opsForHash().put("{inventory}:delta", String.valueOf(products), "-2");
+
+        engine.reconcile();
+
+        assertEquals(1, engine.get(1L));
+        assertEquals(products / 2, engine.get((long) products / 2));
+        assertEquals(products - 2, engine.get((long) products));
+        assertEquals(products - 2, table.stock(products));
+        assertEquals(RedisInventoryEngine.RECONCILE_PAGE_SIZE * 2 + 7,
+                redisTemplate.keys("{inventory}:stock:*").size());
+        // 对账结束后释放回写锁
+        assertNull(redisTemplate.opsForValue().get("{inventory}:flush-lock"));
+    }
+
+    private void clearKeys() {
+        var keys = redisTemplate.keys("{inventory}*");
+        if (keys != null && !keys.isEmpty()) {
+            redisTemplate.delete(keys);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.Product;
+import cn.pcs.appliancesystem.entity.SaleOrderItem;
+import cn.pcs.appliancesystem.entity.StockHold;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.StockHoldMapper;
+import cn.pcs.appliancesystem.support.H2Services;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 库存预留在H2上执行：预留后确认或到期释放，预留的数量在每一种扣减库存的途径中都不可用
+ */
+class ReservationServiceImplTest {
+
+    private static final long PRODUCT_ID = 1L;
+    private static final Long SALESMAN_ID = 4L;
+
+    private H2Services services;
+    private TransactionTemplate transaction;
+    private ReservationServiceImpl reservationService;
+
+    @BeforeEach
+    void setUp() {
+        services = new H2Services();
+        transaction = services.transactionTemplate();
+        services.insertProduct(PRODUCT_ID, "冰箱", 10);
+        services.insertProduct(2, "洗衣机", 10);
+        reservationService = new ReservationServiceImpl(services.database.mapper(StockHoldMapper.class),
+                services.productService, services.saleService, transaction);
+        ReflectionTestUtils.setField(reservationService, "maxHoldsPerProduct", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.shutdown();
+    }
+
+    @Test
+    void confirmedHoldIsSoldFromReservedStock() {
+        StockHold hold = hold(PRODUCT_ID, 3, 60);
+        assertEquals(3, services.reserved(PRODUCT_ID));
+        assertEquals(7, reservationService.getAvailableStock(PRODUCT_ID));
+
+        transaction.executeWithoutResult(status -> reservationService.confirm(hold.getHoldId()));
+
+        assertEquals(7, services.stock(PRODUCT_ID));
+        assertEquals(0, services.reserved(PRODUCT_ID));
+        assertEquals(0, services.count("stock_hold"));
+        assertEquals(3, services.jdbc.queryForObject("SELECT quantity FROM sale WHERE product_id = ?",
+                Integer.class, PRODUCT_ID));
+        // 已确认的预留不能再次确认或取消
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> transaction.executeWithoutResult(status -> reservationService.release(hold.getHoldId())));
+        assertEquals("预留不存在或已过期", e.getMessage());
+    }
+
+    @Test
+    void expiredHoldIsReleasedAndCannotBeConfirmed() {
+        StockHold expiring = hold(PRODUCT_ID, 3, 60);
+        StockHold live = hold(PRODUCT_ID, 2, 60);
+        services.jdbc.update("UPDATE stock_hold SET expire_time = ? WHERE id = ?",
+                LocalDateTime.now().minusSeconds(1), expiring.getHoldId());
+
+        reservationService.expireHolds();
+
+        assertEquals(10, services.stock(PRODUCT_ID));
+        assertEquals(2, services.reserved(PRODUCT_ID));
+        assertEquals(1, services.count("stock_hold"));
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> transaction.executeWithoutResult(status -> reservationService.confirm(expiring.getHoldId())));
+        assertEquals("预留不存在或已过期", e.getMessage());
+        assertEquals(2, services.reserved(PRODUCT_ID));
+
+        transaction.executeWithoutResult(status -> reservationService.confirm(live.getHoldId()));
+        assertEquals(8, services.stock(PRODUCT_ID));
+        assertEquals(0, services.reserved(PRODUCT_ID));
+    }
+
+    @Test
+    void reservedStockIsUnavailableToEveryDecrement() {
+        hold(PRODUCT_ID, 8, 60);
+
+        // 单件销售
+        BusinessException sell = assertThrows(BusinessException.class, () -> transaction.executeWithoutResult(
+                status -> services.saleService.sell(PRODUCT_ID, 3, SALESMAN_ID)));
+        assertEquals("可用库存不足，当前可用库存: 2", sell.getMessage());
+        // 多明细订单
+        BusinessException order = assertThrows(BusinessException.class, () -> transaction.executeWithoutResult(
+                status -> services.saleService.sellOrder(List.of(new SaleOrderItem(2L, 1),
+                        new SaleOrderItem(PRODUCT_ID, 3)), SALESMAN_ID)));
+        assertEquals("冰箱：可用库存不足，当前可用库存: 2", order.getMessage());
+        assertEquals(10, services.stock(2));
+        // 出库
+        assertThrows(BusinessException.class, () -> services.productService.decreaseStock(PRODUCT_ID, 3));
+        // 手工修改库存不能低于已预留数量
+        BusinessException set = assertThrows(BusinessException.class,
+                () -> services.productService.updateProduct(Product.builder()
+                        .id(PRODUCT_ID)
+                        .stock(5)
+                        .version(version(PRODUCT_ID))
+                        .build()));
+        assertEquals("库存不能小于已预留数量: 8", set.getMessage());
+        // 再预留也只能使用剩余的可用库存
+        assertThrows(BusinessException.class, () -> hold(PRODUCT_ID, 3, 60));
+
+        transaction.executeWithoutResult(status -> services.saleService.sell(PRODUCT_ID, 2, SALESMAN_ID));
+        assertEquals(8, services.stock(PRODUCT_ID));
+        assertEquals(8, services.reserved(PRODUCT_ID));
+        assertEquals(0, reservationService.getAvailableStock(PRODUCT_ID));
+    }
+
+    @Test
+    void holdLimitIsCountedPerProduct() {
+        hold(PRODUCT_ID, 1, 60);
+        hold(PRODUCT_ID, 1, 60);
+
+        BusinessException e = assertThrows(BusinessException.class, () -> hold(PRODUCT_ID, 1, 60));
+        assertEquals("该产品当前预留数量已达上限，请稍后重试", e.getMessage());
+        assertEquals(2, services.reserved(PRODUCT_ID));
+
+        hold(2L, 1, 60);
+        assertEquals(1, services.reserved(2));
+    }
+
+    private StockHold hold(long productId, int quantity, int ttlSeconds) {
+        return transaction.execute(status -> reservationService.hold(productId, quantity, SALESMAN_ID, ttlSeconds));
+    }
+
+    private int version(long productId) {
+        return services.jdbc.queryForObject("SELECT version FROM product WHERE id = ?", Integer.class, productId);
+    }
+}
@@ -0,0 +1,83 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.SaleOrderItem;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.support.H2Services;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多明细订单在H2上执行：整单共用订单号，任一产品库存不足时整单回滚
+ */
+class SaleServiceImplTest {
+
+    private static final Long SALESMAN_ID = 1L;
+
+    private H2Services services;
+
+    @BeforeEach
+    void setUp() {
+        services = new H2Services();
+        services.insertProduct(1, "冰箱", 10);
+        services.insertProduct(2, "洗衣机", 10);
+        services.insertProduct(3, "空调", 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.shutdown();
+    }
+
+    @Test
+    void orderSharesOneOrderNoAndDecrementsEveryProduct() {
+        // 同一产品的多条明细合并扣减
+        String orderNo = services.transactionTemplate().execute(status -> services.saleService.sellOrder(List.of(
+                new SaleOrderItem(2L, 3), new SaleOrderItem(1L, 2), new SaleOrderItem(2L, 1)), SALESMAN_ID));
+
+        assertTrue(orderNo.startsWith("SO"), orderNo);
+        assertEquals(8, services.stock(1));
+        assertEquals(6, services.stock(2));
+        assertEquals(List.of(1L, 2L), services.jdbc.queryForList(
+                "SELECT product_id FROM sale WHERE order_no = ? ORDER BY product_id", Long.class, orderNo));
+        assertEquals(List.of(2, 4), services.jdbc.queryForList(
+                "SELECT quantity FROM sale WHERE order_no = ? ORDER BY product_id", Integer.class, orderNo));
+        assertEquals(2, services.count("inventory_movement"));
+        assertEquals(6, services.jdbc.queryForObject(
+                "SELECT SUM(qty) FROM daily_rollup WHERE kind = ?", Integer.class, DailyRollup.KIND_SALE));
+    }
+
+    @Test
+    void insufficientLineRollsBackWholeOrder() {
+        // 按产品ID顺序扣减：产品1、2已扣减后产品3不足
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> services.transactionTemplate().execute(status -> services.saleService.sellOrder(List.of(
+                        new SaleOrderItem(1L, 2), new SaleOrderItem(2L, 5), new SaleOrderItem(3L, 2)), SALESMAN_ID)));
+
+        assertTrue(e.getMessage().startsWith("空调：可用库存不足"), e.getMessage());
+        assertEquals(10, services.stock(1));
+        assertEquals(10, services.stock(2));
+        assertEquals(1, services.stock(3));
+        assertEquals(0, services.count("sale"));
+        assertEquals(0, services.count("inventory_movement"));
+        assertEquals(0, services.count("daily_rollup"));
+    }
+
+    @Test
+    void missingProductRejectsOrderBeforeAnyDecrement() {
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> services.transactionTemplate().execute(status -> services.saleService.sellOrder(List.of(
+                        new SaleOrderItem(1L, 1), new SaleOrderItem(99L, 1)), SALESMAN_ID)));
+
+        assertEquals("产品不存在，产品ID: 99", e.getMessage());
+        assertEquals(10, services.stock(1));
+        assertEquals(0, services.count("sale"));
+    }
+}
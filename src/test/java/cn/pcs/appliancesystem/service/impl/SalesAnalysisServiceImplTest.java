@@ -0,0 +1,164 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.ProductSalesVO;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.SaleMapper;
+import cn.pcs.appliancesystem.support.ResultStreams;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 产品销售分析：流式逐行处理产品合计，验证前N名的取舍和ABC分类的阈值
+ */
+class SalesAnalysisServiceImplTest {
+
+    private SaleMapper saleMapper;
+    private SalesAnalysisServiceImpl analysisService;
+    // 流式查询按此顺序逐行返回
+    private List<ProductSalesVO> rows;
+
+    @BeforeEach
+    void setUp() {
+        saleMapper = mock(SaleMapper.class);
+        doAnswer(inv -> {
+            ResultHandler<ProductSalesVO> handler = inv.getArgument(2);
+            // 每次查询返回新对象，与数据库逐行映射一致
+            List<ProductSalesVO> copies = new ArrayList<>();
+            for (ProductSalesVO row : rows) {
+                copies.add(product(row.getProductId(), row.getQuantity(), row.getAmount().toPlainString()));
+            }
+            ResultStreams.feed(copies, handler);
+            return null;
+        }).when(saleMapper).streamProductTotals(any(), any(), any());
+        analysisService = new SalesAnalysisServiceImpl(saleMapper, new BigDecimal("0.80"), new BigDecimal("0.95"));
+    }
+
+    @Test
+    void topNKeepsHighestAmountsRegardlessOfStreamOrder() {
+        List<ProductSalesVO> products = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            products.add(product(id, 1, String.valueOf(id * 10)));
+        }
+        Random random = new Random(7);
+        for (int round = 0; round < 5; round++) {
+            Collections.shuffle(products, random);
+            rows = products;
+
+            List<ProductSalesVO> top = analysisService.getTopProducts(null, null, 3, null);
+
+            assertEquals(List.of(50L, 49L, 48L), ids(top));
+        }
+    }
+
+    @Test
+    void tieAtCutOffGoesToLowerProductId() {
+        rows = List.of(product(7, 1, "300"), product(3, 1, "300"), product(9, 1, "500"), product(5, 1, "300"));
+
+        List<ProductSalesVO> top = analysisService.getTopProducts(null, null, 3, "amount");
+
+        assertEquals(List.of(9L, 3L, 5L), ids(top));
+    }
+
+    @Test
+    void topNByQuantitySkipsProductsWithoutSales() {
+        rows = List.of(product(1, 5, "100"), product(2, 9, "90"), product(3, 0, "0"), product(4, 5, "500"));
+
+        List<ProductSalesVO> top = analysisService.getTopProducts(null, null, 10, "quantity");
+
+        assertEquals(List.of(2L, 1L, 4L), ids(top));
+    }
+
+    @Test
+    void topNPassesHalfOpenRangeAndValidatesArguments() {
+        rows = List.of();
+
+        analysisService.getTopProducts(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), null, null);
+
+        verify(saleMapper).streamProductTotals(eq(LocalDateTime.of(2024, 1, 1, 0, 0)),
+                eq(LocalDateTime.of(2024, 2, 1, 0, 0)), any());
+        assertEquals("返回数量必须在1到1000之间", assertThrows(BusinessException.class,
+                () -> analysisService.getTopProducts(null, null, 0, null)).getMessage());
+        assertEquals("返回数量必须在1到1000之间", assertThrows(BusinessException.class,
+                () -> analysisService.getTopProducts(null, null, 1001, null)).getMessage());
+        assertEquals("不支持的排序指标：price，可选 amount、quantity", assertThrows(BusinessException.class,
+                () -> analysisService.getTopProducts(null, null, 10, "price")).getMessage());
+        assertEquals("开始日期不能晚于结束日期", assertThrows(BusinessException.class,
+                () -> analysisService.getAbcAnalysis(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1))).getMessage());
+    }
+
+    @Test
+    void abcClassUsesCumulativeShareBeforeEachProduct() {
+        // 合计100：累计占比（加入前）依次为 0, .50, .80, .90, .95, .98
+        rows = List.of(product(6, 1, "2"), product(1, 1, "50"), product(4, 1, "5"), product(2, 1, "30"),
+                product(3, 1, "10"), product(5, 1, "3"), product(7, 0, "0"));
+
+        List<ProductSalesVO> abc = analysisService.getAbcAnalysis(null, null);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), ids(abc));
+        // 第2名使累计从.50跨到.80，仍归入A；累计恰好等于阈值时归入下一类
+        assertEquals(List.of("A", "A", "B", "B", "C", "C", "C"), abc.stream().map(ProductSalesVO::getAbcClass).toList());
+        assertShare("0.5000", "0.5000", abc.get(0));
+        assertShare("0.3000", "0.8000", abc.get(1));
+        assertShare("0.0500", "0.9500", abc.get(3));
+        assertShare("0.0000", "1.0000", abc.get(6));
+    }
+
+    @Test
+    void abcThresholdsAreConfigurable() {
+        analysisService = new SalesAnalysisServiceImpl(saleMapper, new BigDecimal("0.50"), new BigDecimal("0.90"));
+        rows = List.of(product(1, 1, "50"), product(2, 1, "30"), product(3, 1, "10"), product(4, 1, "10"));
+
+        List<ProductSalesVO> abc = analysisService.getAbcAnalysis(null, null);
+
+        assertEquals(List.of("A", "B", "B", "C"), abc.stream().map(ProductSalesVO::getAbcClass).toList());
+    }
+
+    @Test
+    void abcWithoutSalesMarksEverythingC() {
+        rows = List.of(product(2, 0, "0"), product(1, 0, "0"));
+
+        List<ProductSalesVO> abc = analysisService.getAbcAnalysis(null, null);
+
+        assertEquals(List.of(1L, 2L), ids(abc));
+        for (ProductSalesVO product : abc) {
+            assertEquals("C", product.getAbcClass());
+            assertShare("0.0000", "0.0000", product);
+        }
+    }
+
+    private static void assertShare(String share, String cumulative, ProductSalesVO product) {
+        assertEquals(new BigDecimal(share), product.getShare(), "share of " + product.getProductId());
+        assertEquals(new BigDecimal(cumulative), product.getCumulativeShare(), "cumulative of " + product.getProductId());
+    }
+
+    private static List<Long> ids(List<ProductSalesVO> products) {
+        return products.stream().map(ProductSalesVO::getProductId).toList();
+    }
+
+    private static ProductSalesVO product(long id, int quantity, String amount) {
+        return ProductSalesVO.builder()
+                .productId(id)
+                .productName("产品" + id)
+                .quantity(quantity)
+                .amount(new BigDecimal(amount))
+                .orderCount(quantity > 0 ? 1 : 0)
+                .build();
+    }
+}
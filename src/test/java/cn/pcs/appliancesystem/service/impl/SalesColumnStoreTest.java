@@ -0,0 +1,218 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.Sale;
+import cn.pcs.appliancesystem.mapper.SaleMapper;
+import cn.pcs.appliancesystem.support.ResultStreams;
+import cn.pcs.appliancesystem.support.TestTransactionManager;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class SalesColumnStoreTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private static final int DAYS = 90;
+    private static final int PRODUCTS = 200;
+
+    // 朴素汇总：日期 -> 产品 -> {数量, 金额（分）, 条数}
+    private final Map<LocalDate, Map<Long, long[]>> expected = new TreeMap<>();
+
+    @Test
+    void aggregatesMatchNaiveSumsOnParallelPath() {
+        Random random = new Random(17);
+        List<Sale> facts = new ArrayList<>();
+        // 超过并行扫描阈值（1 << 18行）
+        for (int i = 0; i < 300_000; i++) {
+            Sale sale = randomSale(random);
+            facts.add(sale);
+            expect(sale.getSaleTime().toLocalDate(), sale.getProductId(), sale.getQuantity(), sale.getTotalPrice(), 1);
+        }
+        SalesColumnStore store = new SalesColumnStore(mapperStreaming(facts), true);
+        store.load();
+
+        // 修改和删除追加差值行
+        for (int i = 0; i < 1000; i++) {
+            Sale sale = facts.get(random.nextInt(facts.size()));
+            LocalDate day = sale.getSaleTime().toLocalDate();
+            if (random.nextBoolean()) {
+                store.append(day, sale.getProductId(), -sale.getQuantity(), sale.getTotalPrice().negate(), -1);
+                expect(day, sale.getProductId(), -sale.getQuantity(), sale.getTotalPrice().negate(), -1);
+            } else {
+                store.append(day, sale.getProductId(), 2, new BigDecimal("19.98"), 0);
+                expect(day, sale.getProductId(), 2, new BigDecimal("19.98"), 0);
+            }
+        }
+        List<DailyRollup> order = new ArrayList<>();
+        for (long productId = 1; productId <= 3; productId++) {
+            order.add(DailyRollup.builder().day(FIRST_DAY.plusDays(DAYS)).productId(productId)
+                    .qty(1).amount(new BigDecimal("100.00")).cnt(1).build());
+            expect(FIRST_DAY.plusDays(DAYS), productId, 1, new BigDecimal("100.00"), 1);
+        }
+        store.appendAll(order);
+
+        assertEquals(300_000 + 1000 + 3, store.size());
+        assertEquals(expectedByProduct(null, null), byProduct(store.sumByProduct(null, null)));
+        assertEquals(expectedByDay(null, null), byDay(store.sumByDay(null, null)));
+        LocalDate from = FIRST_DAY.plusDays(10);
+        LocalDate to = FIRST_DAY.plusDays(40);
+        assertEquals(expectedByProduct(from, to), byProduct(store.sumByProduct(from, to)));
+        assertEquals(expectedByDay(from, to), byDay(store.sumByDay(from, to)));
+        // 范围外
+        assertTrue(store.sumByDay(FIRST_DAY.minusDays(10), FIRST_DAY.minusDays(1)).isEmpty());
+    }
+
+    @Test
+    void smallStoreUsesSequentialPath() {
+        Random random = new Random(5);
+        List<Sale> facts = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Sale sale = randomSale(random);
+            facts.add(sale);
+            expect(sale.getSaleTime().toLocalDate(), sale.getProductId(), sale.getQuantity(), sale.getTotalPrice(), 1);
+        }
+        SalesColumnStore store = new SalesColumnStore(mapperStreaming(facts), true);
+        store.load();
+
+        assertEquals(expectedByProduct(null, null), byProduct(store.sumByProduct(null, null)));
+        assertEquals(expectedByDay(null, null), byDay(store.sumByDay(null, null)));
+    }
+
+    @Test
+    void appendsBecomeVisibleOnlyAfterCommit() {
+        SalesColumnStore store = new SalesColumnStore(mapperStreaming(List.of()), true);
+        store.load();
+        TransactionTemplate transaction = new TransactionTemplate(new TestTransactionManager());
+
+        transaction.executeWithoutResult(status -> {
+            store.append(FIRST_DAY, 1L, 1, BigDecimal.TEN, 1);
+            assertEquals(0, store.size());
+        });
+        transaction.executeWithoutResult(status -> {
+            store.append(FIRST_DAY, 1L, 5, BigDecimal.TEN, 1);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1, store.size());
+        List<DailyRollup> byProduct = store.sumByProduct(null, null);
+        assertEquals(1, byProduct.size());
+        assertEquals(1, byProduct.get(0).getQty());
+        assertEquals(new BigDecimal("10.00"), byProduct.get(0).getAmount());
+    }
+
+    @Test
+    void disabledStoreDoesNotLoadOrAppend() {
+        SaleMapper saleMapper = mock(SaleMapper.class);
+        SalesColumnStore store = new SalesColumnStore(saleMapper, false);
+
+        store.load();
+        store.append(FIRST_DAY, 1L, 1, BigDecimal.TEN, 1);
+
+        assertEquals(0, store.size());
+        verifyNoInteractions(saleMapper);
+    }
+
+    private static SaleMapper mapperStreaming(List<Sale> facts) {
+        SaleMapper saleMapper = mock(SaleMapper.class);
+        doAnswer(inv -> {
+            ResultHandler<Sale> handler = inv.getArgument(0);
+            ResultStreams.feed(facts, handler);
+            return null;
+        }).when(saleMapper).streamSaleFacts(any());
+        return saleMapper;
+    }
+
+    private static Sale randomSale(Random random) {
+        int quantity = 1 + random.nextInt(5);
+        return Sale.builder()
+                .productId((long) (1 + random.nextInt(PRODUCTS)))
+                .quantity(quantity)
+                .totalPrice(BigDecimal.valueOf(quantity * (100 + random.nextInt(500_000)), 2))
+                .saleTime(FIRST_DAY.plusDays(random.nextInt(DAYS)).atTime(random.nextInt(24), random.nextInt(60)))
+                .build();
+    }
+
+    private void expect(LocalDate day, Long productId, int qty, BigDecimal amount, int cnt) {
+        long[] t = expected.computeIfAbsent(day, d -> new HashMap<>()).computeIfAbsent(productId, id -> new long[3]);
+        t[0] += qty;
+        t[1] += amount.movePointRight(2).longValueExact();
+        t[2] += cnt;
+    }
+
+    private Map<Long, List<Long>> expectedByProduct(LocalDate from, LocalDate to) {
+        Map<Long, long[]> totals = new TreeMap<>();
+        expected.forEach((day, products) -> {
+            if (inRange(day, from, to)) {
+                products.forEach((productId, t) -> add(totals.computeIfAbsent(productId, id -> new long[3]), t));
+            }
+        });
+        return nonZero(totals);
+    }
+
+    private Map<LocalDate, List<Long>> expectedByDay(LocalDate from, LocalDate to) {
+        Map<LocalDate, long[]> totals = new TreeMap<>();
+        expected.forEach((day, products) -> {
+            if (inRange(day, from, to)) {
+                products.values().forEach(t -> add(totals.computeIfAbsent(day, d -> new long[3]), t));
+            }
+        });
+        return nonZero(totals);
+    }
+
+    private static boolean inRange(LocalDate day, LocalDate from, LocalDate to) {
+        return (from == null || !day.isBefore(from)) && (to == null || !day.isAfter(to));
+    }
+
+    private static void add(long[] target, long[] t) {
+        target[0] += t[0];
+        target[1] += t[1];
+        target[2] += t[2];
+    }
+
+    /**
+     * 与SalesColumnStore一致，数量、金额、条数都为0的分组不返回
+     */
+    private static <K> Map<K, List<Long>> nonZero(Map<K, long[]> totals) {
+        Map<K, List<Long>> result = new TreeMap<>();
+        totals.forEach((key, t) -> {
+            if (t[0] != 0 || t[1] != 0 || t[2] != 0) {
+                result.put(key, List.of(t[0], t[1], t[2]));
+            }
+        });
+        return result;
+    }
+
+    private static Map<Long, List<Long>> byProduct(List<DailyRollup> rows) {
+        Map<Long, List<Long>> result = new TreeMap<>();
+        for (DailyRollup row : rows) {
+            result.put(row.getProductId(), List.of((long) row.getQty(),
+                    row.getAmount().movePointRight(2).longValueExact(), (long) row.getCnt()));
+        }
+        return result;
+    }
+
+    private static Map<LocalDate, List<Long>> byDay(List<DailyRollup> rows) {
+        Map<LocalDate, List<Long>> result = new TreeMap<>();
+        for (DailyRollup row : rows) {
+            result.put(row.getDay(), List.of((long) row.getQty(),
+                    row.getAmount().movePointRight(2).longValueExact(), (long) row.getCnt()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,199 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.DailyRollupMapper;
+import cn.pcs.appliancesystem.mapper.StockInMapper;
+import cn.pcs.appliancesystem.mapper.StockOutMapper;
+import cn.pcs.appliancesystem.support.H2Services;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 统计日缓存在H2上执行：补录、修改、删除历史记录后，只有受影响的（类型，日期）在事务提交后失效
+ */
+class StatisticsDayCacheTest {
+
+    private static final long PRODUCT_ID = 1L;
+    private static final long SALESMAN_ID = 4L;
+    private static final long OPERATOR_ID = 2L;
+
+    private H2Services services;
+    private StatisticsDayCache cache;
+    private TransactionTemplate transaction;
+    private LocalDate day;
+
+    @BeforeEach
+    void setUp() {
+        services = new H2Services();
+        cache = services.statisticsDayCache;
+        transaction = services.transactionTemplate();
+        services.insertProduct(PRODUCT_ID, "冰箱", 100);
+        day = LocalDate.now().minusDays(5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.shutdown();
+    }
+
+    @Test
+    void backdatedSaleEditEvictsOnlyThatDayAfterCommit() {
+        long saleId = sale(2, day.atTime(10, 0));
+        sale(1, day.plusDays(1).atTime(10, 0));
+        assertEquals(List.of(2, 1), quantities(DailyRollup.KIND_SALE, day, day.plusDays(1)));
+        assertEquals(2, cache.getStats().getEntries());
+
+        transaction.executeWithoutResult(status -> {
+            services.saleService.updateSale(saleId, 5);
+            // 提交前缓存保持不变，其他请求不会读到未提交的数据，也不会用旧数据重新填充
+            assertEquals(List.of(2, 1), quantities(DailyRollup.KIND_SALE, day, day.plusDays(1)));
+            assertEquals(0L, cache.getStats().getEvictions());
+        });
+
+        assertEquals(1L, cache.getStats().getEvictions());
+        assertEquals(1, cache.getStats().getEntries());
+        long misses = cache.getStats().getMisses();
+        assertEquals(List.of(5, 1), quantities(DailyRollup.KIND_SALE, day, day.plusDays(1)));
+        assertEquals(misses + 1, cache.getStats().getMisses());
+        assertEquals(0, new BigDecimal("500.00").compareTo(
+                cache.getDays(DailyRollup.KIND_SALE, day, day).get(0).get(0).getAmount()));
+    }
+
+    @Test
+    void rolledBackEditKeepsCachedDay() {
+        long saleId = sale(2, day.atTime(10, 0));
+        assertEquals(List.of(2), quantities(DailyRollup.KIND_SALE, day, day));
+
+        assertThrows(BusinessException.class, () -> transaction.executeWithoutResult(status -> {
+            services.saleService.updateSale(saleId, 5);
+            throw new BusinessException("模拟后续步骤失败");
+        }));
+
+        assertEquals(0L, cache.getStats().getEvictions());
+        assertEquals(1, cache.getStats().getEntries());
+        assertEquals(List.of(2), quantities(DailyRollup.KIND_SALE, day, day));
+        assertEquals(2, services.jdbc.queryForObject("SELECT qty FROM daily_rollup WHERE kind = 'SALE'", Integer.class));
+    }
+
+    @Test
+    void backdatedStockInDeleteEvictsStockInDayOnly() {
+        StockServiceImpl stockService = new StockServiceImpl(services.database.mapper(StockInMapper.class),
+                services.database.mapper(StockOutMapper.class), services.productService,
+                services.inventoryLedgerService, services.dailyRollupService);
+        sale(1, day.atTime(9, 0));
+        long stockInId = stockIn(4, day.atTime(11, 0));
+        assertEquals(List.of(1), quantities(DailyRollup.KIND_SALE, day, day));
+        assertEquals(List.of(4), quantities(DailyRollup.KIND_STOCK_IN, day, day));
+
+        transaction.executeWithoutResult(status -> stockService.deleteStockIn(stockInId));
+
+        assertEquals(1L, cache.getStats().getEvictions());
+        assertEquals(List.of(0), quantities(DailyRollup.KIND_STOCK_IN, day, day));
+        long hits = cache.getStats().getHits();
+        assertEquals(List.of(1), quantities(DailyRollup.KIND_SALE, day, day));
+        assertEquals(hits + 1, cache.getStats().getHits());
+    }
+
+    @Test
+    void backdatedInsertIntoEmptyCachedDayIsVisible() {
+        // 没有数据的日期同样被缓存为空列表，补录后必须失效
+        assertEquals(List.of(0), quantities(DailyRollup.KIND_SALE, day, day));
+        assertEquals(1, cache.getStats().getEntries());
+
+        transaction.executeWithoutResult(status -> sale(3, day.atTime(8, 0)));
+
+        assertEquals(List.of(3), quantities(DailyRollup.KIND_SALE, day, day));
+    }
+
+    @Test
+    void todayIsQueriedLiveAndNeverCached() {
+        LocalDate today = LocalDate.now();
+        sale(1, today.atStartOfDay());
+        assertEquals(List.of(0, 1), quantities(DailyRollup.KIND_SALE, today.minusDays(1), today));
+
+        sale(2, today.atStartOfDay());
+
+        assertEquals(List.of(0, 3), quantities(DailyRollup.KIND_SALE, today.minusDays(1), today));
+        assertEquals(1, cache.getStats().getEntries());
+        assertEquals(2L, cache.getStats().getLiveQueries());
+        assertEquals(0L, cache.getStats().getEvictions());
+    }
+
+    @Test
+    void loadOverlappingEvictionIsNotCached() {
+        // 加载读到旧数据后、写入缓存前，另一个事务修改了该日并完成失效
+        DailyRollupMapper real = services.database.mapper(DailyRollupMapper.class);
+        DailyRollupMapper mapper = mock(DailyRollupMapper.class, delegatesTo(real));
+        AtomicReference<StatisticsDayCache> racing = new AtomicReference<>();
+        AtomicBoolean editDuringLoad = new AtomicBoolean(true);
+        doAnswer(inv -> {
+            List<DailyRollup> rows = real.selectRange(inv.getArgument(0), inv.getArgument(1), inv.getArgument(2));
+            if (editDuringLoad.getAndSet(false)) {
+                real.upsertBatch(List.of(rollup(day, 3)));
+                racing.get().evict(DailyRollup.KIND_SALE, day);
+            }
+            return rows;
+        }).when(mapper).selectRange(anyString(), any(), any());
+        racing.set(new StatisticsDayCache(mapper, new LocalStatisticsCacheBroadcaster(), 100, 100));
+        real.upsertBatch(List.of(rollup(day, 2)));
+
+        assertEquals(2, racing.get().getDays(DailyRollup.KIND_SALE, day, day).get(0).get(0).getQty());
+
+        assertEquals(0, racing.get().getStats().getEntries());
+        assertEquals(5, racing.get().getDays(DailyRollup.KIND_SALE, day, day).get(0).get(0).getQty());
+        assertEquals(1, racing.get().getStats().getEntries());
+    }
+
+    /**
+     * 每天的数量合计，按日期升序
+     */
+    private List<Integer> quantities(String kind, LocalDate startDate, LocalDate endDate) {
+        return cache.getDays(kind, startDate, endDate).stream()
+                .map(rows -> rows.stream().mapToInt(DailyRollup::getQty).sum())
+                .toList();
+    }
+
+    private long sale(int quantity, LocalDateTime time) {
+        BigDecimal totalPrice = BigDecimal.valueOf(100L * quantity);
+        services.jdbc.update("INSERT INTO sale (product_id, quantity, total_price, salesman_id, sale_time) VALUES (?, ?, ?, ?, ?)",
+                PRODUCT_ID, quantity, totalPrice, SALESMAN_ID, time);
+        services.dailyRollupService.record(DailyRollup.KIND_SALE, time, PRODUCT_ID, quantity, totalPrice, 1);
+        return services.jdbc.queryForObject("SELECT MAX(id) FROM sale", Long.class);
+    }
+
+    private long stockIn(int quantity, LocalDateTime time) {
+        services.jdbc.update("INSERT INTO stock_in (product_id, quantity, operator_id, in_time) VALUES (?, ?, ?, ?)",
+                PRODUCT_ID, quantity, OPERATOR_ID, time);
+        services.dailyRollupService.record(DailyRollup.KIND_STOCK_IN, time, PRODUCT_ID, quantity, null, 1);
+        return services.jdbc.queryForObject("SELECT MAX(id) FROM stock_in", Long.class);
+    }
+
+    private static DailyRollup rollup(LocalDate day, int qty) {
+        return DailyRollup.builder()
+                .kind(DailyRollup.KIND_SALE)
+                .day(day)
+                .productId(PRODUCT_ID)
+                .qty(qty)
+                .amount(BigDecimal.valueOf(100L * qty))
+                .cnt(1)
+                .build();
+    }
+}
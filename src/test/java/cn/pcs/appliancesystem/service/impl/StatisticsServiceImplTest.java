@@ -0,0 +1,251 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.ChartSeriesVO;
+import cn.pcs.appliancesystem.entity.DailyRollup;
+import cn.pcs.appliancesystem.entity.StatisticsVO;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.StockInMapper;
+import cn.pcs.appliancesystem.mapper.StockOutMapper;
+import cn.pcs.appliancesystem.support.H2Services;
+import cn.pcs.appliancesystem.util.TimeBuckets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 统计服务在H2上执行：销售明细与日汇总同时写入，分别验证SQL聚合和日缓存两条路径，
+ * 以及图表分桶的补零和周、月边界
+ */
+class StatisticsServiceImplTest {
+
+    private static final long SALESMAN_ID = 4L;
+
+    private H2Services services;
+    private StatisticsServiceImpl statisticsService;
+    private LocalDate day;
+
+    @BeforeEach
+    void setUp() {
+        services = new H2Services();
+        statisticsService = new StatisticsServiceImpl(services.database.mapper(StockInMapper.class),
+                services.database.mapper(StockOutMapper.class), services.saleMapper, services.dictionaryCache,
+                services.dailyRollupService, new SalesColumnStore(services.saleMapper, false),
+                services.statisticsDayCache);
+        ReflectionTestUtils.setField(statisticsService, "maxBuckets", 1000);
+        services.insertProduct(1, "冰箱", 100);
+        services.insertProduct(2, "洗衣机", 100);
+        services.insertProduct(3, "空调", 100);
+        services.insertProduct(4, "电视", 100);
+        day = LocalDate.now().minusDays(10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.shutdown();
+    }
+
+    @Test
+    void sumByProductAggregatesPerProductWithId() {
+        sale(1, 2, "200.00", day.atTime(9, 0));
+        sale(1, 1, "100.00", day.atTime(10, 0));
+        sale(2, 5, "500.00", day.plusDays(1).atTime(9, 0));
+        sale(3, 1, "300.00", day.atTime(11, 0));
+
+        List<StatisticsVO> result = services.saleMapper.sumByProduct(day.atStartOfDay(), day.plusDays(2).atStartOfDay(), null);
+
+        assertEquals(3, result.size());
+        assertProduct(result.get(0), 2L, "洗衣机", 5, "500.00", 1);
+        assertProduct(result.get(1), 1L, "冰箱", 3, "300.00", 2);
+        assertProduct(result.get(2), 3L, "空调", 1, "300.00", 1);
+        assertEquals("冰箱", result.get(1).getLabel());
+    }
+
+    @Test
+    void sumByProductFiltersByHalfOpenTimeRange() {
+        sale(1, 1, "100.00", day.atStartOfDay());
+        sale(1, 1, "100.00", day.plusDays(1).atStartOfDay().minusSeconds(1));
+        sale(1, 9, "900.00", day.plusDays(1).atStartOfDay());
+        sale(2, 9, "900.00", day.atStartOfDay().minusSeconds(1));
+
+        List<StatisticsVO> result = services.saleMapper.sumByProduct(day.atStartOfDay(), day.plusDays(1).atStartOfDay(), null);
+
+        assertEquals(1, result.size());
+        assertProduct(result.get(0), 1L, "冰箱", 2, "200.00", 2);
+    }
+
+    @Test
+    void topNLimitKeepsHighestAmountsWithProductIdTieBreak() {
+        sale(4, 1, "300.00", day.atTime(9, 0));
+        sale(3, 1, "300.00", day.atTime(9, 0));
+        sale(2, 1, "100.00", day.atTime(9, 0));
+        sale(1, 1, "900.00", day.atTime(9, 0));
+
+        List<StatisticsVO> sql = statisticsService.getSaleStatisticsByProduct(null, null, 3);
+        List<StatisticsVO> cached = statisticsService.getSaleStatisticsByProduct(day, day, 3);
+
+        for (List<StatisticsVO> result : List.of(sql, cached)) {
+            assertEquals(List.of(1L, 3L, 4L), result.stream().map(StatisticsVO::getProductId).toList());
+            assertProduct(result.get(1), 3L, "空调", 1, "300.00", 1);
+        }
+        assertEquals(4, statisticsService.getSaleStatisticsByProduct(day, day, 10).size());
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> statisticsService.getSaleStatisticsByProduct(day, day, 0));
+        assertEquals("返回数量必须大于0", e.getMessage());
+    }
+
+    @Test
+    void dayCachePathMatchesSqlAggregation() {
+        sale(1, 2, "200.00", day.atTime(9, 0));
+        sale(2, 1, "150.00", day.plusDays(1).atTime(9, 0));
+        sale(1, 4, "400.00", day.plusDays(2).atTime(9, 0));
+        sale(3, 1, "50.00", day.plusDays(3).atTime(9, 0));
+
+        List<StatisticsVO> sql = services.saleMapper.sumByProduct(day.atStartOfDay(), day.plusDays(3).atStartOfDay(), null);
+        List<StatisticsVO> cached = statisticsService.getSaleStatisticsByProduct(day, day.plusDays(2), null);
+
+        assertEquals(2, sql.size());
+        assertEquals(sql, cached);
+    }
+
+    @Test
+    void dayChartFillsMissingDaysWithZero() {
+        sale(1, 2, "200.00", day.atTime(9, 0));
+        sale(2, 1, "150.00", day.atTime(15, 0));
+        sale(1, 4, "400.00", day.plusDays(2).atTime(9, 0));
+
+        ChartSeriesVO chart = statisticsService.getChartSeries(DailyRollup.KIND_SALE, "day", day.minusDays(1), day.plusDays(3));
+
+        assertEquals(TimeBuckets.DAY, chart.getGranularity());
+        assertArrayEquals(new String[]{day.minusDays(1).toString(), day.toString(), day.plusDays(1).toString(),
+                day.plusDays(2).toString(), day.plusDays(3).toString()}, chart.getLabels());
+        assertArrayEquals(new int[]{0, 3, 0, 4, 0}, chart.getQuantities());
+        assertArrayEquals(new int[]{0, 2, 0, 1, 0}, chart.getCounts());
+        assertAmounts(chart, "0", "350.00", "0", "400.00", "0");
+    }
+
+    @Test
+    void weekBucketsStartOnMondayAndSplitAtSundayMidnight() {
+        // 2024-01-01 是周一；起止日期落在周中时取所在周
+        stockIn(1, 1, LocalDateTime.of(2024, 1, 3, 10, 0));
+        stockIn(1, 2, LocalDateTime.of(2024, 1, 7, 23, 59, 59));
+        stockIn(2, 5, LocalDateTime.of(2024, 1, 8, 0, 0));
+        stockIn(2, 7, LocalDateTime.of(2023, 12, 31, 12, 0));
+
+        ChartSeriesVO chart = statisticsService.getChartSeries(DailyRollup.KIND_STOCK_IN, "WEEK",
+                LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 15));
+
+        assertArrayEquals(new String[]{"2024-01-01", "2024-01-08", "2024-01-15"}, chart.getLabels());
+        assertArrayEquals(new int[]{3, 5, 0}, chart.getQuantities());
+        assertArrayEquals(new int[]{2, 1, 0}, chart.getCounts());
+        assertNull(chart.getAmounts());
+    }
+
+    @Test
+    void weekBucketSpansYearEnd() {
+        // 2024-12-30 是周一，该周跨到2025年
+        sale(1, 1, "100.00", LocalDateTime.of(2024, 12, 31, 9, 0));
+        sale(1, 2, "200.00", LocalDateTime.of(2025, 1, 5, 9, 0));
+
+        ChartSeriesVO chart = statisticsService.getChartSeries(DailyRollup.KIND_SALE, "week",
+                LocalDate.of(2024, 12, 25), LocalDate.of(2025, 1, 6));
+
+        assertArrayEquals(new String[]{"2024-12-23", "2024-12-30", "2025-01-06"}, chart.getLabels());
+        assertArrayEquals(new int[]{0, 3, 0}, chart.getQuantities());
+        assertAmounts(chart, "0", "300.00", "0");
+    }
+
+    @Test
+    void monthBucketsSplitAtMonthEndIncludingLeapDay() {
+        sale(1, 1, "100.00", LocalDateTime.of(2024, 1, 31, 23, 59, 59));
+        sale(1, 2, "200.00", LocalDateTime.of(2024, 2, 1, 0, 0));
+        sale(2, 3, "300.00", LocalDateTime.of(2024, 2, 29, 18, 0));
+        sale(2, 9, "900.00", LocalDateTime.of(2024, 3, 11, 0, 0));
+
+        ChartSeriesVO chart = statisticsService.getChartSeries(DailyRollup.KIND_SALE, "month",
+                LocalDate.of(2024, 1, 15), LocalDate.of(2024, 3, 10));
+
+        assertArrayEquals(new String[]{"2024-01", "2024-02", "2024-03"}, chart.getLabels());
+        assertArrayEquals(new int[]{1, 5, 0}, chart.getQuantities());
+        assertArrayEquals(new int[]{1, 2, 0}, chart.getCounts());
+        assertAmounts(chart, "100.00", "500.00", "0");
+    }
+
+    @Test
+    void hourChartWithoutStartCoversEndDay() {
+        sale(1, 1, "100.00", day.atTime(9, 5));
+        sale(1, 2, "200.00", day.atTime(9, 55));
+        sale(2, 1, "150.00", day.atTime(23, 59, 59));
+        sale(2, 5, "500.00", day.plusDays(1).atStartOfDay());
+
+        ChartSeriesVO chart = statisticsService.getChartSeries(DailyRollup.KIND_SALE, "hour", null, day);
+
+        assertEquals(24, chart.getLabels().length);
+        assertEquals(day + " 00:00", chart.getLabels()[0]);
+        assertEquals(day + " 23:00", chart.getLabels()[23]);
+        int[] quantities = new int[24];
+        quantities[9] = 3;
+        quantities[23] = 1;
+        assertArrayEquals(quantities, chart.getQuantities());
+        assertEquals(0, BigDecimal.ZERO.compareTo(chart.getAmounts()[10]));
+    }
+
+    @Test
+    void chartRejectsTooManyBuckets() {
+        ReflectionTestUtils.setField(statisticsService, "maxBuckets", 31);
+
+        assertEquals(31, statisticsService.getChartSeries(DailyRollup.KIND_SALE, "day",
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)).getLabels().length);
+        BusinessException e = assertThrows(BusinessException.class, () -> statisticsService.getChartSeries(
+                DailyRollup.KIND_SALE, "day", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 1)));
+        assertEquals("统计范围过大：共32个时间桶，最多31个，请缩小日期范围或使用更粗的粒度", e.getMessage());
+        e = assertThrows(BusinessException.class, () -> statisticsService.getChartSeries(
+                DailyRollup.KIND_SALE, "day", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1)));
+        assertEquals("开始日期不能晚于结束日期", e.getMessage());
+    }
+
+    private static void assertProduct(StatisticsVO row, Long productId, String name, int quantity, String amount,
+                                      int orders) {
+        assertEquals(productId, row.getProductId());
+        assertEquals(name, row.getProductName());
+        assertEquals(quantity, row.getCount());
+        assertEquals(0, new BigDecimal(amount).compareTo(row.getTotalAmount()), row.getTotalAmount().toString());
+        assertEquals(orders, row.getOrderCount());
+    }
+
+    private static void assertAmounts(ChartSeriesVO chart, String... expected) {
+        assertEquals(expected.length, chart.getAmounts().length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(0, new BigDecimal(expected[i]).compareTo(chart.getAmounts()[i]), chart.getLabels()[i]);
+        }
+    }
+
+    /**
+     * 写入一条入库明细并累加日汇总
+     */
+    private void stockIn(long productId, int quantity, LocalDateTime time) {
+        services.jdbc.update("INSERT INTO stock_in (product_id, quantity, operator_id, in_time) VALUES (?, ?, ?, ?)",
+                productId, quantity, 2L, time);
+        services.dailyRollupService.record(DailyRollup.KIND_STOCK_IN, time, productId, quantity, null, 1);
+    }
+
+    /**
+     * 写入一条销售明细并累加日汇总，与销售服务的写入一致
+     */
+    private void sale(long productId, int quantity, String amount, LocalDateTime time) {
+        BigDecimal totalPrice = new BigDecimal(amount);
+        services.jdbc.update("INSERT INTO sale (product_id, quantity, total_price, salesman_id, sale_time) VALUES (?, ?, ?, ?, ?)",
+                productId, quantity, totalPrice, SALESMAN_ID, time);
+        services.dailyRollupService.record(DailyRollup.KIND_SALE, time, productId, quantity, totalPrice, 1);
+    }
+}
@@ -0,0 +1,195 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.CursorPage;
+import cn.pcs.appliancesystem.entity.RecordPageQuery;
+import cn.pcs.appliancesystem.entity.StockBatchItem;
+import cn.pcs.appliancesystem.entity.StockInRecordVO;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.StockInMapper;
+import cn.pcs.appliancesystem.mapper.StockOutMapper;
+import cn.pcs.appliancesystem.service.DailyRollupService;
+import cn.pcs.appliancesystem.service.InventoryLedgerService;
+import cn.pcs.appliancesystem.service.ProductService;
+import cn.pcs.appliancesystem.util.RecordCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class StockServiceImplTest {
+
+    private static final Long OPERATOR_ID = 2L;
+
+    private StockInMapper stockInMapper;
+    private StockOutMapper stockOutMapper;
+    private ProductService productService;
+    private InventoryLedgerService inventoryLedgerService;
+    private DailyRollupService dailyRollupService;
+    private StockServiceImpl stockService;
+
+    @BeforeEach
+    void setUp() {
+        stockInMapper = mock(StockInMapper.class);
+        stockOutMapper = mock(StockOutMapper.class);
+        productService = mock(ProductService.class);
+        inventoryLedgerService = mock(InventoryLedgerService.class);
+        dailyRollupService = mock(DailyRollupService.class);
+        stockService = new StockServiceImpl(stockInMapper, stockOutMapper, productService,
+                inventoryLedgerService, dailyRollupService);
+    }
+
+    @Test
+    void stockInBatchUpdatesEachProductOnce() {
+        stockService.stockInBatch(List.of(item(1L, 2), item(2L, 3), item(1L, 5)), OPERATOR_ID);
+
+        verify(stockInMapper).insertBatch(argThat(list -> list.size() == 3));
+        verify(productService).increaseStock(1L, 7);
+        verify(productService).increaseStock(2L, 3);
+        verify(productService, times(2)).increaseStock(anyLong(), anyInt());
+        // 流水逐条记录，日汇总在服务内按产品合并
+        verify(inventoryLedgerService).recordBatch(argThat(list -> list.size() == 3));
+        verify(dailyRollupService).recordBatch(argThat(list -> list.size() == 3));
+    }
+
+    @Test
+    void stockInBatchInsertsInChunks() {
+        List<StockBatchItem> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(item((long) (i % 10), 1));
+        }
+
+        stockService.stockInBatch(items, OPERATOR_ID);
+
+        verify(stockInMapper, times(2)).insertBatch(argThat(list -> list.size() == 500));
+        verify(productService, times(10)).increaseStock(anyLong(), eq(100));
+    }
+
+    @Test
+    void stockOutBatchRejectsWholeBatchWhenAnyProductIsShort() {
+        doThrow(new BusinessException("可用库存不足，当前可用库存: 1")).when(productService).decreaseStock(2L, 4);
+
+        BusinessException e = assertThrows(BusinessException.class, () ->
+                stockService.stockOutBatch(List.of(item(1L, 1), item(2L, 4)), OPERATOR_ID));
+
+        assertEquals("产品ID 2 出库失败：可用库存不足，当前可用库存: 1", e.getMessage());
+        verify(stockOutMapper, never()).insertBatch(anyList());
+        verify(inventoryLedgerService, never()).recordBatch(anyList());
+    }
+
+    @Test
+    void batchValidation() {
+        List<StockBatchItem> tooMany = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            tooMany.add(item(1L, 1));
+        }
+        assertEquals("单批入库明细不能超过1000条",
+                assertThrows(BusinessException.class, () -> stockService.stockInBatch(tooMany, OPERATOR_ID)).getMessage());
+        assertEquals("出库数量必须大于0",
+                assertThrows(BusinessException.class, () ->
+                        stockService.stockOutBatch(List.of(item(1L, 0)), OPERATOR_ID)).getMessage());
+        assertEquals("入库明细不能为空",
+                assertThrows(BusinessException.class, () -> stockService.stockInBatch(List.of(), OPERATOR_ID)).getMessage());
+        verify(stockInMapper, never()).insertBatch(anyList());
+    }
+
+    @Test
+    void recordListingsUseOneJoinedQuery() {
+        List<StockInRecordVO> rows = List.of(StockInRecordVO.builder().id(1L).productName("已下架冰箱").build());
+        when(stockInMapper.selectRecordVOs(any(), any(), any(), any())).thenReturn(rows);
+
+        assertEquals(rows, stockService.getStockInRecords());
+        stockService.getStockOutRecords();
+
+        verify(stockInMapper).selectRecordVOs(any(), isNull(), isNull(), isNull());
+        verify(stockOutMapper).selectRecordVOs(any(), isNull(), isNull(), isNull());
+        // 产品名称由SQL关联查出，不再加载全部产品
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void recordPagesWalkAllRowsOnceInOrder() {
+        // 45条记录，其中部分时间相同，按（时间，ID）倒序
+        List<StockInRecordVO> table = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 8, 0);
+        for (long id = 1; id <= 45; id++) {
+            table.add(StockInRecordVO.builder().id(id).quantity(1).inTime(base.plusMinutes(id / 3)).build());
+        }
+        table.sort(Comparator.comparing(StockInRecordVO::getInTime).thenComparing(StockInRecordVO::getId).reversed());
+        when(stockInMapper.selectRecordVOs(any(), any(), any(), any())).thenAnswer(inv -> {
+            LocalDateTime cursorTime = inv.getArgument(1);
+            Long cursorId = inv.getArgument(2);
+            Integer limit = inv.getArgument(3);
+            return table.stream()
+                    .filter(r -> cursorTime == null || r.getInTime().isBefore(cursorTime)
+                            || r.getInTime().equals(cursorTime) && r.getId() < cursorId)
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        });
+
+        List<Long> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<StockInRecordVO> page = stockService.getStockInRecordPage(
+                    RecordPageQuery.builder().cursor(cursor).size(20).build());
+            page.getRecords().forEach(r -> seen.add(r.getId()));
+            pageSizes.add(page.getRecords().size());
+            if (page.getHasMore()) {
+                StockInRecordVO last = page.getRecords().get(page.getRecords().size() - 1);
+                RecordCursor next = RecordCursor.decode(page.getNextCursor());
+                assertEquals(last.getInTime(), next.getTime());
+                assertEquals(last.getId(), next.getId());
+            } else {
+                assertNull(page.getNextCursor());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of(20, 20, 5), pageSizes);
+        assertEquals(table.stream().map(StockInRecordVO::getId).collect(Collectors.toList()), seen);
+    }
+
+    @Test
+    void recordPageFetchesOneExtraRowAndCapsSize() {
+        when(stockInMapper.selectRecordVOs(any(), any(), any(), any())).thenReturn(new ArrayList<>());
+
+        CursorPage<StockInRecordVO> page = stockService.getStockInRecordPage(new RecordPageQuery());
+        stockService.getStockInRecordPage(RecordPageQuery.builder().size(10_000).build());
+
+        assertTrue(page.getRecords().isEmpty());
+        assertFalse(page.getHasMore());
+        verify(stockInMapper).selectRecordVOs(any(), any(), any(), eq(21));
+        verify(stockInMapper).selectRecordVOs(any(), any(), any(), eq(201));
+    }
+
+    private static StockBatchItem item(Long productId, int quantity) {
+        StockBatchItem item = new StockBatchItem();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
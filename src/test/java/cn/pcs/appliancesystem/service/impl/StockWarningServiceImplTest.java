@@ -0,0 +1,152 @@
+package cn.pcs.appliancesystem.service.impl;
+
+import cn.pcs.appliancesystem.entity.CursorPage;
+import cn.pcs.appliancesystem.entity.StockWarning;
+import cn.pcs.appliancesystem.exception.BusinessException;
+import cn.pcs.appliancesystem.mapper.ProductMapper;
+import cn.pcs.appliancesystem.support.H2Database;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 库存预警在H2上执行：生效阈值按指定阈值、产品阈值、类型阈值、默认值的顺序取，
+ * 按（库存，ID）游标分页，级别过滤与分页组合使用
+ */
+class StockWarningServiceImplTest {
+
+    private H2Database database;
+    private JdbcTemplate jdbc;
+    private StockWarningServiceImpl warningService;
+
+    @BeforeEach
+    void setUp() {
+        database = new H2Database();
+        jdbc = database.jdbc();
+        warningService = new StockWarningServiceImpl(database.mapper(ProductMapper.class));
+        jdbc.update("INSERT INTO product_type (id, type_name, warning_threshold) VALUES (1, '冰箱', NULL), (2, '空调', 20)");
+        product(1, 1, 0, null, 1);
+        product(2, 1, 5, null, 1);
+        product(3, 1, 5, null, 1);
+        // 库存等于阈值时预警
+        product(4, 1, 10, null, 1);
+        product(5, 1, 11, null, 1);
+        // 类型阈值20
+        product(6, 2, 15, null, 1);
+        // 产品阈值优先于类型阈值
+        product(7, 2, 15, 12, 1);
+        // 已下架
+        product(8, 1, 5, null, 0);
+        product(9, 1, -2, null, 1);
+        product(10, 2, 5, null, 1);
+        // 产品阈值大于默认值和类型阈值，决定库存上界
+        product(11, 1, 30, 40, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void warningListUsesEffectiveThresholdAndOrdersByStock() {
+        List<StockWarning> warnings = warningService.getWarningList(null);
+
+        assertEquals(List.of(9L, 1L, 2L, 3L, 10L, 4L, 6L, 11L), ids(warnings));
+        StockWarning typeThreshold = warnings.get(6);
+        assertEquals(20, typeThreshold.getThreshold());
+        assertEquals(1, typeThreshold.getLevel());
+        assertEquals(40, warnings.get(7).getThreshold());
+        assertEquals(10, warnings.get(5).getThreshold());
+        assertEquals(2, warnings.get(0).getLevel());
+        assertEquals(2, warnings.get(1).getLevel());
+    }
+
+    @Test
+    void pagesWalkAllWarningsOnceAcrossStockTies() {
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<StockWarning> page = warningService.getWarningPage(null, null, cursor, 2);
+            assertTrue(page.getRecords().size() <= 2);
+            walked.addAll(ids(page.getRecords()));
+            cursor = page.getNextCursor();
+            assertEquals(page.getHasMore(), cursor != null);
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(List.of(9L, 1L, 2L, 3L, 10L, 4L, 6L, 11L), walked);
+        assertEquals(4, pages);
+    }
+
+    @Test
+    void levelFilterCombinesWithPaging() {
+        CursorPage<StockWarning> out = warningService.getWarningPage(null, 2, null, 10);
+        assertEquals(List.of(9L, 1L), ids(out.getRecords()));
+        assertFalse(out.getHasMore());
+        assertNull(out.getNextCursor());
+
+        CursorPage<StockWarning> first = warningService.getWarningPage(null, 1, null, 4);
+        assertEquals(List.of(2L, 3L, 10L, 4L), ids(first.getRecords()));
+        assertTrue(first.getHasMore());
+        CursorPage<StockWarning> second = warningService.getWarningPage(null, 1, first.getNextCursor(), 4);
+        assertEquals(List.of(6L, 11L), ids(second.getRecords()));
+        assertFalse(second.getHasMore());
+        assertTrue(second.getRecords().stream().allMatch(w -> w.getLevel() == 1));
+    }
+
+    @Test
+    void fixedThresholdOverridesProductAndTypeThresholds() {
+        assertEquals(List.of(9L, 1L, 2L, 3L, 10L), ids(warningService.getWarningPage(5, null, null, 20).getRecords()));
+        assertEquals(List.of(2L, 3L, 10L), ids(warningService.getWarningPage(5, 1, null, 20).getRecords()));
+        // 负数阈值视为未指定
+        assertEquals(8, warningService.getWarningPage(-1, null, null, 20).getRecords().size());
+        assertEquals(List.of(9L, 1L), ids(warningService.getWarningList(0)));
+    }
+
+    @Test
+    void pageSizeIsClampedAndArgumentsAreValidated() {
+        assertEquals(8, warningService.getWarningPage(null, null, null, 0).getRecords().size());
+        assertEquals(8, warningService.getWarningPage(null, null, null, 10_000).getRecords().size());
+
+        BusinessException level = assertThrows(BusinessException.class,
+                () -> warningService.getWarningPage(null, 3, null, 10));
+        assertEquals("预警级别只能为1（低库存）或2（缺货）", level.getMessage());
+        BusinessException cursor = assertThrows(BusinessException.class,
+                () -> warningService.getWarningPage(null, null, "not-a-cursor", 10));
+        assertEquals("无效的分页游标", cursor.getMessage());
+    }
+
+    @Test
+    void restockedProductLeavesLaterPages() {
+        CursorPage<StockWarning> first = warningService.getWarningPage(null, null, null, 3);
+        assertEquals(List.of(9L, 1L, 2L), ids(first.getRecords()));
+
+        // 翻页期间补货的产品不再出现，已翻过的位置不受影响
+        jdbc.update("UPDATE product SET stock = 50 WHERE id IN (3, 10)");
+
+        CursorPage<StockWarning> second = warningService.getWarningPage(null, null, first.getNextCursor(), 3);
+        assertEquals(List.of(4L, 6L, 11L), ids(second.getRecords()));
+        assertFalse(second.getHasMore());
+    }
+
+    private void product(long id, long typeId, int stock, Integer warningThreshold, int status) {
+        jdbc.update("INSERT INTO product (id, product_name, type_id, price, stock, status, warning_threshold)"
+                + " VALUES (?, ?, ?, 100.00, ?, ?, ?)", id, "产品" + id, typeId, stock, status, warningThreshold);
+    }
+
+    private static List<Long> ids(List<StockWarning> warnings) {
+        return warnings.stream().map(StockWarning::getProductId).toList();
+    }
+}
@@ -0,0 +1,53 @@
+package cn.pcs.appliancesystem.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个线程同时开始执行同一任务，用于并发测试
+ */
+public final class ConcurrentRunner {
+
+    private ConcurrentRunner() {
+    }
+
+    public interface Task {
+        /**
+         * @param thread 线程序号
+         * @param iteration 该线程内的第几次执行
+         */
+        void run(int thread, int iteration) throws Exception;
+    }
+
+    /**
+     * 启动threads个线程，各执行iterations次任务，全部结束后返回；任务抛出的异常原样抛出
+     */
+    public static void run(int threads, int iterations, Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        task.run(thread, i);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
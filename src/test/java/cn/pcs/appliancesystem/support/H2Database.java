@@ -0,0 +1,141 @@
+package cn.pcs.appliancesystem.support;
+
+import cn.pcs.appliancesystem.config.MybatisPlusConfig;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * H2内存数据库（MySQL兼容模式），表结构取自 database/appliance_inventory_db.sql，
+ * mapper通过MyBatis-Plus注册，执行的是mapper注解中的真实SQL，事务由Spring事务管理器控制。
+ * 建表时去掉H2不支持的表选项、字符集和外键约束，不导入示例数据，每个实例是一个独立的空库；
+ * SQL中用到的MySQL日期函数由 H2MySqlFunctions 补齐
+ */
+public class H2Database {
+
+    private static final Path SCHEMA = Path.of("database", "appliance_inventory_db.sql");
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final DataSource dataSource;
+    private final Configuration configuration;
+    private final DataSourceTransactionManager transactionManager;
+    private SqlSessionTemplate sqlSession;
+
+    public H2Database() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:test" + SEQUENCE.incrementAndGet()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=DAY,VALUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        this.dataSource = h2;
+        this.transactionManager = new DataSourceTransactionManager(dataSource);
+        this.configuration = new Configuration();
+        createSchema();
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public DataSourceTransactionManager transactionManager() {
+        return transactionManager;
+    }
+
+    public TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    public JdbcTemplate jdbc() {
+        return new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * 获取mapper，同一实例上多次获取同一类型返回的代理共享会话工厂；在Spring事务中调用时加入该事务
+     */
+    public synchronized <T> T mapper(Class<T> type) {
+        if (!configuration.hasMapper(type)) {
+            configuration.addMapper(type);
+            sqlSession = null;
+        }
+        if (sqlSession == null) {
+            SqlSessionFactory factory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+            sqlSession = new SqlSessionTemplate(factory);
+        }
+        return sqlSession.getMapper(type);
+    }
+
+    /**
+     * 关闭内存库，释放全部数据
+     */
+    public void shutdown() {
+        jdbc().execute("SHUTDOWN");
+    }
+
+    private void createSchema() {
+        JdbcTemplate jdbc = jdbc();
+        for (String statement : schemaStatements()) {
+            jdbc.execute(statement);
+        }
+        H2MySqlFunctions.register(jdbc);
+    }
+
+    /**
+     * 读取建表脚本中的CREATE TABLE语句并转换为H2可执行的形式
+     */
+    static List<String> schemaStatements() {
+        String script;
+        try {
+            script = Files.readString(SCHEMA, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取建表脚本失败: " + SCHEMA.toAbsolutePath(), e);
+        }
+        List<String> statements = new ArrayList<>();
+        for (String statement : script.split(";\\s*\\n")) {
+            String sql = statement.replaceAll("(?m)^--.*$", "").trim();
+            if (!sql.startsWith("CREATE TABLE")) {
+                continue;
+            }
+            String table = sql.substring(sql.indexOf('`') + 1, sql.indexOf('`', sql.indexOf('`') + 1));
+            sql = sql
+                    // 外键约束：测试数据不依赖关联表
+                    .replaceAll("(?m),\\s*\\n\\s*CONSTRAINT `[^`]+` FOREIGN KEY[^\\n]*", "")
+                    .replaceAll("(?m)^\\s*CONSTRAINT `[^`]+` FOREIGN KEY[^\\n]*\\n", "")
+                    .replaceAll("\\) ENGINE = [^\\n]*$", ")")
+                    .replaceAll(" USING BTREE", "")
+                    .replaceAll(" CHARACTER SET \\w+ COLLATE \\w+", "")
+                    // H2中索引名在整个库内唯一，加上表名前缀
+                    .replaceAll("(UNIQUE INDEX|INDEX) `([^`]+)`", "$1 `" + table + "_$2`");
+            statements.add(sql);
+        }
+        return statements;
+    }
+
+    /**
+     * 与生产环境相同的MyBatis-Plus配置：下划线转驼峰、乐观锁插件，另加MySQL日期函数的改写
+     */
+    private final class Configuration extends MybatisConfiguration {
+        Configuration() {
+            setMapUnderscoreToCamelCase(true);
+            setEnvironment(new Environment("h2", new SpringManagedTransactionFactory(), dataSource));
+            MybatisPlusInterceptor interceptor = new MybatisPlusConfig().mybatisPlusInterceptor();
+            interceptor.addInnerInterceptor(new H2MySqlFunctions());
+            addInterceptor(interceptor);
+        }
+    }
+}
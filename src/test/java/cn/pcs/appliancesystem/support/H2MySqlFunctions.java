@@ -0,0 +1,59 @@
+package cn.pcs.appliancesystem.support;
+
+import com.baomidou.mybatisplus.core.toolkit.PluginUtils;
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Pattern;
+
+/**
+ * H2缺少的MySQL日期函数：DATE_FORMAT、WEEKDAY注册为Java函数；
+ * DATE_ADD/DATE_SUB(x, INTERVAL n DAY) 中n为表达式时H2无法解析，执行前改写为DATEADD
+ */
+public final class H2MySqlFunctions implements InnerInterceptor {
+
+    // 参数最多含一层括号，如 DATE_SUB(day, INTERVAL WEEKDAY(day) DAY)
+    private static final String ARG = "([^,()]+(?:\\([^()]*\\))?)";
+    private static final Pattern DATE_ADD = Pattern.compile("DATE_ADD\\(" + ARG + ",\\s*INTERVAL\\s+" + ARG + "\\s+DAY\\)");
+    private static final Pattern DATE_SUB = Pattern.compile("DATE_SUB\\(" + ARG + ",\\s*INTERVAL\\s+" + ARG + "\\s+DAY\\)");
+
+    static void register(JdbcTemplate jdbc) {
+        String name = H2MySqlFunctions.class.getName();
+        jdbc.execute("CREATE ALIAS DATE_FORMAT FOR '" + name + ".dateFormat'");
+        jdbc.execute("CREATE ALIAS WEEKDAY FOR '" + name + ".weekday'");
+    }
+
+    static String rewrite(String sql) {
+        sql = DATE_ADD.matcher(sql).replaceAll("DATEADD(DAY, $2, $1)");
+        return DATE_SUB.matcher(sql).replaceAll("DATEADD(DAY, -($2), $1)");
+    }
+
+    @Override
+    public void beforePrepare(StatementHandler sh, Connection connection, Integer transactionTimeout) {
+        PluginUtils.MPBoundSql boundSql = PluginUtils.mpStatementHandler(sh).mPBoundSql();
+        boundSql.sql(rewrite(boundSql.sql()));
+    }
+
+    /**
+     * 只支持代码中用到的 %Y %m %d %H
+     */
+    public static String dateFormat(LocalDateTime time, String format) {
+        if (time == null) {
+            return null;
+        }
+        String pattern = format.replace("%Y", "yyyy").replace("%m", "MM").replace("%d", "dd").replace("%H", "HH");
+        return time.format(DateTimeFormatter.ofPattern(pattern));
+    }
+
+    /**
+     * 周一为0，周日为6
+     */
+    public static Integer weekday(LocalDate day) {
+        return day == null ? null : day.getDayOfWeek().getValue() - 1;
+    }
+}
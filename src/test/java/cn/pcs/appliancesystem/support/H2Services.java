@@ -0,0 +1,97 @@
+package cn.pcs.appliancesystem.support;
+
+import cn.pcs.appliancesystem.mapper.DailyRollupMapper;
+import cn.pcs.appliancesystem.mapper.InventoryMovementMapper;
+import cn.pcs.appliancesystem.mapper.InventorySnapshotMapper;
+import cn.pcs.appliancesystem.mapper.ProductMapper;
+import cn.pcs.appliancesystem.mapper.ProductTypeMapper;
+import cn.pcs.appliancesystem.mapper.SaleMapper;
+import cn.pcs.appliancesystem.mapper.SysUserMapper;
+import cn.pcs.appliancesystem.service.impl.DailyRollupServiceImpl;
+import cn.pcs.appliancesystem.service.impl.DatabaseInventoryEngine;
+import cn.pcs.appliancesystem.service.impl.DictionaryCache;
+import cn.pcs.appliancesystem.service.impl.InventoryLedgerServiceImpl;
+import cn.pcs.appliancesystem.service.impl.LocalStatisticsCacheBroadcaster;
+import cn.pcs.appliancesystem.service.impl.ProductLockMetrics;
+import cn.pcs.appliancesystem.service.impl.ProductServiceImpl;
+import cn.pcs.appliancesystem.service.impl.SaleServiceImpl;
+import cn.pcs.appliancesystem.service.impl.SalesColumnStore;
+import cn.pcs.appliancesystem.service.impl.StatisticsDayCache;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 在H2Database上按生产环境的依赖关系组装产品、销售相关服务：数据库库存引擎、库存流水、日汇总，
+ * 列存关闭。服务上的@Transactional不生效，需要事务语义时在 transactionTemplate() 中调用
+ */
+public class H2Services {
+
+    public final H2Database database;
+    public final JdbcTemplate jdbc;
+    public final ProductMapper productMapper;
+    public final SaleMapper saleMapper;
+    public final DatabaseInventoryEngine inventoryEngine;
+    public final InventoryLedgerServiceImpl inventoryLedgerService;
+    public final StatisticsDayCache statisticsDayCache;
+    public final DailyRollupServiceImpl dailyRollupService;
+    public final DictionaryCache dictionaryCache;
+    public final ProductLockMetrics productLockMetrics = new ProductLockMetrics();
+    public final ProductServiceImpl productService;
+    public final SaleServiceImpl saleService;
+    // 已发布的应用事件
+    public final List<Object> events = Collections.synchronizedList(new ArrayList<>());
+
+    public H2Services() {
+        database = new H2Database();
+        jdbc = database.jdbc();
+        productMapper = database.mapper(ProductMapper.class);
+        saleMapper = database.mapper(SaleMapper.class);
+        DailyRollupMapper dailyRollupMapper = database.mapper(DailyRollupMapper.class);
+        inventoryEngine = new DatabaseInventoryEngine(productMapper);
+        inventoryLedgerService = new InventoryLedgerServiceImpl(database.mapper(InventoryMovementMapper.class),
+                database.mapper(InventorySnapshotMapper.class));
+        statisticsDayCache = new StatisticsDayCache(dailyRollupMapper, new LocalStatisticsCacheBroadcaster(), 100, 100);
+        dailyRollupService = new DailyRollupServiceImpl(dailyRollupMapper, statisticsDayCache);
+        dictionaryCache = new DictionaryCache(productMapper, database.mapper(ProductTypeMapper.class),
+                database.mapper(SysUserMapper.class));
+        productService = new ProductServiceImpl(productMapper, inventoryEngine, inventoryLedgerService,
+                database.transactionTemplate(), productLockMetrics, dictionaryCache, events::add);
+        ReflectionTestUtils.setField(productService, "maxRetries", 3);
+        ReflectionTestUtils.setField(productService, "retryBackoffMillis", 1L);
+        saleService = new SaleServiceImpl(saleMapper, productMapper, productService, inventoryLedgerService,
+                dailyRollupService, new SalesColumnStore(saleMapper, false));
+    }
+
+    public TransactionTemplate transactionTemplate() {
+        return database.transactionTemplate();
+    }
+
+    /**
+     * 插入上架产品，类型ID为1、单价100
+     */
+    public void insertProduct(long id, String name, int stock) {
+        jdbc.update("INSERT INTO product (id, product_name, type_id, price, stock) VALUES (?, ?, 1, 100.00, ?)",
+                id, name, stock);
+    }
+
+    public int stock(long id) {
+        return jdbc.queryForObject("SELECT stock FROM product WHERE id = ?", Integer.class, id);
+    }
+
+    public int reserved(long id) {
+        return jdbc.queryForObject("SELECT reserved FROM product WHERE id = ?", Integer.class, id);
+    }
+
+    public int count(String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    public void shutdown() {
+        database.shutdown();
+    }
+}
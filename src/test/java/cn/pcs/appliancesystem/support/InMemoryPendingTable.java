@@ -0,0 +1,98 @@
+package cn.pcs.appliancesystem.support;
+
+import cn.pcs.appliancesystem.entity.StockChangePending;
+import cn.pcs.appliancesystem.mapper.StockChangePendingMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 内存中的stock_change_pending表
+ * 事务中的删除在事务提交时生效、回滚时撤销（删除到事务结束前其他事务看不到该行），
+ * 与调用方事务回滚后记录重新出现、由补偿删除的数据库语义一致
+ */
+public class InMemoryPendingTable {
+
+    private final Map<Long, StockChangePending> rows = new ConcurrentSkipListMap<>();
+    // 已被未结束的事务删除的行
+    private final Map<Long, StockChangePending> deleting = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final StockChangePendingMapper mapper = mock(StockChangePendingMapper.class);
+
+    public InMemoryPendingTable() {
+        when(mapper.insertBatch(anyList())).thenAnswer(inv -> {
+            List<StockChangePending> list = inv.getArgument(0);
+            list.forEach(this::insert);
+            return list.size();
+        });
+        when(mapper.insert(any(StockChangePending.class))).thenAnswer(inv -> {
+            insert(inv.getArgument(0));
+            return 1;
+        });
+        when(mapper.deleteById(anyLong())).thenAnswer(inv -> delete(inv.getArgument(0)));
+        when(mapper.selectStale(any(), anyInt())).thenAnswer(inv -> {
+            LocalDateTime before = inv.getArgument(0);
+            int limit = inv.getArgument(1);
+            List<StockChangePending> stale = new ArrayList<>();
+            for (StockChangePending row : rows.values()) {
+                if (stale.size() < limit && row.getCreateTime().isBefore(before)) {
+                    stale.add(row);
+                }
+            }
+            return stale;
+        });
+    }
+
+    public StockChangePendingMapper mapper() {
+        return mapper;
+    }
+
+    public void insert(StockChangePending row) {
+        row.setId(nextId.incrementAndGet());
+        rows.put(row.getId(), row);
+    }
+
+    /**
+     * 未被删除的记录
+     */
+    public List<StockChangePending> rows() {
+        return new ArrayList<>(rows.values());
+    }
+
+    public int size() {
+        return rows.size() + deleting.size();
+    }
+
+    private int delete(Long id) {
+        StockChangePending row = rows.remove(id);
+        if (row == null) {
+            return 0;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleting.put(id, row);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    deleting.remove(id);
+                    if (status != STATUS_COMMITTED) {
+                        rows.put(id, row);
+                    }
+                }
+            });
+        }
+        return 1;
+    }
+}
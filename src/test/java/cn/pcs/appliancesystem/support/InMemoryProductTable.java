@@ -0,0 +1,165 @@
+package cn.pcs.appliancesystem.support;
+
+import cn.pcs.appliancesystem.entity.Product;
+import cn.pcs.appliancesystem.mapper.ProductMapper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 内存中的product表，按ProductMapper中各条库存SQL的WHERE条件实现，每行的读写在行对象上同步，
+ * 等价于数据库的行锁。用于在没有数据库的情况下验证库存引擎的并发语义
+ */
+public class InMemoryProductTable {
+
+    private final Map<Long, Row> rows = new ConcurrentHashMap<>();
+    private final ProductMapper mapper = mock(ProductMapper.class);
+    // 已执行的库存UPDATE条数，用于衡量合并效果
+    private final AtomicInteger updates = new AtomicInteger();
+
+    public InMemoryProductTable() {
+        when(mapper.increaseStock(anyLong(), anyInt())).thenAnswer(inv ->
+                update(inv.getArgument(0), row -> {
+                    row.stock += (Integer) inv.getArgument(1);
+                    return true;
+                }));
+        when(mapper.decreaseStock(anyLong(), anyInt())).thenAnswer(inv ->
+                update(inv.getArgument(0), row -> {
+                    int quantity = inv.getArgument(1);
+                    if (row.stock - row.reserved < quantity) {
+                        return false;
+                    }
+                    row.stock -= quantity;
+                    return true;
+                }));
+        when(mapper.applyStockDelta(anyLong(), anyLong())).thenAnswer(inv ->
+                update(inv.getArgument(0), row -> {
+                    row.stock += (Long) inv.getArgument(1);
+                    return true;
+                }));
+        when(mapper.applyStockDeltaIfEnough(anyLong(), anyLong())).thenAnswer(inv ->
+                update(inv.getArgument(0), row -> {
+                    long stock = row.stock + (Long) inv.getArgument(1);
+                    if (stock < row.reserved) {
+                        return false;
+                    }
+                    row.stock = stock;
+                    return true;
+                }));
+        when(mapper.reserveStock(anyLong(), anyInt())).thenAnswer(inv ->
+                update(inv.getArgument(0), row -> {
+                    int quantity = inv.getArgument(1);
+                    if (row.stock - row.reserved < quantity) {
+                        return false;
+                    }
+                    row.reserved += quantity;
+                    return true;
+                }));
+        when(mapper.addReserved(anyLong(), anyInt())).thenAnswer(inv ->
+                update(inv.getArgument(0), row -> {
+                    row.reserved = Math.max(row.reserved + (Integer) inv.getArgument(1), 0);
+                    return true;
+                }));
+        when(mapper.commitReservedStock(anyLong(), anyInt())).thenAnswer(inv ->
+                update(inv.getArgument(0), row -> {
+                    int quantity = inv.getArgument(1);
+                    if (row.reserved < quantity || row.stock < quantity) {
+                        return false;
+                    }
+                    row.stock -= quantity;
+                    row.reserved -= quantity;
+                    return true;
+                }));
+        when(mapper.selectStock(anyLong())).thenAnswer(inv -> read(inv.getArgument(0), row -> (int) row.stock));
+        when(mapper.selectStockForUpdate(anyLong())).thenAnswer(inv -> read(inv.getArgument(0), row -> (int) row.stock));
+        when(mapper.selectAvailable(anyLong())).thenAnswer(inv ->
+                read(inv.getArgument(0), row -> (int) (row.stock - row.reserved)));
+        when(mapper.selectReserved(anyLong())).thenAnswer(inv -> read(inv.getArgument(0), row -> row.reserved));
+        when(mapper.selectStockPage(anyLong(), anyInt())).thenAnswer(inv -> {
+            long afterId = inv.getArgument(0);
+            int limit = inv.getArgument(1);
+            return rows.keySet().stream()
+                    .filter(id -> id > afterId)
+                    .sorted()
+                    .limit(limit)
+                    .map(id -> read(id, row -> Product.builder()
+                            .id(row.id)
+                            .stock((int) row.stock)
+                            .reserved(row.reserved)
+                            .build()))
+                    .toList();
+        });
+        when(mapper.selectById(any())).thenAnswer(inv -> read((Long) inv.getArgument(0), row -> Product.builder()
+                .id(row.id)
+                .stock((int) row.stock)
+                .reserved(row.reserved)
+                .build()));
+    }
+
+    public ProductMapper mapper() {
+        return mapper;
+    }
+
+    public void insert(long productId, int stock) {
+        rows.put(productId, new Row(productId, stock));
+    }
+
+    public void delete(long productId) {
+        rows.remove(productId);
+    }
+
+    public long stock(long productId) {
+        return rows.get(productId).stock;
+    }
+
+    public int reserved(long productId) {
+        return rows.get(productId).reserved;
+    }
+
+    public int updates() {
+        return updates.get();
+    }
+
+    private int update(Long productId, RowUpdate update) {
+        Row row = rows.get(productId);
+        if (row == null) {
+            return 0;
+        }
+        synchronized (row) {
+            updates.incrementAndGet();
+            return update.apply(row) ? 1 : 0;
+        }
+    }
+
+    private <T> T read(Long productId, java.util.function.Function<Row, T> reader) {
+        Row row = rows.get(productId);
+        if (row == null) {
+            return null;
+        }
+        synchronized (row) {
+            return reader.apply(row);
+        }
+    }
+
+    private interface RowUpdate {
+        boolean apply(Row row);
+    }
+
+    private static final class Row {
+        private final long id;
+        private long stock;
+        private int reserved;
+
+        private Row(long id, long stock) {
+            this.id = id;
+            this.stock = stock;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package cn.pcs.appliancesystem.support;
+
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.Iterator;
+
+/**
+ * 按MyBatis流式查询的方式逐行把结果交给ResultHandler，处理器调用stop()后停止
+ */
+public final class ResultStreams {
+
+    private ResultStreams() {
+    }
+
+    /**
+     * @return 实际交给处理器的行数
+     */
+    public static <T> int feed(Iterable<T> rows, ResultHandler<T> handler) {
+        DefaultResultContext<T> context = new DefaultResultContext<>();
+        Iterator<T> iterator = rows.iterator();
+        while (!context.isStopped() && iterator.hasNext()) {
+            context.nextResultObject(iterator.next());
+            handler.handleResult(context);
+        }
+        return context.getResultCount();
+    }
+}
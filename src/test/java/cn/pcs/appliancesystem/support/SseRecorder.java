@@ -0,0 +1,91 @@
+package cn.pcs.appliancesystem.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 通过MockMvc调用返回SseEmitter的控制器方法，记录推送到响应中的事件
+ * 事件在后台线程中写入响应，读取时只解析已完整写出（以空行结尾）的事件，心跳注释忽略
+ */
+public final class SseRecorder {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final long WAIT_MILLIS = 5000;
+
+    private final MockHttpServletResponse response;
+
+    private SseRecorder(MockHttpServletResponse response) {
+        this.response = response;
+    }
+
+    /**
+     * 一条SSE事件，data为JSON
+     */
+    public record Event(String id, String name, JsonNode data) {
+    }
+
+    public static SseRecorder open(Object controller, RequestBuilder request) throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (!result.getRequest().isAsyncStarted()) {
+            throw new IllegalStateException("请求未以SSE方式返回: " + result.getResponse().getStatus());
+        }
+        return new SseRecorder(result.getResponse());
+    }
+
+    /**
+     * 当前已收到的全部事件
+     */
+    public List<Event> events() throws Exception {
+        String content = response.getContentAsString(StandardCharsets.UTF_8);
+        List<Event> events = new ArrayList<>();
+        int end = content.lastIndexOf("\n\n");
+        if (end < 0) {
+            return events;
+        }
+        for (String block : content.substring(0, end).split("\n\n")) {
+            String id = null;
+            String name = null;
+            StringBuilder data = null;
+            for (String line : block.split("\n")) {
+                if (line.startsWith("id:")) {
+                    id = line.substring(3);
+                } else if (line.startsWith("event:")) {
+                    name = line.substring(6);
+                } else if (line.startsWith("data:")) {
+                    data = data == null ? new StringBuilder() : data.append('\n');
+                    data.append(line.substring(5));
+                }
+            }
+            if (data != null) {
+                events.add(new Event(id, name, JSON.readTree(data.toString())));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * 等待收到至少count个事件，返回当前全部事件；超时抛出AssertionError
+     */
+    public List<Event> await(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        List<Event> events = events();
+        while (events.size() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("等待" + count + "个事件超时，已收到: " + events);
+            }
+            Thread.sleep(10);
+            events = events();
+        }
+        return events;
+    }
+}
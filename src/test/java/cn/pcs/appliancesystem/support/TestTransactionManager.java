@@ -0,0 +1,44 @@
+package cn.pcs.appliancesystem.support;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 不连接数据库的事务管理器：事务边界和事务同步（afterCommit、afterCompletion回调）与真实事务一致，
+ * 但提交和回滚不做任何操作，用于验证依赖事务同步的补偿逻辑
+ */
+public class TestTransactionManager extends AbstractPlatformTransactionManager {
+
+    private final AtomicInteger commits = new AtomicInteger();
+    private final AtomicInteger rollbacks = new AtomicInteger();
+
+    public int commits() {
+        return commits.get();
+    }
+
+    public int rollbacks() {
+        return rollbacks.get();
+    }
+
+    @Override
+    protected Object doGetTransaction() {
+        return new Object();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        commits.incrementAndGet();
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        rollbacks.incrementAndGet();
+    }
+}
@@ -0,0 +1,105 @@
+package cn.pcs.appliancesystem.util;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "AppliancesSystemSecretKey2025ForJWTTokenGeneration";
+
+    @Test
+    void verifiesOnceAndReusesCachedPrincipal() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 300_000, 100);
+        String token = jwtUtil.generateToken(7L, "alice", "ADMIN");
+
+        JwtPrincipal first = jwtUtil.verify(token);
+        JwtPrincipal second = jwtUtil.verify(token);
+
+        assertSame(first, second);
+        assertEquals(7L, first.getUserId());
+        assertEquals("alice", first.getUsername());
+        assertEquals("ADMIN", first.getRole());
+        assertFalse(first.isStreamOnly());
+        assertEquals(1, cache(jwtUtil).size());
+    }
+
+    @Test
+    void cachedTokenStopsWorkingWhenItExpires() throws InterruptedException {
+        // 过期时间以秒为精度，2秒的有效期保证生成后立即验证时仍有效
+        JwtUtil jwtUtil = jwtUtil(SECRET, 2000, 100);
+        String token = jwtUtil.generateToken(7L, "alice", "ADMIN");
+        JwtPrincipal principal = jwtUtil.verify(token);
+
+        Thread.sleep(Math.max(0, principal.getExpiresAt() - System.currentTimeMillis()) + 50);
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.verify(token));
+        assertTrue(cache(jwtUtil).isEmpty());
+        assertFalse(jwtUtil.validateToken(token));
+    }
+
+    @Test
+    void rejectsTamperedOrForeignTokens() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 300_000, 100);
+        String token = jwtUtil.generateToken(7L, "alice", "USER");
+        String[] parts = token.split("\\.");
+        // 换成另一个令牌的载荷，签名不再匹配
+        String otherPayload = jwtUtil.generateToken(1L, "root", "ADMIN").split("\\.")[1];
+        String tampered = parts[0] + "." + otherPayload + "." + parts[2];
+        String foreign = jwtUtil("AnotherSecretKeyThatIsAtLeast32BytesLong!!", 300_000, 100)
+                .generateToken(7L, "alice", "USER");
+
+        assertThrows(JwtException.class, () -> jwtUtil.verify(tampered));
+        assertThrows(JwtException.class, () -> jwtUtil.verify(foreign));
+        assertThrows(IllegalArgumentException.class, () -> jwtUtil.verify(""));
+        assertTrue(cache(jwtUtil).isEmpty());
+    }
+
+    @Test
+    void streamTokenCarriesScope() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 300_000, 100);
+
+        JwtPrincipal principal = jwtUtil.verify(jwtUtil.generateStreamToken(7L, "alice", "USER"));
+
+        assertTrue(principal.isStreamOnly());
+        assertEquals(JwtUtil.SCOPE_STREAM, principal.getScope());
+        // 订阅令牌的有效期（默认1分钟）短于普通令牌
+        assertTrue(principal.getExpiresAt() <= System.currentTimeMillis() + 61_000);
+    }
+
+    @Test
+    void cacheIsBounded() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 300_000, 2);
+
+        for (long userId = 1; userId <= 5; userId++) {
+            String token = jwtUtil.generateToken(userId, "user" + userId, "USER");
+            assertEquals(userId, jwtUtil.verify(token).getUserId());
+        }
+
+        assertEquals(2, cache(jwtUtil).size());
+    }
+
+    private static JwtUtil jwtUtil(String secret, long expiration, int cacheMaxEntries) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secretKey", secret);
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", expiration);
+        ReflectionTestUtils.setField(jwtUtil, "streamExpirationTime", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxEntries", cacheMaxEntries);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, JwtPrincipal> cache(JwtUtil jwtUtil) {
+        return (Map<String, JwtPrincipal>) ReflectionTestUtils.getField(jwtUtil, "verified");
+    }
+}
@@ -0,0 +1,46 @@
+package cn.pcs.appliancesystem.util;
+
+import cn.pcs.appliancesystem.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_000_000);
+        String encoded = new RecordCursor(time, 42L).encode();
+
+        RecordCursor decoded = RecordCursor.decode(encoded);
+
+        assertEquals(time, decoded.getTime());
+        assertEquals(42L, decoded.getId());
+        // 可直接放在URL参数中
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), encoded);
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertNull(RecordCursor.decode(null));
+        assertNull(RecordCursor.decode(" "));
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        String noSeparator = Base64.getUrlEncoder().encodeToString("2024-03-01T12:00".getBytes());
+        String badTime = Base64.getUrlEncoder().encodeToString("yesterday|1".getBytes());
+        String badId = Base64.getUrlEncoder().encodeToString("2024-03-01T12:00|x".getBytes());
+
+        for (String cursor : new String[]{"%%%", noSeparator, badTime, badId}) {
+            BusinessException e = assertThrows(BusinessException.class, () -> RecordCursor.decode(cursor));
+            assertEquals("无效的分页游标", e.getMessage());
+        }
+    }
+}
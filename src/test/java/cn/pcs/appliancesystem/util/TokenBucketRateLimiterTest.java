@@ -0,0 +1,57 @@
+package cn.pcs.appliancesystem.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketRateLimiterTest {
+
+    @Test
+    void allowsBurstUpToCapacityThenRejects() {
+        // 每分钟补充1个令牌，测试期间补充的量不足一个
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 1, 100);
+
+        assertTrue(limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("alice"));
+        assertFalse(limiter.tryAcquire("alice"));
+        assertFalse(limiter.tryAcquire("alice"));
+    }
+
+    @Test
+    void keysAreLimitedIndependently() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 100);
+
+        assertTrue(limiter.tryAcquire("alice"));
+        assertFalse(limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("bob"));
+        assertFalse(limiter.tryAcquire("bob"));
+        assertEquals(2, limiter.size());
+    }
+
+    @Test
+    void failsOpenWhenKeyTableIsFull() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 2);
+        // 两个桶都已消耗令牌，不是可清理的空闲桶
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b"));
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("c"));
+        }
+        assertEquals(2, limiter.size());
+        assertFalse(limiter.tryAcquire("a"));
+    }
+
+    @Test
+    void rejectsNonPositiveParameters() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new TokenBucketRateLimiter(0, 1, 1));
+        assertEquals("限流参数必须大于0", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(1, 1, -1));
+    }
+}